@@ -111,6 +111,47 @@ public class MeetingListInstrumentedTest {
                 .check(ViewAssertions.matches(isDisplayed()));
     }
 
+    /**
+     * Tests filtering meetings by participant.
+     * It performs the following steps:
+     * 1. Clicks on the Options button to display the filtering options.
+     * 2. Selects the filter by participant option.
+     * 3. Enters the email address of a participant.
+     * 4. Closes the virtual keyboard.
+     * 5. Clicks on the "Filter" button.
+     * 6. Verifies that a meeting of the participant is displayed and that a meeting without them is not.
+     */
+    @Test
+    public void filterMeetingsByParticipant() {
+
+        // Clicks on the Options button to display the filtering options
+        Espresso.onView(withId(R.id.btnOptions)).perform(click());
+
+        // Selects the filter by participant option
+        Espresso.onView(withId(R.id.checkBoxParticipant)).perform(click());
+
+        // Enters the email address of a participant
+        Espresso.onView(withId(R.id.editTextParticipant)).perform(ViewActions.typeText("may.smith@example.com"));
+
+        // Closes the virtual keyboard
+        Espresso.closeSoftKeyboard();
+
+        // Clicks on the "Filter" button
+        Espresso.onView(withText("Filtrer")).perform(click());
+
+        // Verifies that a meeting of the participant is displayed and that a meeting without them is not
+        Espresso.onView(allOf(
+                        ViewMatchers.withId(R.id.textTitle),
+                        ViewMatchers.withText(containsString("Réunion A"))
+                ))
+                .check(ViewAssertions.matches(isDisplayed()));
+        Espresso.onView(allOf(
+                        ViewMatchers.withId(R.id.textTitle),
+                        ViewMatchers.withText(containsString("Réunion B"))
+                ))
+                .check(ViewAssertions.doesNotExist());
+    }
+
     /**
      * Tests deleting a meeting.
      * It performs the following steps:
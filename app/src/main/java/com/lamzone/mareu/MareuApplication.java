@@ -0,0 +1,26 @@
+package com.lamzone.mareu;
+
+import android.app.Application;
+
+import com.lamzone.mareu.di.Injector;
+
+/**
+ * Application of Mareu, starting to load the meetings as soon as the process starts.
+ */
+public class MareuApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Store the meetings in the app's private files, and sync them if a server is configured, before the repository is created
+        Injector.setFilesDir(getFilesDir());
+        String serverUrl = getString(R.string.sync_server_url);
+        if (!serverUrl.isEmpty()) {
+            Injector.setServerUrl(serverUrl);
+        }
+
+        // Create the repository, which loads the meetings in the background while the activity starts
+        Injector.getInstance();
+    }
+}
@@ -5,9 +5,13 @@ import androidx.lifecycle.ViewModel;
 
 import com.lamzone.mareu.di.Injector;
 import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.Recurrence;
 import com.lamzone.mareu.repository.MeetingRepository;
 
+import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ViewModel for adding new meetings.
@@ -38,6 +42,45 @@ public class AddMeetingViewModel extends ViewModel {
         mRepository.addMeeting(meeting);
     }
 
+    /**
+     * Adds a new meeting only if its room is free for its whole duration.
+     *
+     * @param meeting Meeting to add.
+     * @return The meetings of the room overlapping the meeting, empty if it was added.
+     */
+    public List<Meeting> bookMeeting(Meeting meeting) {
+        return mRepository.bookMeeting(meeting);
+    }
+
+    /**
+     * Retrieves the meetings of a room overlapping a time slot.
+     *
+     * @param room            Name of the room.
+     * @param dateTime        Start of the slot.
+     * @param durationMinutes Duration of the slot, in minutes.
+     * @return List of the overlapping meetings, sorted by date and time.
+     */
+    public List<Meeting> getConflicts(String room, Calendar dateTime, int durationMinutes) {
+        long fromMinute = TimeUnit.MILLISECONDS.toMinutes(dateTime.getTimeInMillis());
+        return mRepository.getConflicts(room, fromMinute, fromMinute + durationMinutes);
+    }
+
+    /**
+     * Retrieves the meetings of a room overlapping a time slot or any of its occurrences.
+     *
+     * @param room            Name of the room.
+     * @param dateTime        Start of the slot, the first occurrence if it recurs.
+     * @param durationMinutes Duration of the slot, in minutes.
+     * @param recurrence      Rule repeating the slot, or null for a single slot.
+     * @return List of the overlapping meetings, sorted by date and time.
+     */
+    public List<Meeting> getConflicts(String room, Calendar dateTime, int durationMinutes, Recurrence recurrence) {
+        if (recurrence == null) {
+            return getConflicts(room, dateTime, durationMinutes);
+        }
+        return mRepository.getConflicts(new Meeting("", dateTime, durationMinutes, room, "", Collections.emptyList(), recurrence));
+    }
+
     /**
      * Retrieves the list of meetings.
      *
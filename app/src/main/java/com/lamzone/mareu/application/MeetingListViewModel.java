@@ -1,13 +1,21 @@
 package com.lamzone.mareu.application;
 
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
 import com.lamzone.mareu.di.Injector;
 import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.repository.MeetingPages;
 import com.lamzone.mareu.repository.MeetingRepository;
+import com.lamzone.mareu.repository.StorageError;
 
+import java.util.Calendar;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ViewModel for the list of meetings.
@@ -15,15 +23,38 @@ import java.util.List;
 public class MeetingListViewModel extends ViewModel {
 
     private final MeetingRepository mRepository;
+    private final Executor mFilterExecutor;
+    private final MutableLiveData<List<Meeting>> mFilteredMeetings = new MutableLiveData<>();
+    private final AtomicLong mFilterGeneration = new AtomicLong(); // Incremented by each filter request
+
+    // Current criteria, set on the main thread
+    private boolean mFilterByDate;
+    private boolean mFilterByLocation;
+    private String mSelectedLocation;
+    private Calendar mSelectedDate;
+    private boolean mFilterByParticipant;
+    private String mSelectedParticipant;
+    private String mQuery = "";
 
     /**
      * Initializes a new MeetingListViewModel object.
      */
     public MeetingListViewModel() {
-        mRepository = Injector.getInstance().provideMeetingRepository();
+        this(Injector.getInstance().provideMeetingRepository(), Executors.newSingleThreadExecutor());
         // Log.d("MeetingListViewModel", "ViewModel initialized"); // ViewModel initialization log
     }
 
+    /**
+     * Initializes a new MeetingListViewModel object with its dependencies.
+     *
+     * @param repository     Repository providing the meetings.
+     * @param filterExecutor Executor running the filter queries off the main thread, one at a time.
+     */
+    public MeetingListViewModel(MeetingRepository repository, Executor filterExecutor) {
+        mRepository = repository;
+        mFilterExecutor = filterExecutor;
+    }
+
     /**
      * Retrieves the list of meetings.
      *
@@ -34,6 +65,15 @@ public class MeetingListViewModel extends ViewModel {
         return mRepository.getMeetingsLiveData();
     }
 
+    /**
+     * Retrieves the meetings as pages, to display a large list page by page.
+     *
+     * @return LiveData MeetingPages representing the pages of meetings.
+     */
+    public LiveData<MeetingPages> getMeetingPages() {
+        return mRepository.getMeetingPagesLiveData();
+    }
+
     /**
      * Retrieves the list of meeting rooms.
      *
@@ -43,4 +83,129 @@ public class MeetingListViewModel extends ViewModel {
         // Log.d("MeetingListViewModel", "Getting meeting rooms..." + mRepository.getMeetingRoomsLiveData());
         return mRepository.getMeetingRoomsLiveData();
     }
-}
\ No newline at end of file
+
+    /**
+     * Retrieves whether the stored meetings are still being loaded, the list growing meanwhile.
+     *
+     * @return LiveData Boolean containing true until all the stored meetings are loaded.
+     */
+    public LiveData<Boolean> isLoading() {
+        return mRepository.getLoadingLiveData();
+    }
+
+    /**
+     * Retrieves the last storage failure not shown to the user yet.
+     *
+     * @return LiveData StorageError containing the failure, null if there is none.
+     */
+    public LiveData<StorageError> getStorageError() {
+        return mRepository.getErrorLiveData();
+    }
+
+    /**
+     * Records that the last storage failure was shown to the user.
+     */
+    public void onStorageErrorShown() {
+        mRepository.clearError();
+    }
+
+    /**
+     * Checks whether a search is in progress, in which case an empty result means that nothing matches.
+     *
+     * @return true if the current search text is not empty, false otherwise.
+     */
+    public boolean isSearching() {
+        return !mQuery.isEmpty();
+    }
+
+    /**
+     * Retrieves the result of the latest filter request.
+     *
+     * @return LiveData List Meeting representing the filtered meetings.
+     */
+    public LiveData<List<Meeting>> getFilteredMeetings() {
+        return mFilteredMeetings;
+    }
+
+    /**
+     * Filters the meetings on the background executor.
+     * A newer request cancels this one: a stale request is skipped if it has not started yet,
+     * and its result is dropped otherwise, so only the latest result is published.
+     *
+     * @param filterByDate     Indicates if filtering by date is enabled.
+     * @param filterByLocation Indicates if filtering by location is enabled.
+     * @param selectedLocation Selected location for filtering.
+     * @param selectedDate     Selected date for filtering.
+     */
+    public void applyFilters(boolean filterByDate, boolean filterByLocation, String selectedLocation, Calendar selectedDate) {
+        applyFilters(filterByDate, filterByLocation, selectedLocation, selectedDate, false, null);
+    }
+
+    /**
+     * Filters the meetings on the background executor, including by participant, within the current search.
+     * A newer request cancels this one, as with the other filters.
+     *
+     * @param filterByDate        Indicates if filtering by date is enabled.
+     * @param filterByLocation    Indicates if filtering by location is enabled.
+     * @param selectedLocation    Selected location for filtering.
+     * @param selectedDate        Selected date for filtering.
+     * @param filterByParticipant Indicates if filtering by participant is enabled.
+     * @param selectedParticipant Email address of the selected participant.
+     */
+    public void applyFilters(boolean filterByDate, boolean filterByLocation, String selectedLocation, Calendar selectedDate,
+                             boolean filterByParticipant, String selectedParticipant) {
+        mFilterByDate = filterByDate;
+        mFilterByLocation = filterByLocation;
+        mSelectedLocation = selectedLocation;
+        mSelectedDate = selectedDate;
+        mFilterByParticipant = filterByParticipant;
+        mSelectedParticipant = selectedParticipant;
+        requestFilteredMeetings();
+    }
+
+    /**
+     * Searches the meetings on the background executor, within the current filters.
+     * It is meant to be called on each typed character: a newer request cancels this one.
+     *
+     * @param query Text to look for in the title, subject and participants, empty to stop searching.
+     */
+    public void search(String query) {
+        mQuery = query.trim();
+        requestFilteredMeetings();
+    }
+
+    /**
+     * Computes the meetings matching the current criteria on the background executor,
+     * publishing only the result of the latest request.
+     */
+    private void requestFilteredMeetings() {
+        final boolean filterByDate = mFilterByDate;
+        final boolean filterByLocation = mFilterByLocation;
+        final String selectedLocation = mSelectedLocation;
+        final Calendar selectedDate = mSelectedDate;
+        final boolean filterByParticipant = mFilterByParticipant;
+        final String selectedParticipant = mSelectedParticipant;
+        final String query = mQuery;
+        final long generation = mFilterGeneration.incrementAndGet();
+        mFilterExecutor.execute(() -> {
+            if (generation != mFilterGeneration.get()) {
+                return; // Cancelled by a newer request before starting
+            }
+            List<Meeting> filteredMeetings = query.isEmpty()
+                    ? mRepository.filterMeetings(filterByDate, filterByLocation, selectedLocation, selectedDate, filterByParticipant, selectedParticipant)
+                    : mRepository.searchMeetings(query, filterByDate, filterByLocation, selectedLocation, selectedDate, filterByParticipant, selectedParticipant);
+            if (generation == mFilterGeneration.get()) {
+                // Requests run one at a time, so a newer result is always posted after this one
+                mFilteredMeetings.postValue(filteredMeetings);
+            }
+        });
+    }
+
+    @Override
+    protected void onCleared() {
+        mFilterGeneration.incrementAndGet(); // Cancels any pending request
+        if (mFilterExecutor instanceof ExecutorService) {
+            ((ExecutorService) mFilterExecutor).shutdown();
+        }
+    }
+}
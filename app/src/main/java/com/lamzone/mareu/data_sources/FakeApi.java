@@ -1,6 +1,7 @@
 package com.lamzone.mareu.data_sources;
 
 import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -9,8 +10,9 @@ import java.util.List;
 
 /**
  * The FakeApi class simulates a fictional API providing meeting and meeting room data.
+ * Its meetings are only kept in memory.
  */
-public class FakeApi {
+public class FakeApi implements MeetingDataSource {
 
     private List<String> meetingRooms;
     private List<Meeting> meetingList;
@@ -45,10 +47,41 @@ public class FakeApi {
      *
      * @return The list of meeting rooms.
      */
+    @Override
     public List<String> getMeetingRooms() {
         return new ArrayList<>(meetingRooms);
     }
 
+    @Override
+    public List<Meeting> loadMeetings(int offset, int count) {
+        return getPage(meetingList, offset, count);
+    }
+
+    @Override
+    public void saveChanges(List<MeetingChange> changes) {
+        for (MeetingChange change : changes) {
+            if (change.getType() == MeetingChange.Type.ADDED) {
+                meetingList.add(change.getMeeting());
+            } else {
+                meetingList.remove(change.getMeeting());
+            }
+        }
+    }
+
+    /**
+     * Utility method to get a page of a list of meetings.
+     *
+     * @param meetings List of meetings.
+     * @param offset   Position of the first meeting of the page.
+     * @param count    Maximum number of meetings of the page.
+     * @return A copy of the meetings of the page, empty past the end of the list.
+     */
+    public static List<Meeting> getPage(List<Meeting> meetings, int offset, int count) {
+        int from = Math.min(offset, meetings.size());
+        int to = (int) Math.min((long) offset + count, meetings.size());
+        return new ArrayList<>(meetings.subList(from, to));
+    }
+
     /**
      * Utility method to create a Calendar instance with specific date and time.
      *
@@ -0,0 +1,431 @@
+package com.lamzone.mareu.data_sources;
+
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
+import com.lamzone.mareu.model.Recurrence;
+import com.lamzone.mareu.model.StringDictionary;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The MappedMeetingSource class reads the meetings from a binary snapshot file mapped in memory.
+ * Opening the file only maps it and checks its header, and a meeting is only decoded when its page is
+ * loaded, so a large calendar opens at once and any page is read without decoding the previous ones.
+ * It is a read-mostly source of initial meetings, such as a shared room calendar: the repository
+ * still keeps in memory every meeting it loads from it.
+ * Until the file is written, the meetings are provided by a default data source.
+ *
+ * <p>The file has a fixed layout of columns, each meeting being found by its position:</p>
+ * <ul>
+ *     <li>a header: magic, version, meeting count, participant id count, dictionary size and text size;</li>
+ *     <li>the ids and the start times (epoch minutes) of the meetings, as longs;</li>
+ *     <li>the durations (minutes) of the meetings;</li>
+ *     <li>the room of each meeting, as an id in the dictionary;</li>
+ *     <li>the recurrence rule of each meeting, as an id in the dictionary, -1 for a single meeting;</li>
+ *     <li>the offsets of the titles and subjects in the text, as [title, subject] pairs plus the end offset;</li>
+ *     <li>the participants of each meeting, as a range of the participant ids, plus the end of the last range;</li>
+ *     <li>the participant ids, as ids in the dictionary;</li>
+ *     <li>the offsets of the dictionary strings, plus the end offset;</li>
+ *     <li>the dictionary (rooms, participants and rules, each stored once), then the text, as UTF-8 bytes.</li>
+ * </ul>
+ */
+public class MappedMeetingSource implements MeetingDataSource {
+
+    private static final int MAGIC = 0x4d41524d; // "MARM"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 32; // Keeps the long columns aligned
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File mFile;
+    private final MeetingDataSource mDefaults;
+
+    private volatile Mapping mMapping; // Mapped file, set on first use
+
+    /**
+     * Constructor to create an instance of MappedMeetingSource.
+     *
+     * @param file     The snapshot file storing the meetings.
+     * @param defaults The data source providing the meeting rooms, and the meetings until the file is written.
+     */
+    public MappedMeetingSource(File file, MeetingDataSource defaults) {
+        mFile = file;
+        mDefaults = defaults;
+    }
+
+    @Override
+    public List<String> getMeetingRooms() {
+        return mDefaults.getMeetingRooms();
+    }
+
+    @Override
+    public List<Meeting> loadMeetings(int offset, int count) {
+        if (!mFile.exists()) {
+            return mDefaults.loadMeetings(offset, count);
+        }
+        int end = (int) Math.min(size(), (long) offset + count); // The sum may not fit in an int
+        List<Meeting> meetings = new ArrayList<>(Math.max(0, end - offset));
+        for (int i = offset; i < end; i++) {
+            meetings.add(getMeeting(i));
+        }
+        return meetings;
+    }
+
+    /**
+     * Stores changes by writing a new snapshot with them, then mapping it.
+     * The whole calendar is rewritten, so this suits calendars changing rarely, such as shared room calendars.
+     *
+     * @param changes Changes to store, in the order they were made.
+     */
+    @Override
+    public synchronized void saveChanges(List<MeetingChange> changes) {
+        List<Meeting> meetings = new ArrayList<>();
+        List<Meeting> page;
+        while (!(page = loadMeetings(meetings.size(), 1_000)).isEmpty()) {
+            meetings.addAll(page);
+        }
+        Set<Long> deletedIds = new HashSet<>();
+        for (MeetingChange change : changes) {
+            if (change.getType() == MeetingChange.Type.ADDED) {
+                meetings.add(change.getMeeting());
+                deletedIds.remove(change.getMeeting().getId());
+            } else {
+                deletedIds.add(change.getMeeting().getId());
+            }
+        }
+        List<Meeting> kept = new ArrayList<>(meetings.size());
+        for (Meeting meeting : meetings) {
+            if (!deletedIds.contains(meeting.getId())) {
+                kept.add(meeting);
+            }
+        }
+        saveMeetings(kept);
+    }
+
+    /**
+     * Replaces all the stored meetings by the given ones.
+     *
+     * @param meetings Meetings to store.
+     */
+    public synchronized void saveMeetings(List<Meeting> meetings) {
+        try {
+            write(mFile, meetings);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write " + mFile, e);
+        }
+        mMapping = null; // Mapped again on next use
+    }
+
+    /**
+     * Get the number of stored meetings, without decoding them.
+     *
+     * @return The number of meetings in the file, or 0 if it is not written yet.
+     */
+    public int size() {
+        return mFile.exists() ? open().mCount : 0;
+    }
+
+    /**
+     * Get the start time of a stored meeting, without decoding the rest of it.
+     *
+     * @param index Position of the meeting in the file.
+     * @return The start time of the meeting, in epoch minutes.
+     */
+    public long getStartMinute(int index) {
+        Mapping mapping = open();
+        mapping.checkIndex(index);
+        return mapping.mBuffer.getLong(mapping.mStartsOffset + 8 * index);
+    }
+
+    /**
+     * Decodes a stored meeting.
+     *
+     * @param index Position of the meeting in the file.
+     * @return The meeting, with its stored id.
+     */
+    public Meeting getMeeting(int index) {
+        Mapping mapping = open();
+        mapping.checkIndex(index);
+        ByteBuffer buffer = mapping.mBuffer;
+        long id = buffer.getLong(HEADER_SIZE + 8 * index);
+        long startMinute = buffer.getLong(mapping.mStartsOffset + 8 * index);
+        int durationMinutes = buffer.getInt(mapping.mDurationsOffset + 4 * index);
+        String room = mapping.getDictionaryString(buffer.getInt(mapping.mRoomsOffset + 4 * index));
+        int ruleId = buffer.getInt(mapping.mRulesOffset + 4 * index);
+        Recurrence recurrence = ruleId >= 0 ? Recurrence.parse(mapping.getDictionaryString(ruleId)) : null;
+        int textOffsets = mapping.mTextOffsetsOffset + 8 * index;
+        String title = mapping.getText(buffer.getInt(textOffsets), buffer.getInt(textOffsets + 4));
+        String subject = mapping.getText(buffer.getInt(textOffsets + 4), buffer.getInt(textOffsets + 8));
+        int participantsStart = buffer.getInt(mapping.mParticipantRangesOffset + 4 * index);
+        int participantsEnd = buffer.getInt(mapping.mParticipantRangesOffset + 4 * index + 4);
+        checkRange(participantsStart, participantsEnd, mapping.mParticipantIdCount, "participant ids");
+        return new Meeting(id, title, startMinute, durationMinutes, room, subject, new AbstractList<String>() {
+            @Override
+            public String get(int position) {
+                return mapping.getDictionaryString(buffer.getInt(mapping.mParticipantIdsOffset + 4 * (participantsStart + position)));
+            }
+
+            @Override
+            public int size() {
+                return participantsEnd - participantsStart;
+            }
+        }, recurrence);
+    }
+
+
+    // File
+
+    /**
+     * Writes meetings to a snapshot file, replacing it atomically.
+     *
+     * @param file     The snapshot file.
+     * @param meetings Meetings to write, in the order they are read back.
+     * @throws IOException If the file could not be written.
+     */
+    public static void write(File file, List<Meeting> meetings) throws IOException {
+        int count = meetings.size();
+
+        // Encode the strings: the rooms and participants once each in the dictionary, the titles and subjects in the text
+        Map<String, Integer> dictionaryIds = new HashMap<>();
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+        List<Integer> dictionaryOffsets = new ArrayList<>();
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        int[] textOffsets = new int[2 * count + 1];
+        int[] rooms = new int[count];
+        int[] rules = new int[count];
+        int[] participantRanges = new int[count + 1];
+        List<Integer> participantIds = new ArrayList<>();
+        StringDictionary participants = StringDictionary.getParticipants();
+        for (int i = 0; i < count; i++) {
+            Meeting meeting = meetings.get(i);
+            rooms[i] = addToDictionary(meeting.getLocation(), dictionaryIds, dictionary, dictionaryOffsets);
+            rules[i] = meeting.isRecurring() ? addToDictionary(meeting.getRecurrence().toRule(), dictionaryIds, dictionary, dictionaryOffsets) : -1;
+            textOffsets[2 * i] = text.size();
+            writeUtf8(text, meeting.getTitle());
+            textOffsets[2 * i + 1] = text.size();
+            writeUtf8(text, meeting.getSubject());
+            participantRanges[i] = participantIds.size();
+            for (int j = 0; j < meeting.getParticipantCount(); j++) {
+                String participant = participants.lookup(meeting.getParticipantId(j));
+                participantIds.add(addToDictionary(participant, dictionaryIds, dictionary, dictionaryOffsets));
+            }
+        }
+        textOffsets[2 * count] = text.size();
+        participantRanges[count] = participantIds.size();
+        dictionaryOffsets.add(dictionary.size());
+
+        // Write the header and the columns to a temporary file, then replace the previous file
+        File tempFile = new File(file.getPath() + ".tmp");
+        FileOutputStream fileOutput = new FileOutputStream(tempFile);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput, 64 * 1024))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(count);
+            output.writeInt(participantIds.size());
+            output.writeInt(dictionaryOffsets.size() - 1);
+            output.writeInt(dictionary.size());
+            output.writeInt(text.size());
+            output.writeInt(0); // Padding
+            for (Meeting meeting : meetings) {
+                output.writeLong(meeting.getId());
+            }
+            for (Meeting meeting : meetings) {
+                output.writeLong(meeting.getStartMinute());
+            }
+            for (Meeting meeting : meetings) {
+                output.writeInt(meeting.getDurationMinutes());
+            }
+            for (int room : rooms) {
+                output.writeInt(room);
+            }
+            for (int rule : rules) {
+                output.writeInt(rule);
+            }
+            for (int textOffset : textOffsets) {
+                output.writeInt(textOffset);
+            }
+            for (int participantRange : participantRanges) {
+                output.writeInt(participantRange);
+            }
+            for (int participantId : participantIds) {
+                output.writeInt(participantId);
+            }
+            for (int dictionaryOffset : dictionaryOffsets) {
+                output.writeInt(dictionaryOffset);
+            }
+            dictionary.writeTo(output);
+            text.writeTo(output);
+            output.flush();
+            fileOutput.getFD().sync(); // Written to disk before replacing the previous file
+        }
+        if (!tempFile.renameTo(file)) {
+            throw new IOException("Failed to rename " + tempFile + " to " + file);
+        }
+    }
+
+    // Get the id of a string in the dictionary being written, adding it if needed
+    private static int addToDictionary(String value, Map<String, Integer> ids, ByteArrayOutputStream dictionary, List<Integer> offsets) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = offsets.size();
+            ids.put(value, id);
+            offsets.add(dictionary.size());
+            writeUtf8(dictionary, value);
+        }
+        return id;
+    }
+
+    // Append the UTF-8 bytes of a string
+    private static void writeUtf8(ByteArrayOutputStream output, String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        output.write(bytes, 0, bytes.length);
+    }
+
+    // Map the file, if not done yet
+    private Mapping open() {
+        Mapping mapping = mMapping;
+        if (mapping == null) {
+            synchronized (this) {
+                mapping = mMapping;
+                if (mapping == null) {
+                    try {
+                        mapping = new Mapping(mFile);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Failed to read " + mFile, e);
+                    }
+                    mMapping = mapping;
+                }
+            }
+        }
+        return mapping;
+    }
+
+    // Check that a range read from the file is within its column, the file being corrupted otherwise
+    private static void checkRange(int start, int end, int size, String column) {
+        if (start < 0 || start > end || end > size) {
+            throw new IllegalStateException("Corrupted meetings snapshot: range [" + start + ", " + end + ") of " + size + " " + column);
+        }
+    }
+
+    // Decode the UTF-8 bytes in [start, end) of a buffer
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer source = buffer.duplicate();
+        source.position(start);
+        source.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * A mapped snapshot file and the offsets of its columns.
+     */
+    private static final class Mapping {
+        private final ByteBuffer mBuffer;
+        private final int mCount;
+        private final int mParticipantIdCount;
+        private final int mDictionarySize;
+        private final int mTextSize;
+        private final int mStartsOffset;
+        private final int mDurationsOffset;
+        private final int mRoomsOffset;
+        private final int mRulesOffset;
+        private final int mTextOffsetsOffset;
+        private final int mParticipantRangesOffset;
+        private final int mParticipantIdsOffset;
+        private final int mDictionaryOffsetsOffset;
+        private final int mDictionaryOffset;
+        private final int mTextOffset;
+        private final String[] mDictionary; // Decoded dictionary strings, filled on first use
+
+        // Map a file and read its header
+        Mapping(File file) throws IOException {
+            try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+                mBuffer = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+            }
+            if (mBuffer.capacity() < HEADER_SIZE || mBuffer.getInt(0) != MAGIC || mBuffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported meetings snapshot format");
+            }
+            int count = mBuffer.getInt(8);
+            int participantIdCount = mBuffer.getInt(12);
+            int dictionaryCount = mBuffer.getInt(16);
+            int dictionarySize = mBuffer.getInt(20);
+            int textSize = mBuffer.getInt(24);
+
+            // Offsets of the columns, computed in long to detect a corrupted header
+            long startsOffset = HEADER_SIZE + 8L * count;
+            long durationsOffset = startsOffset + 8L * count;
+            long roomsOffset = durationsOffset + 4L * count;
+            long rulesOffset = roomsOffset + 4L * count;
+            long textOffsetsOffset = rulesOffset + 4L * count;
+            long participantRangesOffset = textOffsetsOffset + 4L * (2L * count + 1);
+            long participantIdsOffset = participantRangesOffset + 4L * (count + 1);
+            long dictionaryOffsetsOffset = participantIdsOffset + 4L * participantIdCount;
+            long dictionaryOffset = dictionaryOffsetsOffset + 4L * (dictionaryCount + 1);
+            long textOffset = dictionaryOffset + dictionarySize;
+            if (count < 0 || participantIdCount < 0 || dictionaryCount < 0 || dictionarySize < 0 || textSize < 0
+                    || textOffset + textSize != mBuffer.capacity()) {
+                throw new IOException("Truncated meetings snapshot");
+            }
+            mCount = count;
+            mParticipantIdCount = participantIdCount;
+            mDictionarySize = dictionarySize;
+            mTextSize = textSize;
+            mStartsOffset = (int) startsOffset;
+            mDurationsOffset = (int) durationsOffset;
+            mRoomsOffset = (int) roomsOffset;
+            mRulesOffset = (int) rulesOffset;
+            mTextOffsetsOffset = (int) textOffsetsOffset;
+            mParticipantRangesOffset = (int) participantRangesOffset;
+            mParticipantIdsOffset = (int) participantIdsOffset;
+            mDictionaryOffsetsOffset = (int) dictionaryOffsetsOffset;
+            mDictionaryOffset = (int) dictionaryOffset;
+            mTextOffset = (int) textOffset;
+            mDictionary = new String[dictionaryCount];
+        }
+
+        // Check that a position is in the file
+        void checkIndex(int index) {
+            if (index < 0 || index >= mCount) {
+                throw new IndexOutOfBoundsException("Meeting " + index + " of " + mCount);
+            }
+        }
+
+        // Get a dictionary string, decoding it on first use
+        String getDictionaryString(int id) {
+            if (id < 0 || id >= mDictionary.length) {
+                throw new IllegalStateException("Corrupted meetings snapshot: dictionary id " + id + " of " + mDictionary.length);
+            }
+            String value = mDictionary[id];
+            if (value == null) {
+                int offsets = mDictionaryOffsetsOffset + 4 * id;
+                int start = mBuffer.getInt(offsets);
+                int end = mBuffer.getInt(offsets + 4);
+                checkRange(start, end, mDictionarySize, "dictionary bytes");
+                value = decode(mBuffer, mDictionaryOffset + start, mDictionaryOffset + end);
+                mDictionary[id] = value; // Strings are immutable, so a racing thread at worst decodes it again
+            }
+            return value;
+        }
+
+        // Decode a title or a subject
+        String getText(int start, int end) {
+            checkRange(start, end, mTextSize, "text bytes");
+            return decode(mBuffer, mTextOffset + start, mTextOffset + end);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.lamzone.mareu.data_sources;
+
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
+import com.lamzone.mareu.model.Recurrence;
+import com.lamzone.mareu.model.StringDictionary;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The MeetingCodec class encodes batches of meetings, or of changes, in a compact binary form for transports
+ * such as the sync with a server.
+ * <ul>
+ * <li>Ids and start times are written as the difference with the previous meeting, as variable-length integers:
+ * a batch sorted by date and time costs a byte or two per start time.</li>
+ * <li>Rooms, participants and recurrence rules are written once per batch: the first use of a string adds it
+ * to a table, and the next ones refer to its position in the table.</li>
+ * <li>A batch is written and read meeting by meeting, so neither side holds the whole batch,
+ * and it ends with an end mark, so its size need not be known in advance.</li>
+ * </ul>
+ * An occurrence of a recurring meeting is written as its series.
+ */
+public final class MeetingCodec {
+
+    private static final int MAGIC = 0x4d454554; // "MEET"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_STRING_SIZE = 1024 * 1024;
+    private static final int MAX_PARTICIPANTS = 10_000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Record tags
+    private static final int TAG_END = 0;
+    private static final int TAG_ADDED = 1; // A meeting, or the change adding it
+    private static final int TAG_DELETED = 2;
+
+    private MeetingCodec() {
+    }
+
+    /**
+     * The Writer class encodes a batch to a stream. The batch must be ended by {@link #finish()}.
+     */
+    public static final class Writer {
+
+        private final OutputStream mOutput;
+        private final byte[] mBuffer = new byte[BUFFER_SIZE];
+        private int mPosition;
+        private final Map<String, Integer> mStrings = new HashMap<>(); // Position of each string in the table
+        private long mPreviousId;
+        private long mPreviousStartMinute;
+
+        /**
+         * Constructor to create an instance of Writer. Nothing is written to the stream until the buffer is full
+         * or the batch is finished.
+         *
+         * @param output Stream to write the batch to, which the writer does not close.
+         */
+        public Writer(OutputStream output) {
+            mOutput = output;
+            writeInt(MAGIC);
+            writeByte(VERSION);
+        }
+
+        /**
+         * Writes a meeting.
+         *
+         * @param meeting Meeting to write.
+         * @throws IOException If the meeting could not be written.
+         */
+        public void write(Meeting meeting) throws IOException {
+            writeRecord(TAG_ADDED, meeting);
+        }
+
+        /**
+         * Writes a change.
+         *
+         * @param change Change to write.
+         * @throws IOException If the change could not be written.
+         */
+        public void writeChange(MeetingChange change) throws IOException {
+            writeRecord(change.getType() == MeetingChange.Type.ADDED ? TAG_ADDED : TAG_DELETED, change.getMeeting());
+        }
+
+        /**
+         * Ends the batch and flushes it to the stream.
+         *
+         * @throws IOException If the batch could not be written.
+         */
+        public void finish() throws IOException {
+            ensureCapacity(1);
+            writeByte(TAG_END);
+            flushBuffer();
+            mOutput.flush();
+        }
+
+        private void writeRecord(int tag, Meeting meeting) throws IOException {
+            meeting = meeting.getSeries();
+            ensureCapacity(1 + 3 * 10); // Tag, id, start time and duration
+            writeByte(tag);
+            writeVarLong(zigZag(meeting.getId() - mPreviousId));
+            writeVarLong(zigZag(meeting.getStartMinute() - mPreviousStartMinute));
+            writeVarLong(meeting.getDurationMinutes());
+            mPreviousId = meeting.getId();
+            mPreviousStartMinute = meeting.getStartMinute();
+            writeString(meeting.getTitle());
+            writeString(meeting.getSubject());
+            writeTableString(meeting.getLocation());
+            ensureCapacity(5);
+            writeVarLong(meeting.getParticipantCount());
+            StringDictionary participants = StringDictionary.getParticipants();
+            for (int i = 0; i < meeting.getParticipantCount(); i++) {
+                writeTableString(participants.lookup(meeting.getParticipantId(i)));
+            }
+            writeTableString(meeting.isRecurring() ? meeting.getRecurrence().toRule() : ""); // Empty for a single meeting
+        }
+
+        // Write a string through the table: its position plus one if it was written before, otherwise 0 and the string
+        private void writeTableString(String value) throws IOException {
+            Integer position = mStrings.get(value);
+            ensureCapacity(5);
+            if (position != null) {
+                writeVarLong(position + 1L);
+            } else {
+                mStrings.put(value, mStrings.size());
+                writeVarLong(0);
+                writeString(value);
+            }
+        }
+
+        // Write a string as its UTF-8 size and bytes
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(UTF_8);
+            ensureCapacity(5);
+            writeVarLong(bytes.length);
+            if (bytes.length > mBuffer.length - mPosition) {
+                flushBuffer();
+                if (bytes.length > mBuffer.length) {
+                    mOutput.write(bytes);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, mBuffer, mPosition, bytes.length);
+            mPosition += bytes.length;
+        }
+
+        // Write an unsigned integer 7 bits at a time, the high bit of a byte telling that more bytes follow
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                mBuffer[mPosition++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            mBuffer[mPosition++] = (byte) value;
+        }
+
+        private void writeInt(int value) {
+            mBuffer[mPosition++] = (byte) (value >>> 24);
+            mBuffer[mPosition++] = (byte) (value >>> 16);
+            mBuffer[mPosition++] = (byte) (value >>> 8);
+            mBuffer[mPosition++] = (byte) value;
+        }
+
+        private void writeByte(int value) {
+            mBuffer[mPosition++] = (byte) value;
+        }
+
+        private void ensureCapacity(int size) throws IOException {
+            if (mBuffer.length - mPosition < size) {
+                flushBuffer();
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            mOutput.write(mBuffer, 0, mPosition);
+            mPosition = 0;
+        }
+    }
+
+    /**
+     * The Reader class decodes a batch from a stream, one meeting or change at a time.
+     * It reads ahead, so the stream must end with the batch.
+     */
+    public static final class Reader {
+
+        private final InputStream mInput;
+        private final byte[] mBuffer = new byte[BUFFER_SIZE];
+        private int mPosition;
+        private int mLimit;
+        private boolean mStarted; // Whether the header was read
+        private boolean mFinished; // Whether the end mark was read
+        private final List<String> mStrings = new ArrayList<>(); // Table of the strings read so far
+        private long mPreviousId;
+        private long mPreviousStartMinute;
+
+        /**
+         * Constructor to create an instance of Reader. Nothing is read from the stream until the first record is read.
+         *
+         * @param input Stream to read the batch from, which the reader does not close.
+         */
+        public Reader(InputStream input) {
+            mInput = input;
+        }
+
+        /**
+         * Reads the next meeting.
+         *
+         * @return The meeting, or null at the end of the batch.
+         * @throws IOException If the stream ended early, or does not hold a batch of meetings.
+         */
+        public Meeting read() throws IOException {
+            MeetingChange change = readChange();
+            if (change != null && change.getType() != MeetingChange.Type.ADDED) {
+                throw new IOException("Not a batch of meetings");
+            }
+            return change != null ? change.getMeeting() : null;
+        }
+
+        /**
+         * Reads the next change.
+         *
+         * @return The change, or null at the end of the batch.
+         * @throws IOException If the stream ended early, or does not hold a batch.
+         */
+        public MeetingChange readChange() throws IOException {
+            if (!mStarted) {
+                if (readInt() != MAGIC || readByte() != VERSION) {
+                    throw new IOException("Unsupported meeting batch format");
+                }
+                mStarted = true;
+            }
+            if (mFinished) {
+                return null;
+            }
+            int tag = readByte();
+            if (tag == TAG_END) {
+                mFinished = true;
+                return null;
+            }
+            if (tag != TAG_ADDED && tag != TAG_DELETED) {
+                throw new IOException("Invalid record tag: " + tag);
+            }
+            long id = mPreviousId + unZigZag(readVarLong());
+            long startMinute = mPreviousStartMinute + unZigZag(readVarLong());
+            long durationMinutes = readVarLong();
+            if (durationMinutes <= 0 || durationMinutes > Integer.MAX_VALUE) {
+                throw new IOException("Invalid meeting duration: " + durationMinutes);
+            }
+            mPreviousId = id;
+            mPreviousStartMinute = startMinute;
+            String title = readString();
+            String subject = readString();
+            String location = readTableString();
+            long participantCount = readVarLong();
+            if (participantCount > MAX_PARTICIPANTS) {
+                throw new IOException("Invalid participant count: " + participantCount);
+            }
+            List<String> participants = participantCount == 0 ? Collections.emptyList() : new ArrayList<>((int) participantCount);
+            for (int i = 0; i < participantCount; i++) {
+                participants.add(readTableString());
+            }
+            String rule = readTableString();
+            Recurrence recurrence;
+            try {
+                recurrence = rule.isEmpty() ? null : Recurrence.parse(rule);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid recurrence rule: " + rule, e);
+            }
+            Meeting meeting = new Meeting(id, title, startMinute, (int) durationMinutes, location, subject, participants, recurrence);
+            return tag == TAG_ADDED ? MeetingChange.added(meeting) : MeetingChange.deleted(meeting);
+        }
+
+        // Read a string written through the table
+        private String readTableString() throws IOException {
+            long reference = readVarLong();
+            if (reference == 0) {
+                String value = readString();
+                mStrings.add(value);
+                return value;
+            }
+            if (reference > mStrings.size()) {
+                throw new IOException("Invalid string reference: " + reference);
+            }
+            return mStrings.get((int) reference - 1);
+        }
+
+        // Read a string written as its UTF-8 size and bytes, decoding it from the buffer when it fits
+        private String readString() throws IOException {
+            long size = readVarLong();
+            if (size > MAX_STRING_SIZE) {
+                throw new IOException("Invalid string size: " + size);
+            }
+            int length = (int) size;
+            if (length <= mBuffer.length) {
+                require(length);
+                String value = new String(mBuffer, mPosition, length, UTF_8);
+                mPosition += length;
+                return value;
+            }
+            byte[] bytes = new byte[length];
+            int copied = mLimit - mPosition;
+            System.arraycopy(mBuffer, mPosition, bytes, 0, copied);
+            mPosition = mLimit;
+            while (copied < length) {
+                int read = mInput.read(bytes, copied, length - copied);
+                if (read < 0) {
+                    throw new EOFException();
+                }
+                copied += read;
+            }
+            return new String(bytes, UTF_8);
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Invalid variable-length integer");
+        }
+
+        private int readInt() throws IOException {
+            return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+        }
+
+        private int readByte() throws IOException {
+            if (mPosition == mLimit) {
+                require(1);
+            }
+            return mBuffer[mPosition++] & 0xFF;
+        }
+
+        // Make the next bytes available in the buffer, which must be able to hold them
+        private void require(int size) throws IOException {
+            if (mLimit - mPosition >= size) {
+                return;
+            }
+            System.arraycopy(mBuffer, mPosition, mBuffer, 0, mLimit - mPosition);
+            mLimit -= mPosition;
+            mPosition = 0;
+            while (mLimit < size) {
+                int read = mInput.read(mBuffer, mLimit, mBuffer.length - mLimit);
+                if (read < 0) {
+                    throw new EOFException();
+                }
+                mLimit += read;
+            }
+        }
+    }
+
+    // Map signed integers to unsigned ones, small differences of either sign staying small
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,37 @@
+package com.lamzone.mareu.data_sources;
+
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
+
+import java.util.List;
+
+/**
+ * The MeetingDataSource interface provides the stored meetings and meeting rooms to the repository.
+ * Meetings are loaded in pages, so the repository can display the first ones before all are read.
+ */
+public interface MeetingDataSource {
+
+    /**
+     * Retrieves the list of meeting rooms.
+     *
+     * @return The list of meeting rooms.
+     */
+    List<String> getMeetingRooms();
+
+    /**
+     * Retrieves a page of the stored meetings, in storage order.
+     * Reading the pages in order, from offset 0, is the fastest way through the meetings.
+     *
+     * @param offset Position of the first meeting of the page.
+     * @param count  Maximum number of meetings of the page.
+     * @return The meetings of the page, empty past the last stored meeting.
+     */
+    List<Meeting> loadMeetings(int offset, int count);
+
+    /**
+     * Stores changes made to the loaded meetings.
+     *
+     * @param changes Changes to store, in the order they were made.
+     */
+    void saveChanges(List<MeetingChange> changes);
+}
@@ -0,0 +1,583 @@
+package com.lamzone.mareu.data_sources;
+
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
+import com.lamzone.mareu.model.Recurrence;
+import com.lamzone.mareu.model.StringDictionary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The MeetingFileStore class stores the meetings in local files, so they survive a process restart.
+ * The meetings are kept in a snapshot file, and the changes made since in an append-only log:
+ * each batch of changes is appended and synced once, and once the log passes a size threshold
+ * it is folded into a new snapshot.
+ * Until a first save, the meetings are provided by a default data source.
+ *
+ * <p>Snapshot file: a header (magic, version, sequence of the last folded change, meeting count)
+ * followed by the meeting records. It is only ever replaced atomically, by a rename.
+ * A store of the previous version, whose strings were limited to 64 KB, is rewritten on first use.</p>
+ *
+ * <p>Log file: records framed by {@link RecordLog}, of type ADDED (payload: the meeting record) or DELETED
+ * (payload: the meeting id). A record cut by a crash fails its length or CRC check and is dropped with
+ * everything after it, and the records already folded into the snapshot are skipped by their sequence.</p>
+ *
+ * <p>Files that cannot be read are moved aside, with a ".corrupt" suffix, and reported by an
+ * IllegalStateException: the store then starts over from the default data source.</p>
+ */
+public class MeetingFileStore implements MeetingDataSource {
+
+    /**
+     * Log size, in bytes, above which the log is folded into a new snapshot.
+     */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024;
+
+    private static final int MAGIC = 0x4d415245; // "MARE"
+    private static final int VERSION = 5;
+    private static final int VERSION_UTF = 4; // Previous version, storing the strings with writeUTF
+    private static final int COUNT_OFFSET = 16; // Offset of the meeting count in the snapshot header
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte RECORD_ADDED = 1;
+    private static final byte RECORD_DELETED = 2;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Logger LOGGER = Logger.getLogger(MeetingFileStore.class.getName());
+
+    private final File mFile;
+    private final File mLogFile;
+    private final MeetingDataSource mDefaults;
+    private final long mCompactionThreshold;
+
+    // State of the log, read on first use
+    private FileChannel mLog;
+    private long mLogSize;
+    private int mVersion; // Format of the snapshot and its log
+    private long mSnapshotSequence; // Sequence of the last change folded into the snapshot
+    private long mNextSequence;
+    private final Set<Long> mDeletedIds = new HashSet<>(); // Snapshot meetings deleted by the log
+    private final Map<Long, Meeting> mAddedMeetings = new LinkedHashMap<>(); // Meetings added by the log, in order
+
+    // State of the sequential read: the snapshot meetings not deleted, then the meetings added by the log
+    private DataInputStream mReader;
+    private int mReaderSnapshotRemaining; // Number of snapshot records not read yet
+    private Iterator<Meeting> mReaderAdded;
+    private int mReaderOffset; // Position of the next meeting read
+    private int mCount = -1; // Number of meetings, -1 until they were all read
+
+    // Buffers encoding a batch of log records
+    private final RecordLog.Writer mBatch = new RecordLog.Writer();
+
+    /**
+     * Constructor to create an instance of MeetingFileStore.
+     *
+     * @param file     The snapshot file storing the meetings. The log is stored next to it.
+     * @param defaults The data source providing the meeting rooms, and the meetings until a first save.
+     */
+    public MeetingFileStore(File file, MeetingDataSource defaults) {
+        this(file, defaults, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Constructor to create an instance of MeetingFileStore with a given compaction threshold.
+     *
+     * @param file                The snapshot file storing the meetings. The log is stored next to it.
+     * @param defaults            The data source providing the meeting rooms, and the meetings until a first save.
+     * @param compactionThreshold Log size, in bytes, above which the log is folded into a new snapshot.
+     */
+    public MeetingFileStore(File file, MeetingDataSource defaults, long compactionThreshold) {
+        mFile = file;
+        mLogFile = new File(file.getPath() + ".log");
+        mDefaults = defaults;
+        mCompactionThreshold = compactionThreshold;
+    }
+
+    @Override
+    public List<String> getMeetingRooms() {
+        return mDefaults.getMeetingRooms();
+    }
+
+    @Override
+    public synchronized List<Meeting> loadMeetings(int offset, int count) {
+        if (!mFile.exists()) {
+            return mDefaults.loadMeetings(offset, count);
+        }
+        if (!isReaderOpen() && mCount >= 0 && offset >= mCount) {
+            return new ArrayList<>(); // Past the last meeting, without reading the files again
+        }
+        try {
+            openLog();
+            if (!isReaderOpen() || offset < mReaderOffset) {
+                openReader();
+            }
+            while (mReaderOffset < offset && readMeeting() != null) {
+                // Skip to the requested page
+            }
+            List<Meeting> meetings = new ArrayList<>();
+            Meeting meeting;
+            while (meetings.size() < count && (meeting = readMeeting()) != null) {
+                meetings.add(meeting);
+            }
+            return meetings;
+        } catch (IOException | RuntimeException e) {
+            throw quarantine(e);
+        }
+    }
+
+    /**
+     * Appends changes to the log, syncing it once for the whole batch.
+     * The log is folded into a new snapshot once it passes the compaction threshold.
+     *
+     * @param changes Changes to store, in the order they were made.
+     */
+    @Override
+    public synchronized void saveChanges(List<MeetingChange> changes) {
+        closeReader();
+        try {
+            if (!mFile.exists()) {
+                // The changes apply to the default meetings, so these are stored first
+                List<Meeting> meetings = new ArrayList<>();
+                List<Meeting> page;
+                while (!(page = mDefaults.loadMeetings(meetings.size(), BUFFER_SIZE)).isEmpty()) {
+                    meetings.addAll(page);
+                }
+                writeSnapshot(meetings.iterator(), 0);
+            }
+            openLog();
+
+            // Encode the whole batch, then write and sync it at once
+            mBatch.reset();
+            long sequence = mNextSequence;
+            for (MeetingChange change : changes) {
+                appendRecord(change, sequence++);
+            }
+            int batchSize;
+            try {
+                batchSize = mBatch.writeTo(mLog, mLogSize);
+                mLog.force(false);
+            } catch (IOException e) {
+                discardPartialBatch();
+                throw e;
+            }
+            mLogSize += batchSize;
+
+            // Only apply the changes once they are on disk, so that a failed batch leaves the store unchanged
+            mNextSequence = sequence;
+            for (MeetingChange change : changes) {
+                if (change.getType() == MeetingChange.Type.ADDED) {
+                    applyAdded(change.getMeeting());
+                } else {
+                    applyDeleted(change.getMeeting().getId());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write " + mLogFile, e);
+        }
+
+        if (mLogSize > mCompactionThreshold) {
+            try {
+                compact();
+            } catch (IOException | RuntimeException e) {
+                // The changes are saved in the log, which is folded again after the next save
+                LOGGER.log(Level.WARNING, "Failed to compact " + mLogFile, e);
+            }
+        }
+    }
+
+    /**
+     * Replaces all the stored meetings by the given ones, clearing the log.
+     *
+     * @param meetings Meetings to store.
+     */
+    public synchronized void saveMeetings(List<Meeting> meetings) {
+        closeReader();
+        try {
+            openLog();
+            writeSnapshot(meetings.iterator(), mNextSequence - 1);
+            clearLog();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write " + mFile, e);
+        }
+    }
+
+    /**
+     * Folds the log into a new snapshot, then clears the log.
+     * A crash before the new snapshot replaces the previous one keeps the previous snapshot and the log;
+     * a crash after it keeps the new snapshot, whose sequence skips the log records already folded.
+     *
+     * @throws IOException If the stored meetings could not be read, or the new snapshot could not be written.
+     */
+    public synchronized void compact() throws IOException {
+        if (!mFile.exists()) {
+            return; // Nothing stored yet
+        }
+        openLog();
+        openReader();
+        try {
+            writeSnapshot(new Iterator<Meeting>() {
+                private Meeting mNext = readNext();
+
+                @Override
+                public boolean hasNext() {
+                    return mNext != null;
+                }
+
+                @Override
+                public Meeting next() {
+                    Meeting meeting = mNext;
+                    mNext = readNext();
+                    return meeting;
+                }
+
+                private Meeting readNext() {
+                    try {
+                        return readMeeting();
+                    } catch (IOException e) {
+                        throw new UncheckedReadException(e);
+                    }
+                }
+            }, mNextSequence - 1);
+        } catch (UncheckedReadException e) {
+            throw e.getCause();
+        } finally {
+            closeReader();
+        }
+        clearLog();
+    }
+
+    /**
+     * Get the size of the log.
+     *
+     * @return The size of the log, in bytes.
+     */
+    public synchronized long getLogSize() {
+        return mLogFile.length();
+    }
+
+    /**
+     * Closes the files. The store opens them again when needed.
+     */
+    public synchronized void close() {
+        closeReader();
+        if (mLog != null) {
+            try {
+                mLog.close();
+            } catch (IOException ignored) {
+                // Every batch was already synced
+            }
+            mLog = null;
+        }
+    }
+
+
+    // Records
+
+    // Write a meeting record
+    private static void writeMeeting(DataOutputStream output, Meeting meeting) throws IOException {
+        output.writeLong(meeting.getId());
+        writeString(output, meeting.getTitle());
+        output.writeLong(meeting.getStartMinute());
+        output.writeInt(meeting.getDurationMinutes());
+        writeString(output, meeting.getLocation());
+        writeString(output, meeting.getSubject());
+        output.writeInt(meeting.getParticipantCount());
+        StringDictionary participants = StringDictionary.getParticipants();
+        for (int i = 0; i < meeting.getParticipantCount(); i++) {
+            writeString(output, participants.lookup(meeting.getParticipantId(i)));
+        }
+        writeString(output, meeting.isRecurring() ? meeting.getRecurrence().toRule() : ""); // Empty for a single meeting
+    }
+
+    // Read a meeting record in the given format version
+    private static Meeting readMeeting(DataInputStream input, int version) throws IOException {
+        long id = input.readLong();
+        String title = readString(input, version);
+        long startMinute = input.readLong();
+        int durationMinutes = input.readInt();
+        String location = readString(input, version);
+        String subject = readString(input, version);
+        int participantCount = input.readInt();
+        if (participantCount < 0) {
+            throw new IOException("Corrupted meeting record");
+        }
+        List<String> participants = participantCount == 0 ? Collections.emptyList() : new ArrayList<>(participantCount);
+        for (int i = 0; i < participantCount; i++) {
+            participants.add(readString(input, version));
+        }
+        String rule = readString(input, version);
+        Recurrence recurrence = rule.isEmpty() ? null : Recurrence.parse(rule);
+        return new Meeting(id, title, startMinute, durationMinutes, location, subject, participants, recurrence);
+    }
+
+    // Write a string as its UTF-8 length and bytes: unlike writeUTF, the length is not limited to 64 KB
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    // Read a string written by writeString, or by writeUTF in the previous format
+    private static String readString(DataInputStream input, int version) throws IOException {
+        if (version == VERSION_UTF) {
+            return input.readUTF();
+        }
+        int length = input.readInt();
+        if (length < 0 || length > RecordLog.MAX_PAYLOAD_SIZE) {
+            throw new IOException("Corrupted string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    // Encode a change as a log record, after the previous records of the batch
+    private void appendRecord(MeetingChange change, long sequence) throws IOException {
+        if (change.getType() == MeetingChange.Type.ADDED) {
+            writeMeeting(mBatch.begin(RECORD_ADDED, sequence), change.getMeeting());
+        } else {
+            mBatch.begin(RECORD_DELETED, sequence).writeLong(change.getMeeting().getId());
+        }
+        mBatch.end();
+    }
+
+    // Apply a record adding a meeting to the replayed state
+    private void applyAdded(Meeting meeting) {
+        mAddedMeetings.put(meeting.getId(), meeting);
+        mCount = -1;
+    }
+
+    // Apply a record deleting a meeting to the replayed state
+    private void applyDeleted(long id) {
+        if (mAddedMeetings.remove(id) == null) {
+            mDeletedIds.add(id);
+        }
+        mCount = -1;
+    }
+
+
+    // Files
+
+    // Open the log and replay it on top of the snapshot, if not done yet
+    private void openLog() throws IOException {
+        if (mLog != null) {
+            return;
+        }
+        mSnapshotSequence = readSnapshotSequence();
+        mNextSequence = mSnapshotSequence + 1;
+        mDeletedIds.clear();
+        mAddedMeetings.clear();
+        mCount = -1;
+        mLog = new RandomAccessFile(mLogFile, "rw").getChannel();
+
+        long validSize;
+        try (InputStream input = new BufferedInputStream(new FileInputStream(mLogFile), BUFFER_SIZE)) {
+            RecordLog.Reader reader = new RecordLog.Reader(input);
+            while (reader.next()) {
+                replayRecord(reader.getType(), reader.getSequence(), reader.getPayload());
+            }
+            validSize = reader.getValidSize();
+        }
+
+        // Drop what follows the last valid record, so that new records are appended after it
+        if (mLog.size() > validSize) {
+            mLog.truncate(validSize);
+            mLog.force(false);
+        }
+        mLogSize = validSize;
+
+        if (mVersion != VERSION) {
+            // Rewrite the store of the previous version, so that the new log records match the snapshot
+            compact();
+        }
+    }
+
+    // Apply a valid log record, unless it was already folded into the snapshot
+    private void replayRecord(int type, long sequence, DataInputStream payload) throws IOException {
+        if (sequence <= mSnapshotSequence) {
+            return;
+        }
+        mNextSequence = sequence + 1;
+        if (type == RECORD_ADDED) {
+            applyAdded(readMeeting(payload, mVersion));
+        } else if (type == RECORD_DELETED) {
+            applyDeleted(payload.readLong());
+        }
+    }
+
+    // Read the sequence of the last change folded into the snapshot, and the format of the store
+    private long readSnapshotSequence() throws IOException {
+        if (!mFile.exists()) {
+            mVersion = VERSION;
+            return 0;
+        }
+        try (DataInputStream input = new DataInputStream(new FileInputStream(mFile))) {
+            mVersion = readHeader(input);
+            return input.readLong();
+        }
+    }
+
+    // Read and check the magic and version of the snapshot
+    private static int readHeader(DataInputStream input) throws IOException {
+        int version;
+        if (input.readInt() != MAGIC || (version = input.readInt()) != VERSION && version != VERSION_UTF) {
+            throw new IOException("Unsupported meetings file format");
+        }
+        return version;
+    }
+
+    // Write a new snapshot and replace the previous one atomically
+    private void writeSnapshot(Iterator<Meeting> meetings, long sequence) throws IOException {
+        File tempFile = new File(mFile.getPath() + ".tmp");
+        FileOutputStream fileOutput = new FileOutputStream(tempFile);
+        boolean written = false;
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput, BUFFER_SIZE))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(sequence);
+            output.writeInt(0); // Meeting count, set once the meetings are written
+            int count = 0;
+            while (meetings.hasNext()) {
+                writeMeeting(output, meetings.next());
+                count++;
+            }
+            output.flush();
+            fileOutput.getChannel().write(ByteBuffer.allocate(4).putInt(0, count), COUNT_OFFSET);
+            fileOutput.getFD().sync(); // Written to disk before replacing the previous file
+            written = true;
+        } finally {
+            if (!written) {
+                tempFile.delete();
+            }
+        }
+        if (!tempFile.renameTo(mFile)) {
+            throw new IOException("Failed to rename " + tempFile + " to " + mFile);
+        }
+        mSnapshotSequence = sequence;
+        mVersion = VERSION;
+    }
+
+    // Drop what a failed batch may have written after the last synced record, so that it is never replayed
+    private void discardPartialBatch() {
+        try {
+            mLog.truncate(mLogSize);
+            mLog.force(false);
+        } catch (IOException e) {
+            // Closed on the next open instead, which truncates the log after its last valid record
+            close();
+        }
+    }
+
+    // Clear the log once its changes are in the snapshot
+    private void clearLog() throws IOException {
+        mLog.truncate(0);
+        mLog.force(false);
+        mLogSize = 0;
+        mDeletedIds.clear();
+        mAddedMeetings.clear();
+        mCount = -1;
+    }
+
+    // Open the snapshot at its first meeting
+    private void openReader() throws IOException {
+        closeReader();
+        mReader = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile), BUFFER_SIZE));
+        mVersion = readHeader(mReader);
+        mReader.readLong(); // Sequence, already read with the log
+        mReaderSnapshotRemaining = mReader.readInt();
+        mReaderOffset = 0;
+    }
+
+    // Read the next meeting: from the snapshot, skipping the deleted ones, then from the log
+    private Meeting readMeeting() throws IOException {
+        while (mReader != null) {
+            if (mReaderSnapshotRemaining == 0) {
+                mReader.close();
+                mReader = null;
+                mReaderAdded = mAddedMeetings.values().iterator();
+                break;
+            }
+            mReaderSnapshotRemaining--;
+            Meeting meeting = readMeeting(mReader, mVersion);
+            if (!mDeletedIds.contains(meeting.getId())) {
+                mReaderOffset++;
+                return meeting;
+            }
+        }
+        if (mReaderAdded != null && mReaderAdded.hasNext()) {
+            mReaderOffset++;
+            return mReaderAdded.next();
+        }
+        mReaderAdded = null;
+        mCount = mReaderOffset;
+        return null;
+    }
+
+    // Whether a sequential read is in progress
+    private boolean isReaderOpen() {
+        return mReader != null || mReaderAdded != null;
+    }
+
+    // Close the snapshot, if open
+    private void closeReader() {
+        if (mReader != null) {
+            try {
+                mReader.close();
+            } catch (IOException ignored) {
+                // Nothing left to read
+            }
+            mReader = null;
+        }
+        mReaderAdded = null;
+    }
+
+    // Move the unreadable snapshot and log aside, so that the defaults are provided again
+    // and the next save starts a new store, then report the failure
+    private IllegalStateException quarantine(Exception cause) {
+        close();
+        File corruptFile = new File(mFile.getPath() + ".corrupt");
+        File corruptLogFile = new File(mLogFile.getPath() + ".corrupt");
+        if (!mFile.renameTo(corruptFile) || mLogFile.exists() && !mLogFile.renameTo(corruptLogFile)) {
+            LOGGER.warning("Failed to move " + mFile + " aside");
+        }
+        mDeletedIds.clear();
+        mAddedMeetings.clear();
+        mCount = -1;
+        return new IllegalStateException("Failed to read " + mFile + ", moved to " + corruptFile, cause);
+    }
+
+    /**
+     * Failure to read the stored meetings while they are written to a new snapshot.
+     */
+    private static final class UncheckedReadException extends RuntimeException {
+
+        private UncheckedReadException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.lamzone.mareu.data_sources;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * The RecordLog class frames the records of the append-only logs, such as the log of {@link MeetingFileStore}.
+ * Each record is written as [payload length][CRC32 of the body][body: type, sequence, payload].
+ * A record cut by a crash fails its length or CRC check, so a log is read up to its last complete record,
+ * and what follows is dropped by truncating the log to the size of its valid records.
+ */
+public final class RecordLog {
+
+    /**
+     * Size of the framing of a record, before its body: payload length and CRC.
+     */
+    public static final int HEADER_SIZE = 4 + 4;
+
+    /**
+     * Size of the body of a record, before its payload: type and sequence.
+     */
+    public static final int BODY_HEADER_SIZE = 1 + 8;
+
+    /**
+     * Maximum size of the payload of a record.
+     */
+    public static final int MAX_PAYLOAD_SIZE = 16 * 1024 * 1024;
+
+    private RecordLog() {
+    }
+
+    /**
+     * The Writer class encodes a batch of records in memory, so that the batch is written to the log at once.
+     * An instance is reused from batch to batch, and is not thread-safe.
+     */
+    public static final class Writer {
+
+        private final ByteArrayOutputStream mBatchBytes = new ByteArrayOutputStream();
+        private final DataOutputStream mBatchOutput = new DataOutputStream(mBatchBytes);
+        private final ByteArrayOutputStream mBodyBytes = new ByteArrayOutputStream();
+        private final DataOutputStream mBodyOutput = new DataOutputStream(mBodyBytes);
+        private final CRC32 mCrc = new CRC32();
+
+        /**
+         * Starts a record, after the previous records of the batch. Its payload is written to the returned
+         * stream, then the record is added to the batch by {@link #end()}.
+         *
+         * @param type     Type of the record.
+         * @param sequence Sequence of the record.
+         * @return The stream to write the payload to.
+         * @throws IOException If the record could not be started.
+         */
+        public DataOutputStream begin(int type, long sequence) throws IOException {
+            mBodyBytes.reset();
+            mBodyOutput.writeByte(type);
+            mBodyOutput.writeLong(sequence);
+            return mBodyOutput;
+        }
+
+        /**
+         * Ends the record started by {@link #begin(int, long)}, adding it to the batch.
+         *
+         * @throws IOException If the payload is larger than {@link #MAX_PAYLOAD_SIZE}.
+         */
+        public void end() throws IOException {
+            byte[] body = mBodyBytes.toByteArray();
+            if (body.length - BODY_HEADER_SIZE > MAX_PAYLOAD_SIZE) {
+                throw new IOException("Record too large to be stored: " + body.length + " bytes");
+            }
+            mCrc.reset();
+            mCrc.update(body, 0, body.length);
+            mBatchOutput.writeInt(body.length - BODY_HEADER_SIZE);
+            mBatchOutput.writeInt((int) mCrc.getValue());
+            mBatchOutput.write(body);
+        }
+
+        /**
+         * Gets the size of the batch.
+         *
+         * @return The size of the records of the batch, in bytes.
+         */
+        public int size() {
+            return mBatchBytes.size();
+        }
+
+        /**
+         * Writes the batch to a file, without syncing it.
+         *
+         * @param channel  File to write to.
+         * @param position Position of the batch in the file, usually the end of its last valid record.
+         * @return The size of the batch, in bytes.
+         * @throws IOException If the batch could not be written, in which case a part of it may have been.
+         */
+        public int writeTo(FileChannel channel, long position) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(mBatchBytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+            return buffer.limit();
+        }
+
+        /**
+         * Drops the records of the batch, to start the next one.
+         */
+        public void reset() {
+            mBatchBytes.reset();
+        }
+    }
+
+    /**
+     * The Reader class reads the records of a log, up to its last valid record.
+     */
+    public static final class Reader {
+
+        private final DataInputStream mInput;
+        private final CRC32 mCrc = new CRC32();
+        private byte[] mBody = new byte[256];
+        private boolean mEnded;
+        private long mValidSize;
+        private int mType;
+        private long mSequence;
+        private DataInputStream mPayload;
+
+        /**
+         * Constructor to create an instance of Reader.
+         *
+         * @param input Stream positioned at the first record, which the reader does not close.
+         */
+        public Reader(InputStream input) {
+            mInput = new DataInputStream(input);
+        }
+
+        /**
+         * Reads the next record.
+         *
+         * @return true if a valid record was read, false at the end of the log or at a record cut or corrupted by a crash.
+         * @throws IOException If the log could not be read.
+         */
+        public boolean next() throws IOException {
+            if (mEnded) {
+                return false;
+            }
+            int payloadSize;
+            int crc;
+            try {
+                payloadSize = mInput.readInt();
+                crc = mInput.readInt();
+            } catch (EOFException e) {
+                return end(); // End of the log, or record header cut by a crash
+            }
+            if (payloadSize < 0 || payloadSize > MAX_PAYLOAD_SIZE) {
+                return end(); // Corrupted record
+            }
+            int bodySize = BODY_HEADER_SIZE + payloadSize;
+            if (mBody.length < bodySize) {
+                mBody = new byte[Math.max(bodySize, mBody.length * 2)];
+            }
+            try {
+                mInput.readFully(mBody, 0, bodySize);
+            } catch (EOFException e) {
+                return end(); // Record cut by a crash
+            }
+            mCrc.reset();
+            mCrc.update(mBody, 0, bodySize);
+            if ((int) mCrc.getValue() != crc) {
+                return end(); // Record cut or corrupted by a crash
+            }
+            mPayload = new DataInputStream(new ByteArrayInputStream(mBody, 0, bodySize));
+            mType = mPayload.readByte();
+            mSequence = mPayload.readLong();
+            mValidSize += HEADER_SIZE + bodySize;
+            return true;
+        }
+
+        /**
+         * Gets the type of the record read.
+         *
+         * @return The type of the record.
+         */
+        public int getType() {
+            return mType;
+        }
+
+        /**
+         * Gets the sequence of the record read.
+         *
+         * @return The sequence of the record.
+         */
+        public long getSequence() {
+            return mSequence;
+        }
+
+        /**
+         * Gets the payload of the record read, valid until the next record is read.
+         *
+         * @return The stream of the payload.
+         */
+        public DataInputStream getPayload() {
+            return mPayload;
+        }
+
+        /**
+         * Gets the size of the valid records read so far, where the next records are to be appended
+         * once the reader returned false.
+         *
+         * @return The size of the records read, in bytes.
+         */
+        public long getValidSize() {
+            return mValidSize;
+        }
+
+        // Stop at the first record that is not valid
+        private boolean end() {
+            mEnded = true;
+            mPayload = null;
+            return false;
+        }
+    }
+}
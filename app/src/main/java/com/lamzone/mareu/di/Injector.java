@@ -4,38 +4,110 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 
 import com.lamzone.mareu.data_sources.FakeApi;
+import com.lamzone.mareu.data_sources.MappedMeetingSource;
+import com.lamzone.mareu.data_sources.MeetingDataSource;
+import com.lamzone.mareu.data_sources.MeetingFileStore;
 import com.lamzone.mareu.repository.MeetingRepository;
 import com.lamzone.mareu.application.AddMeetingViewModel;
+import com.lamzone.mareu.sync.HttpMeetingApi;
+import com.lamzone.mareu.sync.MeetingSyncEngine;
+import com.lamzone.mareu.sync.SyncStore;
+
+import java.io.File;
+import java.util.concurrent.Executors;
 
 /**
  * The Injector class is responsible for dependency injection for the application.
+ * The application creates it at startup, so that the meetings are loaded in the background
+ * while the first screen is drawn; the ViewModels follow the loading through the repository.
  */
 public class Injector {
 
-    private static Injector instance;
+    private static volatile File sFilesDir; // Directory of the meetings file, none to keep the meetings in memory
+    private static volatile String sServerUrl; // URL of the sync server, none to keep the meetings on the device
+
+    /**
+     * Holder of the singleton instance, created by the JVM on the first call to {@link #getInstance()},
+     * once and safely for any thread.
+     */
+    private static final class InstanceHolder {
+        private static final Injector INSTANCE = new Injector(sFilesDir, sServerUrl);
+    }
 
     private final MeetingRepository mMeetingRepository;
 
     /**
-     * Private constructor to create an instance of Injector.
-     * Initializes the meeting repository with an instance of FakeApi.
+     * Constructor to create an instance of Injector.
+     * Initializes the meeting repository with the meetings file, starting from the meetings of the
+     * calendar snapshot if one was placed in the files directory, otherwise from the FakeApi meetings.
+     * Without a files directory, the repository uses FakeApi alone.
+     * The data source is created by the first task of the repository's I/O executor, and the repository
+     * loads its meetings after it, so this returns at once, without touching the files.
+     * With a sync server and a files directory, the changes are also synced with the server in the background.
+     *
+     * @param filesDir  Directory of the meetings file, or null to keep the meetings in memory.
+     * @param serverUrl URL of the sync server, or null to keep the meetings on the device.
+     */
+    Injector(File filesDir, String serverUrl) {
+        MeetingDataSource dataSource = new LazyMeetingDataSource(() -> createDataSource(filesDir));
+        SyncStore syncStore = null;
+        if (filesDir != null && serverUrl != null) {
+            // Queue the local changes for the server as they are saved
+            syncStore = new SyncStore(new File(filesDir, "sync.bin"), dataSource);
+            dataSource = syncStore;
+        }
+        mMeetingRepository = new MeetingRepository(dataSource, Executors.newSingleThreadExecutor());
+        if (syncStore != null) {
+            new MeetingSyncEngine(mMeetingRepository, syncStore, new HttpMeetingApi(serverUrl), Executors.newSingleThreadScheduledExecutor()).start();
+        }
+    }
+
+    /**
+     * Creates the data source of the meetings.
+     *
+     * @param filesDir Directory of the meetings file, or null to keep the meetings in memory.
+     * @return The data source.
      */
-    private Injector() {
+    private static MeetingDataSource createDataSource(File filesDir) {
         FakeApi fakeApi = new FakeApi();
-        mMeetingRepository = new MeetingRepository(fakeApi);
+        if (filesDir == null) {
+            return fakeApi;
+        }
+        // A calendar provided as a mapped snapshot holds the initial meetings, read page by page by the repository
+        File calendarFile = new File(filesDir, "calendar.bin");
+        MeetingDataSource defaults = calendarFile.exists() ? new MappedMeetingSource(calendarFile, fakeApi) : fakeApi;
+        return new MeetingFileStore(new File(filesDir, "meetings.bin"), defaults);
+    }
+
+    /**
+     * Set the directory where the meetings are stored.
+     * It must be called before the first call to {@link #getInstance()}.
+     *
+     * @param filesDir The directory of the meetings file.
+     */
+    public static void setFilesDir(File filesDir) {
+        sFilesDir = filesDir;
+    }
+
+    /**
+     * Set the URL of the server the meetings are synced with.
+     * It must be called before the first call to {@link #getInstance()}.
+     *
+     * @param serverUrl The URL of the meetings API, without a trailing slash.
+     */
+    public static void setServerUrl(String serverUrl) {
+        sServerUrl = serverUrl;
     }
 
     /**
      * Get the singleton instance of Injector.
-     * If no instance exists, creates a new one.
+     * The first call creates it, which starts loading the meetings in the background.
+     * It is thread-safe and does not block.
      *
      * @return The instance of Injector.
      */
     public static Injector getInstance() {
-        if (instance == null) {
-            instance = new Injector();
-        }
-        return instance;
+        return InstanceHolder.INSTANCE;
     }
 
     /**
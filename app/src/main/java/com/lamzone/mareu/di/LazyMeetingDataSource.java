@@ -0,0 +1,69 @@
+package com.lamzone.mareu.di;
+
+import com.lamzone.mareu.data_sources.MeetingDataSource;
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * The LazyMeetingDataSource class creates a data source on its first use, and forwards the calls to it.
+ * The repository only uses its data source on its I/O executor, so the files are opened there
+ * rather than on the thread creating the repository.
+ * If the data source cannot be created, the call fails with an unchecked exception, which the repository
+ * reports as a storage error instead of crashing its I/O executor; the next call tries again.
+ */
+final class LazyMeetingDataSource implements MeetingDataSource {
+
+    private final Callable<MeetingDataSource> mFactory;
+    private volatile MeetingDataSource mDataSource; // Created once, by the first call
+
+    /**
+     * Constructor to create an instance of LazyMeetingDataSource.
+     *
+     * @param factory Creates the data source, on the thread of the first call.
+     */
+    LazyMeetingDataSource(Callable<MeetingDataSource> factory) {
+        mFactory = factory;
+    }
+
+    /**
+     * Gets the data source, creating it on the first call.
+     *
+     * @return The data source.
+     * @throws IllegalStateException If the data source cannot be created.
+     */
+    private MeetingDataSource get() {
+        MeetingDataSource dataSource = mDataSource;
+        if (dataSource == null) {
+            synchronized (this) {
+                dataSource = mDataSource;
+                if (dataSource == null) {
+                    try {
+                        dataSource = mFactory.call();
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Cannot create the meeting data source", e);
+                    }
+                    mDataSource = dataSource;
+                }
+            }
+        }
+        return dataSource;
+    }
+
+    @Override
+    public List<String> getMeetingRooms() {
+        return get().getMeetingRooms();
+    }
+
+    @Override
+    public List<Meeting> loadMeetings(int offset, int count) {
+        return get().loadMeetings(offset, count);
+    }
+
+    @Override
+    public void saveChanges(List<MeetingChange> changes) {
+        get().saveChanges(changes);
+    }
+}
@@ -1,17 +1,43 @@
 package com.lamzone.mareu.model;
 
+import java.util.AbstractList;
 import java.util.Calendar;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The Meeting class represents a meeting.
+ * A recurring meeting is stored once, as the series of its occurrences: it stands for its first
+ * occurrence, and the next ones are only built when a time range is read.
  */
 public class Meeting implements Comparable<Meeting> {
+
+    /**
+     * Duration of the meetings created without one, in minutes.
+     */
+    public static final int DEFAULT_DURATION_MINUTES = 60;
+
+    // New ids start from the current time in microseconds, so that the meetings created by a run of the app
+    // never reuse the ids of the meetings stored by a previous run, and are kept above the ids loaded or received,
+    // in case the clock went back
+    private static final AtomicLong sNextId = new AtomicLong(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+
+    private long id; // Stable identity of the meeting, kept when the meeting is stored
     private String title;
-    private Calendar dateTime;
-    private String location;
+    private int titleId; // Id in the texts dictionary
+    private long startMinute; // Start time in minutes since the epoch (UTC)
+    private int durationMinutes;
+    private int locationId; // Id in the rooms dictionary
     private String subject;
-    private List<String> participants;
+    private int subjectId; // Id in the texts dictionary
+    private int[] participantIds; // Ids in the participants dictionary
+    private Recurrence recurrence; // Rule of the series, null for a single meeting
+    private Meeting series; // Series of an occurrence built from it, null for a stored meeting
+    private int occurrenceIndex; // Position of an occurrence in its series, 0 for a stored meeting
 
     /**
      * Constructor to create an instance of Meeting.
@@ -23,27 +49,180 @@ public class Meeting implements Comparable<Meeting> {
      * @param participants The list of participants in the meeting.
      */
     public Meeting(String title, Calendar dateTime, String location, String subject, List<String> participants) {
+        this(title, dateTime, DEFAULT_DURATION_MINUTES, location, subject, participants);
+    }
+
+    /**
+     * Constructor to create an instance of Meeting with a duration.
+     *
+     * @param title           The title of the meeting.
+     * @param dateTime        The date and time of the meeting.
+     * @param durationMinutes The duration of the meeting, in minutes.
+     * @param location        The location of the meeting.
+     * @param subject         The subject of the meeting.
+     * @param participants    The list of participants in the meeting.
+     */
+    public Meeting(String title, Calendar dateTime, int durationMinutes, String location, String subject, List<String> participants) {
+        this(sNextId.getAndIncrement(), title, TimeUnit.MILLISECONDS.toMinutes(dateTime.getTimeInMillis()), durationMinutes, location, subject, participants);
+    }
+
+    /**
+     * Constructor to create an instance of Meeting from a primitive start time.
+     *
+     * @param title       The title of the meeting.
+     * @param startMinute The start time of the meeting, in minutes since the epoch.
+     * @param location    The location of the meeting.
+     * @param subject     The subject of the meeting.
+     * @param participants The list of participants in the meeting.
+     */
+    public Meeting(String title, long startMinute, String location, String subject, List<String> participants) {
+        this(sNextId.getAndIncrement(), title, startMinute, DEFAULT_DURATION_MINUTES, location, subject, participants);
+    }
+
+    /**
+     * Constructor to create an instance of Meeting with a known id, such as a stored meeting.
+     *
+     * @param id              The id of the meeting.
+     * @param title           The title of the meeting.
+     * @param startMinute     The start time of the meeting, in minutes since the epoch.
+     * @param durationMinutes The duration of the meeting, in minutes.
+     * @param location        The location of the meeting.
+     * @param subject         The subject of the meeting.
+     * @param participants    The list of participants in the meeting.
+     */
+    public Meeting(long id, String title, long startMinute, int durationMinutes, String location, String subject, List<String> participants) {
+        this(id, title, startMinute, durationMinutes, location, subject, participants, null);
+    }
+
+    /**
+     * Constructor to create an instance of a recurring Meeting.
+     *
+     * @param title           The title of the meeting.
+     * @param dateTime        The date and time of the first occurrence.
+     * @param durationMinutes The duration of each occurrence, in minutes.
+     * @param location        The location of the meeting.
+     * @param subject         The subject of the meeting.
+     * @param participants    The list of participants in the meeting.
+     * @param recurrence      The rule of the series, or null for a single meeting.
+     */
+    public Meeting(String title, Calendar dateTime, int durationMinutes, String location, String subject, List<String> participants,
+                   Recurrence recurrence) {
+        this(sNextId.getAndIncrement(), title, TimeUnit.MILLISECONDS.toMinutes(dateTime.getTimeInMillis()), durationMinutes,
+                location, subject, participants, recurrence);
+    }
+
+    /**
+     * Constructor to create an instance of Meeting with a known id and a recurrence, such as a stored meeting.
+     *
+     * @param id              The id of the meeting.
+     * @param title           The title of the meeting.
+     * @param startMinute     The start time of the meeting (of its first occurrence if it recurs), in minutes since the epoch.
+     * @param durationMinutes The duration of the meeting, in minutes.
+     * @param location        The location of the meeting.
+     * @param subject         The subject of the meeting.
+     * @param participants    The list of participants in the meeting.
+     * @param recurrence      The rule of the series, or null for a single meeting.
+     */
+    public Meeting(long id, String title, long startMinute, int durationMinutes, String location, String subject, List<String> participants,
+                   Recurrence recurrence) {
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Invalid meeting duration: " + durationMinutes);
+        }
+        this.id = id;
         this.title = title;
-        this.dateTime = dateTime;
-        this.location = location;
+        this.startMinute = startMinute;
+        this.durationMinutes = durationMinutes;
+        this.locationId = StringDictionary.getRooms().intern(location);
+        long nextId;
+        while ((nextId = sNextId.get()) <= id && !sNextId.compareAndSet(nextId, id + 1)) {
+            // Another meeting moved the next id meanwhile
+        }
         this.subject = subject;
-        this.participants = participants;
+        this.titleId = StringDictionary.getTexts().intern(title);
+        this.subjectId = StringDictionary.getTexts().intern(subject);
+        this.participantIds = StringDictionary.getParticipants().internAll(participants);
+        this.recurrence = recurrence;
+    }
+
+    // Build an occurrence of a series, sharing its fields
+    private Meeting(Meeting series, int occurrenceIndex, long startMinute) {
+        this.id = series.id;
+        this.title = series.title;
+        this.startMinute = startMinute;
+        this.durationMinutes = series.durationMinutes;
+        this.locationId = series.locationId;
+        this.subject = series.subject;
+        this.titleId = series.titleId;
+        this.subjectId = series.subjectId;
+        this.participantIds = series.participantIds;
+        this.recurrence = series.recurrence;
+        this.series = series;
+        this.occurrenceIndex = occurrenceIndex;
     }
 
     /**
      * Compare this meeting to another meeting to determine their relative order based on date and time.
+     * Meetings starting at the same time are ordered by id, so distinct meetings never compare as equal.
      *
      * @param other The other meeting to compare.
      * @return A negative integer, zero, or a positive integer if this meeting is before, equal to, or after the other meeting.
      */
     @Override
     public int compareTo(Meeting other) {
-        return this.getDateTime().compareTo(other.getDateTime());
+        int comparison = Long.compare(this.startMinute, other.startMinute);
+        return comparison != 0 ? comparison : Long.compare(this.id, other.id);
     }
 
 
     // Getters
 
+    /**
+     * Get the stable identity of the meeting.
+     *
+     * @return The id of the meeting.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Get the position of the meeting in its series.
+     *
+     * @return The index of an occurrence, 0 for a single meeting or a series.
+     */
+    public int getOccurrenceIndex() {
+        return occurrenceIndex;
+    }
+
+    /**
+     * Get the identity of the meeting as a displayed item. The occurrences of a series share its id,
+     * so the next ones mix it with their position, and keep the same identity each time they are built.
+     *
+     * @return The id of the meeting for a single meeting or a series, an id derived from the id of the series
+     * and the position of the occurrence otherwise.
+     */
+    public long getOccurrenceId() {
+        if (occurrenceIndex == 0) {
+            return id;
+        }
+        // SplitMix64 finalizer, spreading the occurrences of nearby series over the whole range of ids
+        long z = id + occurrenceIndex * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Checks whether two meetings are the same occurrence of the same stored meeting, such as an occurrence
+     * built again by another query.
+     *
+     * @param other The other meeting.
+     * @return true if both meetings are the same occurrence of the same series, or the same single meeting.
+     */
+    public boolean isSameOccurrence(Meeting other) {
+        return this == other || (getSeries() == other.getSeries() && occurrenceIndex == other.occurrenceIndex);
+    }
+
     /**
      * Get the title of the meeting.
      *
@@ -53,22 +232,100 @@ public class Meeting implements Comparable<Meeting> {
         return title;
     }
 
+    /**
+     * Get the id of the title in the texts dictionary.
+     *
+     * @return The id of the title.
+     */
+    public int getTitleId() {
+        return titleId;
+    }
+
     /**
      * Get the date and time of the meeting.
+     * The Calendar is built on each call, so changing it does not change the meeting.
      *
      * @return The date and time of the meeting.
      */
     public Calendar getDateTime() {
+        Calendar dateTime = Calendar.getInstance();
+        dateTime.setTimeInMillis(getStartMillis());
         return dateTime;
     }
 
+    /**
+     * Get the start time of the meeting in minutes since the epoch.
+     *
+     * @return The start time of the meeting, in epoch minutes.
+     */
+    public long getStartMinute() {
+        return startMinute;
+    }
+
+    /**
+     * Get the duration of the meeting.
+     *
+     * @return The duration of the meeting, in minutes.
+     */
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    /**
+     * Get the end time of the meeting in minutes since the epoch. The meeting ends before this minute.
+     *
+     * @return The end time of the meeting, in epoch minutes.
+     */
+    public long getEndMinute() {
+        return startMinute + durationMinutes;
+    }
+
+    /**
+     * Checks whether the meeting overlaps a time slot. Meetings ending when the slot starts do not overlap it.
+     *
+     * @param fromMinute Start of the slot, in epoch minutes.
+     * @param toMinute   End of the slot (excluded), in epoch minutes.
+     * @return true if the meeting and the slot share at least one minute, false otherwise.
+     */
+    public boolean overlaps(long fromMinute, long toMinute) {
+        return startMinute < toMinute && fromMinute < getEndMinute();
+    }
+
+    /**
+     * Get the start time of the meeting in milliseconds since the epoch.
+     *
+     * @return The start time of the meeting, in epoch milliseconds.
+     */
+    public long getStartMillis() {
+        return TimeUnit.MINUTES.toMillis(startMinute);
+    }
+
+    /**
+     * Get the local day of the meeting as a number of days since the epoch.
+     *
+     * @param timeZone The time zone defining the local day.
+     * @return The local epoch-day of the meeting.
+     */
+    public long getEpochDay(TimeZone timeZone) {
+        return toEpochDay(getStartMillis(), timeZone);
+    }
+
     /**
      * Get the location of the meeting.
      *
      * @return The location of the meeting.
      */
     public String getLocation() {
-        return location;
+        return StringDictionary.getRooms().lookup(locationId);
+    }
+
+    /**
+     * Get the id of the location of the meeting in the rooms dictionary.
+     *
+     * @return The id of the location of the meeting.
+     */
+    public int getLocationId() {
+        return locationId;
     }
 
     /**
@@ -80,12 +337,162 @@ public class Meeting implements Comparable<Meeting> {
         return subject;
     }
 
+    /**
+     * Get the id of the subject in the texts dictionary.
+     *
+     * @return The id of the subject.
+     */
+    public int getSubjectId() {
+        return subjectId;
+    }
+
     /**
      * Get the list of participants in the meeting.
+     * The returned list is a read-only view resolving the participant ids on access.
      *
      * @return The list of participants in the meeting.
      */
     public List<String> getParticipants() {
-        return participants;
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return StringDictionary.getParticipants().lookup(participantIds[index]);
+            }
+
+            @Override
+            public int size() {
+                return participantIds.length;
+            }
+        };
+    }
+
+    /**
+     * Get the number of participants in the meeting.
+     *
+     * @return The number of participants.
+     */
+    public int getParticipantCount() {
+        return participantIds.length;
+    }
+
+    /**
+     * Get the id of a participant in the participants dictionary.
+     *
+     * @param index The position of the participant in the meeting.
+     * @return The id of the participant.
+     */
+    public int getParticipantId(int index) {
+        return participantIds[index];
+    }
+
+
+    // Recurrence
+
+    /**
+     * Get the rule of the series the meeting belongs to.
+     *
+     * @return The rule of the series, or null for a single meeting.
+     */
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+
+    /**
+     * Checks whether the meeting is a series or one of its occurrences.
+     *
+     * @return true if the meeting recurs, false for a single meeting.
+     */
+    public boolean isRecurring() {
+        return recurrence != null;
+    }
+
+    /**
+     * Get the stored meeting this meeting is an occurrence of. Deleting an occurrence deletes its series.
+     *
+     * @return The series of an occurrence, or the meeting itself for a single meeting or a series.
+     */
+    public Meeting getSeries() {
+        return series != null ? series : this;
+    }
+
+    /**
+     * Get the number of occurrences of the series, in O(1).
+     *
+     * @return The number of occurrences, 1 for a single meeting.
+     */
+    public int getOccurrenceCount() {
+        Meeting first = getSeries();
+        return recurrence != null ? recurrence.getOccurrenceCount(first.startMinute) : 1;
+    }
+
+    /**
+     * Get the end time of the last occurrence of the series, in O(1).
+     *
+     * @return The end time of the series, in epoch minutes, the end time of the meeting for a single meeting.
+     */
+    public long getSeriesEndMinute() {
+        Meeting first = getSeries();
+        if (recurrence == null) {
+            return getEndMinute();
+        }
+        return recurrence.getOccurrenceStart(first.startMinute, getOccurrenceCount() - 1) + durationMinutes;
+    }
+
+    /**
+     * Get an occurrence of the series. The first occurrence is the series itself.
+     *
+     * @param index The position of the occurrence in the series.
+     * @return The occurrence.
+     */
+    public Meeting getOccurrence(int index) {
+        Meeting first = getSeries();
+        if (index < 0 || index >= getOccurrenceCount()) {
+            throw new IndexOutOfBoundsException("Occurrence " + index + " of " + getOccurrenceCount());
+        }
+        return index == 0 ? first : new Meeting(first, index, recurrence.getOccurrenceStart(first.startMinute, index));
+    }
+
+    /**
+     * Iterates lazily over the occurrences of the series ending after a given time, in date and time order.
+     * The first of them is found in O(1), and each occurrence is only built when it is reached.
+     *
+     * @param fromMinute Time from which the occurrences are read, in epoch minutes.
+     * @return An iterator over the occurrences, the series itself standing for the first one.
+     */
+    public Iterator<Meeting> getOccurrences(long fromMinute) {
+        Meeting first = getSeries();
+        int count = getOccurrenceCount();
+        int fromIndex = recurrence != null && fromMinute > first.startMinute
+                ? recurrence.indexAtOrAfter(first.startMinute, Math.min(fromMinute, getSeriesEndMinute()) - durationMinutes + 1, count)
+                : 0;
+        return new Iterator<Meeting>() {
+            private int mIndex = fromIndex;
+
+            @Override
+            public boolean hasNext() {
+                return mIndex < count;
+            }
+
+            @Override
+            public Meeting next() {
+                if (mIndex >= count) {
+                    throw new NoSuchElementException();
+                }
+                return getOccurrence(mIndex++);
+            }
+        };
+    }
+
+
+    /**
+     * Converts an instant to the number of local days elapsed since the epoch.
+     *
+     * @param millis   The instant, in epoch milliseconds.
+     * @param timeZone The time zone defining the local day.
+     * @return The local epoch-day of the instant.
+     */
+    public static long toEpochDay(long millis, TimeZone timeZone) {
+        // Rounded down, so that the instants before the epoch fall on their own day rather than on the next one
+        return Math.floorDiv(millis + timeZone.getOffset(millis), TimeUnit.DAYS.toMillis(1));
     }
 }
\ No newline at end of file
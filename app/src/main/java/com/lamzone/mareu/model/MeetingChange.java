@@ -0,0 +1,82 @@
+package com.lamzone.mareu.model;
+
+/**
+ * The MeetingChange class represents a change made to the meetings: a meeting added or deleted,
+ * on this device or, for a remote change, on the server the meetings are synced with.
+ */
+public final class MeetingChange {
+
+    /**
+     * Type of a change.
+     */
+    public enum Type {
+        ADDED,
+        DELETED
+    }
+
+    private final Type type;
+    private final Meeting meeting;
+    private final boolean remote; // Whether the change comes from the server, so that it is stored but not sent back
+
+    private MeetingChange(Type type, Meeting meeting, boolean remote) {
+        this.type = type;
+        this.meeting = meeting;
+        this.remote = remote;
+    }
+
+    /**
+     * Creates the change of a meeting being added.
+     *
+     * @param meeting The added meeting.
+     * @return The change.
+     */
+    public static MeetingChange added(Meeting meeting) {
+        return new MeetingChange(Type.ADDED, meeting, false);
+    }
+
+    /**
+     * Creates the change of a meeting being deleted.
+     *
+     * @param meeting The deleted meeting.
+     * @return The change.
+     */
+    public static MeetingChange deleted(Meeting meeting) {
+        return new MeetingChange(Type.DELETED, meeting, false);
+    }
+
+    /**
+     * Creates the same change, made on the server.
+     *
+     * @return The remote change.
+     */
+    public MeetingChange toRemote() {
+        return new MeetingChange(type, meeting, true);
+    }
+
+    /**
+     * Get the type of the change.
+     *
+     * @return The type of the change.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Get the meeting added or deleted.
+     *
+     * @return The meeting of the change.
+     */
+    public Meeting getMeeting() {
+        return meeting;
+    }
+
+    /**
+     * Get whether the change was made on the server.
+     *
+     * @return true if the change comes from the server, false if it was made on this device.
+     */
+    public boolean isRemote() {
+        return remote;
+    }
+}
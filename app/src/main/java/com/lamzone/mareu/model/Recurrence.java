@@ -0,0 +1,269 @@
+package com.lamzone.mareu.model;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Recurrence class represents the rule of a recurring meeting: how often it repeats, and until when,
+ * as a number of occurrences or as an end date.
+ * Occurrences are computed in the time zone of the rule, so they keep their local time across daylight
+ * saving changes, and a monthly meeting on the 31st takes place on the last day of shorter months.
+ * Each occurrence is computed from the first one rather than from the previous one, so any of them
+ * is found in O(1) without expanding the series.
+ */
+public final class Recurrence {
+
+    /**
+     * How often a meeting repeats.
+     */
+    public enum Frequency {
+        DAILY(Calendar.DAY_OF_MONTH, 1),
+        WEEKLY(Calendar.DAY_OF_MONTH, 7),
+        MONTHLY(Calendar.MONTH, 1);
+
+        private final int field; // Calendar field incremented between occurrences
+        private final int amount;
+
+        Frequency(int field, int amount) {
+            this.field = field;
+            this.amount = amount;
+        }
+    }
+
+    private final Frequency frequency;
+    private final int count; // Number of occurrences, 0 when the series ends at a date
+    private final long untilMinute; // Occurrences start before this minute, Long.MAX_VALUE when the series has a count
+    private final TimeZone timeZone;
+
+    /**
+     * Constructor to create an instance of Recurrence.
+     *
+     * @param frequency   How often the meeting repeats.
+     * @param count       Number of occurrences, or 0 if the series ends at a date.
+     * @param untilMinute End of the series when it has no count: occurrences start before this minute, in epoch minutes.
+     * @param timeZone    Time zone in which the occurrences keep their local time.
+     */
+    public Recurrence(Frequency frequency, int count, long untilMinute, TimeZone timeZone) {
+        if (count < 0 || (count == 0 && untilMinute == Long.MAX_VALUE)) {
+            throw new IllegalArgumentException("A recurrence needs an occurrence count or an end date");
+        }
+        this.frequency = frequency;
+        this.count = count;
+        this.untilMinute = count > 0 ? Long.MAX_VALUE : untilMinute;
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * Creates a rule repeating a meeting a number of times, in the default time zone.
+     *
+     * @param frequency How often the meeting repeats.
+     * @param count     Number of occurrences, the first one included.
+     * @return The rule.
+     */
+    public static Recurrence times(Frequency frequency, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Invalid occurrence count: " + count);
+        }
+        return new Recurrence(frequency, count, Long.MAX_VALUE, TimeZone.getDefault());
+    }
+
+    /**
+     * Creates a rule repeating a meeting until a date, in the default time zone.
+     *
+     * @param frequency   How often the meeting repeats.
+     * @param untilMinute End of the series: occurrences start before this minute, in epoch minutes.
+     * @return The rule.
+     */
+    public static Recurrence until(Frequency frequency, long untilMinute) {
+        return new Recurrence(frequency, 0, untilMinute, TimeZone.getDefault());
+    }
+
+    /**
+     * Parses a rule written by {@link #toRule()}.
+     *
+     * @param rule Rule such as "FREQ=WEEKLY;COUNT=10;TZID=Europe/Paris".
+     * @return The parsed rule.
+     */
+    public static Recurrence parse(String rule) {
+        Frequency frequency = null;
+        int count = 0;
+        long untilMinute = Long.MAX_VALUE;
+        TimeZone timeZone = TimeZone.getDefault();
+        for (String part : rule.split(";")) {
+            int separator = part.indexOf('=');
+            String name = separator >= 0 ? part.substring(0, separator) : part;
+            String value = separator >= 0 ? part.substring(separator + 1) : "";
+            switch (name) {
+                case "FREQ":
+                    frequency = Frequency.valueOf(value);
+                    break;
+                case "COUNT":
+                    count = Integer.parseInt(value);
+                    break;
+                case "UNTIL":
+                    untilMinute = Long.parseLong(value);
+                    break;
+                case "TZID":
+                    timeZone = TimeZone.getTimeZone(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid recurrence rule: " + rule);
+            }
+        }
+        if (frequency == null) {
+            throw new IllegalArgumentException("Invalid recurrence rule: " + rule);
+        }
+        return new Recurrence(frequency, count, untilMinute, timeZone);
+    }
+
+    /**
+     * Writes the rule as text, in the style of an iCalendar RRULE, the end date being in epoch minutes.
+     *
+     * @return The rule, such as "FREQ=WEEKLY;COUNT=10;TZID=Europe/Paris".
+     */
+    public String toRule() {
+        return "FREQ=" + frequency + (count > 0 ? ";COUNT=" + count : ";UNTIL=" + untilMinute) + ";TZID=" + timeZone.getID();
+    }
+
+
+    // Getters
+
+    /**
+     * Get how often the meeting repeats.
+     *
+     * @return The frequency of the rule.
+     */
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Get the number of occurrences of the rule.
+     *
+     * @return The number of occurrences, or 0 if the series ends at a date.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the end date of the rule.
+     *
+     * @return The minute before which the occurrences start, or Long.MAX_VALUE if the series has a count.
+     */
+    public long getUntilMinute() {
+        return untilMinute;
+    }
+
+    /**
+     * Get the time zone in which the occurrences keep their local time.
+     *
+     * @return The time zone of the rule.
+     */
+    public TimeZone getTimeZone() {
+        return timeZone;
+    }
+
+
+    // Occurrences
+
+    /**
+     * Gets the start of an occurrence, in O(1).
+     *
+     * @param firstStartMinute Start of the first occurrence, in epoch minutes.
+     * @param index            Position of the occurrence in the series, the first one being 0.
+     * @return The start of the occurrence, in epoch minutes.
+     */
+    public long getOccurrenceStart(long firstStartMinute, int index) {
+        if (index == 0) {
+            return firstStartMinute;
+        }
+        if (frequency.field == Calendar.DAY_OF_MONTH) {
+            // Days have a fixed length but for the offset changes of the time zone, which are corrected
+            // unless the local time is skipped or repeated on that day
+            long fixedOffsetMinute = firstStartMinute + TimeUnit.DAYS.toMinutes(1) * frequency.amount * index;
+            long startMinute = fixedOffsetMinute - (offsetMinutes(fixedOffsetMinute) - offsetMinutes(firstStartMinute));
+            if (offsetMinutes(startMinute) == offsetMinutes(fixedOffsetMinute)) {
+                return startMinute;
+            }
+        }
+        Calendar calendar = Calendar.getInstance(timeZone, Locale.ROOT);
+        calendar.setTimeInMillis(TimeUnit.MINUTES.toMillis(firstStartMinute));
+        calendar.add(frequency.field, frequency.amount * index);
+        return TimeUnit.MILLISECONDS.toMinutes(calendar.getTimeInMillis());
+    }
+
+    /**
+     * Gets the number of occurrences of a series, in O(1). The first occurrence always takes place.
+     *
+     * @param firstStartMinute Start of the first occurrence, in epoch minutes.
+     * @return The number of occurrences.
+     */
+    public int getOccurrenceCount(long firstStartMinute) {
+        return count > 0 ? count : Math.max(1, indexAtOrAfter(firstStartMinute, untilMinute, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Gets the position of the first occurrence starting at or after a given time, in O(1):
+     * the position is estimated from the elapsed days or months, then corrected by a step at most.
+     *
+     * @param firstStartMinute Start of the first occurrence, in epoch minutes.
+     * @param minute           Time to look from, in epoch minutes.
+     * @param limit            Position returned if there is no such occurrence before it.
+     * @return The position of the occurrence, at most the limit.
+     */
+    public int indexAtOrAfter(long firstStartMinute, long minute, int limit) {
+        if (minute <= firstStartMinute || limit <= 0) {
+            return 0;
+        }
+        long estimate;
+        if (frequency.field == Calendar.MONTH) {
+            Calendar first = Calendar.getInstance(timeZone, Locale.ROOT);
+            first.setTimeInMillis(TimeUnit.MINUTES.toMillis(firstStartMinute));
+            Calendar last = Calendar.getInstance(timeZone, Locale.ROOT);
+            last.setTimeInMillis(TimeUnit.MINUTES.toMillis(minute));
+            estimate = (12L * (last.get(Calendar.YEAR) - first.get(Calendar.YEAR))
+                    + last.get(Calendar.MONTH) - first.get(Calendar.MONTH)) / frequency.amount;
+        } else {
+            estimate = (minute - firstStartMinute) / (TimeUnit.DAYS.toMinutes(1) * frequency.amount);
+        }
+        int index = (int) Math.max(0, Math.min(estimate, limit));
+        while (index > 0 && getOccurrenceStart(firstStartMinute, index - 1) >= minute) {
+            index--;
+        }
+        while (index < limit && getOccurrenceStart(firstStartMinute, index) < minute) {
+            index++;
+        }
+        return index;
+    }
+
+    // Get the offset of the time zone from UTC at a given time
+    private long offsetMinutes(long minute) {
+        return TimeUnit.MILLISECONDS.toMinutes(timeZone.getOffset(TimeUnit.MINUTES.toMillis(minute)));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Recurrence)) {
+            return false;
+        }
+        Recurrence recurrence = (Recurrence) other;
+        return frequency == recurrence.frequency && count == recurrence.count
+                && untilMinute == recurrence.untilMinute && timeZone.getID().equals(recurrence.timeZone.getID());
+    }
+
+    @Override
+    public int hashCode() {
+        return toRule().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toRule();
+    }
+}
@@ -0,0 +1,138 @@
+package com.lamzone.mareu.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The StringDictionary class interns strings shared by many meetings (participants, rooms)
+ * and maps each of them to a compact int id. Titles and subjects are interned too, as the keys of the search index.
+ * Ids are never reused, so they stay valid for the lifetime of the process. A string no meeting uses anymore,
+ * such as the title of a deleted meeting, can be released to free it: it gets a new id if it is interned again.
+ */
+public class StringDictionary {
+
+    private static final StringDictionary sParticipants = new StringDictionary();
+    private static final StringDictionary sRooms = new StringDictionary();
+    private static final StringDictionary sTexts = new StringDictionary();
+
+    private final Map<String, Integer> mIds = new HashMap<>();
+    private volatile String[] mValues = new String[16];
+    private volatile int mSize;
+
+    /**
+     * Get the dictionary of participant e-mails.
+     *
+     * @return The participants dictionary.
+     */
+    public static StringDictionary getParticipants() {
+        return sParticipants;
+    }
+
+    /**
+     * Get the dictionary of meeting room names.
+     *
+     * @return The rooms dictionary.
+     */
+    public static StringDictionary getRooms() {
+        return sRooms;
+    }
+
+    /**
+     * Get the dictionary of meeting titles and subjects.
+     *
+     * @return The texts dictionary.
+     */
+    public static StringDictionary getTexts() {
+        return sTexts;
+    }
+
+    /**
+     * Gets the id of a string, adding it to the dictionary if it is not known yet.
+     *
+     * @param value The string to intern.
+     * @return The id of the string.
+     */
+    public synchronized int intern(String value) {
+        Integer id = mIds.get(value);
+        if (id != null) {
+            return id;
+        }
+        int newId = mSize;
+        String[] values = mValues;
+        if (newId == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[newId] = value;
+        mIds.put(value, newId);
+        mValues = values;
+        mSize = newId + 1; // Published last, so readers checking the size see the stored value
+        return newId;
+    }
+
+    /**
+     * Gets the id of a string without adding it to the dictionary.
+     *
+     * @param value The string to look for.
+     * @return The id of the string, or -1 if it is not in the dictionary.
+     */
+    public synchronized int find(String value) {
+        Integer id = mIds.get(value);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Gets the ids of a list of strings, adding the unknown ones to the dictionary.
+     *
+     * @param values The strings to intern.
+     * @return The ids of the strings, in the same order.
+     */
+    public int[] internAll(List<String> values) {
+        int[] ids = new int[values.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = intern(values.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Gets the string of an id.
+     *
+     * @param id The id returned by {@link #intern(String)}.
+     * @return The interned string, or null if it was released.
+     */
+    public String lookup(int id) {
+        if (id < 0 || id >= mSize) {
+            throw new IllegalArgumentException("Unknown dictionary id: " + id);
+        }
+        return mValues[id];
+    }
+
+    /**
+     * Releases a string that no meeting uses anymore, so that the dictionary does not keep every string ever interned.
+     * Its id is not reused, and the meetings still holding it keep their own copy of the string.
+     *
+     * @param id The id returned by {@link #intern(String)}.
+     */
+    public synchronized void release(int id) {
+        if (id < 0 || id >= mSize) {
+            throw new IllegalArgumentException("Unknown dictionary id: " + id);
+        }
+        String value = mValues[id];
+        Integer currentId = mIds.get(value);
+        if (currentId != null && currentId == id) {
+            mIds.remove(value);
+        }
+        mValues[id] = null;
+    }
+
+    /**
+     * Gets the number of strings in the dictionary.
+     *
+     * @return The size of the dictionary.
+     */
+    public int size() {
+        return mSize;
+    }
+}
@@ -0,0 +1,77 @@
+package com.lamzone.mareu.repository;
+
+/**
+ * The FreeSlot class is a time window during which a room and a set of participants are all free.
+ * A meeting of the requested duration can start anywhere in it, as long as it ends by its end.
+ * Instances are immutable.
+ */
+public final class FreeSlot {
+
+    private final String mRoom;
+    private final long mStartMinute;
+    private final long mEndMinute;
+
+    /**
+     * Initializes a new free slot.
+     *
+     * @param room        Name of the free room.
+     * @param startMinute Start of the window, in epoch minutes.
+     * @param endMinute   End of the window (excluded), in epoch minutes.
+     */
+    public FreeSlot(String room, long startMinute, long endMinute) {
+        mRoom = room;
+        mStartMinute = startMinute;
+        mEndMinute = endMinute;
+    }
+
+    /**
+     * Get the name of the free room.
+     *
+     * @return The room of the slot.
+     */
+    public String getRoom() {
+        return mRoom;
+    }
+
+    /**
+     * Get the start of the window.
+     *
+     * @return The start of the slot, in epoch minutes.
+     */
+    public long getStartMinute() {
+        return mStartMinute;
+    }
+
+    /**
+     * Get the end of the window.
+     *
+     * @return The end of the slot (excluded), in epoch minutes.
+     */
+    public long getEndMinute() {
+        return mEndMinute;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FreeSlot)) {
+            return false;
+        }
+        FreeSlot other = (FreeSlot) o;
+        return mStartMinute == other.mStartMinute && mEndMinute == other.mEndMinute && mRoom.equals(other.mRoom);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mRoom.hashCode();
+        result = 31 * result + (int) (mStartMinute ^ (mStartMinute >>> 32));
+        return 31 * result + (int) (mEndMinute ^ (mEndMinute >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "FreeSlot{" + mRoom + ", " + mStartMinute + "-" + mEndMinute + "}";
+    }
+}
@@ -0,0 +1,188 @@
+package com.lamzone.mareu.repository;
+
+import com.lamzone.mareu.model.Meeting;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The FreeSlotFinder class finds the earliest windows where a room and a set of participants are all free.
+ * Each room and participant has its meetings sorted by start time in a tree of the snapshot: for each room,
+ * the streams of the room and of the participants are merged lazily into a stream of busy intervals,
+ * whose gaps are the free windows of the room, and the free windows of all the rooms are merged in turn.
+ * Only the meetings before the last returned window are read, so the cost depends on how soon
+ * the windows are found, not on the number of meetings.
+ * The recurring meetings of a room or a participant are merged as more streams, their occurrences
+ * being built as they are reached.
+ */
+final class FreeSlotFinder {
+
+    private FreeSlotFinder() {
+    }
+
+    /**
+     * Finds the earliest free windows, sorted by start time, then by room order.
+     *
+     * @param snapshot        Snapshot to read.
+     * @param rooms           Names of the candidate rooms.
+     * @param roomIds         Ids of the rooms in the rooms dictionary, negative for a room without meetings.
+     * @param participantIds  Ids of the participants in the participants dictionary, negative for a participant without meetings.
+     * @param durationMinutes Minimum length of a window, in minutes.
+     * @param fromMinute      Start of the searched time range, in epoch minutes.
+     * @param toMinute        End of the searched time range (excluded), in epoch minutes.
+     * @param maxSlots        Maximum number of windows.
+     * @return The windows, each one maximal within the searched range.
+     */
+    static List<FreeSlot> find(MeetingSnapshot snapshot, List<String> rooms, int[] roomIds, int[] participantIds,
+                               int durationMinutes, long fromMinute, long toMinute, int maxSlots) {
+        // Series busying the participants, whatever the room
+        List<Meeting> participantSeries = new ArrayList<>();
+        for (Meeting series : snapshot.getSeries()) {
+            if (hasParticipant(series, participantIds)) {
+                participantSeries.add(series);
+            }
+        }
+
+        PriorityQueue<RoomStream> streams = new PriorityQueue<>();
+        for (int i = 0; i < rooms.size(); i++) {
+            List<Iterator<Meeting>> busyMeetings = new ArrayList<>(participantIds.length + 1);
+            if (roomIds[i] >= 0) {
+                busyMeetings.add(snapshot.getRoomMeetings(roomIds[i]).iterator(fromMinute));
+            }
+            for (int participantId : participantIds) {
+                if (participantId >= 0) {
+                    busyMeetings.add(snapshot.getParticipantMeetings(participantId).iterator(fromMinute));
+                }
+            }
+            for (Meeting series : snapshot.getSeries()) {
+                if (series.getLocationId() == roomIds[i] && !participantSeries.contains(series)) {
+                    busyMeetings.add(series.getOccurrences(fromMinute));
+                }
+            }
+            for (Meeting series : participantSeries) {
+                busyMeetings.add(series.getOccurrences(fromMinute));
+            }
+            RoomStream stream = new RoomStream(i, rooms.get(i), busyMeetings, durationMinutes, fromMinute, toMinute);
+            if (stream.advance()) {
+                streams.add(stream);
+            }
+        }
+
+        List<FreeSlot> slots = new ArrayList<>();
+        while (slots.size() < maxSlots && !streams.isEmpty()) {
+            RoomStream stream = streams.poll();
+            slots.add(stream.mSlot);
+            if (stream.advance()) {
+                streams.add(stream);
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Checks whether a meeting has one of the given participants.
+     *
+     * @param meeting        Meeting to check.
+     * @param participantIds Ids of the participants in the participants dictionary.
+     * @return true if one of the participants attends the meeting.
+     */
+    private static boolean hasParticipant(Meeting meeting, int[] participantIds) {
+        for (int i = 0; i < meeting.getParticipantCount(); i++) {
+            for (int participantId : participantIds) {
+                if (meeting.getParticipantId(i) == participantId) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lazy stream of the free windows of a room, ordered by start time then by room order.
+     */
+    private static final class RoomStream implements Comparable<RoomStream> {
+        private final int mRoomIndex;
+        private final String mRoom;
+        private final PriorityQueue<BusyCursor> mCursors = new PriorityQueue<>();
+        private final int mDurationMinutes;
+        private final long mToMinute;
+        private long mFreeFromMinute; // End of the busy intervals merged so far
+        private FreeSlot mSlot; // Current window
+
+        RoomStream(int roomIndex, String room, List<Iterator<Meeting>> busyMeetings, int durationMinutes, long fromMinute, long toMinute) {
+            mRoomIndex = roomIndex;
+            mRoom = room;
+            mDurationMinutes = durationMinutes;
+            mToMinute = toMinute;
+            mFreeFromMinute = fromMinute;
+            for (Iterator<Meeting> meetings : busyMeetings) {
+                if (meetings.hasNext()) {
+                    mCursors.add(new BusyCursor(meetings));
+                }
+            }
+        }
+
+        /**
+         * Moves to the next window long enough.
+         *
+         * @return true if there is one, false once the searched range is exhausted.
+         */
+        boolean advance() {
+            while (mFreeFromMinute < mToMinute) {
+                BusyCursor cursor = mCursors.poll();
+                Meeting meeting = cursor != null ? cursor.mHead : null;
+                long gapEndMinute = meeting != null ? Math.min(meeting.getStartMinute(), mToMinute) : mToMinute;
+                long gapStartMinute = mFreeFromMinute;
+                if (meeting == null || meeting.getStartMinute() >= mToMinute) {
+                    mFreeFromMinute = mToMinute; // No busy interval left in the range
+                } else {
+                    mFreeFromMinute = Math.max(mFreeFromMinute, meeting.getEndMinute());
+                    if (cursor.next()) {
+                        mCursors.add(cursor);
+                    }
+                }
+                if (gapEndMinute - gapStartMinute >= mDurationMinutes) {
+                    mSlot = new FreeSlot(mRoom, gapStartMinute, gapEndMinute);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int compareTo(RoomStream other) {
+            int comparison = Long.compare(mSlot.getStartMinute(), other.mSlot.getStartMinute());
+            return comparison != 0 ? comparison : Integer.compare(mRoomIndex, other.mRoomIndex);
+        }
+    }
+
+    /**
+     * Position in a stream of meetings sorted by start time.
+     */
+    private static final class BusyCursor implements Comparable<BusyCursor> {
+        private final Iterator<Meeting> mMeetings;
+        private Meeting mHead;
+
+        BusyCursor(Iterator<Meeting> meetings) {
+            mMeetings = meetings;
+            mHead = meetings.next();
+        }
+
+        /**
+         * Moves to the next meeting of the stream.
+         *
+         * @return true if there is one, false at the end of the stream.
+         */
+        boolean next() {
+            mHead = mMeetings.hasNext() ? mMeetings.next() : null;
+            return mHead != null;
+        }
+
+        @Override
+        public int compareTo(BusyCursor other) {
+            return Long.compare(mHead.getStartMinute(), other.mHead.getStartMinute());
+        }
+    }
+}
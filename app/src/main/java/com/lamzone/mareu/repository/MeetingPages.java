@@ -0,0 +1,92 @@
+package com.lamzone.mareu.repository;
+
+import com.lamzone.mareu.model.Meeting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The MeetingPages class gives access to the meetings of a repository snapshot page by page,
+ * in date and time order, without copying them.
+ * Pages are found by position or by time, in O(log n) plus the size of the page, so a list can
+ * keep only the pages around what it displays. Instances are immutable and can be read from any thread.
+ */
+public final class MeetingPages {
+
+    private final MeetingTree mMeetings;
+
+    /**
+     * Initializes the pages of a snapshot.
+     *
+     * @param meetings Meetings of the snapshot.
+     */
+    MeetingPages(MeetingTree meetings) {
+        mMeetings = meetings;
+    }
+
+    /**
+     * Get the number of meetings.
+     *
+     * @return The number of meetings of the snapshot.
+     */
+    public int size() {
+        return mMeetings.size();
+    }
+
+    /**
+     * Get the position of the first meeting starting at or after a given time.
+     *
+     * @param minute Start time, in epoch minutes.
+     * @return The position of that meeting, or the number of meetings if there is none.
+     */
+    public int getPosition(long minute) {
+        return mMeetings.rank(minute);
+    }
+
+    /**
+     * Get the page of meetings starting at a given position.
+     *
+     * @param position Position of the first meeting of the page.
+     * @param count    Maximum number of meetings of the page.
+     * @return The meetings of the page, empty past the last meeting.
+     */
+    public List<Meeting> getPage(int position, int count) {
+        List<Meeting> meetings = new ArrayList<>(Math.max(0, Math.min(count, size() - position)));
+        mMeetings.collect(position, count, meetings);
+        return meetings;
+    }
+
+    /**
+     * Get the page of meetings starting at or after a given time.
+     *
+     * @param fromMinute Start time of the page, in epoch minutes.
+     * @param count      Maximum number of meetings of the page.
+     * @return The meetings of the page, empty if no meeting starts at or after that time.
+     */
+    public List<Meeting> getPage(long fromMinute, int count) {
+        return getPage(getPosition(fromMinute), count);
+    }
+
+    /**
+     * Get the position of the first meeting differing from the pages of another snapshot,
+     * such as the previous one, in O(k log n) for k changes between the snapshots.
+     * The meetings before that position are the same in both snapshots.
+     *
+     * @param other Pages of the other snapshot.
+     * @return The first position holding different meetings, or the size of the smaller snapshot
+     * if it holds the first meetings of the other one.
+     */
+    public int getFirstDifference(MeetingPages other) {
+        return mMeetings.firstDifference(other.mMeetings);
+    }
+
+    /**
+     * Get an immutable list view of all the meetings, in date and time order.
+     * Its elements are found in O(log n) each, without copying them.
+     *
+     * @return The list view of the meetings.
+     */
+    public List<Meeting> asList() {
+        return mMeetings.asList();
+    }
+}
@@ -3,35 +3,115 @@ package com.lamzone.mareu.repository;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
-import com.lamzone.mareu.data_sources.FakeApi;
+import com.lamzone.mareu.data_sources.MeetingDataSource;
 import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
+import com.lamzone.mareu.model.StringDictionary;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The MeetingRepository class manages access to meeting data.
+ * Meetings are held in persistent trees sorted by date and time: each mutation costs O(log n)
+ * and publishes an immutable, already ordered snapshot sharing its structure with the previous one.
+ * Stored meetings are loaded in pages on the I/O executor, each page being published as soon as it is read,
+ * and the changes are saved on the same executor, in batches.
+ * A recurring meeting is stored and listed once; the queries on a time range, such as the date filter
+ * and the conflict checks, build the occurrences of that range from its rule.
+ * The repository takes no lock while changing meetings: each transaction builds a new snapshot from
+ * the current one and installs it with a compare-and-set, running again if another thread got there first,
+ * so writers on any thread never lose each other's changes and readers never wait.
+ * Storage failures never stop the repository: they are reported through {@link #getErrorLiveData()},
+ * the changes that could not be saved being kept and saved again with the next change.
  */
 public class MeetingRepository {
 
-    private final MutableLiveData<List<Meeting>> mMeetingsLiveData = new MutableLiveData<>();
+    /**
+     * Number of meetings of the first page loaded. The next pages double in size,
+     * so that the first meetings are shown quickly and merging the pages stays linear overall.
+     */
+    public static final int PAGE_SIZE = 1_000;
+
+    private static final Logger LOGGER = Logger.getLogger(MeetingRepository.class.getName());
+    private static final NgramIndex.Texts PARTICIPANT_TEXTS = participantId -> StringDictionary.getParticipants().lookup(participantId);
+
+    private final MutableLiveData<List<Meeting>> mMeetingsLiveData;
+    private final MutableLiveData<MeetingPages> mMeetingPagesLiveData;
     private final MutableLiveData<List<String>> mMeetingRoomsLiveData = new MutableLiveData<>();
-    private final FakeApi mFakeApi;
+    private final MutableLiveData<Boolean> mLoadingLiveData = new MutableLiveData<>(true);
+    private final MutableLiveData<StorageError> mErrorLiveData = new MutableLiveData<>();
+    private final MeetingDataSource mDataSource;
+    private final Executor mIoExecutor;
+    private final AtomicBoolean mSavePending = new AtomicBoolean(); // Whether a save is queued and not started yet
+    private final AtomicBoolean mPublishPending = new AtomicBoolean(); // Whether a publication is queued and not started yet
+    private volatile long mSavedCount; // Number of changes committed then saved, written on the I/O executor
+    private final List<SaveTask> mSaveTasks = new ArrayList<>(); // Tasks waiting for changes to be saved, guarded by itself
+
+    /**
+     * Current state of the repository: all the meetings, their per-room and per-participant indexes,
+     * and the changes not saved yet. It is only replaced by a compare-and-set.
+     */
+    private final AtomicReference<State> mState = new AtomicReference<>(new State(MeetingSnapshot.of(new ArrayList<>()), null, 0, MeetingTree.empty()));
+
+    private final Object mPublishLock = new Object(); // Orders the publications and the searches, held only while posting or searching
+    private volatile MeetingSnapshot mPublishedSnapshot; // Last snapshot indexed and posted, written under mPublishLock
+    private final NgramIndex mTextIndex = new NgramIndex(); // Titles and subjects of the published meetings, by text id
+    private final NgramIndex mParticipantIndex = new NgramIndex(); // Participants of the published meetings, by participant id
+
+    /**
+     * Constructor to create an instance of MeetingRepository loading and saving its meetings
+     * on the calling thread. The changes are only saved in order if they are made from one thread at a time.
+     *
+     * @param dataSource The data source used to retrieve and store meeting and meeting room data.
+     */
+    public MeetingRepository(MeetingDataSource dataSource) {
+        this(dataSource, Runnable::run);
+    }
 
     /**
      * Constructor to create an instance of MeetingRepository.
+     * It returns without calling the data source, which is only used on the I/O executor,
+     * so the repository can be created on any thread without waiting for the meetings to be loaded.
      *
-     * @param fakeApi The fake API used to retrieve meeting and meeting room data.
+     * @param dataSource The data source used to retrieve and store meeting and meeting room data.
+     * @param ioExecutor Executor loading and saving the meetings, one task at a time and in order.
      */
-    public MeetingRepository(FakeApi fakeApi) {
-        mFakeApi = fakeApi;
-        loadMeetings(); // Load meetings on repository startup
-        loadMeetingRooms(); // Load meeting rooms on repository startup
+    public MeetingRepository(MeetingDataSource dataSource, Executor ioExecutor) {
+        mDataSource = dataSource;
+        mIoExecutor = ioExecutor;
+        MeetingSnapshot snapshot = mState.get().mSnapshot;
+        mPublishedSnapshot = snapshot;
+        mMeetingsLiveData = new MutableLiveData<>(snapshot.getMeetings().asList()); // Empty until the first page is loaded
+        mMeetingPagesLiveData = new MutableLiveData<>(new MeetingPages(snapshot.getMeetings()));
+        mIoExecutor.execute(() -> {
+            // Load meeting rooms then meetings in the background
+            if (!loadStoredData()) {
+                // The data source set the unreadable data aside: load what it provides instead,
+                // in place of the meetings read before the failure
+                clearLoadedMeetings();
+                loadStoredData();
+            }
+            finishLoading();
+            mLoadingLiveData.postValue(false);
+        });
     }
 
     /**
      * Gets a LiveData containing the list of meetings.
+     * Each published list is an immutable snapshot sorted by date and time.
      *
      * @return LiveData List Meeting containing the list of meetings.
      */
@@ -40,6 +120,16 @@ public class MeetingRepository {
         return mMeetingsLiveData;
     }
 
+    /**
+     * Gets a LiveData containing the meetings as pages, updated along with the list of meetings.
+     * It lets a list load only the pages it displays, keyed by position or by time.
+     *
+     * @return LiveData MeetingPages containing the pages of meetings.
+     */
+    public LiveData<MeetingPages> getMeetingPagesLiveData() {
+        return mMeetingPagesLiveData;
+    }
+
     /**
      * Gets a LiveData containing the list of meeting rooms.
      *
@@ -50,20 +140,41 @@ public class MeetingRepository {
         return mMeetingRoomsLiveData;
     }
 
+    /**
+     * Gets a LiveData telling whether the stored meetings are still being loaded.
+     * The list of meetings is published page by page meanwhile, and changes can already be made.
+     *
+     * @return LiveData Boolean containing true until all the stored meetings are loaded.
+     */
+    public LiveData<Boolean> getLoadingLiveData() {
+        return mLoadingLiveData;
+    }
+
+    /**
+     * Gets a LiveData containing the last storage failure, so that the user can be told about it.
+     *
+     * @return LiveData StorageError containing the last failure, null if nothing failed.
+     */
+    public LiveData<StorageError> getErrorLiveData() {
+        return mErrorLiveData;
+    }
+
+    /**
+     * Clears the last storage failure once the user was told about it.
+     * It must be called from the main thread.
+     */
+    public void clearError() {
+        mErrorLiveData.setValue(null);
+    }
+
     /**
      * Adds a new meeting to the list of meetings.
      *
      * @param meeting Meeting to add.
      */
     public void addMeeting(Meeting meeting) {
-        // Get a copy of the current list of meetings
-        List<Meeting> meetings = new ArrayList<>(mMeetingsLiveData.getValue());
-
-        // Add the new meeting to the list
-        meetings.add(meeting);
-
-        // Update the LiveData with the new list of meetings
-        mMeetingsLiveData.postValue(meetings);
+        // Insert the new meeting into the current snapshot, sharing the untouched structure
+        update(editor -> editor.addMeeting(meeting));
 
         // Log.d("MeetingRepository", "Meeting added: " + meeting.getTitle());
         // Log.d("MeetingRepository", "Meetings LiveData updated: " + mMeetingsLiveData.getValue().size());
@@ -75,34 +186,971 @@ public class MeetingRepository {
      * @param meeting Meeting to delete.
      */
     public void deleteMeeting(Meeting meeting) {
-        // Get a copy of the current list of meetings
-        List<Meeting> meetings = new ArrayList<>(mMeetingsLiveData.getValue());
+        // Remove the meeting from the current snapshot, sharing the untouched structure
+        update(editor -> editor.deleteMeeting(meeting));
+
+        // Log.d("MeetingRepository", "Meeting deleted: " + meeting.getTitle());
+        // Log.d("MeetingRepository", "Meetings LiveData updated: " + mMeetingsLiveData.getValue().size());
+    }
+
+    /**
+     * Adds a meeting only if its room is free for its whole duration, for each of its occurrences if it recurs.
+     * The check and the addition are atomic, so two overlapping bookings of a room cannot both succeed:
+     * the check runs again if another meeting of the room was added or deleted in the meantime.
+     *
+     * @param meeting Meeting to add.
+     * @return The meetings of the room overlapping the meeting, empty if it was added.
+     */
+    public List<Meeting> bookMeeting(Meeting meeting) {
+        List<Meeting> conflicts = null;
+        MeetingTree checkedMeetings = null;
+        SeriesTree checkedSeries = null;
+        Editor editor;
+        do {
+            editor = new Editor(mState.get(), false);
+            MeetingTree roomMeetings = editor.mSnapshot.getRoomMeetings(meeting.getLocationId());
+            SeriesTree roomSeries = editor.mSnapshot.getRoomSeries(meeting.getLocationId());
+            if (roomMeetings != checkedMeetings || roomSeries != checkedSeries) {
+                // Check the room again only if another writer changed its meetings, the trees being shared otherwise
+                conflicts = getConflicts(roomMeetings, roomSeries, meeting);
+                checkedMeetings = roomMeetings;
+                checkedSeries = roomSeries;
+            }
+            if (conflicts.isEmpty()) {
+                editor.addMeeting(meeting);
+            }
+        } while (!commit(editor));
+        return conflicts;
+    }
+
+    /**
+     * Adds several meetings, publishing a single new list of meetings.
+     *
+     * @param meetings Meetings to add.
+     */
+    public void addMeetings(Collection<Meeting> meetings) {
+        update(editor -> {
+            for (Meeting meeting : meetings) {
+                editor.addMeeting(meeting);
+            }
+        });
+    }
+
+    /**
+     * Deletes several meetings, publishing a single new list of meetings.
+     *
+     * @param meetings Meetings to delete.
+     */
+    public void deleteMeetings(Collection<Meeting> meetings) {
+        update(editor -> {
+            for (Meeting meeting : meetings) {
+                editor.deleteMeeting(meeting);
+            }
+        });
+    }
+
+    /**
+     * Applies any number of changes as one transaction, publishing a single new list of meetings
+     * once the transaction returns, and nothing if it did not change anything.
+     * It can be called from any thread. The transaction runs again if another thread changed
+     * the meetings before its changes were applied, so it must only act through the given Editor.
+     *
+     * @param transaction Changes to apply through the given Editor.
+     */
+    public void update(Transaction transaction) {
+        update(transaction, false);
+    }
+
+    /**
+     * Merges changes made on the server the meetings are synced with, as one transaction.
+     * They are saved as remote changes, so they are not sent back. A meeting already added,
+     * or already deleted, is skipped, so a batch of changes can be merged again.
+     * A meeting deleted before its page is loaded is skipped by that page.
+     *
+     * @param changes Changes made on the server, in order.
+     */
+    public void mergeRemoteChanges(List<MeetingChange> changes) {
+        update(editor -> {
+            for (MeetingChange change : changes) {
+                if (change.getType() == MeetingChange.Type.ADDED) {
+                    editor.addMeeting(change.getMeeting());
+                } else {
+                    // The server sends a copy of the meeting, so delete the meeting held with the same date, time and id
+                    Meeting meeting = editor.mSnapshot.getMeetings().find(change.getMeeting().getSeries());
+                    if (meeting != null) {
+                        editor.deleteMeeting(meeting);
+                    } else {
+                        editor.deleteUnloadedMeeting(change.getMeeting().getSeries());
+                    }
+                }
+            }
+        }, true);
+    }
+
+    /**
+     * Runs a task on the I/O executor once the saves of the changes made so far ran, whether they succeeded or not.
+     * A failure of the task is reported as a storage failure.
+     *
+     * @param task Task to run, such as a sync merging into the loaded meetings.
+     */
+    public void runAfterSave(Runnable task) {
+        // A save is queued by each commit, unless one was queued and not started yet,
+        // so any save covering the changes made so far is queued before this task
+        mIoExecutor.execute(() -> runSaveTask(task));
+    }
+
+    /**
+     * Runs a task on the I/O executor once the changes made so far are stored. If their save fails,
+     * the task waits for the next save to store them, which may never happen before the process ends.
+     * A failure of the task is reported as a storage failure.
+     *
+     * @param task Task to run, such as recording that changes merged from a server are stored.
+     */
+    public void runWhenSaved(Runnable task) {
+        long changeCount = mState.get().mChangeCount;
+        mIoExecutor.execute(() -> {
+            synchronized (mSaveTasks) {
+                if (mSavedCount < changeCount) {
+                    mSaveTasks.add(new SaveTask(changeCount, task)); // Run by the save storing the changes
+                    return;
+                }
+            }
+            runSaveTask(task);
+        });
+    }
+
+    /**
+     * Runs the tasks waiting for changes that are now saved.
+     */
+    private void runSavedTasks() {
+        List<Runnable> tasks = new ArrayList<>();
+        synchronized (mSaveTasks) {
+            Iterator<SaveTask> iterator = mSaveTasks.iterator();
+            while (iterator.hasNext()) {
+                SaveTask saveTask = iterator.next();
+                if (saveTask.mChangeCount <= mSavedCount) {
+                    tasks.add(saveTask.mTask);
+                    iterator.remove();
+                }
+            }
+        }
+        for (Runnable task : tasks) {
+            runSaveTask(task);
+        }
+    }
+
+    /**
+     * Runs a task waiting for a save, reporting its failure instead of throwing it on the I/O executor.
+     *
+     * @param task Task to run.
+     */
+    private void runSaveTask(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            reportError(StorageError.SAVE_FAILED, e);
+        }
+    }
+
+    // Runs a transaction through an editor recording local or remote changes
+    private void update(Transaction transaction, boolean remote) {
+        Editor editor;
+        do {
+            editor = new Editor(mState.get(), remote);
+            transaction.run(editor);
+        } while (!commit(editor));
+    }
 
-        // Remove the meeting from the list
-        meetings.remove(meeting);
+    /**
+     * Makes the snapshot of an editor the current state of the repository, if the meetings did not change
+     * since the editor was created, then publishes its list of meetings and saves its changes.
+     * The changes are queued for saving by the same compare-and-set, so they are saved in the order they were applied.
+     *
+     * @param editor Editor holding the new snapshot.
+     * @return Whether the snapshot was installed, or had nothing to install; false if the transaction must run again.
+     */
+    private boolean commit(Editor editor) {
+        if (editor.mChanges.isEmpty()) {
+            return true; // Nothing changed
+        }
+        MeetingSnapshot baseSnapshot = editor.mBase.mSnapshot;
+        MeetingTree baseUnloadedDeletes = editor.mBase.mUnloadedDeletes;
+        State base = editor.mBase;
+        while (true) {
+            UnsavedChange unsaved = base.mUnsaved;
+            for (MeetingChange change : editor.mChanges) {
+                unsaved = new UnsavedChange(change, unsaved);
+            }
+            if (mState.compareAndSet(base, new State(editor.mSnapshot, unsaved, base.mChangeCount + editor.mChanges.size(), editor.mUnloadedDeletes))) {
+                break;
+            }
+            base = mState.get();
+            if (base.mSnapshot != baseSnapshot || base.mUnloadedDeletes != baseUnloadedDeletes) {
+                return false; // Another writer changed the meetings, or the loading ended
+            }
+            // Only the unsaved changes were taken by a save, the snapshot is still valid
+        }
 
         // Update the LiveData with the new list of meetings
-        mMeetingsLiveData.postValue(meetings);
+        requestPublish();
+        requestSave();
+        return true;
+    }
 
-        // Log.d("MeetingRepository", "Meeting deleted: " + meeting.getTitle());
-        // Log.d("MeetingRepository", "Meetings LiveData updated: " + mMeetingsLiveData.getValue().size());
+    /**
+     * Publishes the meetings on the I/O executor, so that the writers do not index them.
+     * Changes made before the publication starts are published together.
+     */
+    private void requestPublish() {
+        if (mPublishPending.compareAndSet(false, true)) {
+            mIoExecutor.execute(() -> {
+                mPublishPending.set(false);
+                postMeetings();
+            });
+        }
+    }
+
+    /**
+     * Publishes the meetings of the current snapshot, as a list and as pages, and to the searches.
+     * Publications running at the same time are ordered by a lock, each one posting the latest snapshot,
+     * so an older list of meetings is never posted after a newer one.
+     */
+    private void postMeetings() {
+        synchronized (mPublishLock) {
+            MeetingSnapshot snapshot = mState.get().mSnapshot;
+            if (snapshot == mPublishedSnapshot) {
+                return; // Already posted by a later publication
+            }
+
+            // Index the titles, subjects and participants gained or lost since the last publication,
+            // visiting only the ids whose meetings changed
+            PersistentArray.diff(mPublishedSnapshot.getTextTrees(), snapshot.getTextTrees(), (textId, from, to) -> {
+                if (to != null && to.size() > 0) {
+                    mTextIndex.add(textId, getText(snapshot, textId));
+                } else {
+                    // No meeting uses the text anymore: forget it, so texts do not pile up as meetings are deleted
+                    mTextIndex.remove(textId);
+                    StringDictionary.getTexts().release(textId);
+                }
+            });
+            PersistentArray.diff(mPublishedSnapshot.getParticipantTrees(), snapshot.getParticipantTrees(), (participantId, from, to) -> {
+                if (to != null && to.size() > 0) {
+                    mParticipantIndex.add(participantId, StringDictionary.getParticipants().lookup(participantId));
+                } else {
+                    mParticipantIndex.remove(participantId);
+                }
+            });
+            mTextIndex.compact(textId -> getText(snapshot, textId));
+            mParticipantIndex.compact(PARTICIPANT_TEXTS);
+            mPublishedSnapshot = snapshot;
+            mMeetingsLiveData.postValue(snapshot.getMeetings().asList());
+            mMeetingPagesLiveData.postValue(new MeetingPages(snapshot.getMeetings()));
+        }
+    }
+
+    /**
+     * Gets a title or a subject from the first meeting holding it, since the texts no meeting holds are released.
+     *
+     * @param snapshot Snapshot holding a meeting with the text.
+     * @param textId   Id of the text in the texts dictionary.
+     * @return The title or subject.
+     */
+    private static String getText(MeetingSnapshot snapshot, int textId) {
+        Meeting meeting = snapshot.getTextMeetings(textId).get(0);
+        return meeting.getTitleId() == textId ? meeting.getTitle() : meeting.getSubject();
+    }
+
+    /**
+     * Saves the unsaved changes on the I/O executor.
+     * Changes made before the save starts are saved together, and since the executor runs its
+     * tasks in order, nothing is saved before all the stored meetings are loaded.
+     */
+    private void requestSave() {
+        if (mSavePending.compareAndSet(false, true)) {
+            mIoExecutor.execute(() -> {
+                mSavePending.set(false);
+                State state;
+                do {
+                    state = mState.get();
+                } while (state.mUnsaved != null && !mState.compareAndSet(state, new State(state.mSnapshot, null, state.mChangeCount, state.mUnloadedDeletes)));
+                List<MeetingChange> changes = new ArrayList<>();
+                for (UnsavedChange unsaved = state.mUnsaved; unsaved != null; unsaved = unsaved.mPrevious) {
+                    changes.add(unsaved.mChange);
+                }
+                Collections.reverse(changes); // The list holds the latest change first
+                if (!changes.isEmpty()) {
+                    try {
+                        mDataSource.saveChanges(changes);
+                    } catch (RuntimeException e) {
+                        restoreUnsaved(state.mUnsaved);
+                        reportError(StorageError.SAVE_FAILED, e);
+                        return;
+                    }
+                }
+                // The changes taken follow the ones saved before, or put back by a failed save
+                mSavedCount = state.mChangeCount;
+                runSavedTasks();
+            });
+        }
+    }
+
+    /**
+     * Puts back changes that could not be saved, before the changes made since,
+     * so that they are all saved in order by the next save.
+     *
+     * @param failed Latest change that could not be saved, linked to the previous ones.
+     */
+    private void restoreUnsaved(UnsavedChange failed) {
+        State state;
+        UnsavedChange unsaved;
+        do {
+            state = mState.get();
+            List<MeetingChange> newer = new ArrayList<>();
+            for (UnsavedChange change = state.mUnsaved; change != null; change = change.mPrevious) {
+                newer.add(change.mChange);
+            }
+            unsaved = failed;
+            for (int i = newer.size() - 1; i >= 0; i--) {
+                unsaved = new UnsavedChange(newer.get(i), unsaved);
+            }
+        } while (!mState.compareAndSet(state, new State(state.mSnapshot, unsaved, state.mChangeCount, state.mUnloadedDeletes)));
+    }
+
+    /**
+     * Logs a storage failure and reports it to the user.
+     *
+     * @param error Operation that failed.
+     * @param e     The failure.
+     */
+    private void reportError(StorageError error, RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Meetings storage failed: " + error, e);
+        mErrorLiveData.postValue(error);
+    }
+
+    /**
+     * State of the repository, replaced as a whole by each change.
+     */
+    private static final class State {
+
+        private final MeetingSnapshot mSnapshot;
+        private final UnsavedChange mUnsaved; // Latest unsaved change, null if everything is saved
+        private final long mChangeCount; // Number of changes committed so far
+        private final MeetingTree mUnloadedDeletes; // Meetings deleted by the server before being loaded, null once loaded
+
+        private State(MeetingSnapshot snapshot, UnsavedChange unsaved, long changeCount, MeetingTree unloadedDeletes) {
+            mSnapshot = snapshot;
+            mUnsaved = unsaved;
+            mChangeCount = changeCount;
+            mUnloadedDeletes = unloadedDeletes;
+        }
+    }
+
+    /**
+     * Task waiting for the changes committed before it to be saved.
+     */
+    private static final class SaveTask {
+
+        private final long mChangeCount; // Number of changes to save before running the task
+        private final Runnable mTask;
+
+        private SaveTask(long changeCount, Runnable task) {
+            mChangeCount = changeCount;
+            mTask = task;
+        }
+    }
+
+    /**
+     * Immutable list of the unsaved changes, linked from the latest to the oldest one.
+     */
+    private static final class UnsavedChange {
+
+        private final MeetingChange mChange;
+        private final UnsavedChange mPrevious;
+
+        private UnsavedChange(MeetingChange change, UnsavedChange previous) {
+            mChange = change;
+            mPrevious = previous;
+        }
+    }
+
+    /**
+     * Changes to apply to the repository in a single transaction.
+     */
+    public interface Transaction {
+
+        /**
+         * Applies the changes.
+         *
+         * @param editor Editor collecting the changes.
+         */
+        void run(Editor editor);
+    }
+
+    /**
+     * Collects the changes of a transaction, without publishing anything until the transaction ends.
+     */
+    public static final class Editor {
+
+        private final State mBase; // State the transaction started from
+        private final boolean mRemote; // Whether the changes come from the server
+        private MeetingSnapshot mSnapshot;
+        private MeetingTree mUnloadedDeletes; // Meetings deleted before being loaded, null once loaded
+        private final List<MeetingChange> mChanges = new ArrayList<>(); // Changes that modified the snapshot
+
+        private Editor(State base, boolean remote) {
+            mBase = base;
+            mRemote = remote;
+            mSnapshot = base.mSnapshot;
+            mUnloadedDeletes = base.mUnloadedDeletes;
+        }
+
+        /**
+         * Adds a meeting within the transaction. Adding an occurrence of a recurring meeting adds its series.
+         *
+         * @param meeting Meeting to add.
+         * @return This editor.
+         */
+        public Editor addMeeting(Meeting meeting) {
+            meeting = meeting.getSeries();
+            MeetingSnapshot snapshot = mSnapshot.plus(meeting);
+            if (snapshot != mSnapshot) {
+                mSnapshot = snapshot;
+                MeetingChange change = MeetingChange.added(meeting);
+                mChanges.add(mRemote ? change.toRemote() : change);
+            }
+            return this;
+        }
+
+        /**
+         * Deletes a meeting within the transaction. Deleting an occurrence of a recurring meeting deletes its series.
+         *
+         * @param meeting Meeting to delete.
+         * @return This editor.
+         */
+        public Editor deleteMeeting(Meeting meeting) {
+            meeting = meeting.getSeries();
+            MeetingSnapshot snapshot = mSnapshot.minus(meeting);
+            if (snapshot != mSnapshot) {
+                mSnapshot = snapshot;
+                MeetingChange change = MeetingChange.deleted(meeting);
+                mChanges.add(mRemote ? change.toRemote() : change);
+            }
+            return this;
+        }
+
+        /**
+         * Deletes a meeting the snapshot does not hold, since its page may not be loaded yet:
+         * the deletion is saved, and the page skips the meeting once loaded.
+         *
+         * @param meeting Meeting to delete, a series.
+         */
+        private void deleteUnloadedMeeting(Meeting meeting) {
+            if (mUnloadedDeletes == null) {
+                return; // Every meeting is loaded, so the meeting is already deleted
+            }
+            MeetingTree unloadedDeletes = mUnloadedDeletes.insert(meeting);
+            if (unloadedDeletes != mUnloadedDeletes) {
+                mUnloadedDeletes = unloadedDeletes;
+                MeetingChange change = MeetingChange.deleted(meeting);
+                mChanges.add(mRemote ? change.toRemote() : change);
+            }
+        }
     }
 
 
     // Private methods for initial data loading
 
     /**
-     * Loads initial meetings from FakeApi.
+     * Loads the meeting rooms then the meetings, reporting a failure instead of throwing it.
+     *
+     * @return Whether everything was loaded.
+     */
+    private boolean loadStoredData() {
+        try {
+            loadMeetingRooms();
+            loadMeetings();
+            return true;
+        } catch (RuntimeException e) {
+            reportError(StorageError.LOAD_FAILED, e);
+            return false;
+        }
+    }
+
+    /**
+     * Drops the loaded meetings, keeping the rooms and the changes made meanwhile, which are not saved yet
+     * since the saves run after the load.
+     */
+    private void clearLoadedMeetings() {
+        State state;
+        MeetingSnapshot snapshot;
+        do {
+            state = mState.get();
+            List<MeetingChange> changes = new ArrayList<>();
+            for (UnsavedChange unsaved = state.mUnsaved; unsaved != null; unsaved = unsaved.mPrevious) {
+                changes.add(unsaved.mChange);
+            }
+            snapshot = state.mSnapshot.withoutMeetings();
+            for (int i = changes.size() - 1; i >= 0; i--) {
+                MeetingChange change = changes.get(i);
+                snapshot = change.getType() == MeetingChange.Type.ADDED
+                        ? snapshot.plus(change.getMeeting())
+                        : snapshot.minus(change.getMeeting());
+            }
+        } while (!mState.compareAndSet(state, new State(snapshot, state.mUnsaved, state.mChangeCount, state.mUnloadedDeletes)));
+        postMeetings();
+    }
+
+    /**
+     * Loads the stored meetings page by page, publishing each page merged with the changes already made.
      */
     private void loadMeetings() {
-        mMeetingsLiveData.setValue(mFakeApi.getMeetings()); // Retrieve meetings from FakeApi
+        int offset = 0;
+        int pageSize = PAGE_SIZE;
+        List<Meeting> page;
+        while (!(page = mDataSource.loadMeetings(offset, pageSize)).isEmpty()) { // Retrieve meetings from the data source
+            offset += page.size();
+            pageSize = (int) Math.min(2L * pageSize, Integer.MAX_VALUE);
+            // Loaded meetings are not changes, so they are published without being saved again
+            State state;
+            MeetingSnapshot baseSnapshot = null;
+            MeetingTree baseUnloadedDeletes = null;
+            MeetingSnapshot loaded = null;
+            do {
+                state = mState.get();
+                if (state.mSnapshot != baseSnapshot || state.mUnloadedDeletes != baseUnloadedDeletes) {
+                    // Merge again with the meetings changed meanwhile, skipping the ones the server deleted
+                    baseSnapshot = state.mSnapshot;
+                    baseUnloadedDeletes = state.mUnloadedDeletes;
+                    loaded = baseSnapshot.plusAll(withoutDeleted(page, baseUnloadedDeletes));
+                }
+            } while (!mState.compareAndSet(state, new State(loaded, state.mUnsaved, state.mChangeCount, state.mUnloadedDeletes)));
+            postMeetings();
+        }
+    }
+
+    /**
+     * Gets the meetings of a loaded page not deleted by the server before the page was loaded.
+     *
+     * @param page            Loaded meetings.
+     * @param unloadedDeletes Meetings deleted before being loaded.
+     * @return The meetings to add.
+     */
+    private static List<Meeting> withoutDeleted(List<Meeting> page, MeetingTree unloadedDeletes) {
+        if (unloadedDeletes == null || unloadedDeletes.size() == 0) {
+            return page;
+        }
+        List<Meeting> meetings = new ArrayList<>(page.size());
+        for (Meeting meeting : page) {
+            if (unloadedDeletes.find(meeting) == null) { // The server sent a copy of the meeting
+                meetings.add(meeting);
+            }
+        }
+        return meetings;
     }
 
     /**
-     * Loads initial meeting rooms from FakeApi.
+     * Ends the loading of the stored meetings: every meeting is now held by the snapshot,
+     * so the deletions of the meetings it does not hold are dropped instead of being kept for the next pages.
+     */
+    private void finishLoading() {
+        State state;
+        do {
+            state = mState.get();
+        } while (!mState.compareAndSet(state, new State(state.mSnapshot, state.mUnsaved, state.mChangeCount, null)));
+    }
+
+    /**
+     * Loads initial meeting rooms from the data source.
      */
     private void loadMeetingRooms() {
-        mMeetingRoomsLiveData.setValue(mFakeApi.getMeetingRooms()); // Retrieve meeting rooms from FakeApi
+        List<String> meetingRooms = mDataSource.getMeetingRooms(); // Retrieve meeting rooms from the data source
+        // The set of rooms is closed, so their index entries are created once
+        int[] roomIds = StringDictionary.getRooms().internAll(meetingRooms);
+        State state;
+        do {
+            state = mState.get();
+        } while (!mState.compareAndSet(state, new State(state.mSnapshot.withRooms(meetingRooms, roomIds), state.mUnsaved, state.mChangeCount, state.mUnloadedDeletes)));
+        mMeetingRoomsLiveData.postValue(meetingRooms);
+    }
+
+
+    // Indexed queries
+
+    /**
+     * Gets the meetings taking place on the given day, using the date and time order.
+     *
+     * @param date Any time within the requested day.
+     * @return List of the meetings of that day.
+     */
+    public List<Meeting> getMeetingsForDay(Calendar date) {
+        return getMeetingsBetween(date, date);
+    }
+
+    /**
+     * Gets the meetings taking place between two days (both included), using the date and time order.
+     * Recurring meetings are expanded to their occurrences of the range.
+     *
+     * @param fromDate Any time within the first day of the range.
+     * @param toDate   Any time within the last day of the range.
+     * @return List of the meetings of the range, sorted by date and time.
+     */
+    public List<Meeting> getMeetingsBetween(Calendar fromDate, Calendar toDate) {
+        MeetingSnapshot snapshot = mState.get().mSnapshot;
+        long fromMinute = startOfDayMinute(fromDate, 0);
+        long toMinute = startOfDayMinute(toDate, 1);
+        List<Meeting> meetings = new ArrayList<>();
+        snapshot.getMeetings().collectRange(fromMinute, toMinute, meetings);
+        collectOccurrences(snapshot.getSeriesTree(), fromMinute, toMinute, true, null, meetings);
+        return meetings;
+    }
+
+    /**
+     * Gets the meetings taking place in the given room, using the room index.
+     *
+     * @param room Name of the room.
+     * @return List of the meetings of that room, sorted by date and time.
+     */
+    public List<Meeting> getMeetingsForRoom(String room) {
+        return new ArrayList<>(getRoomMeetings(mState.get().mSnapshot, room).asList());
+    }
+
+    /**
+     * Gets the agenda of a participant, using the participant index.
+     *
+     * @param participant Email address of the participant.
+     * @return List of the meetings of that participant, sorted by date and time.
+     */
+    public List<Meeting> getMeetingsForParticipant(String participant) {
+        return new ArrayList<>(getParticipantMeetings(mState.get().mSnapshot, participant).asList());
+    }
+
+    /**
+     * Checks whether a room is free during a time slot, using the room interval tree, in O(log n),
+     * plus the occurrences of the slot of the recurring meetings of the room.
+     *
+     * @param room       Name of the room.
+     * @param fromMinute Start of the slot, in epoch minutes.
+     * @param toMinute   End of the slot (excluded), in epoch minutes.
+     * @return true if no meeting of the room overlaps the slot, false otherwise.
+     */
+    public boolean isRoomAvailable(String room, long fromMinute, long toMinute) {
+        MeetingSnapshot snapshot = mState.get().mSnapshot;
+        MeetingTree roomMeetings = getRoomMeetings(snapshot, room);
+        if (roomMeetings.overlaps(fromMinute, toMinute)) {
+            return false;
+        }
+        List<Meeting> occurrences = new ArrayList<>();
+        collectOccurrences(getRoomSeries(snapshot, room), fromMinute, toMinute, false, null, occurrences);
+        return occurrences.isEmpty();
+    }
+
+    /**
+     * Gets the meetings of a room overlapping a time slot, using the room interval tree,
+     * in O(log n + k) since the meetings of a room do not overlap each other.
+     * It is fast enough to be called while the user picks the slot.
+     *
+     * @param room       Name of the room.
+     * @param fromMinute Start of the slot, in epoch minutes.
+     * @param toMinute   End of the slot (excluded), in epoch minutes.
+     * @return List of the overlapping meetings, sorted by date and time.
+     */
+    public List<Meeting> getConflicts(String room, long fromMinute, long toMinute) {
+        MeetingSnapshot snapshot = mState.get().mSnapshot;
+        MeetingTree roomMeetings = getRoomMeetings(snapshot, room);
+        List<Meeting> conflicts = new ArrayList<>();
+        roomMeetings.collectOverlapping(fromMinute, toMinute, conflicts);
+        collectOccurrences(getRoomSeries(snapshot, room), fromMinute, toMinute, false, null, conflicts);
+        return conflicts;
+    }
+
+    /**
+     * Gets the meetings of the room of a meeting overlapping it, or any of its occurrences if it recurs.
+     * Each occurrence is checked like a single slot, so a series of k occurrences costs k slot checks.
+     *
+     * @param meeting Meeting to check, such as a meeting about to be added.
+     * @return List of the overlapping meetings and occurrences, sorted by date and time.
+     */
+    public List<Meeting> getConflicts(Meeting meeting) {
+        MeetingSnapshot snapshot = mState.get().mSnapshot;
+        return getConflicts(snapshot.getRoomMeetings(meeting.getLocationId()), snapshot.getRoomSeries(meeting.getLocationId()), meeting);
+    }
+
+    /**
+     * Gets the meetings of a room overlapping a meeting or any of its occurrences.
+     * The overlaps of all the occurrences are collected first, then sorted and deduplicated once.
+     *
+     * @param roomMeetings Meetings of the room of the meeting.
+     * @param roomSeries   Recurring meetings of the room of the meeting.
+     * @param meeting      Meeting to check.
+     * @return List of the overlapping meetings and occurrences, sorted by date and time.
+     */
+    private static List<Meeting> getConflicts(MeetingTree roomMeetings, SeriesTree roomSeries, Meeting meeting) {
+        List<Meeting> conflicts = new ArrayList<>();
+        List<Meeting> spanningSeries = new ArrayList<>();
+        Iterator<Meeting> occurrences = meeting.getSeries().getOccurrences(Long.MIN_VALUE);
+        while (occurrences.hasNext()) {
+            Meeting occurrence = occurrences.next();
+            roomMeetings.collectOverlapping(occurrence.getStartMinute(), occurrence.getEndMinute(), conflicts);
+            spanningSeries.clear();
+            roomSeries.collectOverlapping(occurrence.getStartMinute(), occurrence.getEndMinute(), spanningSeries);
+            for (Meeting series : spanningSeries) {
+                collectLaterOccurrences(series, occurrence.getStartMinute(), occurrence.getEndMinute(), false, conflicts);
+            }
+        }
+        if (conflicts.size() < 2) {
+            return conflicts;
+        }
+
+        // Sort the overlaps of all the occurrences once, a meeting possibly overlapping several of them
+        Collections.sort(conflicts);
+        List<Meeting> distinctConflicts = new ArrayList<>();
+        for (Meeting conflict : conflicts) {
+            if (distinctConflicts.isEmpty() || distinctConflicts.get(distinctConflicts.size() - 1).compareTo(conflict) != 0) {
+                distinctConflicts.add(conflict);
+            }
+        }
+        return distinctConflicts;
+    }
+
+    /**
+     * Finds the earliest windows where one of the meeting rooms and all the given participants are free.
+     * The sorted busy intervals of each room and participant are merged lazily instead of scanning
+     * the time range, so it only reads the meetings before the last window found.
+     *
+     * @param participants    Email addresses of the participants.
+     * @param durationMinutes Minimum length of a window, in minutes.
+     * @param fromMinute      Start of the searched time range, in epoch minutes.
+     * @param toMinute        End of the searched time range (excluded), in epoch minutes.
+     * @param maxSlots        Maximum number of windows.
+     * @return List of the free windows, sorted by start time then by room order, each one as long as possible within the range.
+     */
+    public List<FreeSlot> findFreeSlots(Collection<String> participants, int durationMinutes, long fromMinute, long toMinute, int maxSlots) {
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Duration must be positive: " + durationMinutes);
+        }
+        MeetingSnapshot snapshot = mState.get().mSnapshot; // Holds the rooms as soon as they are loaded, unlike their LiveData
+        int[] participantIds = new int[participants.size()];
+        int i = 0;
+        for (String participant : participants) {
+            participantIds[i++] = StringDictionary.getParticipants().find(participant);
+        }
+        return FreeSlotFinder.find(snapshot, snapshot.getRoomNames(), snapshot.getRoomIds(), participantIds, durationMinutes, fromMinute, toMinute, maxSlots);
+    }
+
+    /**
+     * Filters the repository meetings based on specified criteria.
+     * Filters are answered from the date and time order and the room index instead of scanning
+     * every meeting, so the cost is proportional to the size of the result.
+     *
+     * @param filterByDate      Indicates if filtering by date is enabled.
+     * @param filterByLocation  Indicates if filtering by location is enabled.
+     * @param selectedLocation  Selected location for filtering.
+     * @param selectedDate      Selected date for filtering.
+     * @return Filtered list of meetings.
+     */
+    public List<Meeting> filterMeetings(boolean filterByDate, boolean filterByLocation, String selectedLocation, Calendar selectedDate) {
+        return filterMeetings(filterByDate, filterByLocation, selectedLocation, selectedDate, false, null);
+    }
+
+    /**
+     * Filters the repository meetings based on specified criteria, including a participant.
+     * Filters are answered from the date and time order, the room index and the participant index
+     * instead of scanning every meeting. When filtering by both room and participant, the smaller
+     * of the two is read and the other criterion checked on its meetings.
+     *
+     * @param filterByDate        Indicates if filtering by date is enabled.
+     * @param filterByLocation    Indicates if filtering by location is enabled.
+     * @param selectedLocation    Selected location for filtering.
+     * @param selectedDate        Selected date for filtering.
+     * @param filterByParticipant Indicates if filtering by participant is enabled.
+     * @param selectedParticipant Email address of the selected participant.
+     * @return Filtered list of meetings.
+     */
+    public List<Meeting> filterMeetings(boolean filterByDate, boolean filterByLocation, String selectedLocation, Calendar selectedDate,
+                                        boolean filterByParticipant, String selectedParticipant) {
+        return filterMeetings(mState.get().mSnapshot, filterByDate, filterByLocation, selectedLocation, selectedDate, filterByParticipant, selectedParticipant);
+    }
+
+    /**
+     * Filters the meetings of a snapshot, using its indexes.
+     *
+     * @param snapshot            Snapshot to read.
+     * @param filterByDate        Indicates if filtering by date is enabled.
+     * @param filterByLocation    Indicates if filtering by location is enabled.
+     * @param selectedLocation    Selected location for filtering.
+     * @param selectedDate        Selected date for filtering.
+     * @param filterByParticipant Indicates if filtering by participant is enabled.
+     * @param selectedParticipant Email address of the selected participant.
+     * @return Filtered list of meetings.
+     */
+    private List<Meeting> filterMeetings(MeetingSnapshot snapshot, boolean filterByDate, boolean filterByLocation, String selectedLocation, Calendar selectedDate,
+                                         boolean filterByParticipant, String selectedParticipant) {
+        MeetingTree roomMeetings = filterByLocation ? getRoomMeetings(snapshot, selectedLocation) : null;
+        MeetingTree participantMeetings = filterByParticipant ? getParticipantMeetings(snapshot, selectedParticipant) : null;
+        MeetingTree candidates;
+        SeriesTree candidateSeries; // Series of the candidates, whose occurrences are checked against the other criterion
+        MeetingTree otherMeetings;
+        if (participantMeetings != null && (roomMeetings == null || participantMeetings.size() <= roomMeetings.size())) {
+            candidates = participantMeetings;
+            candidateSeries = getParticipantSeries(snapshot, selectedParticipant);
+            otherMeetings = roomMeetings;
+        } else if (roomMeetings != null) {
+            candidates = roomMeetings;
+            candidateSeries = getRoomSeries(snapshot, selectedLocation);
+            otherMeetings = participantMeetings;
+        } else {
+            candidates = snapshot.getMeetings();
+            candidateSeries = snapshot.getSeriesTree();
+            otherMeetings = null;
+        }
+
+        List<Meeting> meetings;
+        if (filterByDate) {
+            meetings = new ArrayList<>();
+            long fromMinute = startOfDayMinute(selectedDate, 0);
+            long toMinute = startOfDayMinute(selectedDate, 1);
+            candidates.collectRange(fromMinute, toMinute, meetings);
+            collectOccurrences(candidateSeries, fromMinute, toMinute, true, otherMeetings, meetings);
+        } else {
+            meetings = new ArrayList<>(candidates.asList());
+        }
+
+        // Check the criterion whose index was not read, the trees holding the series of the occurrences
+        if (otherMeetings != null) {
+            List<Meeting> filteredMeetings = new ArrayList<>();
+            for (Meeting meeting : meetings) {
+                if (otherMeetings.contains(meeting.getSeries())) {
+                    filteredMeetings.add(meeting);
+                }
+            }
+            meetings = filteredMeetings;
+        }
+        return meetings;
+    }
+
+    /**
+     * Searches the meetings whose title, subject or one of the participants contains a text, ignoring case.
+     *
+     * @param query Text to look for.
+     * @return List of the matching meetings, sorted by date and time.
+     */
+    public List<Meeting> searchMeetings(String query) {
+        return searchMeetings(query, false, false, null, null, false, null);
+    }
+
+    /**
+     * Searches the meetings matching a text and the filters, for search-as-you-type.
+     * The n-gram indexes give the titles, subjects and participants containing the text, whose trees
+     * are read within the filters. When the matching meetings outnumber the filtered ones, the filtered
+     * meetings are checked instead, so the cost is bounded by the smaller of the two sets.
+     * It reads the last published meetings, whose texts are all indexed.
+     *
+     * @param query               Text to look for in the title, subject and participants, ignoring case.
+     * @param filterByDate        Indicates if filtering by date is enabled.
+     * @param filterByLocation    Indicates if filtering by location is enabled.
+     * @param selectedLocation    Selected location for filtering.
+     * @param selectedDate        Selected date for filtering.
+     * @param filterByParticipant Indicates if filtering by participant is enabled.
+     * @param selectedParticipant Email address of the selected participant.
+     * @return List of the matching meetings, sorted by date and time.
+     */
+    public List<Meeting> searchMeetings(String query, boolean filterByDate, boolean filterByLocation, String selectedLocation, Calendar selectedDate,
+                                        boolean filterByParticipant, String selectedParticipant) {
+        long fromMinute = filterByDate ? startOfDayMinute(selectedDate, 0) : Long.MIN_VALUE;
+        long toMinute = filterByDate ? startOfDayMinute(selectedDate, 1) : Long.MAX_VALUE;
+
+        // Trees of the meetings matching the text, read with the snapshot whose texts and participants are indexed
+        MeetingSnapshot snapshot;
+        int[] textIds;
+        int[] participantIds;
+        synchronized (mPublishLock) {
+            MeetingSnapshot publishedSnapshot = mPublishedSnapshot;
+            snapshot = publishedSnapshot;
+            textIds = mTextIndex.search(query, textId -> getText(publishedSnapshot, textId));
+            participantIds = mParticipantIndex.search(query, PARTICIPANT_TEXTS);
+        }
+        List<MeetingTree> matchingTrees = new ArrayList<>();
+        long matchingCount = 0;
+        for (int textId : textIds) {
+            MeetingTree tree = snapshot.getTextMeetings(textId);
+            matchingTrees.add(tree);
+            matchingCount += tree.size();
+        }
+        for (int participantId : participantIds) {
+            MeetingTree tree = snapshot.getParticipantMeetings(participantId);
+            matchingTrees.add(tree);
+            matchingCount += tree.size();
+        }
+
+        MeetingTree roomMeetings = filterByLocation ? getRoomMeetings(snapshot, selectedLocation) : null;
+        MeetingTree participantMeetings = filterByParticipant ? getParticipantMeetings(snapshot, selectedParticipant) : null;
+        MeetingTree allMeetings = snapshot.getMeetings();
+        BitSet matchingTexts = toBitSet(textIds);
+        BitSet matchingParticipants = toBitSet(participantIds);
+        List<Meeting> meetings = new ArrayList<>();
+        if (matchingCount <= allMeetings.rank(toMinute) - allMeetings.rank(fromMinute)) {
+            // Read the matching meetings of the date range, then check the other filters
+            for (MeetingTree tree : matchingTrees) {
+                tree.collectRange(fromMinute, toMinute, meetings);
+            }
+            if (filterByDate) {
+                List<Meeting> spanningSeries = new ArrayList<>();
+                snapshot.getSeriesTree().collectOverlapping(fromMinute, toMinute, spanningSeries);
+                for (Meeting series : spanningSeries) {
+                    if (matches(series, matchingTexts, matchingParticipants)) {
+                        collectLaterOccurrences(series, fromMinute, toMinute, true, meetings);
+                    }
+                }
+            }
+            Collections.sort(meetings);
+            List<Meeting> filteredMeetings = new ArrayList<>();
+            for (Meeting meeting : meetings) {
+                boolean duplicate = !filteredMeetings.isEmpty() && filteredMeetings.get(filteredMeetings.size() - 1) == meeting;
+                if (!duplicate && (roomMeetings == null || roomMeetings.contains(meeting.getSeries()))
+                        && (participantMeetings == null || participantMeetings.contains(meeting.getSeries()))) {
+                    filteredMeetings.add(meeting);
+                }
+            }
+            return filteredMeetings;
+        }
+
+        // Most meetings match: check the ids of the filtered meetings instead
+        for (Meeting meeting : filterMeetings(snapshot, filterByDate, filterByLocation, selectedLocation, selectedDate, filterByParticipant, selectedParticipant)) {
+            if (matches(meeting, matchingTexts, matchingParticipants)) {
+                meetings.add(meeting);
+            }
+        }
+        return meetings;
+    }
+
+    /**
+     * Checks whether the title, the subject or a participant of a meeting is among the matching ones.
+     *
+     * @param meeting              Meeting to check.
+     * @param matchingTexts        Ids of the matching titles and subjects.
+     * @param matchingParticipants Ids of the matching participants.
+     * @return true if the meeting matches.
+     */
+    private static boolean matches(Meeting meeting, BitSet matchingTexts, BitSet matchingParticipants) {
+        boolean matches = matchingTexts.get(meeting.getTitleId()) || matchingTexts.get(meeting.getSubjectId());
+        for (int i = 0; !matches && i < meeting.getParticipantCount(); i++) {
+            matches = matchingParticipants.get(meeting.getParticipantId(i));
+        }
+        return matches;
+    }
+
+    /**
+     * Converts ids to a set.
+     *
+     * @param ids Ids, not negative.
+     * @return The set of the ids.
+     */
+    private static BitSet toBitSet(int[] ids) {
+        BitSet set = new BitSet();
+        for (int id : ids) {
+            set.set(id);
+        }
+        return set;
     }
 
     /**
@@ -116,30 +1164,166 @@ public class MeetingRepository {
      * @return Filtered list of meetings.
      */
     public List<Meeting> filterMeetings(List<Meeting> meetings, boolean filterByDate, boolean filterByLocation, String selectedLocation, Calendar selectedDate) {
+        return filterMeetings(meetings, filterByDate, filterByLocation, selectedLocation, selectedDate, false, null);
+    }
+
+    /**
+     * Filters meetings based on specified criteria, including a participant.
+     *
+     * @param meetings            Full list of meetings.
+     * @param filterByDate        Indicates if filtering by date is enabled.
+     * @param filterByLocation    Indicates if filtering by location is enabled.
+     * @param selectedLocation    Selected location for filtering.
+     * @param selectedDate        Selected date for filtering.
+     * @param filterByParticipant Indicates if filtering by participant is enabled.
+     * @param selectedParticipant Email address of the selected participant.
+     * @return Filtered list of meetings.
+     */
+    public List<Meeting> filterMeetings(List<Meeting> meetings, boolean filterByDate, boolean filterByLocation, String selectedLocation, Calendar selectedDate,
+                                        boolean filterByParticipant, String selectedParticipant) {
         List<Meeting> filteredMeetings = new ArrayList<>();
+        TimeZone timeZone = TimeZone.getDefault(); // Read once, so that every meeting is compared in the same zone
+        long selectedDay = filterByDate ? Meeting.toEpochDay(selectedDate.getTimeInMillis(), timeZone) : 0;
+        boolean expanded = false; // Whether occurrences were added out of order
 
         for (Meeting meeting : meetings) {
-            boolean passesDateFilter = !filterByDate || isSameDay(meeting.getDateTime(), selectedDate);
+            boolean passesDateFilter = !filterByDate || meeting.getEpochDay(timeZone) == selectedDay;
             boolean passesLocationFilter = !filterByLocation || meeting.getLocation().equals(selectedLocation);
+            boolean passesParticipantFilter = !filterByParticipant || meeting.getParticipants().contains(selectedParticipant);
 
-            if (passesDateFilter && passesLocationFilter) {
+            if (passesDateFilter && passesLocationFilter && passesParticipantFilter) {
                 filteredMeetings.add(meeting);
             }
+
+            // A recurring meeting may also take place on the selected day, unless it is already one of its occurrences
+            if (filterByDate && meeting.isRecurring() && meeting.getSeries() == meeting && passesLocationFilter && passesParticipantFilter) {
+                int size = filteredMeetings.size();
+                collectLaterOccurrences(meeting, startOfDayMinute(selectedDate, 0), startOfDayMinute(selectedDate, 1), true, filteredMeetings);
+                expanded |= filteredMeetings.size() > size;
+            }
         }
 
+        if (expanded) {
+            Collections.sort(filteredMeetings);
+        }
         return filteredMeetings;
     }
 
     /**
-     * Checks if two dates are identical (same day, month, and year).
+     * Adds the occurrences of recurring meetings within a time range, then sorts the list if any was added.
+     * Only the series spanning over the range are read from their interval tree, in O(log s + k),
+     * and only their occurrences of the range are built, each series finding its first one in O(1).
+     *
+     * @param seriesTree    Series to read, such as the ones of a room.
+     * @param fromMinute    Start of the range, in epoch minutes.
+     * @param toMinute      End of the range (excluded), in epoch minutes.
+     * @param byStart       true for the occurrences starting in the range, false for the ones overlapping it.
+     * @param otherMeetings Meetings of another selected room or participant the series must belong to, or null.
+     * @param out           Sorted list the occurrences are added to.
+     */
+    private static void collectOccurrences(SeriesTree seriesTree, long fromMinute, long toMinute, boolean byStart,
+                                           MeetingTree otherMeetings, List<Meeting> out) {
+        int size = out.size();
+        List<Meeting> spanningSeries = new ArrayList<>();
+        seriesTree.collectOverlapping(fromMinute, toMinute, spanningSeries);
+        for (Meeting series : spanningSeries) {
+            if (otherMeetings == null || otherMeetings.contains(series)) {
+                collectLaterOccurrences(series, fromMinute, toMinute, byStart, out);
+            }
+        }
+        if (out.size() > size) {
+            Collections.sort(out);
+        }
+    }
+
+    /**
+     * Adds the occurrences of a series within a time range, except the first one, which is the series itself
+     * and is held by the trees like any meeting.
+     *
+     * @param series     Recurring meeting.
+     * @param fromMinute Start of the range, in epoch minutes.
+     * @param toMinute   End of the range (excluded), in epoch minutes.
+     * @param byStart    true for the occurrences starting in the range, false for the ones overlapping it.
+     * @param out        List the occurrences are added to, in date and time order.
+     */
+    private static void collectLaterOccurrences(Meeting series, long fromMinute, long toMinute, boolean byStart, List<Meeting> out) {
+        Iterator<Meeting> occurrences = series.getOccurrences(fromMinute);
+        while (occurrences.hasNext()) {
+            Meeting occurrence = occurrences.next();
+            if (occurrence.getStartMinute() >= toMinute) {
+                break;
+            }
+            if (occurrence != series && (!byStart || occurrence.getStartMinute() >= fromMinute)) {
+                out.add(occurrence);
+            }
+        }
+    }
+
+    /**
+     * Gets the meetings of a room in a snapshot.
+     *
+     * @param snapshot Snapshot to read.
+     * @param room     Name of the room.
+     * @return The tree of the meetings of the room, empty if the room is unknown.
+     */
+    private static MeetingTree getRoomMeetings(MeetingSnapshot snapshot, String room) {
+        int roomId = StringDictionary.getRooms().find(room);
+        return roomId >= 0 ? snapshot.getRoomMeetings(roomId) : MeetingTree.empty();
+    }
+
+    /**
+     * Gets the recurring meetings of a room in a snapshot.
+     *
+     * @param snapshot Snapshot to read.
+     * @param room     Name of the room.
+     * @return The tree of the recurring meetings of the room, empty if the room is unknown.
+     */
+    private static SeriesTree getRoomSeries(MeetingSnapshot snapshot, String room) {
+        int roomId = StringDictionary.getRooms().find(room);
+        return roomId >= 0 ? snapshot.getRoomSeries(roomId) : SeriesTree.empty();
+    }
+
+    /**
+     * Gets the recurring meetings of a participant in a snapshot.
+     *
+     * @param snapshot    Snapshot to read.
+     * @param participant Email address of the participant.
+     * @return The tree of the recurring meetings of the participant, empty if the participant is unknown.
+     */
+    private static SeriesTree getParticipantSeries(MeetingSnapshot snapshot, String participant) {
+        int participantId = participant != null ? StringDictionary.getParticipants().find(participant) : -1;
+        return participantId >= 0 ? snapshot.getParticipantSeries(participantId) : SeriesTree.empty();
+    }
+
+    /**
+     * Gets the meetings of a participant in a snapshot.
+     *
+     * @param snapshot    Snapshot to read.
+     * @param participant Email address of the participant.
+     * @return The tree of the meetings of the participant, empty if the participant is unknown.
+     */
+    private static MeetingTree getParticipantMeetings(MeetingSnapshot snapshot, String participant) {
+        int participantId = participant != null ? StringDictionary.getParticipants().find(participant) : -1;
+        return participantId >= 0 ? snapshot.getParticipantMeetings(participantId) : MeetingTree.empty();
+    }
+
+    /**
+     * Gets the start of a local day, shifted by a number of days, in epoch minutes.
+     * Local days are those of the default time zone at the time of the call, as for {@link Meeting#getDateTime()},
+     * so the filters follow the times displayed when the user changes time zone.
      *
-     * @param date1 First date.
-     * @param date2 Second date.
-     * @return true if the dates are identical, false otherwise.
+     * @param date      Any time within the day.
+     * @param dayOffset Number of days to add.
+     * @return The start of the shifted day, in epoch minutes.
      */
-    private boolean isSameDay(Calendar date1, Calendar date2) {
-        return date1.get(Calendar.YEAR) == date2.get(Calendar.YEAR) &&
-                date1.get(Calendar.MONTH) == date2.get(Calendar.MONTH) &&
-                date1.get(Calendar.DAY_OF_MONTH) == date2.get(Calendar.DAY_OF_MONTH);
+    private static long startOfDayMinute(Calendar date, int dayOffset) {
+        Calendar day = Calendar.getInstance(TimeZone.getDefault());
+        day.setTimeInMillis(date.getTimeInMillis());
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        day.add(Calendar.DAY_OF_MONTH, dayOffset);
+        return TimeUnit.MILLISECONDS.toMinutes(day.getTimeInMillis());
     }
 }
\ No newline at end of file
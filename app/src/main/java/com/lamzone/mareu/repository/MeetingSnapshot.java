@@ -0,0 +1,407 @@
+package com.lamzone.mareu.repository;
+
+import com.lamzone.mareu.model.Meeting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The MeetingSnapshot class is an immutable state of the repository: the meetings sorted by date and time
+ * and their per-room, per-participant and per-text indexes, the texts being the titles and subjects.
+ * A recurring meeting is held once by the trees, as its first occurrence, and is also held by the series trees
+ * of the snapshot, of its room and of its participants, which find the series spanning over a time range,
+ * whose occurrences are read from their rule.
+ * It also holds the meeting rooms, in the order of the data source, so the queries over all the rooms
+ * read them from the same state as the meetings.
+ * Mutations return a new snapshot sharing its unchanged structure with the previous one.
+ */
+final class MeetingSnapshot {
+
+    private final MeetingTree mMeetings;
+    private final Map<Integer, MeetingTree> mRooms; // Never modified once the snapshot is built
+    private final PersistentArray<MeetingTree> mParticipants; // Indexed by participant id, null when empty
+    private final PersistentArray<MeetingTree> mTexts; // Indexed by text id, null when empty
+    private final SeriesTree mSeries; // Recurring meetings
+    private final Map<Integer, SeriesTree> mRoomSeries; // Never modified once the snapshot is built
+    private final PersistentArray<SeriesTree> mParticipantSeries; // Indexed by participant id, null when empty
+    private final List<String> mRoomNames; // Meeting rooms of the data source, never modified
+    private final int[] mRoomIds; // Ids of mRoomNames in the rooms dictionary, never modified
+
+    private MeetingSnapshot(MeetingTree meetings, Map<Integer, MeetingTree> rooms,
+                            PersistentArray<MeetingTree> participants, PersistentArray<MeetingTree> texts, SeriesTree series,
+                            Map<Integer, SeriesTree> roomSeries, PersistentArray<SeriesTree> participantSeries,
+                            List<String> roomNames, int[] roomIds) {
+        mMeetings = meetings;
+        mRooms = rooms;
+        mParticipants = participants;
+        mTexts = texts;
+        mSeries = series;
+        mRoomSeries = roomSeries;
+        mParticipantSeries = participantSeries;
+        mRoomNames = roomNames;
+        mRoomIds = roomIds;
+    }
+
+    /**
+     * Builds a snapshot from a list of meetings.
+     *
+     * @param meetings Meetings, in any order.
+     * @return The snapshot holding the meetings.
+     */
+    static MeetingSnapshot of(List<Meeting> meetings) {
+        List<Meeting> sortedMeetings = new ArrayList<>(meetings);
+        Collections.sort(sortedMeetings); // Sorted once, then kept sorted by each mutation
+
+        // Group the sorted meetings by room, each group staying sorted
+        Map<Integer, List<Meeting>> roomMeetings = new HashMap<>();
+        for (Meeting meeting : sortedMeetings) {
+            List<Meeting> group = roomMeetings.get(meeting.getLocationId());
+            if (group == null) {
+                group = new ArrayList<>();
+                roomMeetings.put(meeting.getLocationId(), group);
+            }
+            group.add(meeting);
+        }
+        Map<Integer, MeetingTree> rooms = new HashMap<>();
+        for (Map.Entry<Integer, List<Meeting>> entry : roomMeetings.entrySet()) {
+            rooms.put(entry.getKey(), MeetingTree.fromSorted(entry.getValue()));
+        }
+
+        // Group them by participant and by text, as sorted (id, position) keys rather than a list per id,
+        // since most titles and subjects have a single meeting
+        int participantCount = 0;
+        List<Meeting> series = new ArrayList<>();
+        for (Meeting meeting : sortedMeetings) {
+            participantCount += meeting.getParticipantCount();
+            if (meeting.isRecurring()) {
+                series.add(meeting);
+            }
+        }
+        long[] participantKeys = new long[participantCount];
+        long[] textKeys = new long[2 * sortedMeetings.size()];
+        int k = 0;
+        for (int position = 0; position < sortedMeetings.size(); position++) {
+            Meeting meeting = sortedMeetings.get(position);
+            for (int i = 0; i < meeting.getParticipantCount(); i++) {
+                participantKeys[k++] = (long) meeting.getParticipantId(i) << 32 | position;
+            }
+            textKeys[2 * position] = (long) meeting.getTitleId() << 32 | position;
+            textKeys[2 * position + 1] = (long) meeting.getSubjectId() << 32 | position;
+        }
+
+        // Group the series by room and by participant, inserting them one by one since they are few
+        Map<Integer, SeriesTree> roomSeries = new HashMap<>();
+        PersistentArray<SeriesTree> participantSeries = PersistentArray.empty();
+        for (Meeting meeting : series) {
+            roomSeries.put(meeting.getLocationId(), getSeriesTree(roomSeries.get(meeting.getLocationId())).insert(meeting));
+            for (int i = 0; i < meeting.getParticipantCount(); i++) {
+                int participantId = meeting.getParticipantId(i);
+                participantSeries = participantSeries.set(participantId, getSeriesTree(participantSeries.get(participantId)).insert(meeting));
+            }
+        }
+        return new MeetingSnapshot(MeetingTree.fromSorted(sortedMeetings), rooms,
+                toTrees(participantKeys, sortedMeetings), toTrees(textKeys, sortedMeetings), SeriesTree.fromSorted(series),
+                roomSeries, participantSeries, Collections.<String>emptyList(), new int[0]);
+    }
+
+    /**
+     * Builds the tree of each id from (id, position) keys.
+     *
+     * @param keys           Keys holding an id in their high half and the position of a meeting in their low half.
+     * @param sortedMeetings Meetings sorted by date and time.
+     * @return The trees, indexed by id.
+     */
+    private static PersistentArray<MeetingTree> toTrees(long[] keys, List<Meeting> sortedMeetings) {
+        Arrays.sort(keys); // By id, then by position, so each group is sorted by date and time
+        List<MeetingTree> trees = new ArrayList<>();
+        List<Meeting> group = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) { // A meeting listing the id twice is added once
+                group.add(sortedMeetings.get((int) keys[i]));
+            }
+            int id = (int) (keys[i] >>> 32);
+            if (i + 1 == keys.length || (int) (keys[i + 1] >>> 32) != id) {
+                while (trees.size() < id) {
+                    trees.add(null);
+                }
+                trees.add(MeetingTree.fromSorted(group));
+                group.clear();
+            }
+        }
+        return PersistentArray.of(trees);
+    }
+
+    /**
+     * Gets all the meetings of the snapshot.
+     *
+     * @return The tree of all the meetings.
+     */
+    MeetingTree getMeetings() {
+        return mMeetings;
+    }
+
+    /**
+     * Gets the meetings of a room.
+     *
+     * @param roomId Id of the room in the rooms dictionary.
+     * @return The tree of the meetings of the room, empty if the room is unknown.
+     */
+    MeetingTree getRoomMeetings(int roomId) {
+        MeetingTree roomMeetings = mRooms.get(roomId);
+        return roomMeetings != null ? roomMeetings : MeetingTree.empty();
+    }
+
+    /**
+     * Gets the meetings of a participant.
+     *
+     * @param participantId Id of the participant in the participants dictionary.
+     * @return The tree of the meetings of the participant, empty if the participant has none.
+     */
+    MeetingTree getParticipantMeetings(int participantId) {
+        MeetingTree participantMeetings = participantId >= 0 ? mParticipants.get(participantId) : null;
+        return participantMeetings != null ? participantMeetings : MeetingTree.empty();
+    }
+
+    /**
+     * Gets the meetings whose title or subject is a given text.
+     *
+     * @param textId Id of the text in the texts dictionary.
+     * @return The tree of the meetings with that title or subject, empty if there is none.
+     */
+    MeetingTree getTextMeetings(int textId) {
+        MeetingTree textMeetings = textId >= 0 ? mTexts.get(textId) : null;
+        return textMeetings != null ? textMeetings : MeetingTree.empty();
+    }
+
+    /**
+     * Gets the meetings of each participant, to find the participants added or removed between two snapshots
+     * with {@link PersistentArray#diff}.
+     *
+     * @return The trees of the meetings, indexed by participant id, null for the participants without meeting.
+     */
+    PersistentArray<MeetingTree> getParticipantTrees() {
+        return mParticipants;
+    }
+
+    /**
+     * Gets the meetings of each title or subject, to find the texts added or removed between two snapshots
+     * with {@link PersistentArray#diff}.
+     *
+     * @return The trees of the meetings, indexed by text id, null for the texts without meeting.
+     */
+    PersistentArray<MeetingTree> getTextTrees() {
+        return mTexts;
+    }
+
+    /**
+     * Gets the recurring meetings of the snapshot.
+     *
+     * @return The recurring meetings, sorted by the date and time of their first occurrence.
+     */
+    List<Meeting> getSeries() {
+        return mSeries.asList();
+    }
+
+    /**
+     * Gets the recurring meetings of the snapshot, to find the ones spanning over a time range.
+     *
+     * @return The tree of the recurring meetings.
+     */
+    SeriesTree getSeriesTree() {
+        return mSeries;
+    }
+
+    /**
+     * Gets the recurring meetings of a room.
+     *
+     * @param roomId Id of the room in the rooms dictionary.
+     * @return The tree of the recurring meetings of the room, empty if the room has none.
+     */
+    SeriesTree getRoomSeries(int roomId) {
+        return getSeriesTree(mRoomSeries.get(roomId));
+    }
+
+    /**
+     * Gets the recurring meetings of a participant.
+     *
+     * @param participantId Id of the participant in the participants dictionary.
+     * @return The tree of the recurring meetings of the participant, empty if the participant has none.
+     */
+    SeriesTree getParticipantSeries(int participantId) {
+        return getSeriesTree(participantId >= 0 ? mParticipantSeries.get(participantId) : null);
+    }
+
+    /**
+     * Gets the meeting rooms of the data source.
+     *
+     * @return Names of the rooms, in the order of the data source, empty until they are loaded.
+     */
+    List<String> getRoomNames() {
+        return mRoomNames;
+    }
+
+    /**
+     * Gets the ids of the meeting rooms of the data source.
+     *
+     * @return Ids of the rooms in the rooms dictionary, in the order of {@link #getRoomNames()}.
+     */
+    int[] getRoomIds() {
+        return mRoomIds.clone();
+    }
+
+    /**
+     * Returns a snapshot holding the given meeting rooms, with an entry for each of them even when they have no meeting yet.
+     *
+     * @param roomNames Names of the rooms, in the order of the data source.
+     * @param roomIds   Ids of the rooms in the rooms dictionary, in the same order.
+     * @return The new snapshot.
+     */
+    MeetingSnapshot withRooms(List<String> roomNames, int[] roomIds) {
+        Map<Integer, MeetingTree> rooms = new HashMap<>(mRooms);
+        for (int roomId : roomIds) {
+            if (!rooms.containsKey(roomId)) {
+                rooms.put(roomId, MeetingTree.empty());
+            }
+        }
+        return new MeetingSnapshot(mMeetings, rooms, mParticipants, mTexts, mSeries, mRoomSeries, mParticipantSeries,
+                Collections.unmodifiableList(new ArrayList<>(roomNames)), roomIds.clone());
+    }
+
+    /**
+     * Returns a snapshot holding the given meeting too.
+     *
+     * @param meeting Meeting to add.
+     * @return The new snapshot, or this snapshot if it already holds the meeting.
+     */
+    MeetingSnapshot plus(Meeting meeting) {
+        MeetingTree meetings = mMeetings.insert(meeting);
+        if (meetings == mMeetings) {
+            return this;
+        }
+        Map<Integer, MeetingTree> rooms = new HashMap<>(mRooms); // The set of rooms is small and closed
+        rooms.put(meeting.getLocationId(), getRoomMeetings(meeting.getLocationId()).insert(meeting));
+        PersistentArray<MeetingTree> participants = mParticipants;
+        for (int i = 0; i < meeting.getParticipantCount(); i++) {
+            int participantId = meeting.getParticipantId(i);
+            participants = participants.set(participantId, getTree(participants, participantId).insert(meeting));
+        }
+        PersistentArray<MeetingTree> texts = mTexts;
+        for (int textId : new int[]{meeting.getTitleId(), meeting.getSubjectId()}) {
+            texts = texts.set(textId, getTree(texts, textId).insert(meeting));
+        }
+        SeriesTree series = mSeries;
+        Map<Integer, SeriesTree> roomSeries = mRoomSeries;
+        PersistentArray<SeriesTree> participantSeries = mParticipantSeries;
+        if (meeting.isRecurring()) {
+            series = mSeries.insert(meeting);
+            roomSeries = new HashMap<>(mRoomSeries);
+            roomSeries.put(meeting.getLocationId(), getRoomSeries(meeting.getLocationId()).insert(meeting));
+            for (int i = 0; i < meeting.getParticipantCount(); i++) {
+                int participantId = meeting.getParticipantId(i);
+                participantSeries = participantSeries.set(participantId, getSeriesTree(participantSeries.get(participantId)).insert(meeting));
+            }
+        }
+        return new MeetingSnapshot(meetings, rooms, participants, texts, series, roomSeries, participantSeries, mRoomNames, mRoomIds);
+    }
+
+    /**
+     * Returns a snapshot holding the given meetings too, such as a page of loaded meetings.
+     * Small batches are inserted one by one, in O(k log n); large ones are merged by rebuilding
+     * the trees, in O(n + k log k).
+     *
+     * @param meetings Meetings to add. The ones this snapshot already holds are skipped.
+     * @return The new snapshot, or this snapshot if there is no meeting to add.
+     */
+    MeetingSnapshot plusAll(List<Meeting> meetings) {
+        if (meetings.isEmpty()) {
+            return this;
+        }
+        int size = mMeetings.size();
+        if ((long) meetings.size() * (32 - Integer.numberOfLeadingZeros(size)) < size) {
+            MeetingSnapshot snapshot = this;
+            for (Meeting meeting : meetings) {
+                snapshot = snapshot.plus(meeting);
+            }
+            return snapshot;
+        }
+        List<Meeting> allMeetings = new ArrayList<>(size + meetings.size());
+        allMeetings.addAll(mMeetings.asList());
+        allMeetings.addAll(meetings);
+        Collections.sort(allMeetings); // Pages are stored sorted, so sorting only merges two runs
+
+        // Skip the meetings already held, such as a meeting merged from the server before its page was loaded,
+        // keeping the held one, which the stable sort puts first
+        List<Meeting> distinctMeetings = new ArrayList<>(allMeetings.size());
+        for (Meeting meeting : allMeetings) {
+            if (distinctMeetings.isEmpty() || distinctMeetings.get(distinctMeetings.size() - 1).compareTo(meeting) != 0) {
+                distinctMeetings.add(meeting);
+            }
+        }
+        return of(distinctMeetings).withRooms(mRoomNames, mRoomIds);
+    }
+
+    /**
+     * Returns a snapshot holding no meeting, with the meeting rooms of this snapshot.
+     *
+     * @return The new snapshot.
+     */
+    MeetingSnapshot withoutMeetings() {
+        return of(new ArrayList<>()).withRooms(mRoomNames, mRoomIds);
+    }
+
+    /**
+     * Returns a snapshot without the given meeting.
+     *
+     * @param meeting Meeting to remove.
+     * @return The new snapshot, or this snapshot if it does not hold the meeting.
+     */
+    MeetingSnapshot minus(Meeting meeting) {
+        MeetingTree meetings = mMeetings.remove(meeting);
+        if (meetings == mMeetings) {
+            return this;
+        }
+        Map<Integer, MeetingTree> rooms = new HashMap<>(mRooms);
+        rooms.put(meeting.getLocationId(), getRoomMeetings(meeting.getLocationId()).remove(meeting));
+        PersistentArray<MeetingTree> participants = mParticipants;
+        for (int i = 0; i < meeting.getParticipantCount(); i++) {
+            int participantId = meeting.getParticipantId(i);
+            participants = participants.set(participantId, nonEmpty(getTree(participants, participantId).remove(meeting)));
+        }
+        PersistentArray<MeetingTree> texts = mTexts;
+        for (int textId : new int[]{meeting.getTitleId(), meeting.getSubjectId()}) {
+            texts = texts.set(textId, nonEmpty(getTree(texts, textId).remove(meeting)));
+        }
+        SeriesTree series = mSeries;
+        Map<Integer, SeriesTree> roomSeries = mRoomSeries;
+        PersistentArray<SeriesTree> participantSeries = mParticipantSeries;
+        if (meeting.isRecurring()) {
+            series = mSeries.remove(meeting);
+            roomSeries = new HashMap<>(mRoomSeries);
+            roomSeries.put(meeting.getLocationId(), getRoomSeries(meeting.getLocationId()).remove(meeting));
+            for (int i = 0; i < meeting.getParticipantCount(); i++) {
+                int participantId = meeting.getParticipantId(i);
+                SeriesTree remainingSeries = getSeriesTree(participantSeries.get(participantId)).remove(meeting);
+                participantSeries = participantSeries.set(participantId, remainingSeries.size() > 0 ? remainingSeries : null);
+            }
+        }
+        return new MeetingSnapshot(meetings, rooms, participants, texts, series, roomSeries, participantSeries, mRoomNames, mRoomIds);
+    }
+
+    private static MeetingTree getTree(PersistentArray<MeetingTree> trees, int id) {
+        MeetingTree tree = trees.get(id);
+        return tree != null ? tree : MeetingTree.empty();
+    }
+
+    private static SeriesTree getSeriesTree(SeriesTree series) {
+        return series != null ? series : SeriesTree.empty();
+    }
+
+    // Drop the trees left empty, so the arrays hold only the ids still used by a meeting
+    private static MeetingTree nonEmpty(MeetingTree tree) {
+        return tree.size() > 0 ? tree : null;
+    }
+}
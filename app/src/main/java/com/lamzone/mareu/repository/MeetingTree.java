@@ -0,0 +1,529 @@
+package com.lamzone.mareu.repository;
+
+import com.lamzone.mareu.model.Meeting;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The MeetingTree class is a persistent, size-augmented AVL tree of meetings sorted by date and time.
+ * Every mutation returns a new tree sharing all untouched nodes with the previous one, in O(log n),
+ * so any tree can be published and read from any thread without copying.
+ * Each node also holds the latest end time of its subtree, which makes the tree an interval tree
+ * answering overlap queries without visiting the subtrees ending too early.
+ */
+final class MeetingTree {
+
+    private static final MeetingTree EMPTY = new MeetingTree(null);
+
+    private final Node mRoot;
+
+    private MeetingTree(Node root) {
+        mRoot = root;
+    }
+
+    /**
+     * Gets the empty tree.
+     *
+     * @return The empty tree.
+     */
+    static MeetingTree empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds a balanced tree from meetings already sorted by date and time, in O(n).
+     *
+     * @param sortedMeetings Meetings sorted by date and time.
+     * @return The tree holding the meetings.
+     */
+    static MeetingTree fromSorted(List<Meeting> sortedMeetings) {
+        return new MeetingTree(build(sortedMeetings, 0, sortedMeetings.size()));
+    }
+
+    /**
+     * Gets the number of meetings in the tree.
+     *
+     * @return The size of the tree.
+     */
+    int size() {
+        return size(mRoot);
+    }
+
+    /**
+     * Returns a tree holding the meetings of this tree plus the given one.
+     *
+     * @param meeting Meeting to insert.
+     * @return The new tree, or this tree if it already holds the meeting.
+     */
+    MeetingTree insert(Meeting meeting) {
+        Node root = insert(mRoot, meeting);
+        return root == mRoot ? this : new MeetingTree(root);
+    }
+
+    /**
+     * Returns a tree holding the meetings of this tree except the given one.
+     *
+     * @param meeting Meeting to remove.
+     * @return The new tree, or this tree if it does not hold the meeting.
+     */
+    MeetingTree remove(Meeting meeting) {
+        Node root = remove(mRoot, meeting);
+        return root == mRoot ? this : new MeetingTree(root);
+    }
+
+    /**
+     * Checks whether the tree holds a meeting.
+     *
+     * @param meeting Meeting to look for.
+     * @return true if the tree holds the meeting, false otherwise.
+     */
+    boolean contains(Meeting meeting) {
+        Node node = mRoot;
+        while (node != null) {
+            int comparison = meeting.compareTo(node.meeting);
+            if (comparison == 0) {
+                return node.meeting == meeting;
+            }
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the meeting of the tree with the same date, time and id as a given meeting, such as a copy received from a server.
+     *
+     * @param meeting Meeting to look for.
+     * @return The meeting held by the tree, or null if it holds none.
+     */
+    Meeting find(Meeting meeting) {
+        Node node = mRoot;
+        while (node != null) {
+            int comparison = meeting.compareTo(node.meeting);
+            if (comparison == 0) {
+                return node.meeting;
+            }
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the meeting at a given position in date and time order, in O(log n).
+     *
+     * @param index Position of the meeting.
+     * @return The meeting at that position.
+     */
+    Meeting get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node node = mRoot;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.meeting;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Adds the meetings starting in [fromMinute, toMinute) to a list, in date and time order,
+     * in O(log n + k).
+     *
+     * @param fromMinute First start time included, in epoch minutes.
+     * @param toMinute   First start time excluded, in epoch minutes.
+     * @param out        List receiving the meetings.
+     */
+    void collectRange(long fromMinute, long toMinute, List<Meeting> out) {
+        collectRange(mRoot, fromMinute, toMinute, out);
+    }
+
+    /**
+     * Checks whether a meeting of the tree overlaps a time slot, in O(log n).
+     *
+     * @param fromMinute Start of the slot, in epoch minutes.
+     * @param toMinute   End of the slot (excluded), in epoch minutes.
+     * @return true if a meeting overlaps the slot, false otherwise.
+     */
+    boolean overlaps(long fromMinute, long toMinute) {
+        Node node = mRoot;
+        while (node != null) {
+            if (node.meeting.overlaps(fromMinute, toMinute)) {
+                return true;
+            }
+            if (node.left != null && node.left.maxEndMinute > fromMinute) {
+                // A meeting of the left subtree ends after the slot start: if none of them overlaps
+                // the slot, that one starts after it, and so do all the meetings of the right subtree
+                node = node.left;
+            } else if (node.meeting.getStartMinute() < toMinute) {
+                node = node.right;
+            } else {
+                return false; // The right subtree starts after the slot
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the meetings overlapping a time slot to a list, in date and time order.
+     * Only the subtrees holding an overlapping meeting are visited besides the search path,
+     * so it takes O(log n + k) when the meetings do not overlap each other, as in a room,
+     * and O((k + 1) log n) at worst.
+     *
+     * @param fromMinute Start of the slot, in epoch minutes.
+     * @param toMinute   End of the slot (excluded), in epoch minutes.
+     * @param out        List receiving the meetings.
+     */
+    void collectOverlapping(long fromMinute, long toMinute, List<Meeting> out) {
+        collectOverlapping(mRoot, fromMinute, toMinute, out);
+    }
+
+    /**
+     * Adds the meetings at positions [fromIndex, fromIndex + count) to a list, in date and time order,
+     * in O(log n + count).
+     *
+     * @param fromIndex Position of the first meeting.
+     * @param count     Maximum number of meetings.
+     * @param out       List receiving the meetings.
+     */
+    void collect(int fromIndex, int count, List<Meeting> out) {
+        collect(mRoot, Math.max(0, fromIndex), (int) Math.min((long) fromIndex + count, size()), out);
+    }
+
+    /**
+     * Gets the number of meetings starting before a given time, in O(log n).
+     * It is also the position of the first meeting starting at or after that time.
+     *
+     * @param minute Start time, in epoch minutes.
+     * @return The number of meetings starting before that time.
+     */
+    int rank(long minute) {
+        int rank = 0;
+        Node node = mRoot;
+        while (node != null) {
+            if (node.meeting.getStartMinute() < minute) {
+                rank += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Iterates lazily over the meetings ending after a given time, in date and time order.
+     * The subtrees ending before that time are skipped, so the first meeting is reached in O(log n)
+     * when the meetings do not overlap each other, and each next one in O(1) amortized.
+     *
+     * @param fromMinute Time the meetings must end after, in epoch minutes.
+     * @return The iterator over the meetings.
+     */
+    Iterator<Meeting> iterator(long fromMinute) {
+        return new TreeIterator(mRoot, fromMinute);
+    }
+
+    /**
+     * Gets the position of the first meeting differing from another tree, comparing the meetings by identity.
+     * The subtrees shared by the two trees are skipped as a whole, so comparing a tree with the tree
+     * it was derived from by k mutations takes O(k log n).
+     *
+     * @param other Tree to compare with.
+     * @return The first position holding different meetings, or the size of the smaller tree
+     * if it holds the first meetings of the other one.
+     */
+    int firstDifference(MeetingTree other) {
+        Deque<Object> pieces = new ArrayDeque<>(); // Subtrees and meetings left to compare, in order
+        Deque<Object> otherPieces = new ArrayDeque<>();
+        if (mRoot != null) {
+            pieces.push(mRoot);
+        }
+        if (other.mRoot != null) {
+            otherPieces.push(other.mRoot);
+        }
+        int position = 0;
+        while (!pieces.isEmpty() && !otherPieces.isEmpty()) {
+            Object piece = pieces.pop();
+            Object otherPiece = otherPieces.pop();
+            if (piece == otherPiece) {
+                position += piece instanceof Node ? ((Node) piece).size : 1; // Shared subtree, or same meeting
+            } else if (piece instanceof Node && (!(otherPiece instanceof Node) || ((Node) piece).size >= ((Node) otherPiece).size)) {
+                split(pieces, (Node) piece); // Compare the larger subtree part by part
+                otherPieces.push(otherPiece);
+            } else if (otherPiece instanceof Node) {
+                split(otherPieces, (Node) otherPiece);
+                pieces.push(piece);
+            } else {
+                return position; // Different meetings
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Gets an immutable list view of the tree, in date and time order.
+     *
+     * @return The list view of the tree.
+     */
+    List<Meeting> asList() {
+        return new ListView(this);
+    }
+
+
+    // Node operations
+
+    /**
+     * Immutable node of the tree.
+     */
+    private static final class Node {
+        final Meeting meeting;
+        final Node left;
+        final Node right;
+        final int height;
+        final int size;
+        final long maxEndMinute; // Latest end time of the subtree
+
+        Node(Meeting meeting, Node left, Node right) {
+            this.meeting = meeting;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+            this.maxEndMinute = Math.max(meeting.getEndMinute(), Math.max(maxEndMinute(left), maxEndMinute(right)));
+        }
+    }
+
+    private static int height(Node node) {
+        return node != null ? node.height : 0;
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static long maxEndMinute(Node node) {
+        return node != null ? node.maxEndMinute : Long.MIN_VALUE;
+    }
+
+    // Replace a subtree by its left subtree, its meeting and its right subtree, the left one on top
+    private static void split(Deque<Object> pieces, Node node) {
+        if (node.right != null) {
+            pieces.push(node.right);
+        }
+        pieces.push(node.meeting);
+        if (node.left != null) {
+            pieces.push(node.left);
+        }
+    }
+
+    private static Node build(List<Meeting> sortedMeetings, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node(sortedMeetings.get(middle), build(sortedMeetings, from, middle), build(sortedMeetings, middle + 1, to));
+    }
+
+    private static Node insert(Node node, Meeting meeting) {
+        if (node == null) {
+            return new Node(meeting, null, null);
+        }
+        int comparison = meeting.compareTo(node.meeting);
+        if (comparison == 0) {
+            return node;
+        } else if (comparison < 0) {
+            Node left = insert(node.left, meeting);
+            return left == node.left ? node : balance(node.meeting, left, node.right);
+        } else {
+            Node right = insert(node.right, meeting);
+            return right == node.right ? node : balance(node.meeting, node.left, right);
+        }
+    }
+
+    private static Node remove(Node node, Meeting meeting) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = meeting.compareTo(node.meeting);
+        if (comparison < 0) {
+            Node left = remove(node.left, meeting);
+            return left == node.left ? node : balance(node.meeting, left, node.right);
+        } else if (comparison > 0) {
+            Node right = remove(node.right, meeting);
+            return right == node.right ? node : balance(node.meeting, node.left, right);
+        } else if (node.meeting != meeting) {
+            return node; // Another meeting with the same date, time and id
+        } else if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        }
+        Node successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.meeting, node.left, removeMin(node.right));
+    }
+
+    private static Node removeMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.meeting, removeMin(node.left), node.right);
+    }
+
+    private static Node balance(Meeting meeting, Node left, Node right) {
+        int difference = height(left) - height(right);
+        if (difference > 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.meeting, left.left, left.right);
+            }
+            return rotateRight(meeting, left, right);
+        } else if (difference < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.meeting, right.left, right.right);
+            }
+            return rotateLeft(meeting, left, right);
+        }
+        return new Node(meeting, left, right);
+    }
+
+    private static Node rotateRight(Meeting meeting, Node left, Node right) {
+        return new Node(left.meeting, left.left, new Node(meeting, left.right, right));
+    }
+
+    private static Node rotateLeft(Meeting meeting, Node left, Node right) {
+        return new Node(right.meeting, new Node(meeting, left, right.left), right.right);
+    }
+
+    private static void collectRange(Node node, long fromMinute, long toMinute, List<Meeting> out) {
+        if (node == null) {
+            return;
+        }
+        long startMinute = node.meeting.getStartMinute();
+        if (startMinute >= fromMinute) {
+            collectRange(node.left, fromMinute, toMinute, out);
+        }
+        if (startMinute >= fromMinute && startMinute < toMinute) {
+            out.add(node.meeting);
+        }
+        if (startMinute < toMinute) {
+            collectRange(node.right, fromMinute, toMinute, out);
+        }
+    }
+
+    private static void collectOverlapping(Node node, long fromMinute, long toMinute, List<Meeting> out) {
+        if (node == null || node.maxEndMinute <= fromMinute) {
+            return; // Every meeting of the subtree ends before the slot
+        }
+        collectOverlapping(node.left, fromMinute, toMinute, out);
+        if (node.meeting.getStartMinute() >= toMinute) {
+            return; // This meeting and the right subtree start after the slot
+        }
+        if (node.meeting.getEndMinute() > fromMinute) {
+            out.add(node.meeting);
+        }
+        collectOverlapping(node.right, fromMinute, toMinute, out);
+    }
+
+    // Collect the meetings at positions [from, to) of the subtree
+    private static void collect(Node node, int from, int to, List<Meeting> out) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (from < leftSize) {
+            collect(node.left, from, Math.min(to, leftSize), out);
+        }
+        if (from <= leftSize && leftSize < to) {
+            out.add(node.meeting);
+        }
+        if (to > leftSize + 1) {
+            collect(node.right, Math.max(0, from - leftSize - 1), to - leftSize - 1, out);
+        }
+    }
+
+
+    // List view
+
+    /**
+     * Immutable list view of a tree, iterating in O(1) amortized per meeting.
+     */
+    private static final class ListView extends AbstractList<Meeting> {
+        private final MeetingTree mTree;
+
+        ListView(MeetingTree tree) {
+            mTree = tree;
+        }
+
+        @Override
+        public Meeting get(int index) {
+            return mTree.get(index);
+        }
+
+        @Override
+        public int size() {
+            return mTree.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Meeting && mTree.contains((Meeting) o);
+        }
+
+        @Override
+        public Iterator<Meeting> iterator() {
+            return new TreeIterator(mTree.mRoot, Long.MIN_VALUE);
+        }
+    }
+
+
+    /**
+     * In-order iterator over the meetings of a subtree ending after a given time.
+     */
+    private static final class TreeIterator implements Iterator<Meeting> {
+        private final Deque<Node> mPath = new ArrayDeque<>();
+        private final long mFromMinute;
+
+        TreeIterator(Node root, long fromMinute) {
+            mFromMinute = fromMinute;
+            pushLeft(root);
+        }
+
+        // Push the left spine of a subtree, stopping at the subtrees ending before the time
+        private void pushLeft(Node node) {
+            for (; node != null && node.maxEndMinute > mFromMinute; node = node.left) {
+                mPath.push(node);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            // Drop the nodes on the path ending before the time, whose right subtree may still end after it
+            while (!mPath.isEmpty() && mPath.peek().meeting.getEndMinute() <= mFromMinute) {
+                pushLeft(mPath.pop().right);
+            }
+            return !mPath.isEmpty();
+        }
+
+        @Override
+        public Meeting next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node node = mPath.pop();
+            pushLeft(node.right);
+            return node.meeting;
+        }
+    }
+}
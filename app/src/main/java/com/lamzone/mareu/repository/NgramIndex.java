@@ -0,0 +1,228 @@
+package com.lamzone.mareu.repository;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The NgramIndex class is an index over the strings of the meetings of a repository, such as their titles
+ * and subjects, finding the ones containing a query, ignoring case.
+ * Each trigram maps to the ids of the strings holding it, and each string shorter than a trigram is listed as a whole.
+ * A query of three characters reads the list of its trigram; a longer query reads the list of its rarest trigram
+ * and checks each of its strings, so it costs the size of that list instead of the number of strings.
+ * A query of one or two characters merges the lists of the trigrams holding it, found among the distinct trigrams,
+ * whose number depends on the alphabet of the strings rather than on their number.
+ * Strings are added when a meeting holding them is published, and removed once no published meeting holds them:
+ * a removed string is skipped by the searches, and the lists are rebuilt from the strings left once
+ * the removed ones outnumber them. The strings themselves are not kept, but read from the published meetings.
+ * It is thread-safe.
+ */
+final class NgramIndex {
+
+    private static final int N = 3;
+    private static final int MIN_REBUILD_COUNT = 1_024; // Number of removed strings below which the lists are kept
+
+    private final Map<Long, Postings> mPostings = new HashMap<>();
+    private final BitSet mIndexed = new BitSet(); // Ids of the strings held by the lists
+    private final BitSet mLive = new BitSet(); // Ids of the strings held by a meeting
+    private int mIndexedCount;
+    private int mLiveCount;
+
+    /**
+     * Adds a string, once a meeting holding it is published.
+     *
+     * @param id   Id of the string in its dictionary.
+     * @param text The string, null being indexed as an empty string.
+     */
+    synchronized void add(int id, String text) {
+        if (mLive.get(id)) {
+            return;
+        }
+        mLive.set(id);
+        mLiveCount++;
+        if (!mIndexed.get(id)) { // Still in the lists if it was removed since the last rebuild
+            mIndexed.set(id);
+            mIndexedCount++;
+            addPostings(id, normalize(text));
+        }
+    }
+
+    /**
+     * Removes a string, once no published meeting holds it. The lists are only rebuilt by {@link #compact(Texts)}.
+     *
+     * @param id Id of the string in its dictionary.
+     */
+    synchronized void remove(int id) {
+        if (mLive.get(id)) {
+            mLive.clear(id);
+            mLiveCount--;
+        }
+    }
+
+    /**
+     * Rebuilds the lists from the strings left if the removed strings outnumber them,
+     * so the rebuilds take a time proportional to the removals.
+     *
+     * @param texts Strings of the ids held by the meetings.
+     */
+    synchronized void compact(Texts texts) {
+        if (mIndexedCount - mLiveCount > Math.max(MIN_REBUILD_COUNT, mLiveCount)) {
+            mPostings.clear();
+            mIndexed.clear();
+            mIndexedCount = 0;
+            for (int id = mLive.nextSetBit(0); id >= 0; id = mLive.nextSetBit(id + 1)) {
+                mIndexed.set(id);
+                mIndexedCount++;
+                addPostings(id, normalize(texts.getText(id)));
+            }
+        }
+    }
+
+    /**
+     * Finds the strings containing a query, ignoring case.
+     *
+     * @param query Text to look for, null or empty to find every string.
+     * @param texts Strings of the ids held by the meetings, to check the strings holding a trigram of a longer query.
+     * @return The ascending ids of the strings containing the query.
+     */
+    synchronized int[] search(String query, Texts texts) {
+        String text = normalize(query);
+        if (text.isEmpty()) {
+            int[] ids = new int[mLiveCount];
+            for (int i = 0, id = mLive.nextSetBit(0); id >= 0; i++, id = mLive.nextSetBit(id + 1)) {
+                ids[i] = id;
+            }
+            return ids;
+        }
+
+        if (text.length() < N) {
+            // Merge the lists of the trigrams and of the short strings holding the query
+            BitSet matches = new BitSet();
+            for (Map.Entry<Long, Postings> entry : mPostings.entrySet()) {
+                if (contains(entry.getKey(), text)) {
+                    Postings postings = entry.getValue();
+                    for (int i = 0; i < postings.mSize; i++) {
+                        if (mLive.get(postings.mIds[i])) {
+                            matches.set(postings.mIds[i]);
+                        }
+                    }
+                }
+            }
+            int[] ids = new int[matches.cardinality()];
+            for (int i = 0, id = matches.nextSetBit(0); id >= 0; i++, id = matches.nextSetBit(id + 1)) {
+                ids[i] = id;
+            }
+            return ids;
+        }
+
+        // Read the list of the query, or of its rarest trigram
+        Postings rarest = null;
+        for (int i = 0; i + N <= text.length(); i++) {
+            Postings postings = mPostings.get(key(text, i, N));
+            if (postings == null) {
+                return new int[0]; // No string holds this n-gram
+            }
+            if (rarest == null || postings.mSize < rarest.mSize) {
+                rarest = postings;
+            }
+        }
+        int[] ids = new int[rarest.mSize];
+        int count = 0;
+        for (int i = 0; i < rarest.mSize; i++) {
+            int id = rarest.mIds[i];
+            if (mLive.get(id) && (text.length() == N || normalize(texts.getText(id)).contains(text))) {
+                ids[count++] = id;
+            }
+        }
+        ids = Arrays.copyOf(ids, count);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Adds a string to the lists of its trigrams, once per trigram, or to its own list if it is shorter.
+     *
+     * @param id   Id of the string.
+     * @param text Normalized string.
+     */
+    private void addPostings(int id, String text) {
+        if (text.isEmpty()) {
+            return; // Only found by an empty query
+        }
+        long[] keys;
+        if (text.length() < N) {
+            keys = new long[]{key(text, 0, text.length())};
+        } else {
+            keys = new long[text.length() - N + 1];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = key(text, i, N);
+            }
+            Arrays.sort(keys);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0 && keys[i] == keys[i - 1]) {
+                continue; // Trigram repeated in the string
+            }
+            Postings postings = mPostings.get(keys[i]);
+            if (postings == null) {
+                postings = new Postings();
+                mPostings.put(keys[i], postings);
+            }
+            postings.add(id);
+        }
+    }
+
+    private static String normalize(String text) {
+        return text != null ? text.toLowerCase(Locale.ROOT) : "";
+    }
+
+    // Pack the n-gram of n characters starting at an offset of a string, with its length
+    private static long key(String text, int offset, int n) {
+        long key = n;
+        for (int i = 0; i < n; i++) {
+            key = key << 16 | text.charAt(offset + i);
+        }
+        return key;
+    }
+
+    // Check whether the n-gram of a key holds a text
+    private static boolean contains(long key, String text) {
+        int n = key >>> 16 * N != 0 ? N : key >>> 16 * (N - 1) != 0 ? N - 1 : 1;
+        char[] chars = new char[n];
+        for (int i = 0; i < n; i++) {
+            chars[i] = (char) (key >>> 16 * (n - 1 - i));
+        }
+        return new String(chars).contains(text);
+    }
+
+    /**
+     * Strings of the indexed ids, read from the meetings holding them.
+     */
+    interface Texts {
+
+        /**
+         * Gets the string of an id held by a meeting.
+         *
+         * @param id Id of the string in its dictionary.
+         * @return The string.
+         */
+        String getText(int id);
+    }
+
+    /**
+     * Growable list of string ids.
+     */
+    private static final class Postings {
+        int[] mIds = new int[2];
+        int mSize;
+
+        void add(int id) {
+            if (mSize == mIds.length) {
+                mIds = Arrays.copyOf(mIds, mSize * 2);
+            }
+            mIds[mSize++] = id;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.lamzone.mareu.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The PersistentArray class is an immutable, growable array indexed by dense ids, such as dictionary ids.
+ * It is a 32-way trie: setting an element copies only the path to it, in O(log32 n), and shares the rest
+ * with the previous array, so large indexes can be updated by every mutation of a snapshot.
+ *
+ * @param <T> Type of the elements.
+ */
+final class PersistentArray<T> {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentArray<?> EMPTY = new PersistentArray<>(new Object[WIDTH], 0);
+
+    private final Object[] mRoot; // Inner nodes hold Object[] children, leaves hold the elements
+    private final int mShift; // Shift of the root level, 0 when the root is a leaf
+
+    private PersistentArray(Object[] root, int shift) {
+        mRoot = root;
+        mShift = shift;
+    }
+
+    /**
+     * Gets the empty array, whose elements are all null.
+     *
+     * @param <T> Type of the elements.
+     * @return The empty array.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> PersistentArray<T> empty() {
+        return (PersistentArray<T>) EMPTY;
+    }
+
+    /**
+     * Builds an array holding the given elements, in O(n).
+     *
+     * @param elements Elements, by index, null for the unset ones.
+     * @param <T>      Type of the elements.
+     * @return The array.
+     */
+    static <T> PersistentArray<T> of(List<T> elements) {
+        // Fill the leaves, then build each level above until a single root is left
+        List<Object[]> nodes = new ArrayList<>();
+        for (int i = 0; i < elements.size(); i += WIDTH) {
+            nodes.add(elements.subList(i, Math.min(i + WIDTH, elements.size())).toArray(new Object[WIDTH]));
+        }
+        if (nodes.isEmpty()) {
+            return empty();
+        }
+        int shift = 0;
+        while (nodes.size() > 1) {
+            List<Object[]> parents = new ArrayList<>();
+            for (int i = 0; i < nodes.size(); i += WIDTH) {
+                parents.add(nodes.subList(i, Math.min(i + WIDTH, nodes.size())).toArray(new Object[WIDTH]));
+            }
+            nodes = parents;
+            shift += BITS;
+        }
+        return new PersistentArray<>(nodes.get(0), shift);
+    }
+
+    /**
+     * Gets an element, in O(log32 n).
+     *
+     * @param index Index of the element, not negative.
+     * @return The element, or null if it was never set.
+     */
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        if (index >>> mShift >= WIDTH) {
+            return null; // Past the capacity of the trie
+        }
+        Object[] node = mRoot;
+        for (int shift = mShift; shift > 0; shift -= BITS) {
+            node = (Object[]) node[(index >>> shift) & MASK];
+            if (node == null) {
+                return null;
+            }
+        }
+        return (T) node[index & MASK];
+    }
+
+    /**
+     * Returns an array with an element replaced, growing the trie as needed.
+     *
+     * @param index   Index of the element, not negative.
+     * @param element New element.
+     * @return The new array.
+     */
+    PersistentArray<T> set(int index, T element) {
+        Object[] root = mRoot;
+        int shift = mShift;
+        while (index >>> shift >= WIDTH) {
+            // Add a level above the root, which becomes the first child
+            Object[] newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            root = newRoot;
+            shift += BITS;
+        }
+        return new PersistentArray<>(set(root, shift, index, element), shift);
+    }
+
+    /**
+     * Visits the elements differing between two arrays, skipping the nodes they share,
+     * so comparing an array to one derived from it by k changes costs O(k log32 n).
+     *
+     * @param from    Previous array.
+     * @param to      Next array.
+     * @param visitor Visitor called for each index whose elements are not the same object.
+     * @param <T>     Type of the elements.
+     */
+    static <T> void diff(PersistentArray<T> from, PersistentArray<T> to, Visitor<T> visitor) {
+        // Bring both roots to the same level, the smaller one being the first child of the levels added above it
+        Object[] fromRoot = from.mRoot;
+        Object[] toRoot = to.mRoot;
+        int shift = Math.max(from.mShift, to.mShift);
+        for (int fromShift = from.mShift; fromShift < shift; fromShift += BITS) {
+            Object[] root = new Object[WIDTH];
+            root[0] = fromRoot;
+            fromRoot = root;
+        }
+        for (int toShift = to.mShift; toShift < shift; toShift += BITS) {
+            Object[] root = new Object[WIDTH];
+            root[0] = toRoot;
+            toRoot = root;
+        }
+        diff(fromRoot, toRoot, shift, 0, visitor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void diff(Object[] from, Object[] to, int shift, int offset, Visitor<T> visitor) {
+        if (from == to) {
+            return; // Shared node
+        }
+        for (int i = 0; i < WIDTH; i++) {
+            Object fromChild = from != null ? from[i] : null;
+            Object toChild = to != null ? to[i] : null;
+            if (fromChild == toChild) {
+                continue;
+            }
+            if (shift == 0) {
+                visitor.visit(offset + i, (T) fromChild, (T) toChild);
+            } else {
+                diff((Object[]) fromChild, (Object[]) toChild, shift - BITS, offset + (i << shift), visitor);
+            }
+        }
+    }
+
+    /**
+     * Visitor of the elements differing between two arrays.
+     *
+     * @param <T> Type of the elements.
+     */
+    interface Visitor<T> {
+
+        /**
+         * Visits an index whose elements differ.
+         *
+         * @param index Index of the elements.
+         * @param from  Element of the previous array, or null.
+         * @param to    Element of the next array, or null.
+         */
+        void visit(int index, T from, T to);
+    }
+
+    private static Object[] set(Object[] node, int shift, int index, Object element) {
+        Object[] copy = node != null ? node.clone() : new Object[WIDTH];
+        if (shift == 0) {
+            copy[index & MASK] = element;
+        } else {
+            int child = (index >>> shift) & MASK;
+            copy[child] = set((Object[]) copy[child], shift - BITS, index, element);
+        }
+        return copy;
+    }
+}
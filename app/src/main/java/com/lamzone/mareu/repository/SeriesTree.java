@@ -0,0 +1,151 @@
+package com.lamzone.mareu.repository;
+
+import com.lamzone.mareu.model.Meeting;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The SeriesTree class is an immutable interval tree of recurring meetings, each one spanning from the start
+ * of its first occurrence to the end of its last one.
+ * The series are kept sorted by date and time in an array, read as a balanced tree whose subtree over
+ * a range of positions is rooted at its middle and holds the latest end time of the range,
+ * so the series overlapping a time range are found without visiting the ones ending too early.
+ * Mutations copy the array, in O(s) for s series, which are far fewer than the meetings.
+ */
+final class SeriesTree {
+
+    private static final SeriesTree EMPTY = new SeriesTree(new Meeting[0]);
+
+    private final Meeting[] mSeries; // Sorted by date and time
+    private final long[] mEndMinutes; // End time of the last occurrence of each series
+    private final long[] mMaxEndMinutes; // Latest end time of the subtree rooted at each position
+
+    private SeriesTree(Meeting[] series) {
+        mSeries = series;
+        mEndMinutes = new long[series.length];
+        for (int i = 0; i < series.length; i++) {
+            mEndMinutes[i] = series[i].getSeriesEndMinute();
+        }
+        mMaxEndMinutes = new long[series.length];
+        buildMaxEndMinutes(0, series.length);
+    }
+
+    /**
+     * Gets the empty tree.
+     *
+     * @return The empty tree.
+     */
+    static SeriesTree empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds a tree from recurring meetings already sorted by date and time, in O(s).
+     *
+     * @param sortedSeries Recurring meetings sorted by date and time.
+     * @return The tree holding the series.
+     */
+    static SeriesTree fromSorted(List<Meeting> sortedSeries) {
+        return sortedSeries.isEmpty() ? EMPTY : new SeriesTree(sortedSeries.toArray(new Meeting[0]));
+    }
+
+    /**
+     * Gets the number of series in the tree.
+     *
+     * @return The size of the tree.
+     */
+    int size() {
+        return mSeries.length;
+    }
+
+    /**
+     * Returns a tree holding the series of this tree plus the given one.
+     *
+     * @param series Recurring meeting to insert.
+     * @return The new tree, or this tree if it already holds the series.
+     */
+    SeriesTree insert(Meeting series) {
+        int position = Arrays.binarySearch(mSeries, series);
+        if (position >= 0) {
+            return this;
+        }
+        position = -position - 1;
+        Meeting[] newSeries = new Meeting[mSeries.length + 1];
+        System.arraycopy(mSeries, 0, newSeries, 0, position);
+        newSeries[position] = series;
+        System.arraycopy(mSeries, position, newSeries, position + 1, mSeries.length - position);
+        return new SeriesTree(newSeries);
+    }
+
+    /**
+     * Returns a tree holding the series of this tree except the given one.
+     *
+     * @param series Recurring meeting to remove.
+     * @return The new tree, or this tree if it does not hold the series.
+     */
+    SeriesTree remove(Meeting series) {
+        int position = Arrays.binarySearch(mSeries, series);
+        if (position < 0) {
+            return this;
+        }
+        if (mSeries.length == 1) {
+            return EMPTY;
+        }
+        Meeting[] newSeries = new Meeting[mSeries.length - 1];
+        System.arraycopy(mSeries, 0, newSeries, 0, position);
+        System.arraycopy(mSeries, position + 1, newSeries, position, newSeries.length - position);
+        return new SeriesTree(newSeries);
+    }
+
+    /**
+     * Adds the series spanning over a time range, from the start of their first occurrence to the end
+     * of their last one, in O(log s + k) for k series found. Their occurrences of the range are then read from their rule.
+     *
+     * @param fromMinute Start of the range, in epoch minutes.
+     * @param toMinute   End of the range (excluded), in epoch minutes.
+     * @param out        List the series are added to, in date and time order.
+     */
+    void collectOverlapping(long fromMinute, long toMinute, List<Meeting> out) {
+        collectOverlapping(0, mSeries.length, fromMinute, toMinute, out);
+    }
+
+    /**
+     * Gets the series of the tree.
+     *
+     * @return An unmodifiable list of the series, sorted by date and time.
+     */
+    List<Meeting> asList() {
+        return Collections.unmodifiableList(Arrays.asList(mSeries));
+    }
+
+    private long buildMaxEndMinutes(int from, int to) {
+        if (from >= to) {
+            return Long.MIN_VALUE;
+        }
+        int middle = (from + to) >>> 1;
+        long maxEndMinute = Math.max(mEndMinutes[middle],
+                Math.max(buildMaxEndMinutes(from, middle), buildMaxEndMinutes(middle + 1, to)));
+        mMaxEndMinutes[middle] = maxEndMinute;
+        return maxEndMinute;
+    }
+
+    private void collectOverlapping(int from, int to, long fromMinute, long toMinute, List<Meeting> out) {
+        if (from >= to) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        if (mMaxEndMinutes[middle] <= fromMinute) {
+            return; // The whole subtree ends before the range
+        }
+        collectOverlapping(from, middle, fromMinute, toMinute, out);
+        if (mSeries[middle].getStartMinute() >= toMinute) {
+            return; // The next series start after the range
+        }
+        if (mEndMinutes[middle] > fromMinute) {
+            out.add(mSeries[middle]);
+        }
+        collectOverlapping(middle + 1, to, fromMinute, toMinute, out);
+    }
+}
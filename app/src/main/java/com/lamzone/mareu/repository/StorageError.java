@@ -0,0 +1,18 @@
+package com.lamzone.mareu.repository;
+
+/**
+ * The StorageError enum lists the storage failures reported by the repository.
+ */
+public enum StorageError {
+
+    /**
+     * The stored meetings could not be read. The data source set them aside,
+     * and the meetings it provides instead are shown.
+     */
+    LOAD_FAILED,
+
+    /**
+     * Changes could not be saved. They are kept, and saved again along with the next change.
+     */
+    SAVE_FAILED
+}
@@ -0,0 +1,155 @@
+package com.lamzone.mareu.sync;
+
+import com.lamzone.mareu.data_sources.MeetingCodec;
+import com.lamzone.mareu.model.MeetingChange;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HttpMeetingApi class reaches the sync server over HTTP.
+ * <ul>
+ * <li>{@code GET <base>/changes?since=<token>&limit=<count>} returns a delta: the token, whether more changes follow,
+ * and the changes.</li>
+ * <li>{@code POST <base>/changes} sends changes, and succeeds once the server applied them.</li>
+ * </ul>
+ * Bodies are binary, the changes being encoded by {@link MeetingCodec}.
+ */
+public class HttpMeetingApi implements MeetingApi {
+
+    private static final String CONTENT_TYPE = "application/octet-stream";
+    private static final int TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(15);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String mBaseUrl;
+
+    /**
+     * Constructor to create an instance of HttpMeetingApi.
+     *
+     * @param baseUrl URL of the meetings API, such as "https://example.com/api/meetings", without a trailing slash.
+     */
+    public HttpMeetingApi(String baseUrl) {
+        mBaseUrl = baseUrl;
+    }
+
+    @Override
+    public MeetingDelta fetchChanges(long sinceToken, int limit) throws IOException {
+        HttpURLConnection connection = open(mBaseUrl + "/changes?since=" + sinceToken + "&limit=" + limit);
+        try {
+            checkResponse(connection);
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(connection.getInputStream(), BUFFER_SIZE))) {
+                return readDelta(input);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public void pushChanges(List<MeetingChange> changes) throws IOException {
+        HttpURLConnection connection = open(mBaseUrl + "/changes");
+        try {
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", CONTENT_TYPE);
+            connection.setDoOutput(true);
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream(), BUFFER_SIZE))) {
+                writeChanges(output, changes);
+            }
+            checkResponse(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    // Open a connection to a URL of the API
+    private static HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        connection.setRequestProperty("Accept", CONTENT_TYPE);
+        return connection;
+    }
+
+    // Fail unless the server answered with a success
+    private static void checkResponse(HttpURLConnection connection) throws IOException {
+        int code = connection.getResponseCode();
+        if (code / 100 != 2) {
+            throw new IOException("Sync server answered " + code + " to " + connection.getURL());
+        }
+    }
+
+
+    // Bodies
+
+    /**
+     * Writes a delta, as the body of a fetch response.
+     *
+     * @param output Stream to write to.
+     * @param delta  Delta to write.
+     * @throws IOException If the delta could not be written.
+     */
+    static void writeDelta(DataOutputStream output, MeetingDelta delta) throws IOException {
+        output.writeLong(delta.getToken());
+        output.writeBoolean(delta.hasMore());
+        writeChanges(output, delta.getChanges());
+    }
+
+    /**
+     * Reads a delta written by {@link #writeDelta(DataOutputStream, MeetingDelta)}. Its changes are remote changes.
+     *
+     * @param input Stream to read from.
+     * @return The delta read.
+     * @throws IOException If the delta could not be read.
+     */
+    static MeetingDelta readDelta(DataInputStream input) throws IOException {
+        long token = input.readLong();
+        boolean hasMore = input.readBoolean();
+        List<MeetingChange> changes = readChanges(input);
+        for (int i = 0; i < changes.size(); i++) {
+            changes.set(i, changes.get(i).toRemote());
+        }
+        return new MeetingDelta(token, hasMore, changes);
+    }
+
+    /**
+     * Writes changes, as the body of a push request, ending the stream content.
+     *
+     * @param output  Stream to write to.
+     * @param changes Changes to write, in order.
+     * @throws IOException If the changes could not be written.
+     */
+    static void writeChanges(OutputStream output, List<MeetingChange> changes) throws IOException {
+        MeetingCodec.Writer writer = new MeetingCodec.Writer(output);
+        for (MeetingChange change : changes) {
+            writer.writeChange(change);
+        }
+        writer.finish();
+    }
+
+    /**
+     * Reads changes written by {@link #writeChanges(OutputStream, List)}, up to the end of the stream content.
+     *
+     * @param input Stream to read from.
+     * @return The changes read, in order.
+     * @throws IOException If the changes could not be read.
+     */
+    static List<MeetingChange> readChanges(InputStream input) throws IOException {
+        MeetingCodec.Reader reader = new MeetingCodec.Reader(input);
+        List<MeetingChange> changes = new ArrayList<>();
+        MeetingChange change;
+        while ((change = reader.readChange()) != null) {
+            changes.add(change);
+        }
+        return changes;
+    }
+}
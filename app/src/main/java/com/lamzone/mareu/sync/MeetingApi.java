@@ -0,0 +1,34 @@
+package com.lamzone.mareu.sync;
+
+import com.lamzone.mareu.model.MeetingChange;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The MeetingApi interface gives access to the server the meetings are synced with.
+ * The server numbers its changes in order; a client keeps the number of the last change it merged,
+ * its sync token, and only fetches the changes made after it.
+ * The server ignores an addition of a meeting it holds and a deletion of a meeting it does not hold,
+ * so changes can be pushed again after a failure, and the changes fetched back are merged as no-ops.
+ */
+public interface MeetingApi {
+
+    /**
+     * Fetches the changes made on the server after a sync token.
+     *
+     * @param sinceToken Token of the last change already merged, 0 to fetch all the meetings.
+     * @param limit      Maximum number of changes to fetch.
+     * @return The changes, with the token to fetch the next ones from.
+     * @throws IOException If the server could not be reached or refused the request.
+     */
+    MeetingDelta fetchChanges(long sinceToken, int limit) throws IOException;
+
+    /**
+     * Sends changes made on this device to the server, which applies them in order.
+     *
+     * @param changes Changes to send, in the order they were made.
+     * @throws IOException If the server could not be reached or refused the changes, none of them being known as applied.
+     */
+    void pushChanges(List<MeetingChange> changes) throws IOException;
+}
@@ -0,0 +1,56 @@
+package com.lamzone.mareu.sync;
+
+import com.lamzone.mareu.model.MeetingChange;
+
+import java.util.List;
+
+/**
+ * The MeetingDelta class is a page of the changes made on the server after a sync token.
+ * Instances are immutable.
+ */
+public final class MeetingDelta {
+
+    private final long mToken;
+    private final boolean mHasMore;
+    private final List<MeetingChange> mChanges;
+
+    /**
+     * Initializes a new delta.
+     *
+     * @param token   Token of the last change of the page, or the token fetched from if the page is empty.
+     * @param hasMore Whether the server holds changes after the page.
+     * @param changes Changes of the page, in the order they were made.
+     */
+    public MeetingDelta(long token, boolean hasMore, List<MeetingChange> changes) {
+        mToken = token;
+        mHasMore = hasMore;
+        mChanges = changes;
+    }
+
+    /**
+     * Get the token to fetch the next changes from.
+     *
+     * @return The token of the last change of the page.
+     */
+    public long getToken() {
+        return mToken;
+    }
+
+    /**
+     * Get whether the server holds changes after the page.
+     *
+     * @return true if more changes must be fetched, false otherwise.
+     */
+    public boolean hasMore() {
+        return mHasMore;
+    }
+
+    /**
+     * Get the changes of the page.
+     *
+     * @return The changes, in the order they were made.
+     */
+    public List<MeetingChange> getChanges() {
+        return mChanges;
+    }
+}
@@ -0,0 +1,165 @@
+package com.lamzone.mareu.sync;
+
+import com.lamzone.mareu.model.MeetingChange;
+import com.lamzone.mareu.repository.MeetingRepository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The MeetingSyncEngine class keeps the meetings of the repository in sync with a server, in the background.
+ * A sync first pushes the queued local changes, then fetches the server changes made after the sync token
+ * and merges them into the repository as one batch, so only the changes are downloaded, never the whole calendar.
+ * A failed sync is retried with an exponential backoff; the local changes stay queued until the server accepts them.
+ * The server changes of a meeting with local changes still queued are skipped, as the local changes are newer.
+ */
+public class MeetingSyncEngine {
+
+    /**
+     * Maximum number of changes pushed or fetched by a request.
+     */
+    public static final int PAGE_SIZE = 1_000;
+
+    private static final long SYNC_INTERVAL_MINUTES = 15; // Delay between two syncs when nothing changes locally
+    private static final long INITIAL_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final Logger LOGGER = Logger.getLogger(MeetingSyncEngine.class.getName());
+
+    private final MeetingRepository mRepository;
+    private final SyncStore mSyncStore;
+    private final MeetingApi mApi;
+    private final ScheduledExecutorService mScheduler;
+    private final AtomicBoolean mSyncPending = new AtomicBoolean(); // Whether a sync is queued and not started yet
+
+    // State of the retries, used on the scheduler thread
+    private long mRetryDelayMillis = INITIAL_RETRY_DELAY_MILLIS;
+    private ScheduledFuture<?> mRetry;
+
+    // Token of the last merged change, guarded by the engine; it is stored once the merged changes are saved
+    private long mToken = -1;
+
+    /**
+     * Constructor to create an instance of MeetingSyncEngine.
+     *
+     * @param repository Repository holding the meetings, which saves them through the sync store.
+     * @param syncStore  State of the sync, also queuing the local changes saved by the repository.
+     * @param api        Server the meetings are synced with.
+     * @param scheduler  Executor running the syncs and their retries, one at a time.
+     */
+    public MeetingSyncEngine(MeetingRepository repository, SyncStore syncStore, MeetingApi api, ScheduledExecutorService scheduler) {
+        mRepository = repository;
+        mSyncStore = syncStore;
+        mApi = api;
+        mScheduler = scheduler;
+        mSyncStore.setOnChangesQueued(this::requestSync);
+    }
+
+    /**
+     * Starts syncing in the background: once the stored meetings are loaded, then periodically,
+     * and whenever a local change is saved.
+     */
+    public void start() {
+        // The I/O executor loads the stored meetings first, so the first sync merges into the loaded meetings
+        mRepository.runAfterSave(this::requestSync);
+        mScheduler.scheduleWithFixedDelay(this::requestSync, SYNC_INTERVAL_MINUTES, SYNC_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Syncs on the scheduler as soon as possible. Requests made before the sync starts are served by it.
+     */
+    public void requestSync() {
+        if (mSyncPending.compareAndSet(false, true)) {
+            mScheduler.execute(() -> {
+                mSyncPending.set(false);
+                if (mRetry != null) {
+                    mRetry.cancel(false);
+                    mRetry = null;
+                }
+                if (sync()) {
+                    mRetryDelayMillis = INITIAL_RETRY_DELAY_MILLIS;
+                } else {
+                    // Retry later, waiting twice as long after each failure
+                    mRetry = mScheduler.schedule(this::requestSync, mRetryDelayMillis, TimeUnit.MILLISECONDS);
+                    mRetryDelayMillis = Math.min(2 * mRetryDelayMillis, MAX_RETRY_DELAY_MILLIS);
+                }
+            });
+        }
+    }
+
+    /**
+     * Syncs on the calling thread: pushes the queued local changes, then fetches and merges the server changes.
+     *
+     * @return true if the sync succeeded, false if the server could not be reached, refused a request or sent
+     * a response that could not be merged.
+     */
+    public synchronized boolean sync() {
+        try {
+            pushChanges();
+            fetchChanges();
+            return true;
+        } catch (IOException e) {
+            return false;
+        } catch (RuntimeException e) {
+            // Such as a malformed response or a sync state that could not be stored, retried like a network failure
+            LOGGER.log(Level.WARNING, "Sync failed", e);
+            return false;
+        }
+    }
+
+    // Push the queued local changes, removing each page from the queue once the server accepted it
+    private void pushChanges() throws IOException {
+        List<MeetingChange> changes = mSyncStore.getPendingChanges();
+        for (int start = 0; start < changes.size(); start += PAGE_SIZE) {
+            List<MeetingChange> page = changes.subList(start, Math.min(start + PAGE_SIZE, changes.size()));
+            mApi.pushChanges(page);
+            mSyncStore.removePendingChanges(page.size());
+        }
+    }
+
+    // Fetch the server changes made after the token, then merge them as one batch
+    private void fetchChanges() throws IOException {
+        if (mToken < 0) {
+            mToken = mSyncStore.getToken();
+        }
+        long token = mToken;
+        List<MeetingChange> changes = new ArrayList<>();
+        MeetingDelta delta;
+        do {
+            delta = mApi.fetchChanges(token, PAGE_SIZE);
+            changes.addAll(delta.getChanges());
+            token = delta.getToken();
+        } while (delta.hasMore());
+        if (token == mToken) {
+            return;
+        }
+
+        // The changes pushed above come back too: skip those of the meetings changed locally since,
+        // so that a meeting added then deleted on this device is not added back
+        Set<Long> pendingIds = new HashSet<>();
+        for (MeetingChange change : mSyncStore.getPendingChanges()) {
+            pendingIds.add(change.getMeeting().getId());
+        }
+        List<MeetingChange> mergedChanges = new ArrayList<>(changes.size());
+        for (MeetingChange change : changes) {
+            if (!pendingIds.contains(change.getMeeting().getId())) {
+                mergedChanges.add(change);
+            }
+        }
+        if (!mergedChanges.isEmpty()) {
+            mRepository.mergeRemoteChanges(mergedChanges);
+        }
+        mToken = token;
+        final long mergedToken = token;
+        // The token is only stored with the merged changes, so they are fetched again if they are lost
+        mRepository.runWhenSaved(() -> mSyncStore.setToken(mergedToken));
+    }
+}
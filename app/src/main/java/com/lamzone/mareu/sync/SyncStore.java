@@ -0,0 +1,468 @@
+package com.lamzone.mareu.sync;
+
+import com.lamzone.mareu.data_sources.MeetingDataSource;
+import com.lamzone.mareu.data_sources.RecordLog;
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
+import com.lamzone.mareu.model.Recurrence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The SyncStore class keeps the state of the sync with the server in a file: the sync token of the last
+ * merged server change, and the retry queue of the local changes not pushed yet.
+ * It wraps the local data source of the repository, so that each local change is queued for the server
+ * when it is saved, and survives a restart until the server accepts it. Remote changes are only saved locally.
+ *
+ * <p>File: a header (magic, version) followed by records framed by {@link RecordLog}, so that each update
+ * appends and syncs a record instead of rewriting the queue:</p>
+ * <ul>
+ * <li>CHANGES: local changes queued, encoded as a batch by the codec of the server requests; the sequence
+ * is the one of the first change, the next ones following it.</li>
+ * <li>ACKNOWLEDGED: the changes up to the sequence of the record were accepted by the server.</li>
+ * <li>TOKEN: the sync token, in the payload.</li>
+ * </ul>
+ * <p>Once the records of the acknowledged changes and of the previous tokens outweigh the others,
+ * the file is rewritten with the token and the queued changes only.
+ * A file of a previous version, holding the token and the whole queue, is rewritten on first use.</p>
+ *
+ * <p>A file that cannot be read is moved aside, with a ".corrupt" suffix, and the sync starts over
+ * with an empty queue. Local changes that cannot be written to the file are kept in memory and written
+ * with the next ones, since they are already saved locally.</p>
+ */
+public class SyncStore implements MeetingDataSource {
+
+    private static final int MAGIC = 0x53594e43; // "SYNC"
+    private static final int VERSION = 3;
+    private static final int VERSION_QUEUE = 2; // Previous version, rewritten as a whole on each update
+    private static final int VERSION_UTF = 1; // First version, also rewritten as a whole, whose strings were limited to 64 KB
+    private static final int HEADER_SIZE = 4 + 4; // Magic and version
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int CHANGES_PER_RECORD = 1_000;
+    private static final long MIN_COMPACTION_SIZE = 64 * 1024; // Size of the dead records below which the file is kept
+
+    private static final byte RECORD_CHANGES = 1;
+    private static final byte RECORD_ACKNOWLEDGED = 2;
+    private static final byte RECORD_TOKEN = 3;
+
+    private static final byte CHANGE_ADDED = 1; // Types of the changes of the first version
+    private static final byte CHANGE_DELETED = 2;
+    private static final Logger LOGGER = Logger.getLogger(SyncStore.class.getName());
+
+    private final File mFile;
+    private final MeetingDataSource mLocalSource;
+    private volatile Runnable mOnChangesQueued;
+    private final RecordLog.Writer mBatch = new RecordLog.Writer();
+
+    // State of the sync, read on first use
+    private FileChannel mLog; // Null until the state is read
+    private long mLogSize; // Size of the header and of the valid records
+    private long mLiveSize; // Size of the header, of the last token record and of the records holding queued changes
+    private long mToken;
+    private long mTokenRecordSize;
+    private final List<MeetingChange> mPendingChanges = new ArrayList<>(); // Local changes not pushed yet, in order
+    private long mFirstSequence = 1; // Sequence of the first queued change
+    private final ArrayDeque<long[]> mChangeRecords = new ArrayDeque<>(); // Sequence of the last change and size of the records holding queued changes
+    private final List<MeetingChange> mUnqueuedChanges = new ArrayList<>(); // Local changes saved but not written to the file yet, in order
+
+    /**
+     * Constructor to create an instance of SyncStore. The file is read on first use.
+     *
+     * @param file        File holding the state of the sync.
+     * @param localSource Data source storing the meetings on this device.
+     */
+    public SyncStore(File file, MeetingDataSource localSource) {
+        mFile = file;
+        mLocalSource = localSource;
+    }
+
+    /**
+     * Sets the listener told when local changes are queued for the server.
+     *
+     * @param onChangesQueued Listener, called on the thread saving the changes.
+     */
+    public void setOnChangesQueued(Runnable onChangesQueued) {
+        mOnChangesQueued = onChangesQueued;
+    }
+
+    @Override
+    public List<String> getMeetingRooms() {
+        return mLocalSource.getMeetingRooms();
+    }
+
+    @Override
+    public List<Meeting> loadMeetings(int offset, int count) {
+        return mLocalSource.loadMeetings(offset, count);
+    }
+
+    @Override
+    public void saveChanges(List<MeetingChange> changes) {
+        mLocalSource.saveChanges(changes);
+        List<MeetingChange> localChanges = new ArrayList<>();
+        for (MeetingChange change : changes) {
+            if (!change.isRemote()) {
+                localChanges.add(change);
+            }
+        }
+        if (localChanges.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            mUnqueuedChanges.addAll(localChanges);
+            try {
+                queueChanges();
+            } catch (RuntimeException e) {
+                // The changes are saved locally, so the save succeeds: they are written to the file with the next ones
+                LOGGER.log(Level.WARNING, "Failed to queue changes for the server, kept in memory", e);
+            }
+        }
+        Runnable onChangesQueued = mOnChangesQueued;
+        if (onChangesQueued != null) {
+            onChangesQueued.run();
+        }
+    }
+
+    /**
+     * Gets the sync token of the last server change merged and stored on this device.
+     *
+     * @return The token, 0 if nothing was merged yet.
+     */
+    public synchronized long getToken() {
+        load();
+        return mToken;
+    }
+
+    /**
+     * Records the sync token of the last server change merged, once the merged changes are stored.
+     *
+     * @param token The new token.
+     */
+    public synchronized void setToken(long token) {
+        load();
+        if (token != mToken) {
+            mBatch.reset();
+            encodeToken(token);
+            long recordSize = append();
+            mToken = token;
+            mLiveSize += recordSize - mTokenRecordSize; // The previous token record is dead
+            mTokenRecordSize = recordSize;
+        }
+    }
+
+    /**
+     * Gets the local changes not pushed yet, once they are all written to the file.
+     *
+     * @return A copy of the queued changes, in the order they were made.
+     */
+    public synchronized List<MeetingChange> getPendingChanges() {
+        queueChanges();
+        return new ArrayList<>(mPendingChanges);
+    }
+
+    /**
+     * Removes the first queued changes, once the server accepted them.
+     * The file is rewritten once most of it is made of acknowledged changes.
+     *
+     * @param count Number of changes pushed, from the start of the queue.
+     */
+    public synchronized void removePendingChanges(int count) {
+        load();
+        if (count == 0) {
+            return;
+        }
+        long lastSequence = mFirstSequence + count - 1;
+        mBatch.reset();
+        try {
+            mBatch.begin(RECORD_ACKNOWLEDGED, lastSequence);
+            mBatch.end();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode the acknowledged changes", e);
+        }
+        append();
+        acknowledge(lastSequence);
+
+        if (mLogSize - mLiveSize > Math.max(MIN_COMPACTION_SIZE, mLiveSize)) {
+            try {
+                compact();
+            } catch (IOException e) {
+                // The acknowledgement is stored, so the file is read again on next use and rewritten after the next one
+                unload();
+                throw new IllegalStateException("Failed to compact " + mFile, e);
+            }
+        }
+    }
+
+    // Read the state of the sync, once
+    private void load() {
+        if (mLog != null) {
+            return;
+        }
+        long validSize = -1;
+        if (mFile.exists()) {
+            try {
+                validSize = read();
+            } catch (IOException | RuntimeException e) {
+                quarantine(e);
+            }
+        }
+        try {
+            if (validSize < 0) {
+                compact(); // Start a new file, or rewrite the file of a previous version
+                return;
+            }
+            mLog = new RandomAccessFile(mFile, "rw").getChannel();
+            if (mLog.size() > validSize) {
+                // Drop what follows the last valid record, so that new records are appended after it
+                mLog.truncate(validSize);
+                mLog.force(false);
+            }
+            mLogSize = validSize;
+        } catch (IOException e) {
+            unload();
+            throw new IllegalStateException("Failed to write " + mFile, e);
+        }
+    }
+
+    // Read the file, and return the size of its header and valid records, or -1 for a file of a previous version
+    private long read() throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile), BUFFER_SIZE))) {
+            int version;
+            if (input.readInt() != MAGIC || (version = input.readInt()) < VERSION_UTF || version > VERSION) {
+                throw new IOException("Not a sync state file");
+            }
+            if (version == VERSION_UTF) {
+                mToken = input.readLong();
+                mPendingChanges.addAll(readUtfChanges(input));
+                return -1;
+            } else if (version == VERSION_QUEUE) {
+                mToken = input.readLong();
+                mPendingChanges.addAll(HttpMeetingApi.readChanges(input));
+                return -1;
+            }
+            return replay(input);
+        }
+    }
+
+    // Move the unreadable file aside and start over with an empty queue and no token,
+    // so that the local changes are queued again and the server changes fetched again
+    private void quarantine(Exception cause) {
+        unload();
+        File corruptFile = new File(mFile.getPath() + ".corrupt");
+        if (!mFile.renameTo(corruptFile)) {
+            LOGGER.warning("Failed to move " + mFile + " aside");
+        }
+        LOGGER.log(Level.WARNING, "Failed to read " + mFile + ", moved to " + corruptFile + ", its queued changes are dropped", cause);
+    }
+
+    // Write the changes not written yet to the file, after the queued ones
+    private void queueChanges() {
+        load();
+        if (mUnqueuedChanges.isEmpty()) {
+            return;
+        }
+        mBatch.reset();
+        List<long[]> records = encodeChanges(mUnqueuedChanges, mFirstSequence + mPendingChanges.size());
+        append();
+        mPendingChanges.addAll(mUnqueuedChanges);
+        mUnqueuedChanges.clear();
+        for (long[] record : records) {
+            mChangeRecords.add(record);
+            mLiveSize += record[1];
+        }
+    }
+
+    // Apply the valid records of the file, and return the size of the header and of these records
+    private long replay(DataInputStream input) throws IOException {
+        RecordLog.Reader reader = new RecordLog.Reader(input);
+        mLiveSize = HEADER_SIZE;
+        long recordStart = 0;
+        while (reader.next()) {
+            long recordSize = reader.getValidSize() - recordStart;
+            recordStart = reader.getValidSize();
+            if (reader.getType() == RECORD_CHANGES) {
+                List<MeetingChange> changes = HttpMeetingApi.readChanges(reader.getPayload());
+                if (mPendingChanges.isEmpty()) {
+                    mFirstSequence = reader.getSequence();
+                }
+                mPendingChanges.addAll(changes);
+                mChangeRecords.add(new long[]{reader.getSequence() + changes.size() - 1, recordSize});
+                mLiveSize += recordSize;
+            } else if (reader.getType() == RECORD_ACKNOWLEDGED) {
+                acknowledge(reader.getSequence());
+            } else if (reader.getType() == RECORD_TOKEN) {
+                mToken = reader.getPayload().readLong();
+                mLiveSize += recordSize - mTokenRecordSize;
+                mTokenRecordSize = recordSize;
+            }
+        }
+        return HEADER_SIZE + reader.getValidSize();
+    }
+
+    // Read the queue of the first version: a count, then the type and the meeting record of each change
+    private static List<MeetingChange> readUtfChanges(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid change count: " + count);
+        }
+        List<MeetingChange> changes = new ArrayList<>(Math.min(count, CHANGES_PER_RECORD));
+        for (int i = 0; i < count; i++) {
+            byte type = input.readByte();
+            if (type != CHANGE_ADDED && type != CHANGE_DELETED) {
+                throw new IOException("Invalid change type: " + type);
+            }
+            Meeting meeting = readUtfMeeting(input);
+            changes.add(type == CHANGE_ADDED ? MeetingChange.added(meeting) : MeetingChange.deleted(meeting));
+        }
+        return changes;
+    }
+
+    // Read a meeting record of the first version, whose strings were written by writeUTF
+    private static Meeting readUtfMeeting(DataInputStream input) throws IOException {
+        long id = input.readLong();
+        String title = input.readUTF();
+        long startMinute = input.readLong();
+        int durationMinutes = input.readInt();
+        String location = input.readUTF();
+        String subject = input.readUTF();
+        int participantCount = input.readInt();
+        if (participantCount < 0) {
+            throw new IOException("Corrupted meeting record");
+        }
+        List<String> participants = participantCount == 0 ? Collections.emptyList() : new ArrayList<>(participantCount);
+        for (int i = 0; i < participantCount; i++) {
+            participants.add(input.readUTF());
+        }
+        String rule = input.readUTF(); // Empty for a single meeting
+        try {
+            Recurrence recurrence = rule.isEmpty() ? null : Recurrence.parse(rule);
+            return new Meeting(id, title, startMinute, durationMinutes, location, subject, participants, recurrence);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupted meeting record", e);
+        }
+    }
+
+    // Remove the queued changes up to a sequence, and forget the records holding only removed changes
+    private void acknowledge(long lastSequence) {
+        int count = (int) Math.min(Math.max(lastSequence - mFirstSequence + 1, 0), mPendingChanges.size());
+        mPendingChanges.subList(0, count).clear();
+        mFirstSequence += count;
+        while (!mChangeRecords.isEmpty() && mChangeRecords.peekFirst()[0] <= lastSequence) {
+            mLiveSize -= mChangeRecords.pollFirst()[1];
+        }
+    }
+
+    // Encode changes as records of the batch, and return the sequence of the last change and the size of each record
+    private List<long[]> encodeChanges(List<MeetingChange> changes, long firstSequence) {
+        List<long[]> records = new ArrayList<>();
+        try {
+            for (int start = 0; start < changes.size(); start += CHANGES_PER_RECORD) {
+                List<MeetingChange> recordChanges = changes.subList(start, Math.min(start + CHANGES_PER_RECORD, changes.size()));
+                int batchSize = mBatch.size();
+                HttpMeetingApi.writeChanges(mBatch.begin(RECORD_CHANGES, firstSequence + start), recordChanges);
+                mBatch.end();
+                records.add(new long[]{firstSequence + start + recordChanges.size() - 1, mBatch.size() - batchSize});
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode the queued changes", e);
+        }
+        return records;
+    }
+
+    // Encode the token as a record of the batch
+    private void encodeToken(long token) {
+        try {
+            mBatch.begin(RECORD_TOKEN, 0).writeLong(token);
+            mBatch.end();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode the token", e);
+        }
+    }
+
+    // Append the batch to the file and sync it, then return its size
+    private long append() {
+        try {
+            int batchSize = mBatch.writeTo(mLog, mLogSize);
+            mLog.force(false);
+            mLogSize += batchSize;
+            return batchSize;
+        } catch (IOException e) {
+            // The channel may be closed, such as by an interrupt: read the file again on next use,
+            // dropping what was written of the batch
+            unload();
+            throw new IllegalStateException("Failed to write " + mFile, e);
+        }
+    }
+
+    // Close the file, if open, and forget the state read from it; the changes not written yet are kept
+    private void unload() {
+        if (mLog != null) {
+            try {
+                mLog.close();
+            } catch (IOException e) {
+                // The state is read again from the file anyway
+            }
+        }
+        mLog = null;
+        mLogSize = 0;
+        mLiveSize = 0;
+        mToken = 0;
+        mTokenRecordSize = 0;
+        mPendingChanges.clear();
+        mFirstSequence = 1;
+        mChangeRecords.clear();
+    }
+
+    // Write the token and the queued changes to a new file and replace the previous one atomically
+    private void compact() throws IOException {
+        mBatch.reset();
+        if (mToken != 0) {
+            encodeToken(mToken);
+        }
+        long tokenRecordSize = mBatch.size();
+        List<long[]> records = encodeChanges(mPendingChanges, mFirstSequence);
+
+        File tempFile = new File(mFile.getPath() + ".tmp");
+        FileOutputStream fileOutput = new FileOutputStream(tempFile);
+        boolean written = false;
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput, BUFFER_SIZE))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.flush();
+            mBatch.writeTo(fileOutput.getChannel(), HEADER_SIZE);
+            fileOutput.getFD().sync(); // Written to disk before replacing the previous file
+            written = true;
+        } finally {
+            if (!written) {
+                tempFile.delete();
+            }
+        }
+        if (!tempFile.renameTo(mFile)) {
+            throw new IOException("Failed to rename " + tempFile + " to " + mFile);
+        }
+
+        if (mLog != null) {
+            mLog.close();
+        }
+        mLog = new RandomAccessFile(mFile, "rw").getChannel();
+        mLogSize = HEADER_SIZE + mBatch.size();
+        mLiveSize = mLogSize;
+        mTokenRecordSize = tokenRecordSize;
+        mChangeRecords.clear();
+        mChangeRecords.addAll(records);
+    }
+}
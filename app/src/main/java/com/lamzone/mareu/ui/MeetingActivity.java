@@ -83,6 +83,8 @@ public class MeetingActivity extends AppCompatActivity {
         CheckBox checkBoxLocation = dialogView.findViewById(R.id.checkBoxLocation);
         Spinner spinnerLocations = dialogView.findViewById(R.id.spinnerLocations);
         EditText editTextDate = dialogView.findViewById(R.id.editTextDate);
+        CheckBox checkBoxParticipant = dialogView.findViewById(R.id.checkBoxParticipant);
+        EditText editTextParticipant = dialogView.findViewById(R.id.editTextParticipant);
 
         // Show DatePicker to select date
         editTextDate.setOnClickListener(view -> {
@@ -126,13 +128,16 @@ public class MeetingActivity extends AppCompatActivity {
                     boolean filterByLocation = checkBoxLocation.isChecked();
                     String selectedLocation = spinnerLocations.getSelectedItem().toString();
                     Calendar selectedDate = (Calendar) editTextDate.getTag(); // Get selected date
+                    boolean filterByParticipant = checkBoxParticipant.isChecked();
+                    String selectedParticipant = editTextParticipant.getText().toString().trim();
 
                     // Get an instance of your MeetingListFragment
                     MeetingListFragment meetingListFragment = (MeetingListFragment) getSupportFragmentManager().findFragmentById(R.id.container);
 
                     // Apply filters based on selected options in the fragment
                     if (meetingListFragment != null) {
-                        meetingListFragment.applyFilters(filterByDate, filterByLocation, selectedLocation, selectedDate);
+                        meetingListFragment.applyFilters(filterByDate, filterByLocation, selectedLocation, selectedDate,
+                                filterByParticipant, selectedParticipant);
                     }
                 })
                 .setNegativeButton("Annuler", (dialog, which) -> dialog.dismiss());
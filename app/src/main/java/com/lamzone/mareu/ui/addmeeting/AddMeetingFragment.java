@@ -6,10 +6,12 @@ import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.Spinner;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.fragment.app.Fragment;
@@ -20,6 +22,7 @@ import com.lamzone.mareu.R;
 import com.lamzone.mareu.application.AddMeetingViewModel;
 import com.lamzone.mareu.di.Injector;
 import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.Recurrence;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -28,15 +31,36 @@ import java.util.Calendar;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Fragment to add a new meeting.
  */
 public class AddMeetingFragment extends Fragment {
 
+    /**
+     * Durations offered for a meeting, in minutes.
+     */
+    private static final int[] DURATIONS_MINUTES = {15, 30, 45, 60, 90, 120};
+
+    /**
+     * Frequencies offered for a meeting, in the order of the recurrences array, null for a single meeting.
+     */
+    private static final Recurrence.Frequency[] FREQUENCIES = {null, Recurrence.Frequency.DAILY,
+            Recurrence.Frequency.WEEKLY, Recurrence.Frequency.MONTHLY};
+
+    /**
+     * Number of occurrences of a recurring meeting when none is entered.
+     */
+    private static final int DEFAULT_OCCURRENCES = 10;
+
     private EditText mEditTextTitle;
     private Spinner mSpinnerLocation;
     private EditText mEditTextDateTime;
+    private Spinner mSpinnerDuration;
+    private Spinner mSpinnerRecurrence;
+    private EditText mEditTextOccurrences;
+    private TextView mTextConflict;
     private EditText mEditTextSubject;
     private EditText mEditTextParticipant;
     private Button mBtnAddParticipant;
@@ -44,11 +68,27 @@ public class AddMeetingFragment extends Fragment {
     private Button mBtnValidate;
 
     private List<String> mParticipantsList = new ArrayList<>();
+    private Calendar mSelectedDateTime; // Null until a date and time are picked
     private ParticipantAdapter mParticipantAdapter;
 
     private AddMeetingViewModel mViewModel;
     private Injector mInjector;
 
+    /**
+     * Checks the selected slot again when the room or the duration changes.
+     */
+    private final AdapterView.OnItemSelectedListener mConflictCheckListener = new AdapterView.OnItemSelectedListener() {
+        @Override
+        public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+            updateConflicts();
+        }
+
+        @Override
+        public void onNothingSelected(AdapterView<?> parent) {
+            updateConflicts();
+        }
+    };
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
@@ -63,6 +103,10 @@ public class AddMeetingFragment extends Fragment {
         mEditTextTitle = view.findViewById(R.id.editTextTitle);
         mSpinnerLocation = view.findViewById(R.id.spinnerLocation);
         mEditTextDateTime = view.findViewById(R.id.editTextDateTime);
+        mSpinnerDuration = view.findViewById(R.id.spinnerDuration);
+        mSpinnerRecurrence = view.findViewById(R.id.spinnerRecurrence);
+        mEditTextOccurrences = view.findViewById(R.id.editTextOccurrences);
+        mTextConflict = view.findViewById(R.id.textConflict);
         mEditTextSubject = view.findViewById(R.id.editTextSubject);
         mEditTextParticipant = view.findViewById(R.id.editTextParticipant);
         mBtnAddParticipant = view.findViewById(R.id.btnAddParticipant);
@@ -70,6 +114,8 @@ public class AddMeetingFragment extends Fragment {
         mBtnValidate = view.findViewById(R.id.btnValidate);
 
         setupSpinner();
+        setupDurationSpinner();
+        setupRecurrenceSpinner();
         setupRecyclerView();
 
         mEditTextDateTime.setOnClickListener(v -> showDateTimePicker());
@@ -93,6 +139,51 @@ public class AddMeetingFragment extends Fragment {
             locationAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
             mSpinnerLocation.setAdapter(locationAdapter);
         });
+        mSpinnerLocation.setOnItemSelectedListener(mConflictCheckListener);
+    }
+
+    /**
+     * Initializes the Spinner with the durations offered for a meeting.
+     */
+    private void setupDurationSpinner() {
+        List<String> durations = new ArrayList<>();
+        int defaultPosition = 0;
+        for (int i = 0; i < DURATIONS_MINUTES.length; i++) {
+            durations.add(String.format(Locale.getDefault(), "%dh%02d", DURATIONS_MINUTES[i] / 60, DURATIONS_MINUTES[i] % 60));
+            if (DURATIONS_MINUTES[i] == Meeting.DEFAULT_DURATION_MINUTES) {
+                defaultPosition = i;
+            }
+        }
+        ArrayAdapter<String> durationAdapter = new ArrayAdapter<>(requireContext(),
+                android.R.layout.simple_spinner_item, durations);
+        durationAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        mSpinnerDuration.setAdapter(durationAdapter);
+        mSpinnerDuration.setSelection(defaultPosition);
+        mSpinnerDuration.setOnItemSelectedListener(mConflictCheckListener);
+    }
+
+    /**
+     * Initializes the Spinner with the recurrences offered for a meeting.
+     * The number of occurrences is only asked for a recurring meeting.
+     */
+    private void setupRecurrenceSpinner() {
+        ArrayAdapter<CharSequence> recurrenceAdapter = ArrayAdapter.createFromResource(requireContext(),
+                R.array.recurrences, android.R.layout.simple_spinner_item);
+        recurrenceAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        mSpinnerRecurrence.setAdapter(recurrenceAdapter);
+        mSpinnerRecurrence.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                mEditTextOccurrences.setVisibility(FREQUENCIES[position] != null ? View.VISIBLE : View.GONE);
+                updateConflicts();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+                mEditTextOccurrences.setVisibility(View.GONE);
+                updateConflicts();
+            }
+        });
     }
 
     /**
@@ -104,7 +195,6 @@ public class AddMeetingFragment extends Fragment {
         mRecyclerViewParticipants.setAdapter(mParticipantAdapter);
     }
 
-
     // Private methods for handling date and time selection
 
     /**
@@ -145,6 +235,8 @@ public class AddMeetingFragment extends Fragment {
                     calendar.set(Calendar.MINUTE, selectedMinute);
                     SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
                     mEditTextDateTime.setText(dateFormat.format(calendar.getTime()));
+                    mSelectedDateTime = calendar;
+                    updateConflicts(); // Warn at once if the room is taken
                 },
                 hourOfDay, minute, true);
 
@@ -152,6 +244,76 @@ public class AddMeetingFragment extends Fragment {
     }
 
 
+    // Private methods for checking the room availability
+
+    /**
+     * Gets the selected duration.
+     *
+     * @return The selected duration, in minutes.
+     */
+    private int getSelectedDuration() {
+        int position = mSpinnerDuration.getSelectedItemPosition();
+        return position >= 0 ? DURATIONS_MINUTES[position] : Meeting.DEFAULT_DURATION_MINUTES;
+    }
+
+    /**
+     * Gets the selected recurrence.
+     *
+     * @return The rule of the series, or null for a single meeting.
+     */
+    private Recurrence getSelectedRecurrence() {
+        int position = mSpinnerRecurrence.getSelectedItemPosition();
+        if (position <= 0) {
+            return null;
+        }
+        int count;
+        try {
+            count = Integer.parseInt(mEditTextOccurrences.getText().toString().trim());
+        } catch (NumberFormatException e) {
+            count = DEFAULT_OCCURRENCES;
+        }
+        return Recurrence.times(FREQUENCIES[position], Math.max(1, count));
+    }
+
+    /**
+     * Shows the meetings of the selected room overlapping the selected slot, if any.
+     * The query only visits the overlapping meetings of the room, so it runs on each change of the slot.
+     */
+    private void updateConflicts() {
+        Object location = mSpinnerLocation.getSelectedItem();
+        if (mSelectedDateTime == null || location == null) {
+            mTextConflict.setVisibility(View.GONE);
+            return;
+        }
+        showConflicts(mViewModel.getConflicts(location.toString(), mSelectedDateTime, getSelectedDuration(), getSelectedRecurrence()));
+    }
+
+    /**
+     * Shows the meetings conflicting with the selected slot, or hides the warning if there is none.
+     *
+     * @param conflicts Meetings overlapping the selected slot.
+     */
+    private void showConflicts(List<Meeting> conflicts) {
+        if (conflicts.isEmpty()) {
+            mTextConflict.setVisibility(View.GONE);
+            return;
+        }
+        // The conflicts of a recurring meeting may be on other days
+        SimpleDateFormat timeFormat = new SimpleDateFormat(getSelectedRecurrence() != null ? "dd/MM HH:mm" : "HH:mm", Locale.getDefault());
+        StringBuilder meetings = new StringBuilder();
+        for (Meeting conflict : conflicts) {
+            if (meetings.length() > 0) {
+                meetings.append(", ");
+            }
+            meetings.append(conflict.getTitle()).append(" (")
+                    .append(timeFormat.format(conflict.getStartMillis())).append(" - ")
+                    .append(timeFormat.format(TimeUnit.MINUTES.toMillis(conflict.getEndMinute()))).append(')');
+        }
+        mTextConflict.setText(getString(R.string.salle_occupee, meetings));
+        mTextConflict.setVisibility(View.VISIBLE);
+    }
+
+
     // Private methods for managing the participants list
 
     /**
@@ -192,10 +354,15 @@ public class AddMeetingFragment extends Fragment {
                 return; // Exit if parsing fails
             }
 
-            Meeting meeting = new Meeting(title, dateTime, location, subject, mParticipantsList);
+            Meeting meeting = new Meeting(title, dateTime, getSelectedDuration(), location, subject, mParticipantsList, getSelectedRecurrence());
 
-            // Add the meeting using the ViewModel
-            mViewModel.addMeeting(meeting);
+            // Add the meeting using the ViewModel, unless its room is already booked at that time
+            List<Meeting> conflicts = mViewModel.bookMeeting(meeting);
+            if (!conflicts.isEmpty()) {
+                showConflicts(conflicts);
+                Toast.makeText(requireContext(), R.string.salle_non_disponible, Toast.LENGTH_SHORT).show();
+                return;
+            }
 
             // Clear the current Fragment to go back to the previous screen
             requireActivity().getOnBackPressedDispatcher().onBackPressed();
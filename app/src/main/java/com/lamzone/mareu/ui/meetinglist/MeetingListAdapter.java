@@ -2,6 +2,8 @@ package com.lamzone.mareu.ui.meetinglist;
 
 import android.content.Context;
 import android.graphics.PorterDuff;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,80 +12,217 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.FragmentActivity;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.lamzone.mareu.R;
 import com.lamzone.mareu.model.Meeting;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Adapter to display the list of meetings in a RecyclerView.
+ * Updates are diffed on a background thread, so only the changed rows are rebound,
+ * and the display data of the rows is precomputed on the same thread.
+ * The status colors are updated when a meeting crosses a status threshold, only on the affected rows.
  */
-public class MeetingListAdapter extends RecyclerView.Adapter<MeetingListAdapter.MeetingViewHolder> {
+public class MeetingListAdapter extends ListAdapter<Meeting, MeetingListAdapter.MeetingViewHolder> {
 
-    private List<Meeting> mMeetings;
-    private List<Meeting> mFilteredMeetings; // Adding reference to filtered list
+    /**
+     * Identifies meetings by their stable id and their position in their series, and compares their displayed content.
+     */
+    static final DiffUtil.ItemCallback<Meeting> DIFF_CALLBACK = new DiffUtil.ItemCallback<Meeting>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Meeting oldItem, @NonNull Meeting newItem) {
+            return oldItem.getId() == newItem.getId() && oldItem.getOccurrenceIndex() == newItem.getOccurrenceIndex();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Meeting oldItem, @NonNull Meeting newItem) {
+            return oldItem == newItem || (oldItem.getStartMinute() == newItem.getStartMinute()
+                    && oldItem.getDurationMinutes() == newItem.getDurationMinutes()
+                    && oldItem.getLocationId() == newItem.getLocationId()
+                    && oldItem.getTitle().equals(newItem.getTitle())
+                    && oldItem.getSubject().equals(newItem.getSubject())
+                    && oldItem.getParticipants().equals(newItem.getParticipants()));
+        }
+    };
 
     /**
-     * Initializes a new adapter with the provided filtered meetings list.
-     *
-     * @param filteredMeetings Filtered meetings list to display.
+     * Colors of the meeting statuses, indexed by MeetingRowFormatter status.
+     */
+    private static final int[] STATUS_COLORS = {
+            R.color.colorCircle1, R.color.colorCircle2, R.color.colorCircle3, R.color.colorCircle4
+    };
+
+    /**
+     * Payload of the rows whose status color changed, but not their text.
      */
-    public MeetingListAdapter(List<Meeting> filteredMeetings) {
-        mFilteredMeetings = filteredMeetings;
+    static final Object PAYLOAD_STATUS = new Object();
+
+    /**
+     * Background thread computing the row models and diffing the submitted lists, in order.
+     */
+    static final Executor RENDER_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final MeetingRowModelCache mRowModels = new MeetingRowModelCache(Locale.getDefault());
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private long mSubmitGeneration; // Incremented by each submitted list, on the main thread
+    private final MeetingStatusScheduler mStatusScheduler = new MeetingStatusScheduler(TimeZone.getDefault());
+    private long mStatusMinute = currentMinute(); // Minute the displayed rows are bound for, in epoch minutes
+    private final Runnable mStatusUpdate = () -> {
+        updateStatuses(currentMinute());
+        scheduleStatusUpdate();
+    };
+    private RecyclerView mRecyclerView;
+
+    /**
+     * Initializes a new, empty adapter.
+     */
+    public MeetingListAdapter() {
+        super(new AsyncDifferConfig.Builder<>(DIFF_CALLBACK).setBackgroundThreadExecutor(RENDER_EXECUTOR).build());
+        setHasStableIds(true);
     }
 
     /**
-     * Sets the complete list of meetings to display.
+     * Sets the list of meetings to display.
+     * The list must already be sorted by date and time, as the repository provides it,
+     * and must not be modified once submitted.
+     * The row models are computed in the background before the list is diffed and displayed;
+     * a list replaced by a newer one before being computed is never displayed.
      *
-     * @param meetings Complete list of meetings.
+     * @param meetings Sorted list of meetings.
      */
     public void setMeetings(List<Meeting> meetings) {
-        mMeetings = meetings;
-        Collections.sort(mMeetings); // Sorting meetings by date and time
-        notifyDataSetChanged(); // Refreshing the list
+        final long generation = ++mSubmitGeneration;
+        final long nowMinute = currentMinute();
+        RENDER_EXECUTOR.execute(() -> {
+            mRowModels.prepare(meetings, TimeUnit.MINUTES.toMillis(nowMinute));
+            mMainHandler.post(() -> {
+                if (generation == mSubmitGeneration) {
+                    // Diffing against the displayed list, then binding the rows for the minute of the models
+                    submitList(meetings, () -> {
+                        updateStatuses(nowMinute);
+                        scheduleStatusUpdate();
+                    });
+                }
+            });
+        });
 
         // Log.d("MeetingListAdapter", "Meetings set: " + meetings.size());
     }
 
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getOccurrenceId(); // Distinct for the occurrences of a series
+    }
+
     @NonNull
     @Override
     public MeetingViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View itemView = LayoutInflater.from(parent.getContext()).inflate(R.layout.meeting_item, parent, false);
-        return new MeetingViewHolder(itemView);
+        MeetingViewHolder holder = new MeetingViewHolder(itemView);
+
+        // Set the delete listener once per ViewHolder rather than on each bind
+        holder.btnDelete.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            // Delete the meeting when the button is clicked
+            deleteMeeting(v, getItem(position));
+        });
+        return holder;
+    }
+
+    /**
+     * Deletes a meeting through the fragment displaying the list.
+     *
+     * @param view    View of the clicked delete button.
+     * @param meeting Meeting to delete.
+     */
+    static void deleteMeeting(View view, Meeting meeting) {
+        Context context = view.getContext();
+        if (context instanceof FragmentActivity) {
+            MeetingListFragment fragment = (MeetingListFragment) ((FragmentActivity) context).getSupportFragmentManager().findFragmentById(R.id.container);
+            if (fragment != null) {
+                fragment.deleteMeeting(meeting);
+            }
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+        updateStatuses(currentMinute()); // Catch up with the thresholds crossed while detached
+        scheduleStatusUpdate();
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        mRecyclerView = null;
+        mMainHandler.removeCallbacks(mStatusUpdate);
     }
 
     @Override
     public void onBindViewHolder(@NonNull MeetingViewHolder holder, int position) {
-        if (mMeetings != null) {
-            Meeting meeting = mMeetings.get(position);
-            holder.bind(meeting);
-
-            holder.btnDelete.setOnClickListener(v -> {
-                // Delete the meeting when the button is clicked
-                Context context = v.getContext();
-                if (context instanceof FragmentActivity) {
-                    MeetingListFragment fragment = (MeetingListFragment) ((FragmentActivity) context).getSupportFragmentManager().findFragmentById(R.id.container);
-                    if (fragment != null) {
-                        fragment.deleteMeeting(meeting);
-                    }
-                }
-            });
+        Meeting meeting = getItem(position);
+        holder.bind(getRowModel(meeting)); // Precomputed unless a status threshold was crossed since
 
-            // Log.d("MeetingListAdapter", "Meeting bound: " + meeting.getTitle()); // Meeting binding log
-        }
+        // Log.d("MeetingListAdapter", "Meeting bound: " + meeting.getTitle()); // Meeting binding log
     }
 
     @Override
-    public int getItemCount() {
-        return mMeetings != null ? mMeetings.size() : 0;
+    public void onBindViewHolder(@NonNull MeetingViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            holder.bindStatus(getRowModel(getItem(position))); // Only PAYLOAD_STATUS is dispatched
+        }
+    }
+
+    // Get the row model of a meeting for the minute the rows are bound for
+    private MeetingRowModel getRowModel(Meeting meeting) {
+        return mRowModels.get(meeting, TimeUnit.MINUTES.toMillis(mStatusMinute));
+    }
+
+    /**
+     * Moves the displayed rows to a later minute, updating only the rows that changed since.
+     *
+     * @param nowMinute Current time, in epoch minutes.
+     */
+    private void updateStatuses(long nowMinute) {
+        if (nowMinute <= mStatusMinute) {
+            return;
+        }
+        mStatusScheduler.dispatchChanges(getCurrentList(), mStatusMinute, nowMinute,
+                (positionStart, itemCount, statusOnly) -> notifyItemRangeChanged(positionStart, itemCount, statusOnly ? PAYLOAD_STATUS : null));
+        mStatusMinute = nowMinute;
+    }
+
+    /**
+     * Schedules the next status update at the next threshold crossing of the displayed rows.
+     */
+    private void scheduleStatusUpdate() {
+        mMainHandler.removeCallbacks(mStatusUpdate);
+        if (mRecyclerView == null) {
+            return; // Caught up with when attached again
+        }
+        long nextMinute = mStatusScheduler.getNextChangeMinute(getCurrentList(), mStatusMinute);
+        long delayMillis = TimeUnit.MINUTES.toMillis(nextMinute) - System.currentTimeMillis();
+        mMainHandler.postDelayed(mStatusUpdate, Math.max(0, delayMillis));
+    }
+
+    // Get the current time in epoch minutes
+    private static long currentMinute() {
+        return TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
     }
 
     /**
@@ -93,6 +232,7 @@ public class MeetingListAdapter extends RecyclerView.Adapter<MeetingListAdapter.
         private TextView mTitleTextView;
         private TextView mDetailsTextView;
         private View mViewColor;
+        private int mColorResId; // Color currently applied to the circle
         public View btnDelete;
 
         /**
@@ -106,61 +246,46 @@ public class MeetingListAdapter extends RecyclerView.Adapter<MeetingListAdapter.
             mDetailsTextView = itemView.findViewById(R.id.textDetails);
             mViewColor = itemView.findViewById(R.id.viewColor); // Initialize mViewColor view
             btnDelete = itemView.findViewById(R.id.btnDelete); // Initialize btnDelete
+
+            // Set oval shape Drawable as background of mViewColor view, once per ViewHolder
+            mViewColor.setBackground(ContextCompat.getDrawable(itemView.getContext(), R.drawable.circle).mutate());
         }
 
         /**
          * Binds meeting data to the view.
          *
-         * @param meeting Meeting to display.
+         * @param model Precomputed display data of the meeting.
          */
-        void bind(Meeting meeting) {
-            // Format date and time
-            Calendar calendar = meeting.getDateTime();
-            DateFormat dateFormat;
-            if (isToday(calendar)) {
-                dateFormat = new SimpleDateFormat("HH'h'mm", Locale.getDefault());
-            } else {
-                dateFormat = new SimpleDateFormat("HH'h'mm dd-MM-yyyy", Locale.getDefault());
-            }
-            String formattedDateTime = dateFormat.format(calendar.getTime());
-
-            // Building meeting information
-            String meetingInfo = String.format("%s - %s - %s", meeting.getTitle(), formattedDateTime, meeting.getLocation());
-            mTitleTextView.setText(meetingInfo);
-
-            // Building participants list
-            StringBuilder participantsInfo = new StringBuilder();
-            for (String participant : meeting.getParticipants()) {
-                participantsInfo.append(participant).append("\n");
-            }
-            mDetailsTextView.setText(participantsInfo.toString());
-
-            // Set viewColor view color based on meeting proximity
-            setViewColor(meeting);
+        void bind(MeetingRowModel model) {
+            mTitleTextView.setText(model.title);
+            mDetailsTextView.setText(model.participants);
+            bindStatus(model);
         }
 
-        // Check if the date is today
-        private boolean isToday(Calendar date) {
-            Calendar today = Calendar.getInstance();
-            return date.get(Calendar.YEAR) == today.get(Calendar.YEAR) &&
-                    date.get(Calendar.MONTH) == today.get(Calendar.MONTH) &&
-                    date.get(Calendar.DAY_OF_MONTH) == today.get(Calendar.DAY_OF_MONTH);
+        /**
+         * Clears the view while the data of its meeting is loading.
+         */
+        void bindPlaceholder() {
+            mTitleTextView.setText(null);
+            mDetailsTextView.setText(null);
         }
 
-        // Set viewColor view color based on meeting proximity
-        private void setViewColor(Meeting meeting) {
-            Calendar currentTime = Calendar.getInstance();
-            Calendar meetingTime = meeting.getDateTime();
-
-            long timeDifferenceMillis = meetingTime.getTimeInMillis() - currentTime.getTimeInMillis();
-            long timeDifferenceMinutes = TimeUnit.MILLISECONDS.toMinutes(timeDifferenceMillis);
-
-            int colorResId = timeDifferenceMinutes <= 30 ? R.color.colorCircle1 :
-                    timeDifferenceMinutes <= 60 ? R.color.colorCircle2 :
-                            isToday(meetingTime) ? R.color.colorCircle3 : R.color.colorCircle4;
+        /**
+         * Binds the status color of a meeting to the view.
+         *
+         * @param model Precomputed display data of the meeting.
+         */
+        void bindStatus(MeetingRowModel model) {
+            // Set viewColor view color based on meeting proximity
+            setViewColor(STATUS_COLORS[model.status]);
+        }
 
-            // Set oval shape Drawable as background of mViewColor view
-            mViewColor.setBackground(ContextCompat.getDrawable(itemView.getContext(), R.drawable.circle));
+        // Set viewColor view color, only updating the circle when the color changes
+        private void setViewColor(int colorResId) {
+            if (colorResId == mColorResId) {
+                return;
+            }
+            mColorResId = colorResId;
             // Change circle fill color based on the color defined in circle_background.xml file
             mViewColor.getBackground().setColorFilter(ContextCompat.getColor(itemView.getContext(), colorResId), PorterDuff.Mode.SRC_IN);
         }
@@ -1,9 +1,14 @@
 package com.lamzone.mareu.ui.meetinglist;
 
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.EditText;
+import android.widget.ProgressBar;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -16,7 +21,9 @@ import com.lamzone.mareu.R;
 import com.lamzone.mareu.application.MeetingListViewModel;
 import com.lamzone.mareu.di.Injector;
 import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.repository.MeetingPages;
 import com.lamzone.mareu.repository.MeetingRepository;
+import com.lamzone.mareu.repository.StorageError;
 
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -24,21 +31,38 @@ import java.util.List;
 
 /**
  * Fragment displaying the list of meetings.
+ * Large unfiltered lists are displayed page by page, so that only the displayed meetings are kept
+ * in memory; smaller lists are diffed, so that their changes are animated.
  */
 public class MeetingListFragment extends Fragment {
 
+    /**
+     * Number of meetings from which the unfiltered list is displayed page by page.
+     */
+    public static final int PAGING_THRESHOLD = 5_000;
+
     /**
      * Adapter for the list of meetings.
      */
     public MeetingListAdapter mAdapter;
 
     /**
-     * List of displayed meetings.
+     * Adapter for the list of meetings displayed page by page.
+     */
+    public MeetingPagedListAdapter mPagedAdapter;
+
+    /**
+     * Pages of the meetings, published along with mMeetings.
+     */
+    public MeetingPages mMeetingPages;
+
+    /**
+     * List of displayed meetings, as the sorted immutable snapshot published by the repository.
      */
     public List<Meeting> mMeetings = new ArrayList<>();
 
     /**
-     * List of filtered meetings.
+     * List of filtered meetings, replaced rather than modified once submitted to the adapter.
      */
     public List<Meeting> mFilteredMeetings = new ArrayList<>();
 
@@ -47,48 +71,87 @@ public class MeetingListFragment extends Fragment {
      */
     public MeetingRepository mMeetingRepository;
 
+    private MeetingListViewModel mViewModel;
+    private RecyclerView mRecyclerView;
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
         View root = inflater.inflate(R.layout.fragment_meeting_list, container, false);
 
-        RecyclerView recyclerView = root.findViewById(R.id.recyclerViewMeetings);
-        mAdapter = new MeetingListAdapter(mFilteredMeetings);
-        recyclerView.setAdapter(mAdapter);
-        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        mRecyclerView = root.findViewById(R.id.recyclerViewMeetings);
+        mAdapter = new MeetingListAdapter();
+        mPagedAdapter = new MeetingPagedListAdapter();
+        mRecyclerView.setAdapter(mAdapter);
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
 
         // Instantiation of MeetingRepository
         mMeetingRepository = Injector.getInstance().provideMeetingRepository();
 
         // Instantiation and binding of the ViewModel
-        MeetingListViewModel viewModel = new ViewModelProvider(requireActivity()).get(MeetingListViewModel.class);
-        viewModel.getMeetings().observe(getViewLifecycleOwner(), meetings -> {
-            mMeetings.clear(); // Clears the current meetings
-            mMeetings.addAll(meetings); // Adds the new meetings
+        mViewModel = new ViewModelProvider(requireActivity()).get(MeetingListViewModel.class);
+        mViewModel.getMeetings().observe(getViewLifecycleOwner(), meetings -> {
+            mMeetings = meetings; // Keeps the new sorted snapshot
             updateMeetingsList(); // Update the list of meetings to display
             // Log.d("MeetingListFragment", "Meeting List updated: " + mMeetings.size() + " meetings");
         });
+        mViewModel.getMeetingPages().observe(getViewLifecycleOwner(), meetingPages -> {
+            mMeetingPages = meetingPages; // Keeps the pages of the new snapshot
+            updateMeetingsList(); // Update the list of meetings to display
+        });
+        mViewModel.getFilteredMeetings().observe(getViewLifecycleOwner(), filteredMeetings -> {
+            mFilteredMeetings = filteredMeetings; // Keeps the result of the latest filter request
+            updateMeetingsList(); // Update the list of meetings to display
+        });
+
+        // Show a progress bar while the stored meetings are loaded, the list filling in meanwhile
+        ProgressBar progressBarLoading = root.findViewById(R.id.progressBarLoading);
+        mViewModel.isLoading().observe(getViewLifecycleOwner(), loading ->
+                progressBarLoading.setVisibility(loading ? View.VISIBLE : View.GONE));
+
+        // Tell the user when the meetings could not be read or saved
+        mViewModel.getStorageError().observe(getViewLifecycleOwner(), error -> {
+            if (error != null) {
+                Toast.makeText(requireContext(), error == StorageError.LOAD_FAILED
+                        ? R.string.erreur_chargement_des_reunions : R.string.erreur_enregistrement_des_reunions, Toast.LENGTH_LONG).show();
+                mViewModel.onStorageErrorShown();
+            }
+        });
+
+        // Search as the user types, within the applied filters
+        EditText editTextSearch = root.findViewById(R.id.editTextSearch);
+        editTextSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence text, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence text, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable text) {
+                mViewModel.search(text.toString());
+            }
+        });
 
         return root;
     }
 
     /**
-     * Applies filters using the repository method.
+     * Applies filters asynchronously through the ViewModel, the result being delivered to the list once ready.
      *
-     * @param filterByDate     Indicates if filtering by date is enabled.
-     * @param filterByLocation Indicates if filtering by location is enabled.
-     * @param selectedLocation Selected location for filtering.
-     * @param selectedDate     Selected date for filtering.
+     * @param filterByDate        Indicates if filtering by date is enabled.
+     * @param filterByLocation    Indicates if filtering by location is enabled.
+     * @param selectedLocation    Selected location for filtering.
+     * @param selectedDate        Selected date for filtering.
+     * @param filterByParticipant Indicates if filtering by participant is enabled.
+     * @param selectedParticipant Email address of the selected participant.
      */
-    public void applyFilters(boolean filterByDate, boolean filterByLocation, String selectedLocation, Calendar selectedDate) {
-        // Reset the list of filtered meetings
-        mFilteredMeetings.clear();
-
-        // Apply filters using the repository
-        mFilteredMeetings.addAll(mMeetingRepository.filterMeetings(mMeetings, filterByDate, filterByLocation, selectedLocation, selectedDate));
-
-        // Update the list of meetings to display
-        updateMeetingsList();
+    public void applyFilters(boolean filterByDate, boolean filterByLocation, String selectedLocation, Calendar selectedDate,
+                             boolean filterByParticipant, String selectedParticipant) {
+        // Filter off the main thread, a newer request cancelling this one
+        mViewModel.applyFilters(filterByDate, filterByLocation, selectedLocation, selectedDate, filterByParticipant, selectedParticipant);
     }
 
     /**
@@ -103,12 +166,15 @@ public class MeetingListFragment extends Fragment {
             // Call the deleteMeeting method of MeetingRepository to delete the meeting
             mMeetingRepository.deleteMeeting(meeting);
 
-            // Remove the meeting from the lists in the fragment
-            mMeetings.remove(meeting);
-            mFilteredMeetings.remove(meeting);
+            // Remove the meeting from the filtered list, the repository publishing the new full list
+            if (mFilteredMeetings.contains(meeting)) {
+                List<Meeting> filteredMeetings = new ArrayList<>(mFilteredMeetings);
+                filteredMeetings.remove(meeting);
+                mFilteredMeetings = filteredMeetings;
 
-            // Inform the list adapter to update the view
-            mAdapter.notifyDataSetChanged();
+                // Submit the updated list to the adapter, which only removes the deleted row
+                updateMeetingsList();
+            }
         }
     }
 
@@ -116,7 +182,28 @@ public class MeetingListFragment extends Fragment {
      * Updates the list of meetings to display.
      */
     private void updateMeetingsList() {
-        mAdapter.setMeetings(mFilteredMeetings.isEmpty() ? mMeetings : mFilteredMeetings);
-        mAdapter.notifyDataSetChanged();
+        if (mViewModel.isSearching()) {
+            // An empty result means that nothing matches the search
+            mAdapter.setMeetings(mFilteredMeetings);
+            setAdapter(mAdapter);
+        } else if (mFilteredMeetings.isEmpty() && mMeetingPages != null && mMeetingPages.size() >= PAGING_THRESHOLD) {
+            // Page by page, without computing the rows of the meetings that are not displayed
+            mPagedAdapter.setMeetingPages(mMeetingPages);
+            setAdapter(mPagedAdapter);
+        } else {
+            mAdapter.setMeetings(mFilteredMeetings.isEmpty() ? mMeetings : mFilteredMeetings);
+            setAdapter(mAdapter);
+        }
+    }
+
+    /**
+     * Sets the adapter of the list, if it is not the current one.
+     *
+     * @param adapter Adapter to display.
+     */
+    private void setAdapter(RecyclerView.Adapter<?> adapter) {
+        if (mRecyclerView.getAdapter() != adapter) {
+            mRecyclerView.setAdapter(adapter);
+        }
     }
 }
\ No newline at end of file
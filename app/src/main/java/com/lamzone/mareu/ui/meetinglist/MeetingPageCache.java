@@ -0,0 +1,227 @@
+package com.lamzone.mareu.ui.meetinglist;
+
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.repository.MeetingPages;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the row models of a paged meetings list, holding only the pages around the displayed rows.
+ * Pages are loaded in the background when a row of theirs or of a neighbouring page is displayed,
+ * and evicted once the displayed rows move far enough, so its memory does not depend on the number of meetings.
+ * When the meetings or the minute change, the cached rows stay displayed until their page is reloaded.
+ * It is confined to the main thread, except for the loading of the pages.
+ */
+final class MeetingPageCache {
+
+    /**
+     * Receives the rows whose model was loaded.
+     */
+    interface Callback {
+
+        /**
+         * Called on the main thread once a page is loaded.
+         *
+         * @param positionStart Position of the first loaded row.
+         * @param itemCount     Number of loaded rows.
+         */
+        void onRowsLoaded(int positionStart, int itemCount);
+    }
+
+    private final int mPageSize;
+    private final int mPageRadius;
+    private final Executor mLoadExecutor;
+    private final Executor mMainExecutor;
+    private final Callback mCallback;
+    private final MeetingRowFormatter mFormatter; // Confined to the load executor
+
+    private final Map<Integer, Page> mPages = new HashMap<>();
+    private MeetingPages mMeetingPages;
+    private long mNowMinute;
+    private volatile long mGeneration; // Incremented on the main thread when the meetings or the minute change
+    private volatile int mCenterPage; // Page of the last displayed row, set on the main thread
+
+    /**
+     * Initializes a new, empty cache.
+     *
+     * @param pageSize     Number of rows of a page.
+     * @param pageRadius   Number of pages kept on each side of the page of the displayed row.
+     * @param locale       Locale of the formatted dates.
+     * @param loadExecutor Executor loading the pages, one at a time.
+     * @param mainExecutor Executor running the callbacks on the main thread.
+     * @param callback     Callback receiving the loaded rows.
+     */
+    MeetingPageCache(int pageSize, int pageRadius, Locale locale, Executor loadExecutor, Executor mainExecutor, Callback callback) {
+        mPageSize = pageSize;
+        mPageRadius = pageRadius;
+        mFormatter = new MeetingRowFormatter(locale);
+        mLoadExecutor = loadExecutor;
+        mMainExecutor = mainExecutor;
+        mCallback = callback;
+    }
+
+    /**
+     * Sets the meetings to display. The cached pages are reloaded from them.
+     *
+     * @param meetingPages Pages of the meetings.
+     * @param nowMinute    Current time, in epoch minutes.
+     */
+    void setMeetingPages(MeetingPages meetingPages, long nowMinute) {
+        mMeetingPages = meetingPages;
+        mNowMinute = nowMinute;
+        mGeneration++;
+        Iterator<Integer> indexes = mPages.keySet().iterator();
+        while (indexes.hasNext()) {
+            if (indexes.next() * (long) mPageSize >= meetingPages.size()) {
+                indexes.remove(); // Past the last meeting
+            }
+        }
+        reloadPages();
+    }
+
+    /**
+     * Sets the minute the rows are computed for. The cached pages are reloaded for it.
+     *
+     * @param nowMinute Current time, in epoch minutes.
+     */
+    void setNowMinute(long nowMinute) {
+        if (nowMinute != mNowMinute && mMeetingPages != null) {
+            mNowMinute = nowMinute;
+            mGeneration++;
+            reloadPages();
+        }
+    }
+
+    /**
+     * Get the number of meetings to display.
+     *
+     * @return The number of rows.
+     */
+    int size() {
+        return mMeetingPages != null ? mMeetingPages.size() : 0;
+    }
+
+    /**
+     * Gets the model of a displayed row, loading its page and the neighbouring ones if needed,
+     * and evicting the pages too far from it.
+     *
+     * @param position Position of the row.
+     * @return The model of the row, or null until its page is loaded.
+     */
+    MeetingRowModel get(int position) {
+        int index = position / mPageSize;
+        if (index != mCenterPage) {
+            mCenterPage = index;
+            evictPages();
+        }
+        for (int i = index - 1; i <= index + 1; i++) {
+            requestPage(i);
+        }
+        Page page = mPages.get(index);
+        int offset = position - index * mPageSize;
+        return page != null && page.mRows != null && offset < page.mRows.length ? page.mRows[offset] : null;
+    }
+
+    /**
+     * Get the number of pages in memory.
+     *
+     * @return The number of cached pages.
+     */
+    int getPageCount() {
+        return mPages.size();
+    }
+
+    // Request the loading of a page, unless it is loaded or loading for the current meetings and minute
+    private void requestPage(int index) {
+        if (index < 0 || index * (long) mPageSize >= size()) {
+            return;
+        }
+        Page page = mPages.get(index);
+        if (page == null) {
+            page = new Page();
+            mPages.put(index, page);
+        }
+        final long generation = mGeneration;
+        if (page.mGeneration == generation || page.mLoadingGeneration == generation) {
+            return;
+        }
+        page.mLoadingGeneration = generation;
+        final MeetingPages meetingPages = mMeetingPages;
+        final long nowMinute = mNowMinute;
+        final MeetingRowModel[] previousRows = page.mRows;
+        mLoadExecutor.execute(() -> {
+            if (generation != mGeneration || Math.abs(index - mCenterPage) > mPageRadius) {
+                return; // Outdated or scrolled away before starting
+            }
+            MeetingRowModel[] rows = loadRows(meetingPages.getPage(index * mPageSize, mPageSize), nowMinute, previousRows);
+            mMainExecutor.execute(() -> onPageLoaded(index, generation, rows));
+        });
+    }
+
+    // Compute the row models of a page, reusing the text of the rows whose meeting did not change
+    private MeetingRowModel[] loadRows(List<Meeting> meetings, long nowMinute, MeetingRowModel[] previousRows) {
+        mFormatter.setNow(TimeUnit.MINUTES.toMillis(nowMinute));
+        long day = mFormatter.getTodayEpochDay();
+        MeetingRowModel[] rows = new MeetingRowModel[meetings.size()];
+        for (int i = 0; i < rows.length; i++) {
+            Meeting meeting = meetings.get(i);
+            MeetingRowModel previous = previousRows != null && i < previousRows.length ? previousRows[i] : null;
+            if (previous != null && previous.meeting == meeting) {
+                rows[i] = new MeetingRowModel(meeting, nowMinute, day,
+                        previous.day == day ? previous.title : mFormatter.formatTitle(meeting),
+                        previous.participants,
+                        mFormatter.getStatus(meeting));
+            } else {
+                rows[i] = new MeetingRowModel(meeting, nowMinute, day,
+                        mFormatter.formatTitle(meeting),
+                        mFormatter.formatParticipants(meeting),
+                        mFormatter.getStatus(meeting));
+            }
+        }
+        return rows;
+    }
+
+    // Keep a loaded page, unless it was evicted or outdated since it was requested
+    private void onPageLoaded(int index, long generation, MeetingRowModel[] rows) {
+        Page page = mPages.get(index);
+        if (page == null || generation != mGeneration) {
+            return;
+        }
+        page.mRows = rows;
+        page.mGeneration = generation;
+        page.mLoadingGeneration = -1;
+        mCallback.onRowsLoaded(index * mPageSize, rows.length);
+    }
+
+    // Reload the cached pages for the current meetings and minute
+    private void reloadPages() {
+        for (Integer index : mPages.keySet().toArray(new Integer[0])) {
+            requestPage(index);
+        }
+    }
+
+    // Evict the pages too far from the page of the displayed row
+    private void evictPages() {
+        Iterator<Integer> indexes = mPages.keySet().iterator();
+        while (indexes.hasNext()) {
+            if (Math.abs(indexes.next() - mCenterPage) > mPageRadius) {
+                indexes.remove();
+            }
+        }
+    }
+
+    /**
+     * A cached page: its rows once loaded, and the generation they were loaded for.
+     */
+    private static final class Page {
+        MeetingRowModel[] mRows;
+        long mGeneration = -1;
+        long mLoadingGeneration = -1;
+    }
+}
@@ -0,0 +1,173 @@
+package com.lamzone.mareu.ui.meetinglist;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.lamzone.mareu.R;
+import com.lamzone.mareu.repository.MeetingPages;
+
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapter to display a large list of meetings in a RecyclerView, page by page.
+ * Only the pages around the displayed rows are loaded, in the background, and the pages far from
+ * them are evicted, so its memory stays bounded whatever the number of meetings.
+ * Unlike MeetingListAdapter, updates are not diffed row by row: the rows from the first changed meeting
+ * on are rebound, and rebound again once their page is reloaded.
+ */
+public class MeetingPagedListAdapter extends RecyclerView.Adapter<MeetingListAdapter.MeetingViewHolder> {
+
+    /**
+     * Number of rows of a page.
+     */
+    static final int PAGE_SIZE = 100;
+
+    /**
+     * Number of pages kept on each side of the page of the last bound row.
+     */
+    static final int PAGE_RADIUS = 2;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final MeetingPageCache mPageCache;
+    private final MeetingStatusScheduler mStatusScheduler = new MeetingStatusScheduler(TimeZone.getDefault());
+    private MeetingPages mMeetingPages;
+    private long mStatusMinute = currentMinute(); // Minute the rows are loaded for, in epoch minutes
+    private final Runnable mStatusUpdate = () -> {
+        updateStatuses(currentMinute());
+        scheduleStatusUpdate();
+    };
+    private RecyclerView mRecyclerView;
+
+    /**
+     * Initializes a new, empty adapter.
+     */
+    public MeetingPagedListAdapter() {
+        mPageCache = new MeetingPageCache(PAGE_SIZE, PAGE_RADIUS, Locale.getDefault(),
+                MeetingListAdapter.RENDER_EXECUTOR, mMainHandler::post, this::notifyItemRangeChanged);
+    }
+
+    /**
+     * Sets the meetings to display.
+     * The displayed rows keep their content until their page is reloaded from the new meetings.
+     *
+     * @param meetingPages Pages of the meetings, as the repository provides them.
+     */
+    public void setMeetingPages(MeetingPages meetingPages) {
+        if (meetingPages == mMeetingPages) {
+            return;
+        }
+        int previousCount = getItemCount();
+        int firstChange = mMeetingPages != null ? meetingPages.getFirstDifference(mMeetingPages) : 0;
+        mMeetingPages = meetingPages;
+        mStatusMinute = currentMinute();
+        mPageCache.setMeetingPages(meetingPages, mStatusMinute);
+
+        // The rows before the first change are unchanged, the next ones may hold other meetings,
+        // and the rows past the end of the shorter list are inserted or removed
+        int keptCount = Math.min(previousCount, meetingPages.size());
+        if (firstChange < keptCount) {
+            notifyItemRangeChanged(firstChange, keptCount - firstChange);
+        }
+        if (meetingPages.size() > previousCount) {
+            notifyItemRangeInserted(previousCount, meetingPages.size() - previousCount);
+        } else if (meetingPages.size() < previousCount) {
+            notifyItemRangeRemoved(meetingPages.size(), previousCount - meetingPages.size());
+        }
+        scheduleStatusUpdate();
+    }
+
+    /**
+     * Get the position of the first meeting starting at or after a given time, to scroll to it.
+     *
+     * @param minute Start time, in epoch minutes.
+     * @return The position of that meeting, or the number of meetings if there is none.
+     */
+    public int getPosition(long minute) {
+        return mMeetingPages != null ? mMeetingPages.getPosition(minute) : 0;
+    }
+
+    @Override
+    public int getItemCount() {
+        return mPageCache.size();
+    }
+
+    @NonNull
+    @Override
+    public MeetingListAdapter.MeetingViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View itemView = LayoutInflater.from(parent.getContext()).inflate(R.layout.meeting_item, parent, false);
+        MeetingListAdapter.MeetingViewHolder holder = new MeetingListAdapter.MeetingViewHolder(itemView);
+
+        // Set the delete listener once per ViewHolder rather than on each bind
+        holder.btnDelete.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            MeetingRowModel model = position != RecyclerView.NO_POSITION ? mPageCache.get(position) : null;
+            if (model != null) {
+                MeetingListAdapter.deleteMeeting(v, model.meeting);
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull MeetingListAdapter.MeetingViewHolder holder, int position) {
+        MeetingRowModel model = mPageCache.get(position);
+        if (model != null) {
+            holder.bind(model);
+        } else {
+            holder.bindPlaceholder(); // Rebound once its page is loaded
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+        updateStatuses(currentMinute()); // Catch up with the thresholds crossed while detached
+        scheduleStatusUpdate();
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        mRecyclerView = null;
+        mMainHandler.removeCallbacks(mStatusUpdate);
+    }
+
+    /**
+     * Moves the rows to a later minute: the cached pages are reloaded for it,
+     * reusing the text of their rows, and rebound once loaded.
+     *
+     * @param nowMinute Current time, in epoch minutes.
+     */
+    private void updateStatuses(long nowMinute) {
+        if (nowMinute <= mStatusMinute) {
+            return;
+        }
+        mStatusMinute = nowMinute;
+        mPageCache.setNowMinute(nowMinute);
+    }
+
+    /**
+     * Schedules the next status update at the next threshold crossing of the meetings.
+     */
+    private void scheduleStatusUpdate() {
+        mMainHandler.removeCallbacks(mStatusUpdate);
+        if (mRecyclerView == null || mMeetingPages == null) {
+            return; // Caught up with when attached again
+        }
+        long nextMinute = mStatusScheduler.getNextChangeMinute(mMeetingPages.asList(), mStatusMinute);
+        long delayMillis = TimeUnit.MINUTES.toMillis(nextMinute) - System.currentTimeMillis();
+        mMainHandler.postDelayed(mStatusUpdate, Math.max(0, delayMillis));
+    }
+
+    // Get the current time in epoch minutes
+    private static long currentMinute() {
+        return TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+    }
+}
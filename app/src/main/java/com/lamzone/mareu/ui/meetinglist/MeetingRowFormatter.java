@@ -0,0 +1,133 @@
+package com.lamzone.mareu.ui.meetinglist;
+
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.StringDictionary;
+
+import java.text.FieldPosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formats the rows of the meetings list, reusing its formatters and buffers between rows.
+ * An instance is confined to the thread binding the rows and must be given a "now" snapshot
+ * with {@link #setNow(long)} before formatting.
+ */
+final class MeetingRowFormatter {
+
+    /**
+     * Status of a meeting starting in 30 minutes or less (or already started).
+     */
+    static final int STATUS_SOON = 0;
+
+    /**
+     * Status of a meeting starting in 60 minutes or less.
+     */
+    static final int STATUS_WITHIN_HOUR = 1;
+
+    /**
+     * Status of a meeting starting later today.
+     */
+    static final int STATUS_TODAY = 2;
+
+    /**
+     * Status of a meeting starting after today.
+     */
+    static final int STATUS_LATER = 3;
+
+    private final SimpleDateFormat mTimeFormat;
+    private final SimpleDateFormat mDateTimeFormat;
+    private final TimeZone mTimeZone;
+    private final Date mDate = new Date();
+    private final StringBuffer mBuffer = new StringBuffer(); // Required by DateFormat.format
+    private final FieldPosition mFieldPosition = new FieldPosition(0);
+
+    private long mNowMinute;
+    private long mTodayEpochDay;
+
+    /**
+     * Initializes a new formatter for the given locale and the default time zone.
+     *
+     * @param locale Locale of the formatted dates.
+     */
+    MeetingRowFormatter(Locale locale) {
+        mTimeFormat = new SimpleDateFormat("HH'h'mm", locale);
+        mDateTimeFormat = new SimpleDateFormat("HH'h'mm dd-MM-yyyy", locale);
+        mTimeZone = mTimeFormat.getTimeZone();
+    }
+
+    /**
+     * Sets the "now" snapshot shared by all the rows formatted until the next call.
+     * Only its minute matters, so the rows only change at minute boundaries.
+     *
+     * @param nowMillis Current time, in epoch milliseconds.
+     */
+    void setNow(long nowMillis) {
+        mNowMinute = TimeUnit.MILLISECONDS.toMinutes(nowMillis);
+        mTodayEpochDay = Meeting.toEpochDay(TimeUnit.MINUTES.toMillis(mNowMinute), mTimeZone);
+    }
+
+    /**
+     * Get the day of the "now" snapshot, which defines whether the title lines show the date.
+     *
+     * @return The epoch day of the "now" snapshot.
+     */
+    long getTodayEpochDay() {
+        return mTodayEpochDay;
+    }
+
+    /**
+     * Formats the title line of a meeting: title, time (and date if not today) and room,
+     * followed by a mark if the meeting recurs.
+     *
+     * @param meeting Meeting to format.
+     * @return The title line.
+     */
+    String formatTitle(Meeting meeting) {
+        long startMillis = meeting.getStartMillis();
+        mDate.setTime(startMillis);
+        mBuffer.setLength(0);
+        mBuffer.append(meeting.getTitle()).append(" - ");
+        (isToday(startMillis) ? mTimeFormat : mDateTimeFormat).format(mDate, mBuffer, mFieldPosition);
+        mBuffer.append(" - ").append(meeting.getLocation());
+        if (meeting.isRecurring()) {
+            mBuffer.append(" \u21bb");
+        }
+        return mBuffer.toString();
+    }
+
+    /**
+     * Formats the participants of a meeting, one per line.
+     *
+     * @param meeting Meeting to format.
+     * @return The participants lines.
+     */
+    String formatParticipants(Meeting meeting) {
+        StringDictionary participants = StringDictionary.getParticipants();
+        mBuffer.setLength(0);
+        for (int i = 0; i < meeting.getParticipantCount(); i++) {
+            mBuffer.append(participants.lookup(meeting.getParticipantId(i))).append('\n');
+        }
+        return mBuffer.toString();
+    }
+
+    /**
+     * Gets the status of a meeting relative to the "now" snapshot, which defines its color.
+     *
+     * @param meeting Meeting to check.
+     * @return One of the STATUS constants.
+     */
+    int getStatus(Meeting meeting) {
+        long timeDifferenceMinutes = meeting.getStartMinute() - mNowMinute;
+        return timeDifferenceMinutes <= 30 ? STATUS_SOON :
+                timeDifferenceMinutes <= 60 ? STATUS_WITHIN_HOUR :
+                        isToday(meeting.getStartMillis()) ? STATUS_TODAY : STATUS_LATER;
+    }
+
+    // Check if the date (in epoch milliseconds) is on the day of the "now" snapshot
+    private boolean isToday(long millis) {
+        return Meeting.toEpochDay(millis, mTimeZone) == mTodayEpochDay;
+    }
+}
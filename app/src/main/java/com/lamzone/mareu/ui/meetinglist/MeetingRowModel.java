@@ -0,0 +1,36 @@
+package com.lamzone.mareu.ui.meetinglist;
+
+import com.lamzone.mareu.model.Meeting;
+
+/**
+ * Precomputed display data of a row of the meetings list.
+ * Instances are immutable, so they can be built off the UI thread and bound as is.
+ */
+final class MeetingRowModel {
+
+    final Meeting meeting;
+    final long minute; // Epoch minute of the "now" snapshot the model was computed for
+    final long day; // Epoch day of the "now" snapshot, on which the title line depends
+    final String title;
+    final String participants;
+    final int status;
+
+    /**
+     * Initializes a new row model.
+     *
+     * @param meeting      Meeting displayed by the row.
+     * @param minute       Epoch minute of the "now" snapshot.
+     * @param day          Epoch day of the "now" snapshot.
+     * @param title        Title line of the row.
+     * @param participants Participants lines of the row.
+     * @param status       One of the MeetingRowFormatter STATUS constants.
+     */
+    MeetingRowModel(Meeting meeting, long minute, long day, String title, String participants, int status) {
+        this.meeting = meeting;
+        this.minute = minute;
+        this.day = day;
+        this.title = title;
+        this.participants = participants;
+        this.status = status;
+    }
+}
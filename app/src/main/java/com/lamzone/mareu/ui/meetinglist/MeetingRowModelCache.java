@@ -0,0 +1,109 @@
+package com.lamzone.mareu.ui.meetinglist;
+
+import com.lamzone.mareu.model.Meeting;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the row models of the meetings list, keyed by occurrence id, so the occurrences of a series have their own models.
+ * A model is reused until its meeting changes or a minute boundary passes, since the status
+ * (and, at midnight, the title) of a row depends on the current time. Past a minute boundary,
+ * only the status is recomputed unless the day changed too.
+ * The models of a list are computed off the UI thread by {@link #prepare(List, long)} and published
+ * with a single swap, so the UI thread binding them never waits: {@link #get(Meeting, long)} takes no lock,
+ * and formats a missing or outdated model inline.
+ */
+final class MeetingRowModelCache {
+
+    private final MeetingRowFormatter mPrepareFormatter; // Confined to the thread preparing the lists
+    private final MeetingRowFormatter mBindFormatter; // Confined to the UI thread
+    private volatile Map<Long, MeetingRowModel> mModels = new ConcurrentHashMap<>();
+
+    /**
+     * Initializes a new, empty cache.
+     *
+     * @param locale Locale of the formatted dates.
+     */
+    MeetingRowModelCache(Locale locale) {
+        mPrepareFormatter = new MeetingRowFormatter(locale);
+        mBindFormatter = new MeetingRowFormatter(locale);
+    }
+
+    /**
+     * Gets the row model of a meeting, computing it if it is not cached or no longer valid.
+     * It must be called from a single thread, the one binding the rows.
+     *
+     * @param meeting   Meeting to display.
+     * @param nowMillis Current time, in epoch milliseconds.
+     * @return The row model.
+     */
+    MeetingRowModel get(Meeting meeting, long nowMillis) {
+        Map<Long, MeetingRowModel> models = mModels;
+        MeetingRowModel model = models.get(meeting.getOccurrenceId());
+        MeetingRowModel updated = update(mBindFormatter, model, meeting, nowMillis);
+        if (updated != model) {
+            models.put(meeting.getOccurrenceId(), updated);
+        }
+        return updated;
+    }
+
+    /**
+     * Computes the row models of a list about to be displayed, and drops the models of the
+     * meetings that are no longer in it.
+     * It must be called from a single thread, which should not be the UI thread.
+     *
+     * @param meetings  Meetings to display.
+     * @param nowMillis Current time, in epoch milliseconds.
+     */
+    void prepare(List<Meeting> meetings, long nowMillis) {
+        Map<Long, MeetingRowModel> previous = mModels;
+        Map<Long, MeetingRowModel> models = new ConcurrentHashMap<>(meetings.size() * 4 / 3 + 1);
+        for (Meeting meeting : meetings) {
+            long occurrenceId = meeting.getOccurrenceId();
+            models.put(occurrenceId, update(mPrepareFormatter, previous.get(occurrenceId), meeting, nowMillis));
+        }
+        mModels = models;
+    }
+
+    /**
+     * Gets the number of cached row models.
+     *
+     * @return The size of the cache.
+     */
+    int size() {
+        return mModels.size();
+    }
+
+    /**
+     * Gets the row model of a meeting for the given time, reusing the cached one, or the parts of it, that are still valid.
+     *
+     * @param formatter Formatter confined to the calling thread.
+     * @param model     Cached model of the occurrence id, or null.
+     * @param meeting   Meeting to display.
+     * @param nowMillis Current time, in epoch milliseconds.
+     * @return The cached model if it is still valid, a new one otherwise.
+     */
+    private static MeetingRowModel update(MeetingRowFormatter formatter, MeetingRowModel model, Meeting meeting, long nowMillis) {
+        long minute = TimeUnit.MILLISECONDS.toMinutes(nowMillis);
+        // Occurrences are built again by each query, so the model of the same occurrence of the same series is still valid
+        if (model != null && model.meeting.isSameOccurrence(meeting) && model.minute == minute) {
+            return model;
+        }
+        formatter.setNow(nowMillis);
+        long day = formatter.getTodayEpochDay();
+        if (model != null && model.meeting.isSameOccurrence(meeting)) {
+            return new MeetingRowModel(meeting, minute, day,
+                    model.day == day ? model.title : formatter.formatTitle(meeting),
+                    model.participants,
+                    formatter.getStatus(meeting));
+        }
+        return new MeetingRowModel(meeting, minute, day,
+                formatter.formatTitle(meeting),
+                formatter.formatParticipants(meeting),
+                formatter.getStatus(meeting));
+    }
+}
@@ -0,0 +1,128 @@
+package com.lamzone.mareu.ui.meetinglist;
+
+import com.lamzone.mareu.model.Meeting;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds when the rows of a sorted list of meetings change with time, so that only these rows are
+ * updated, at that moment.
+ * In a list sorted by start time, the rows of each status form a contiguous range:
+ * soon (started or starting in 30 minutes or less), within the hour, later today, then after today.
+ * As time goes by, the bounds of these ranges only move forward, so the rows changing between two
+ * minutes are the ones the bounds passed over, found by binary search.
+ */
+final class MeetingStatusScheduler {
+
+    /**
+     * Receives the ranges of rows changing between two minutes.
+     */
+    interface Callback {
+
+        /**
+         * Called for each range of changed rows. Ranges may overlap.
+         *
+         * @param positionStart Position of the first changed row.
+         * @param itemCount     Number of changed rows.
+         * @param statusOnly    Whether only the status of the rows changed, or their title too.
+         */
+        void onRowsChanged(int positionStart, int itemCount, boolean statusOnly);
+    }
+
+    private final TimeZone mTimeZone;
+
+    /**
+     * Initializes a new scheduler for the given time zone.
+     *
+     * @param timeZone Time zone defining the days of the meetings.
+     */
+    MeetingStatusScheduler(TimeZone timeZone) {
+        mTimeZone = timeZone;
+    }
+
+    /**
+     * Gets the next minute at which a row of the list changes: when a meeting gets within the hour
+     * or within 30 minutes, or at midnight.
+     *
+     * @param meetings  Meetings sorted by start time.
+     * @param nowMinute Current time, in epoch minutes.
+     * @return The epoch minute of the next change, after nowMinute.
+     */
+    long getNextChangeMinute(List<Meeting> meetings, long nowMinute) {
+        long nextMinute = startOfDayMinute(nowMinute, 1);
+        int soonBound = firstStartingAfter(meetings, nowMinute + 30);
+        if (soonBound < meetings.size()) {
+            nextMinute = Math.min(nextMinute, meetings.get(soonBound).getStartMinute() - 30);
+        }
+        int hourBound = firstStartingAfter(meetings, nowMinute + 60);
+        if (hourBound < meetings.size()) {
+            nextMinute = Math.min(nextMinute, meetings.get(hourBound).getStartMinute() - 60);
+        }
+        return nextMinute;
+    }
+
+    /**
+     * Dispatches the ranges of rows changing between two minutes.
+     *
+     * @param meetings   Meetings sorted by start time.
+     * @param fromMinute Minute the rows were displayed for, in epoch minutes.
+     * @param toMinute   Current time, in epoch minutes.
+     * @param callback   Callback receiving the changed ranges.
+     */
+    void dispatchChanges(List<Meeting> meetings, long fromMinute, long toMinute, Callback callback) {
+        if (toMinute <= fromMinute) {
+            return;
+        }
+        long fromTomorrow = startOfDayMinute(fromMinute, 1);
+        long toTomorrow = startOfDayMinute(toMinute, 1);
+
+        // Rows that got within 30 minutes, within the hour, or that are now today
+        dispatchRange(firstStartingAfter(meetings, fromMinute + 30), firstStartingAfter(meetings, toMinute + 30), true, callback);
+        dispatchRange(firstStartingAfter(meetings, fromMinute + 60), firstStartingAfter(meetings, toMinute + 60), true, callback);
+        dispatchRange(firstStartingAfter(meetings, fromTomorrow - 1), firstStartingAfter(meetings, toTomorrow - 1), true, callback);
+
+        if (fromTomorrow != toTomorrow) {
+            // The day changed: the title lines show the date of the meetings no longer today, and
+            // stop showing it for the meetings now today
+            dispatchRange(firstStartingAfter(meetings, startOfDayMinute(fromMinute, 0) - 1), firstStartingAfter(meetings, fromTomorrow - 1), false, callback);
+            dispatchRange(firstStartingAfter(meetings, startOfDayMinute(toMinute, 0) - 1), firstStartingAfter(meetings, toTomorrow - 1), false, callback);
+        }
+    }
+
+    // Dispatch the rows in [start, end) if there are any
+    private static void dispatchRange(int start, int end, boolean statusOnly, Callback callback) {
+        if (end > start) {
+            callback.onRowsChanged(start, end - start, statusOnly);
+        }
+    }
+
+    // Get the position of the first meeting starting after the given minute, by binary search
+    private static int firstStartingAfter(List<Meeting> meetings, long minute) {
+        int low = 0;
+        int high = meetings.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (meetings.get(middle).getStartMinute() > minute) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    // Get the start (in epoch minutes) of the day of the given minute, shifted by a number of days
+    private long startOfDayMinute(long minute, int dayOffset) {
+        Calendar calendar = Calendar.getInstance(mTimeZone);
+        calendar.setTimeInMillis(TimeUnit.MINUTES.toMillis(minute));
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, dayOffset);
+        return TimeUnit.MILLISECONDS.toMinutes(calendar.getTimeInMillis());
+    }
+}
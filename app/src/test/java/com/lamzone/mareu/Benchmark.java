@@ -0,0 +1,9 @@
+package com.lamzone.mareu;
+
+/**
+ * JUnit category of the benchmarks. They time large workloads, so their results depend on the machine:
+ * they are left out of the unit tests, and only run on request, with {@code ./gradlew testDebugUnitTest -Pbenchmarks}.
+ * A benchmark reports its timings in the message of its assertions.
+ */
+public interface Benchmark {
+}
@@ -0,0 +1,247 @@
+package com.lamzone.mareu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.lamzone.mareu.data_sources.FakeApi;
+import com.lamzone.mareu.data_sources.MappedMeetingSource;
+import com.lamzone.mareu.data_sources.MeetingFileStore;
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.Recurrence;
+import com.lamzone.mareu.model.MeetingChange;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for the MappedMeetingSource class, and benchmark of opening a large calendar with it.
+ */
+public class MappedMeetingSourceTest {
+
+    private static final List<String> ROOMS = Arrays.asList("Peach", "Mario", "Luigi", "Toad", "Daisy");
+    private static final long START_MINUTE = 28_000_000L; // March 2023
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+    private FakeApi fakeApi;
+
+    /**
+     * Sets up the snapshot file location, without creating it.
+     */
+    @Before
+    public void setUp() {
+        file = new File(temporaryFolder.getRoot(), "calendar.bin");
+        fakeApi = new FakeApi();
+    }
+
+    /**
+     * Tests that the default meetings are provided until the file is written.
+     */
+    @Test
+    public void testDefaultsUntilWritten() {
+        MappedMeetingSource source = new MappedMeetingSource(file, fakeApi);
+
+        assertEquals(fakeApi.getMeetings(), source.loadMeetings(0, 100));
+        assertEquals(fakeApi.getMeetingRooms(), source.getMeetingRooms());
+        assertEquals(0, source.size());
+    }
+
+    /**
+     * Tests that written meetings are read back with all their fields.
+     * It performs the following steps:
+     * 1. Writes meetings with accented text, shared participants, no participants and a recurrence.
+     * 2. Reads them back from a new source.
+     * 3. Checks the fields of every meeting.
+     */
+    @Test
+    public void testWriteAndLoad() throws IOException {
+        // Write meetings with accented text, shared participants, no participants and a recurrence
+        List<Meeting> meetings = new ArrayList<>(fakeApi.getMeetings());
+        meetings.add(new Meeting("Réunion vide", START_MINUTE, "Toad", "Sans participant", Collections.emptyList()));
+        meetings.add(new Meeting(7L, "Point hebdo", START_MINUTE, 30, "Toad", "Avancement", Collections.singletonList("theo.johnson@example.com"),
+                Recurrence.times(Recurrence.Frequency.WEEKLY, 12)));
+        MappedMeetingSource.write(file, meetings);
+
+        // Read them back from a new source
+        List<Meeting> loaded = new MappedMeetingSource(file, fakeApi).loadMeetings(0, 100);
+
+        // Check the fields of every meeting
+        assertEquals(meetings.size(), loaded.size());
+        for (int i = 0; i < meetings.size(); i++) {
+            Meeting expected = meetings.get(i);
+            Meeting actual = loaded.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getStartMinute(), actual.getStartMinute());
+            assertEquals(expected.getLocation(), actual.getLocation());
+            assertEquals(expected.getSubject(), actual.getSubject());
+            assertEquals(expected.getParticipants(), actual.getParticipants());
+            assertEquals(expected.getRecurrence(), actual.getRecurrence());
+        }
+    }
+
+    /**
+     * Tests the random access to the meetings: pages, single meetings and start times.
+     */
+    @Test
+    public void testRandomAccess() throws IOException {
+        List<Meeting> meetings = createMeetings(2_500);
+        MappedMeetingSource.write(file, meetings);
+        MappedMeetingSource source = new MappedMeetingSource(file, fakeApi);
+
+        assertEquals(2_500, source.size());
+        assertEquals(meetings.get(1_234).getTitle(), source.getMeeting(1_234).getTitle());
+        assertEquals(meetings.get(2_499).getStartMinute(), source.getStartMinute(2_499));
+        List<Meeting> page = source.loadMeetings(2_000, 1_000);
+        assertEquals(500, page.size());
+        assertEquals(meetings.get(2_000).getId(), page.get(0).getId());
+        assertTrue(source.loadMeetings(2_500, 1_000).isEmpty());
+    }
+
+    /**
+     * Tests that saved changes are read back from a new source.
+     */
+    @Test
+    public void testSaveChanges() {
+        List<Meeting> meetings = createMeetings(3);
+        MappedMeetingSource source = new MappedMeetingSource(file, fakeApi);
+        source.saveMeetings(meetings.subList(0, 2));
+
+        source.saveChanges(Arrays.asList(MeetingChange.added(meetings.get(2)), MeetingChange.deleted(meetings.get(0))));
+
+        List<Meeting> loaded = new MappedMeetingSource(file, fakeApi).loadMeetings(0, 100);
+        assertEquals(2, loaded.size());
+        assertEquals(meetings.get(1).getId(), loaded.get(0).getId());
+        assertEquals(meetings.get(2).getId(), loaded.get(1).getId());
+    }
+
+    /**
+     * Tests that a truncated file is rejected instead of read past its end.
+     */
+    @Test
+    public void testTruncatedFileRejected() throws IOException {
+        MappedMeetingSource.write(file, createMeetings(10));
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.setLength(output.length() - 1);
+        }
+
+        try {
+            new MappedMeetingSource(file, fakeApi).loadMeetings(0, 10);
+            fail("A truncated file must be rejected");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+    }
+
+    /**
+     * Tests that ids and offsets out of their columns are rejected, and that a page past the end is bounded.
+     * It performs the following steps:
+     * 1. Writes 10 meetings and checks that a page of Integer.MAX_VALUE meetings holds the last ones.
+     * 2. Replaces the room id of the first meeting with an unknown id and checks that reading it fails.
+     * 3. Replaces the title offset of the second meeting with one past the text and checks that reading it fails.
+     */
+    @Test
+    public void testCorruptedColumnsRejected() throws IOException {
+        // Write 10 meetings and check that a page of Integer.MAX_VALUE meetings holds the last ones
+        MappedMeetingSource.write(file, createMeetings(10));
+        assertEquals(5, new MappedMeetingSource(file, fakeApi).loadMeetings(5, Integer.MAX_VALUE).size());
+
+        // Replace the room id of the first meeting with an unknown id and check that reading it fails
+        int roomsOffset = 32 + 8 * 10 + 8 * 10 + 4 * 10; // Header, ids, start times and durations
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.seek(roomsOffset);
+            output.writeInt(1_000_000);
+        }
+        try {
+            new MappedMeetingSource(file, fakeApi).getMeeting(0);
+            fail("An unknown dictionary id must be rejected");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+
+        // Replace the title offset of the second meeting with one past the text and check that reading it fails
+        MappedMeetingSource.write(file, createMeetings(10));
+        int textOffsetsOffset = roomsOffset + 4 * 10 + 4 * 10; // Rooms and rules
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.seek(textOffsetsOffset + 8);
+            output.writeInt(Integer.MAX_VALUE);
+        }
+        try {
+            new MappedMeetingSource(file, fakeApi).getMeeting(1);
+            fail("A text offset past the text must be rejected");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+    }
+
+    /**
+     * Benchmarks opening 100k stored meetings and reading the first screen of them,
+     * against reading the same screen with the sequential file store.
+     */
+    @Test
+    @Category(Benchmark.class)
+    public void benchmarkOpen100k() throws IOException {
+        int count = 100_000;
+        List<Meeting> meetings = createMeetings(count);
+        MappedMeetingSource.write(file, meetings);
+        File storeFile = new File(temporaryFolder.getRoot(), "meetings.bin");
+        new MeetingFileStore(storeFile, fakeApi).saveMeetings(meetings);
+
+        // Open the mapped file, then read the first screen and a screen in the middle
+        long start = System.nanoTime();
+        MappedMeetingSource source = new MappedMeetingSource(file, fakeApi);
+        assertEquals(count, source.size());
+        long openNanos = System.nanoTime() - start;
+        assertEquals(20, source.loadMeetings(0, 20).size());
+        long firstScreenNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        assertEquals(20, source.loadMeetings(count / 2, 20).size());
+        long middleScreenNanos = System.nanoTime() - start;
+
+        // Read the same screens with the sequential file store
+        start = System.nanoTime();
+        MeetingFileStore store = new MeetingFileStore(storeFile, fakeApi);
+        assertEquals(20, store.loadMeetings(0, 20).size());
+        long storeFirstScreenNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        assertEquals(20, store.loadMeetings(count / 2, 20).size());
+        long storeMiddleScreenNanos = System.nanoTime() - start;
+        store.close();
+
+        String timings = String.format("Open %d meetings: mapped open %d us, first screen %d us, middle screen %d us; "
+                        + "file store first screen %d us, middle screen %d us",
+                count, openNanos / 1_000, firstScreenNanos / 1_000, middleScreenNanos / 1_000,
+                storeFirstScreenNanos / 1_000, storeMiddleScreenNanos / 1_000);
+
+        assertTrue(timings, middleScreenNanos < storeMiddleScreenNanos);
+    }
+
+    /**
+     * Creates meetings spread over the rooms, one every 15 minutes.
+     *
+     * @param count Number of meetings.
+     * @return The meetings, sorted by start time.
+     */
+    private static List<Meeting> createMeetings(int count) {
+        List<Meeting> meetings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            meetings.add(new Meeting("Meeting " + i, START_MINUTE + 15L * i, ROOMS.get(i % ROOMS.size()), "Subject " + i,
+                    Arrays.asList("theo.johnson@example.com", "may.smith@example.com")));
+        }
+        return meetings;
+    }
+}
@@ -0,0 +1,443 @@
+package com.lamzone.mareu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.lamzone.mareu.data_sources.MeetingCodec;
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
+import com.lamzone.mareu.model.Recurrence;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the MeetingCodec class, and benchmark against a JSON encoding.
+ */
+public class MeetingCodecTest {
+
+    private static final List<String> ROOMS = Arrays.asList("Peach", "Mario", "Luigi", "Toad", "Daisy", "Yoshi", "Wario", "Bowser", "Boo", "Koopa");
+    private static final long START_MINUTE = 28_000_000L; // March 2023
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Tests that meetings are read back as written, whatever their order and content.
+     * It performs the following steps:
+     * 1. Writes meetings out of order, with ids far apart, no participant, long and non-ASCII texts, and recurrences.
+     * 2. Reads them back and checks each field.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        // Write meetings out of order, with ids far apart, no participant, long and non-ASCII texts, and recurrences
+        char[] longText = new char[100_000];
+        Arrays.fill(longText, 'é');
+        List<Meeting> meetings = Arrays.asList(
+                new Meeting(Long.MAX_VALUE, "Réunion ☕", START_MINUTE, 45, "Peach", "Café", Arrays.asList("théo@example.com", "may.smith@example.com")),
+                new Meeting(-5, "", START_MINUTE - 10_000_000, 1, "Mario", "", Collections.emptyList()),
+                new Meeting(7, new String(longText), START_MINUTE, 60, "Peach", new String(longText, 0, 70_000), Arrays.asList("may.smith@example.com"),
+                        Recurrence.times(Recurrence.Frequency.WEEKLY, 10)),
+                new Meeting(8, "Daily", START_MINUTE + 60, 15, "Luigi", "Stand-up", Arrays.asList("may.smith@example.com", "théo@example.com"),
+                        new Recurrence(Recurrence.Frequency.DAILY, 0, START_MINUTE + 100_000, TimeZone.getTimeZone("Europe/Paris"))));
+        byte[] bytes = encode(meetings);
+
+        // Read them back and check each field
+        assertEquals(describe(meetings), describe(decode(bytes)));
+    }
+
+    /**
+     * Tests that changes are read back as written.
+     */
+    @Test
+    public void testChangesRoundTrip() throws IOException {
+        Meeting meeting = new Meeting(1, "Meeting", START_MINUTE, 30, "Peach", "Subject", Arrays.asList("may.smith@example.com"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MeetingCodec.Writer writer = new MeetingCodec.Writer(bytes);
+        writer.writeChange(MeetingChange.added(meeting));
+        writer.writeChange(MeetingChange.deleted(meeting));
+        writer.finish();
+
+        MeetingCodec.Reader reader = new MeetingCodec.Reader(new ByteArrayInputStream(bytes.toByteArray()));
+        MeetingChange added = reader.readChange();
+        MeetingChange deleted = reader.readChange();
+        assertEquals(MeetingChange.Type.ADDED, added.getType());
+        assertEquals(MeetingChange.Type.DELETED, deleted.getType());
+        assertEquals(describe(Arrays.asList(meeting, meeting)), describe(Arrays.asList(added.getMeeting(), deleted.getMeeting())));
+        assertNull(reader.readChange());
+    }
+
+    /**
+     * Tests that a batch is read as a stream, and that a truncated batch fails.
+     * It performs the following steps:
+     * 1. Writes 100k meetings.
+     * 2. Reads the first meeting and checks that only the start of the batch was read from the stream.
+     * 3. Reads a truncated batch and checks that it fails.
+     */
+    @Test
+    public void testStreamingAndTruncation() throws IOException {
+        // Write 100k meetings
+        byte[] bytes = encode(createMeetings(100_000, new Random(1)));
+
+        // Read the first meeting and check that only the start of the batch was read from the stream
+        int[] read = {0};
+        InputStream input = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int count = super.read(buffer, offset, length);
+                read[0] += Math.max(count, 0);
+                return count;
+            }
+        };
+        MeetingCodec.Reader reader = new MeetingCodec.Reader(input);
+        assertEquals("Meeting 0", reader.read().getTitle());
+        assertTrue(read[0] <= 64 * 1024);
+        assertTrue(read[0] < bytes.length / 10);
+
+        // Read a truncated batch and check that it fails
+        try {
+            decode(Arrays.copyOf(bytes, bytes.length - 1));
+            fail("A truncated batch must not be read");
+        } catch (EOFException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Benchmarks the codec against a JSON encoding with ISO dates, on 100k meetings.
+     * It performs the following steps:
+     * 1. Creates 100k meetings sorted by date and time, with participants from a pool of 200.
+     * 2. Encodes and decodes them with each format, checking that the decoded meetings match.
+     * 3. Times the encoding and the decoding, and checks that the codec is smaller and faster.
+     */
+    @Test
+    @Category(Benchmark.class)
+    public void benchmarkCodecVsJson100k() throws IOException, ParseException {
+        // Create 100k meetings sorted by date and time, with participants from a pool of 200
+        List<Meeting> meetings = createMeetings(100_000, new Random(2));
+
+        // Encode and decode them with each format, checking that the decoded meetings match
+        byte[] codecBytes = encode(meetings);
+        byte[] jsonBytes = encodeJson(meetings);
+        List<String> expected = describe(meetings);
+        assertEquals(expected, describe(decode(codecBytes)));
+        assertEquals(expected, describe(decodeJson(jsonBytes)));
+
+        // Time the encoding and the decoding, and check that the codec is smaller and faster
+        int iterations = 5;
+        long[] codecEncode = new long[iterations];
+        long[] codecDecode = new long[iterations];
+        long[] jsonEncode = new long[iterations];
+        long[] jsonDecode = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            encode(meetings);
+            codecEncode[i] = System.nanoTime() - start;
+            start = System.nanoTime();
+            decode(codecBytes);
+            codecDecode[i] = System.nanoTime() - start;
+            start = System.nanoTime();
+            encodeJson(meetings);
+            jsonEncode[i] = System.nanoTime() - start;
+            start = System.nanoTime();
+            decodeJson(jsonBytes);
+            jsonDecode[i] = System.nanoTime() - start;
+        }
+        String timings = String.format(Locale.ROOT, "%d meetings: codec %d KB, encode %d ms, decode %d ms; JSON %d KB, encode %d ms, decode %d ms",
+                meetings.size(), codecBytes.length / 1_024, min(codecEncode) / 1_000_000, min(codecDecode) / 1_000_000,
+                jsonBytes.length / 1_024, min(jsonEncode) / 1_000_000, min(jsonDecode) / 1_000_000);
+
+        assertTrue(timings, codecBytes.length * 4 < jsonBytes.length);
+        assertTrue(timings, min(codecEncode) < min(jsonEncode));
+        assertTrue(timings, min(codecDecode) < min(jsonDecode));
+    }
+
+    /**
+     * Creates meetings sorted by date and time, spread over the rooms, with 2 to 6 participants from a pool of 200.
+     *
+     * @param count  Number of meetings to create.
+     * @param random Source of the participants and durations.
+     * @return The meetings.
+     */
+    private static List<Meeting> createMeetings(int count, Random random) {
+        long firstId = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        List<Meeting> meetings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<String> participants = new ArrayList<>();
+            for (int j = 2 + random.nextInt(5); j > 0; j--) {
+                participants.add("participant" + random.nextInt(200) + "@example.com");
+            }
+            meetings.add(new Meeting(firstId + i, "Meeting " + i, START_MINUTE + 15L * i, 15 * (1 + random.nextInt(8)),
+                    ROOMS.get(i % ROOMS.size()), "Subject " + i % 1_000, participants));
+        }
+        return meetings;
+    }
+
+    /**
+     * Encodes meetings with the codec.
+     *
+     * @param meetings Meetings to encode.
+     * @return The batch.
+     * @throws IOException If the meetings could not be written.
+     */
+    private static byte[] encode(List<Meeting> meetings) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MeetingCodec.Writer writer = new MeetingCodec.Writer(bytes);
+        for (Meeting meeting : meetings) {
+            writer.write(meeting);
+        }
+        writer.finish();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes meetings with the codec.
+     *
+     * @param bytes Batch to decode.
+     * @return The meetings.
+     * @throws IOException If the batch could not be read.
+     */
+    private static List<Meeting> decode(byte[] bytes) throws IOException {
+        MeetingCodec.Reader reader = new MeetingCodec.Reader(new ByteArrayInputStream(bytes));
+        List<Meeting> meetings = new ArrayList<>();
+        Meeting meeting;
+        while ((meeting = reader.read()) != null) {
+            meetings.add(meeting);
+        }
+        return meetings;
+    }
+
+    /**
+     * Encodes meetings as a JSON array of objects, with ISO dates, as a straightforward transport would.
+     *
+     * @param meetings Meetings to encode.
+     * @return The JSON text, in UTF-8.
+     * @throws IOException If the meetings could not be written.
+     */
+    private static byte[] encodeJson(List<Meeting> meetings) throws IOException {
+        SimpleDateFormat isoFormat = createIsoFormat();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Writer writer = new OutputStreamWriter(bytes, UTF_8);
+        writer.write('[');
+        for (int i = 0; i < meetings.size(); i++) {
+            Meeting meeting = meetings.get(i);
+            writer.write(i == 0 ? "{" : ",{");
+            writer.write("\"id\":" + meeting.getId());
+            writer.write(",\"title\":" + quote(meeting.getTitle()));
+            writer.write(",\"start\":" + quote(isoFormat.format(new Date(TimeUnit.MINUTES.toMillis(meeting.getStartMinute())))));
+            writer.write(",\"duration\":" + meeting.getDurationMinutes());
+            writer.write(",\"location\":" + quote(meeting.getLocation()));
+            writer.write(",\"subject\":" + quote(meeting.getSubject()));
+            writer.write(",\"participants\":[");
+            List<String> participants = meeting.getParticipants();
+            for (int j = 0; j < participants.size(); j++) {
+                writer.write((j == 0 ? "" : ",") + quote(participants.get(j)));
+            }
+            writer.write("]}");
+        }
+        writer.write(']');
+        writer.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes meetings written by {@link #encodeJson(List)}, with a small parser of that layout.
+     *
+     * @param bytes JSON text to decode, in UTF-8.
+     * @return The meetings.
+     * @throws ParseException If a date could not be read.
+     */
+    private static List<Meeting> decodeJson(byte[] bytes) throws ParseException {
+        SimpleDateFormat isoFormat = createIsoFormat();
+        JsonParser parser = new JsonParser(new String(bytes, UTF_8));
+        List<Meeting> meetings = new ArrayList<>();
+        parser.expect('[');
+        while (parser.peek() != ']') {
+            parser.skip(',');
+            parser.expect('{');
+            long id = 0;
+            String title = null;
+            long startMinute = 0;
+            int durationMinutes = 0;
+            String location = null;
+            String subject = null;
+            List<String> participants = new ArrayList<>();
+            while (parser.peek() != '}') {
+                parser.skip(',');
+                String key = parser.readString();
+                parser.expect(':');
+                switch (key) {
+                    case "id":
+                        id = parser.readLong();
+                        break;
+                    case "title":
+                        title = parser.readString();
+                        break;
+                    case "start":
+                        startMinute = TimeUnit.MILLISECONDS.toMinutes(isoFormat.parse(parser.readString()).getTime());
+                        break;
+                    case "duration":
+                        durationMinutes = (int) parser.readLong();
+                        break;
+                    case "location":
+                        location = parser.readString();
+                        break;
+                    case "subject":
+                        subject = parser.readString();
+                        break;
+                    case "participants":
+                        parser.expect('[');
+                        while (parser.peek() != ']') {
+                            parser.skip(',');
+                            participants.add(parser.readString());
+                        }
+                        parser.expect(']');
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown key: " + key);
+                }
+            }
+            parser.expect('}');
+            meetings.add(new Meeting(id, title, startMinute, durationMinutes, location, subject, participants));
+        }
+        parser.expect(']');
+        return meetings;
+    }
+
+    /**
+     * Reads the JSON layout written by {@link #encodeJson(List)}: objects, arrays, strings and integers.
+     */
+    private static final class JsonParser {
+
+        private final String mText;
+        private int mPosition;
+
+        private JsonParser(String text) {
+            mText = text;
+        }
+
+        private char peek() {
+            return mText.charAt(mPosition);
+        }
+
+        private void expect(char c) {
+            if (mText.charAt(mPosition++) != c) {
+                throw new IllegalArgumentException("Expected " + c + " at " + (mPosition - 1));
+            }
+        }
+
+        private void skip(char c) {
+            if (mText.charAt(mPosition) == c) {
+                mPosition++;
+            }
+        }
+
+        private long readLong() {
+            int start = mPosition;
+            while (mPosition < mText.length() && (Character.isDigit(mText.charAt(mPosition)) || mText.charAt(mPosition) == '-')) {
+                mPosition++;
+            }
+            return Long.parseLong(mText.substring(start, mPosition));
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            char c;
+            while ((c = mText.charAt(mPosition++)) != '"') {
+                if (c == '\\') {
+                    c = mText.charAt(mPosition++);
+                    if (c == 'u') {
+                        c = (char) Integer.parseInt(mText.substring(mPosition, mPosition + 4), 16);
+                        mPosition += 4;
+                    }
+                }
+                value.append(c);
+            }
+            return value.toString();
+        }
+    }
+
+    /**
+     * Quotes a string for JSON.
+     *
+     * @param value String to quote.
+     * @return The JSON string.
+     */
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Creates the format of the ISO dates of the JSON encoding.
+     *
+     * @return The format, in UTC.
+     */
+    private static SimpleDateFormat createIsoFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+
+    /**
+     * Describes meetings by all their fields.
+     *
+     * @param meetings Meetings to describe.
+     * @return The fields of each meeting, in order.
+     */
+    private static List<String> describe(List<Meeting> meetings) {
+        List<String> descriptions = new ArrayList<>();
+        for (Meeting meeting : meetings) {
+            descriptions.add(meeting.getId() + "|" + meeting.getTitle() + "|" + meeting.getStartMinute() + "|" + meeting.getDurationMinutes()
+                    + "|" + meeting.getLocation() + "|" + meeting.getSubject() + "|" + meeting.getParticipants() + "|" + meeting.getRecurrence());
+        }
+        return descriptions;
+    }
+
+    /**
+     * Gets the smallest of measured durations.
+     *
+     * @param nanos Durations, in nanoseconds.
+     * @return The smallest one.
+     */
+    private static long min(long[] nanos) {
+        long min = Long.MAX_VALUE;
+        for (long value : nanos) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,498 @@
+package com.lamzone.mareu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.lamzone.mareu.data_sources.FakeApi;
+import com.lamzone.mareu.data_sources.MeetingFileStore;
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
+import com.lamzone.mareu.model.Recurrence;
+import com.lamzone.mareu.repository.MeetingRepository;
+import com.lamzone.mareu.repository.StorageError;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the MeetingFileStore class and its log, and benchmarks of a repository reading it.
+ */
+public class MeetingFileStoreTest {
+
+    private static final List<String> ROOMS = Arrays.asList("Peach", "Mario", "Luigi", "Toad", "Daisy");
+    private static final long START_MINUTE = 28_000_000L; // March 2023
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+    private FakeApi fakeApi;
+
+    /**
+     * Sets up the meetings file location, without creating it.
+     */
+    @Before
+    public void setUp() {
+        file = new File(temporaryFolder.getRoot(), "meetings.bin");
+        fakeApi = new FakeApi();
+    }
+
+    /**
+     * Tests that the default meetings are provided until a first save.
+     */
+    @Test
+    public void testDefaultsUntilFirstSave() {
+        MeetingFileStore store = new MeetingFileStore(file, fakeApi);
+
+        assertEquals(fakeApi.getMeetings(), store.loadMeetings(0, 100));
+        assertEquals(fakeApi.getMeetingRooms(), store.getMeetingRooms());
+    }
+
+    /**
+     * Tests that saved meetings are read back page by page.
+     * It performs the following steps:
+     * 1. Saves 2500 meetings.
+     * 2. Reads them back from a new store, in pages of 1000 meetings.
+     * 3. Checks the size of the pages and the content of the meetings.
+     */
+    @Test
+    public void testSaveAndLoadPages() {
+        // Save 2500 meetings
+        List<Meeting> meetings = createMeetings(2_500);
+        new MeetingFileStore(file, fakeApi).saveMeetings(meetings);
+
+        // Read them back from a new store, in pages of 1000 meetings
+        MeetingFileStore store = new MeetingFileStore(file, fakeApi);
+        List<Integer> pageSizes = new ArrayList<>();
+        List<Meeting> loaded = new ArrayList<>();
+        List<Meeting> page;
+        while (!(page = store.loadMeetings(loaded.size(), 1_000)).isEmpty()) {
+            pageSizes.add(page.size());
+            loaded.addAll(page);
+        }
+
+        // Check the size of the pages and the content of the meetings
+        assertEquals(Arrays.asList(1_000, 1_000, 500), pageSizes);
+        for (int i = 0; i < meetings.size(); i++) {
+            Meeting expected = meetings.get(i);
+            Meeting actual = loaded.get(i);
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getStartMinute(), actual.getStartMinute());
+            assertEquals(expected.getLocation(), actual.getLocation());
+            assertEquals(expected.getSubject(), actual.getSubject());
+            assertEquals(expected.getParticipants(), actual.getParticipants());
+        }
+
+        // Pages can also be read out of order
+        assertEquals(meetings.get(1_200).getTitle(), store.loadMeetings(1_200, 1).get(0).getTitle());
+    }
+
+    /**
+     * Tests that the repository saves its changes, so a new repository reads them back.
+     */
+    @Test
+    public void testRepositoryChangesSurviveRestart() {
+        MeetingRepository repository = new MeetingRepository(new MeetingFileStore(file, fakeApi));
+        Meeting deletedMeeting = repository.getMeetingsLiveData().getValue().get(0);
+        Meeting addedMeeting = createMeetings(1).get(0); // Before the FakeApi meetings
+        repository.addMeeting(addedMeeting);
+        repository.deleteMeeting(deletedMeeting);
+
+        List<Meeting> meetings = new MeetingRepository(new MeetingFileStore(file, fakeApi)).getMeetingsLiveData().getValue();
+        assertEquals(fakeApi.getMeetings().size(), meetings.size());
+        assertEquals(addedMeeting.getTitle(), meetings.get(0).getTitle());
+        assertEquals(fakeApi.getMeetings().get(1).getTitle(), meetings.get(1).getTitle());
+    }
+
+    /**
+     * Tests that a recurring meeting is stored once, with its rule, in the log and in the snapshot.
+     */
+    @Test
+    public void testRecurringMeetingSurvivesRestart() throws IOException {
+        Meeting series = new Meeting(1L, "Stand-up", START_MINUTE, 15, "Peach", "Point d'équipe",
+                Collections.singletonList("theo.johnson@example.com"), Recurrence.times(Recurrence.Frequency.DAILY, 1_000));
+        MeetingFileStore store = new MeetingFileStore(file, fakeApi);
+        store.saveMeetings(new ArrayList<>());
+        store.saveChanges(Collections.singletonList(MeetingChange.added(series)));
+
+        // Read from the log, then from a compacted snapshot
+        for (int pass = 0; pass < 2; pass++) {
+            List<Meeting> meetings = new MeetingFileStore(file, fakeApi).loadMeetings(0, 100);
+            assertEquals(1, meetings.size());
+            assertEquals(series.getRecurrence(), meetings.get(0).getRecurrence());
+            assertEquals(1_000, meetings.get(0).getOccurrenceCount());
+            store.compact();
+        }
+    }
+
+    /**
+     * Tests that the logged changes are replayed on top of the snapshot.
+     * It performs the following steps:
+     * 1. Saves a snapshot of 10 meetings.
+     * 2. Logs the addition of 2 meetings and the deletion of 3, one of them just added.
+     * 3. Checks that a new store reads the snapshot without the deleted meetings, then the added ones.
+     */
+    @Test
+    public void testLogReplayedOnSnapshot() {
+        // Save a snapshot of 10 meetings
+        List<Meeting> meetings = createMeetings(12);
+        MeetingFileStore store = new MeetingFileStore(file, fakeApi);
+        store.saveMeetings(meetings.subList(0, 10));
+
+        // Log the addition of 2 meetings and the deletion of 3, one of them just added
+        store.saveChanges(Arrays.asList(MeetingChange.added(meetings.get(10)), MeetingChange.deleted(meetings.get(2))));
+        store.saveChanges(Arrays.asList(MeetingChange.added(meetings.get(11)), MeetingChange.deleted(meetings.get(5)),
+                MeetingChange.deleted(meetings.get(10))));
+        store.close();
+
+        // Check that a new store reads the snapshot without the deleted meetings, then the added ones
+        assertEquals(titles(meetings, 0, 1, 3, 4, 6, 7, 8, 9, 11), titles(loadAll(new MeetingFileStore(file, fakeApi))));
+    }
+
+    /**
+     * Tests that a record cut by a crash is dropped, and that the log goes on after the last valid record.
+     * It performs the following steps:
+     * 1. Logs two batches of changes, then cuts the last record as a crash during its write would.
+     * 2. Checks that a new store only reads the complete records.
+     * 3. Logs a new change and checks that it is read back after the complete records.
+     */
+    @Test
+    public void testTornRecordDropped() throws IOException {
+        // Log two batches of changes, then cut the last record as a crash during its write would
+        List<Meeting> meetings = createMeetings(4);
+        MeetingFileStore store = new MeetingFileStore(file, fakeApi);
+        store.saveMeetings(new ArrayList<>());
+        store.saveChanges(Arrays.asList(MeetingChange.added(meetings.get(0)), MeetingChange.added(meetings.get(1))));
+        store.saveChanges(Collections.singletonList(MeetingChange.added(meetings.get(2))));
+        store.close();
+        File logFile = new File(file.getPath() + ".log");
+        try (RandomAccessFile log = new RandomAccessFile(logFile, "rw")) {
+            log.setLength(log.length() - 3);
+        }
+
+        // Check that a new store only reads the complete records
+        store = new MeetingFileStore(file, fakeApi);
+        assertEquals(titles(meetings, 0, 1), titles(loadAll(store)));
+
+        // Log a new change and check that it is read back after the complete records
+        store.saveChanges(Collections.singletonList(MeetingChange.added(meetings.get(3))));
+        store.close();
+        assertEquals(titles(meetings, 0, 1, 3), titles(loadAll(new MeetingFileStore(file, fakeApi))));
+    }
+
+    /**
+     * Tests that the log is folded into the snapshot once it passes the compaction threshold.
+     */
+    @Test
+    public void testCompactionFoldsLog() {
+        List<Meeting> meetings = createMeetings(500);
+        MeetingFileStore store = new MeetingFileStore(file, fakeApi, 4 * 1024);
+        store.saveMeetings(new ArrayList<>());
+        for (Meeting meeting : meetings) {
+            store.saveChanges(Collections.singletonList(MeetingChange.added(meeting)));
+        }
+        store.saveChanges(Collections.singletonList(MeetingChange.deleted(meetings.get(0))));
+
+        assertTrue(store.getLogSize() <= 4 * 1024);
+        store.close();
+        List<Meeting> loaded = loadAll(new MeetingFileStore(file, fakeApi));
+        assertEquals(meetings.size() - 1, loaded.size());
+        assertEquals(meetings.get(1).getTitle(), loaded.get(0).getTitle());
+    }
+
+    /**
+     * Tests a crash during a compaction, once the new snapshot replaced the previous one
+     * but before the log was cleared: the log records already folded must not be applied twice.
+     */
+    @Test
+    public void testCrashDuringCompaction() throws IOException {
+        List<Meeting> meetings = createMeetings(3);
+        MeetingFileStore store = new MeetingFileStore(file, fakeApi);
+        store.saveMeetings(Collections.singletonList(meetings.get(0)));
+        store.saveChanges(Arrays.asList(MeetingChange.added(meetings.get(1)), MeetingChange.added(meetings.get(2)),
+                MeetingChange.deleted(meetings.get(0))));
+
+        // Compact, then restore the log as if the crash happened before it was cleared
+        File logFile = new File(file.getPath() + ".log");
+        File logCopy = temporaryFolder.newFile();
+        Files.copy(logFile.toPath(), logCopy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        store.compact();
+        store.close();
+        Files.copy(logCopy.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        assertEquals(titles(meetings, 1, 2), titles(loadAll(new MeetingFileStore(file, fakeApi))));
+    }
+
+    /**
+     * Tests that meetings whose texts do not fit the 64 KB of writeUTF are stored, in the log and in the snapshot.
+     */
+    @Test
+    public void testLongTextsStored() throws IOException {
+        StringBuilder subject = new StringBuilder();
+        while (subject.length() < 100_000) {
+            subject.append("Ordre du jour détaillé. ");
+        }
+        Meeting meeting = new Meeting("Meeting", START_MINUTE, "Peach", subject.toString(), Collections.singletonList("theo.johnson@example.com"));
+        MeetingFileStore store = new MeetingFileStore(file, fakeApi);
+        store.saveMeetings(new ArrayList<>());
+        store.saveChanges(Collections.singletonList(MeetingChange.added(meeting)));
+        store.close();
+        assertEquals(subject.toString(), loadAll(new MeetingFileStore(file, fakeApi)).get(0).getSubject());
+
+        store = new MeetingFileStore(file, fakeApi);
+        store.compact();
+        store.close();
+        assertEquals(subject.toString(), loadAll(new MeetingFileStore(file, fakeApi)).get(0).getSubject());
+    }
+
+    /**
+     * Tests that a store of the previous version, holding writeUTF strings, is read and rewritten in the current format.
+     * It performs the following steps:
+     * 1. Writes a snapshot of the previous version, by hand.
+     * 2. Reads it, then logs a new meeting.
+     * 3. Checks that the snapshot was rewritten and that a new store reads both meetings.
+     */
+    @Test
+    public void testPreviousVersionUpgraded() throws IOException {
+        List<Meeting> meetings = createMeetings(2);
+
+        // Write a snapshot of the previous version, by hand
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+            output.writeInt(0x4d415245);
+            output.writeInt(4);
+            output.writeLong(0);
+            output.writeInt(1);
+            Meeting meeting = meetings.get(0);
+            output.writeLong(meeting.getId());
+            output.writeUTF(meeting.getTitle());
+            output.writeLong(meeting.getStartMinute());
+            output.writeInt(meeting.getDurationMinutes());
+            output.writeUTF(meeting.getLocation());
+            output.writeUTF(meeting.getSubject());
+            output.writeInt(meeting.getParticipantCount());
+            for (String participant : meeting.getParticipants()) {
+                output.writeUTF(participant);
+            }
+            output.writeUTF("");
+        }
+
+        // Read it, then log a new meeting
+        MeetingFileStore store = new MeetingFileStore(file, fakeApi);
+        assertEquals(titles(meetings, 0), titles(loadAll(store)));
+        store.saveChanges(Collections.singletonList(MeetingChange.added(meetings.get(1))));
+        store.close();
+
+        // Check that the snapshot was rewritten and that a new store reads both meetings
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            input.readInt();
+            assertEquals(5, input.readInt());
+        }
+        assertEquals(titles(meetings, 0, 1), titles(loadAll(new MeetingFileStore(file, fakeApi))));
+    }
+
+    /**
+     * Tests that an unreadable store is set aside and reported, and that a repository reading it
+     * falls back to the default meetings.
+     * It performs the following steps:
+     * 1. Saves meetings, then corrupts the snapshot.
+     * 2. Creates a repository reading it.
+     * 3. Checks that the failure was reported, the files set aside and the default meetings shown.
+     * 4. Adds a meeting and checks that a new store reads it after the default meetings.
+     */
+    @Test
+    public void testCorruptStoreSetAside() throws IOException {
+        // Save meetings, then corrupt the snapshot
+        List<Meeting> meetings = createMeetings(100);
+        MeetingFileStore store = new MeetingFileStore(file, fakeApi);
+        store.saveMeetings(meetings);
+        store.close();
+        try (RandomAccessFile snapshot = new RandomAccessFile(file, "rw")) {
+            snapshot.seek(file.length() / 2);
+            snapshot.write(new byte[64]);
+        }
+
+        // Create a repository reading it
+        MeetingRepository repository = new MeetingRepository(new MeetingFileStore(file, fakeApi));
+
+        // Check that the failure was reported, the files set aside and the default meetings shown
+        assertEquals(StorageError.LOAD_FAILED, repository.getErrorLiveData().getValue());
+        assertFalse(repository.getLoadingLiveData().getValue());
+        assertTrue(new File(file.getPath() + ".corrupt").exists());
+        assertEquals(titles(fakeApi.getMeetings()), titles(repository.getMeetingsLiveData().getValue()));
+
+        // Add a meeting and check that a new store reads it after the default meetings
+        repository.addMeeting(meetings.get(0));
+        List<String> expected = titles(fakeApi.getMeetings());
+        expected.add(meetings.get(0).getTitle());
+        assertEquals(expected, titles(loadAll(new MeetingFileStore(file, fakeApi))));
+    }
+
+    /**
+     * Tests that a batch that could not be written leaves the store unchanged, so that it can be saved again.
+     * It performs the following steps:
+     * 1. Saves a batch whose second meeting is too large to be stored.
+     * 2. Checks that the batch failed and that the store does not read its first meeting.
+     * 3. Saves the first meeting again and checks that it is read once.
+     */
+    @Test
+    public void testFailedBatchNotApplied() {
+        Meeting meeting = createMeetings(1).get(0);
+        char[] subject = new char[17 * 1024 * 1024];
+        Arrays.fill(subject, 'a');
+        Meeting tooLarge = new Meeting("Too large", START_MINUTE, "Peach", new String(subject), Collections.singletonList("theo.johnson@example.com"));
+        MeetingFileStore store = new MeetingFileStore(file, fakeApi);
+        store.saveMeetings(new ArrayList<>());
+
+        // Save a batch whose second meeting is too large to be stored
+        try {
+            store.saveChanges(Arrays.asList(MeetingChange.added(meeting), MeetingChange.added(tooLarge)));
+            fail("The batch holds a meeting too large to be stored");
+        } catch (IllegalStateException expected) {
+            // The repository keeps the batch to save it again
+        }
+
+        // Check that the batch failed and that the store does not read its first meeting
+        assertTrue(loadAll(store).isEmpty());
+
+        // Save the first meeting again and check that it is read once
+        store.saveChanges(Collections.singletonList(MeetingChange.added(meeting)));
+        store.close();
+        assertEquals(titles(Collections.singletonList(meeting)), titles(loadAll(new MeetingFileStore(file, fakeApi))));
+    }
+
+    /**
+     * Tests that the meetings created after a load never reuse a loaded id, even if the clock went back.
+     */
+    @Test
+    public void testNewIdsFollowLoadedIds() {
+        Meeting created = createMeetings(1).get(0);
+        Meeting stored = new Meeting(created.getId() + 1_000_000_000L, "Stored", START_MINUTE, 60, "Peach", "Subject",
+                Collections.singletonList("theo.johnson@example.com"));
+        new MeetingFileStore(file, fakeApi).saveMeetings(Collections.singletonList(stored));
+
+        Meeting loaded = loadAll(new MeetingFileStore(file, fakeApi)).get(0);
+        assertEquals(stored.getId(), loaded.getId());
+        assertTrue(createMeetings(1).get(0).getId() > loaded.getId());
+    }
+
+    /**
+     * Benchmarks the cold start of a repository reading 100k stored meetings.
+     * It performs the following steps:
+     * 1. Stores 100k meetings.
+     * 2. Creates a repository on a new store, loading on a background executor.
+     * 3. Times the construction, the first published page and the full load.
+     */
+    @Test
+    @Category(Benchmark.class)
+    public void benchmarkColdStart100k() throws InterruptedException {
+        // Store 100k meetings
+        int count = 100_000;
+        new MeetingFileStore(file, fakeApi).saveMeetings(createMeetings(count));
+
+        // Create a repository on a new store, loading on a background executor
+        ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+        CountDownLatch firstPage = new CountDownLatch(1);
+        CountDownLatch fullyLoaded = new CountDownLatch(1);
+        long[] firstPageNanos = new long[1];
+        long start = System.nanoTime();
+        MeetingRepository repository = new MeetingRepository(new MeetingFileStore(file, fakeApi), ioExecutor);
+        long constructionNanos = System.nanoTime() - start;
+        repository.getMeetingsLiveData().observeForever(meetings -> {
+            if (!meetings.isEmpty() && firstPage.getCount() > 0) {
+                firstPageNanos[0] = System.nanoTime() - start;
+                firstPage.countDown();
+            }
+            if (meetings.size() == count) {
+                fullyLoaded.countDown();
+            }
+        });
+
+        // Time the construction, the first published page and the full load
+        assertTrue(fullyLoaded.await(30, TimeUnit.SECONDS));
+        long fullLoadNanos = System.nanoTime() - start;
+        ioExecutor.shutdown();
+        String timings = String.format("Cold start with %d stored meetings: construction %d us, first page %d ms, full load %d ms",
+                count, constructionNanos / 1_000, firstPageNanos[0] / 1_000_000, fullLoadNanos / 1_000_000);
+
+        assertTrue(timings, constructionNanos < TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(timings, firstPageNanos[0] <= fullLoadNanos);
+    }
+
+    /**
+     * Loads all the meetings of a store, page by page.
+     *
+     * @param store Store to read.
+     * @return The stored meetings.
+     */
+    private static List<Meeting> loadAll(MeetingFileStore store) {
+        List<Meeting> meetings = new ArrayList<>();
+        List<Meeting> page;
+        while (!(page = store.loadMeetings(meetings.size(), 100)).isEmpty()) {
+            meetings.addAll(page);
+        }
+        return meetings;
+    }
+
+    /**
+     * Gets the titles of meetings.
+     *
+     * @param meetings Meetings.
+     * @param indexes  Positions of the meetings to keep, all of them if none.
+     * @return The titles of the meetings.
+     */
+    private static List<String> titles(List<Meeting> meetings, int... indexes) {
+        List<String> titles = new ArrayList<>();
+        if (indexes.length == 0) {
+            for (Meeting meeting : meetings) {
+                titles.add(meeting.getTitle());
+            }
+        }
+        for (int index : indexes) {
+            titles.add(meetings.get(index).getTitle());
+        }
+        return titles;
+    }
+
+    /**
+     * Creates meetings spread over the rooms, one every 15 minutes.
+     *
+     * @param count Number of meetings to create.
+     * @return The meetings, sorted by date and time.
+     */
+    private static List<Meeting> createMeetings(int count) {
+        List<Meeting> meetings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            meetings.add(new Meeting("Meeting " + i, START_MINUTE + 15L * i, ROOMS.get(i % ROOMS.size()), "Subject " + i,
+                    Arrays.asList("theo.johnson@example.com", "may.smith@example.com")));
+        }
+        return meetings;
+    }
+}
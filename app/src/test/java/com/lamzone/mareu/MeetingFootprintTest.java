@@ -0,0 +1,159 @@
+package com.lamzone.mareu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.lamzone.mareu.model.Meeting;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * Memory footprint tests for the Meeting layout.
+ */
+public class MeetingFootprintTest {
+
+    private static final int COUNT = 100_000;
+    private static final List<String> PARTICIPANTS = Arrays.asList("theo.johnson@example.com", "may.smith@example.com");
+
+    /**
+     * Compares the heap used by 100k meetings holding a Calendar with the compact epoch-minute layout.
+     * It performs the following steps:
+     * 1. Measures the heap retained by meetings holding their own Calendar.
+     * 2. Measures the heap retained by meetings holding a primitive start time.
+     * 3. Checks that the compact layout uses less memory and keeps the same start times.
+     */
+    @Test
+    public void testCompactLayoutFootprint() {
+        long startMillis = Calendar.getInstance().getTimeInMillis();
+
+        // Measure the heap retained by meetings holding their own Calendar
+        long before = usedHeap();
+        List<CalendarMeeting> calendarMeetings = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            Calendar dateTime = Calendar.getInstance();
+            dateTime.setTimeInMillis(startMillis + i * 60_000L);
+            calendarMeetings.add(new CalendarMeeting("Meeting", dateTime, "Peach", "Subject", PARTICIPANTS));
+        }
+        long calendarBytes = usedHeap() - before;
+
+        // Measure the heap retained by meetings holding a primitive start time
+        before = usedHeap();
+        List<Meeting> meetings = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            meetings.add(new Meeting("Meeting", calendarMeetings.get(i).dateTime, "Peach", "Subject", PARTICIPANTS));
+        }
+        long compactBytes = usedHeap() - before;
+
+        // Check that the compact layout uses less memory and keeps the same start times
+        assertTrue(String.format("Calendar layout %d bytes/meeting, epoch-minute layout %d bytes/meeting",
+                calendarBytes / COUNT, compactBytes / COUNT), compactBytes < calendarBytes);
+        assertEquals(calendarMeetings.get(COUNT - 1).dateTime.getTimeInMillis() / 60_000L, meetings.get(COUNT - 1).getStartMinute());
+    }
+
+    /**
+     * Compares the heap used by the same 100k meetings, holding their own participant strings or interned ids.
+     * It performs the following steps:
+     * 1. Measures the heap retained by meetings holding a fresh String per participant, as built from user input.
+     * 2. Measures the heap retained by the same meetings holding participant ids from the dictionary.
+     * 3. Checks that the interned layout uses less memory and resolves the same participants.
+     */
+    @Test
+    public void testInternedParticipantsFootprint() {
+        long startMinute = Calendar.getInstance().getTimeInMillis() / 60_000L;
+
+        // Measure the heap retained by meetings holding a fresh String per participant
+        long before = usedHeap();
+        List<StringMeeting> stringMeetings = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            stringMeetings.add(new StringMeeting("Meeting", startMinute, "Peach", "Subject", participants(i)));
+        }
+        long stringBytes = usedHeap() - before;
+
+        // Measure the heap retained by the same meetings holding participant ids from the dictionary
+        before = usedHeap();
+        List<Meeting> meetings = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            meetings.add(new Meeting("Meeting", startMinute, "Peach", "Subject", participants(i)));
+        }
+        long internedBytes = usedHeap() - before;
+
+        // Check that the interned layout uses less memory and resolves the same participants
+        assertTrue(String.format("Participant strings %d bytes/meeting, interned ids %d bytes/meeting",
+                stringBytes / COUNT, internedBytes / COUNT), internedBytes < stringBytes);
+        for (int i = 0; i < COUNT; i += 1_000) {
+            assertEquals(stringMeetings.get(i).participants, meetings.get(i).getParticipants());
+        }
+        assertSame(meetings.get(0).getParticipants().get(1), meetings.get(1).getParticipants().get(0));
+    }
+
+    /**
+     * Builds the participants of a meeting, as fresh strings read from user input.
+     *
+     * @param index Index of the meeting.
+     * @return Three of 300 distinct e-mails.
+     */
+    private static List<String> participants(int index) {
+        List<String> participants = new ArrayList<>(3);
+        for (int j = 0; j < 3; j++) {
+            participants.add("participant" + ((index + j) % 300) + "@example.com");
+        }
+        return participants;
+    }
+
+    /**
+     * Gets the heap currently in use, after asking the garbage collector to run.
+     *
+     * @return Used heap, in bytes.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Previous Meeting layout, holding its date and time in a Calendar.
+     */
+    private static class CalendarMeeting {
+        final String title;
+        final Calendar dateTime;
+        final String location;
+        final String subject;
+        final List<String> participants;
+
+        CalendarMeeting(String title, Calendar dateTime, String location, String subject, List<String> participants) {
+            this.title = title;
+            this.dateTime = dateTime;
+            this.location = location;
+            this.subject = subject;
+            this.participants = participants;
+        }
+    }
+
+    /**
+     * Meeting layout without interning, holding its own participant strings.
+     */
+    private static class StringMeeting {
+        final String title;
+        final long startMinute;
+        final String location;
+        final String subject;
+        final List<String> participants;
+
+        StringMeeting(String title, long startMinute, String location, String subject, List<String> participants) {
+            this.title = title;
+            this.startMinute = startMinute;
+            this.location = location;
+            this.subject = subject;
+            this.participants = participants;
+        }
+    }
+}
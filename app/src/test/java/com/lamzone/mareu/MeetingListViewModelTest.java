@@ -0,0 +1,159 @@
+package com.lamzone.mareu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.lamzone.mareu.application.MeetingListViewModel;
+import com.lamzone.mareu.data_sources.FakeApi;
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.repository.MeetingRepository;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the MeetingListViewModel class.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class MeetingListViewModelTest {
+
+    private static final List<String> ROOMS = Arrays.asList("Peach", "Mario", "Luigi", "Toad", "Daisy");
+
+    @Mock
+    private FakeApi fakeApi;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private MeetingRepository repository;
+
+    /**
+     * Sets up a repository holding meetings in every room.
+     */
+    @Before
+    public void setUp() {
+        List<Meeting> meetings = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Calendar dateTime = Calendar.getInstance();
+            dateTime.add(Calendar.HOUR_OF_DAY, i);
+            meetings.add(new Meeting("Meeting " + i, dateTime, ROOMS.get(i % ROOMS.size()), "Subject", Arrays.asList("theo.johnson@example.com", "may.smith@example.com")));
+        }
+        when(fakeApi.loadMeetings(anyInt(), anyInt())).thenAnswer(invocation -> FakeApi.getPage(meetings, invocation.getArgument(0), invocation.getArgument(1)));
+        repository = new MeetingRepository(fakeApi);
+    }
+
+    /**
+     * Tests that stale filter requests still waiting for the executor are cancelled.
+     * It performs the following steps:
+     * 1. Fires three filter requests on an executor that has not run anything yet.
+     * 2. Runs the queued requests.
+     * 3. Checks that only the result of the latest request is published.
+     */
+    @Test
+    public void testPendingStaleFiltersAreCancelled() {
+        List<Runnable> queue = new ArrayList<>();
+        MeetingListViewModel viewModel = new MeetingListViewModel(repository, queue::add);
+        List<List<Meeting>> published = new ArrayList<>();
+        viewModel.getFilteredMeetings().observeForever(published::add);
+
+        // Fire three filter requests on an executor that has not run anything yet
+        viewModel.applyFilters(false, true, "Peach", null);
+        viewModel.applyFilters(false, true, "Mario", null);
+        viewModel.applyFilters(false, true, "Luigi", null);
+
+        // Run the queued requests
+        for (Runnable task : queue) {
+            task.run();
+        }
+
+        // Check that only the result of the latest request is published
+        assertEquals(1, published.size());
+        assertEquals(repository.filterMeetings(false, true, "Luigi", null), published.get(0));
+    }
+
+    /**
+     * Tests rapid successive filters on a real background executor.
+     * It performs the following steps:
+     * 1. Fires many filter requests in a row, alternating rooms.
+     * 2. Waits for the background executor to finish.
+     * 3. Checks that the last published result is the one of the latest request.
+     */
+    @Test
+    public void testRapidFiltersPublishLatestResult() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        MeetingListViewModel viewModel = new MeetingListViewModel(repository, executor);
+        List<List<Meeting>> published = new ArrayList<>();
+        viewModel.getFilteredMeetings().observeForever(meetings -> {
+            synchronized (published) {
+                published.add(meetings);
+            }
+        });
+
+        // Fire many filter requests in a row, alternating rooms
+        String latestRoom = null;
+        for (int i = 0; i < 200; i++) {
+            latestRoom = ROOMS.get(i % ROOMS.size());
+            viewModel.applyFilters(false, true, latestRoom, null);
+        }
+
+        // Wait for the background executor to finish
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Check that the last published result is the one of the latest request
+        synchronized (published) {
+            assertFalse(published.isEmpty());
+            assertEquals(repository.filterMeetings(false, true, latestRoom, null), published.get(published.size() - 1));
+        }
+    }
+
+    /**
+     * Tests that a search and the filters compose, whichever is changed last.
+     * It performs the following steps:
+     * 1. Filters by room, then searches a title, and checks that only the matching meetings of the room are published.
+     * 2. Changes the room and checks that the search is kept.
+     * 3. Clears the search and checks that the room filter is kept.
+     */
+    @Test
+    public void testSearchComposesWithFilters() {
+        MeetingListViewModel viewModel = new MeetingListViewModel(repository, Runnable::run);
+        List<List<Meeting>> published = new ArrayList<>();
+        viewModel.getFilteredMeetings().observeForever(published::add);
+
+        // Filter by room, then search a title
+        viewModel.applyFilters(false, true, "Peach", null);
+        viewModel.search("meeting 10");
+        assertTrue(viewModel.isSearching());
+        assertEquals(repository.searchMeetings("meeting 10", false, true, "Peach", null, false, null), published.get(published.size() - 1));
+        for (Meeting meeting : published.get(published.size() - 1)) {
+            assertEquals("Peach", meeting.getLocation());
+            assertTrue(meeting.getTitle().startsWith("Meeting 10"));
+        }
+
+        // Change the room
+        viewModel.applyFilters(false, true, "Mario", null);
+        assertEquals(repository.searchMeetings("meeting 10", false, true, "Mario", null, false, null), published.get(published.size() - 1));
+
+        // Clear the search
+        viewModel.search("");
+        assertFalse(viewModel.isSearching());
+        assertEquals(repository.filterMeetings(false, true, "Mario", null), published.get(published.size() - 1));
+    }
+}
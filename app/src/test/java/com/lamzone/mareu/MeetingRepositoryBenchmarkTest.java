@@ -0,0 +1,525 @@
+package com.lamzone.mareu;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.lamzone.mareu.data_sources.FakeApi;
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.Recurrence;
+import com.lamzone.mareu.repository.FreeSlot;
+import com.lamzone.mareu.repository.MeetingRepository;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JVM benchmarks for the MeetingRepository queries, run on request only.
+ * Each benchmark checks that the indexed path agrees with the scanning one, and reports its timings
+ * in the message of its timing assertions.
+ */
+@RunWith(MockitoJUnitRunner.class)
+@Category(Benchmark.class)
+public class MeetingRepositoryBenchmarkTest {
+
+    private static final int DAYS = 365;
+    private static final int SLOTS_PER_DAY = 10;
+    private static final int ITERATIONS = 20;
+    private static final List<String> ROOMS = Arrays.asList("Peach", "Mario", "Luigi", "Toad", "Daisy");
+    private static final List<String> PARTICIPANTS = Arrays.asList("theo.johnson@example.com", "may.smith@example.com");
+
+    @Mock
+    private FakeApi fakeApi;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    /**
+     * Benchmarks date filtering over 10k meetings.
+     */
+    @Test
+    public void benchmarkDateFilter10k() {
+        benchmarkDateFilter(10_000);
+    }
+
+    /**
+     * Benchmarks date filtering over 100k meetings.
+     */
+    @Test
+    public void benchmarkDateFilter100k() {
+        benchmarkDateFilter(100_000);
+    }
+
+    /**
+     * Benchmarks date filtering over 1M meetings.
+     */
+    @Test
+    public void benchmarkDateFilter1M() {
+        benchmarkDateFilter(1_000_000);
+    }
+
+    /**
+     * Benchmarks room conflict queries over 10k meetings.
+     */
+    @Test
+    public void benchmarkConflicts10k() {
+        benchmarkConflicts(10_000);
+    }
+
+    /**
+     * Benchmarks room conflict queries over 100k meetings.
+     */
+    @Test
+    public void benchmarkConflicts100k() {
+        benchmarkConflicts(100_000);
+    }
+
+    /**
+     * Benchmarks room conflict queries over 1M meetings.
+     */
+    @Test
+    public void benchmarkConflicts1M() {
+        benchmarkConflicts(1_000_000);
+    }
+
+    /**
+     * Benchmarks free slot searches over 100k meetings, JMH style: warmup iterations first,
+     * then measured iterations reporting the mean and percentiles of a search.
+     * It performs the following steps:
+     * 1. Loads 100k meetings of 30 or 60 minutes in 20 rooms, with 3 to 6 participants out of 500.
+     * 2. Runs the warmup iterations, then times each search of the measured iterations.
+     * 3. Checks that every search found its slots and answered within a few milliseconds.
+     */
+    @Test
+    public void benchmarkFreeSlots100k() {
+        // Load 100k meetings in 20 rooms, with 3 to 6 participants out of 500
+        int count = 100_000;
+        List<String> rooms = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rooms.add("Room " + i);
+        }
+        List<String> people = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            people.add("person" + i + "@example.com");
+        }
+        Random random = new Random(42);
+        long firstMinute = TimeUnit.MILLISECONDS.toMinutes(createDate(0, 8).getTimeInMillis());
+        List<Meeting> storedMeetings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<String> participants = new ArrayList<>();
+            for (int j = 3 + random.nextInt(4); j > 0; j--) {
+                participants.add(people.get(random.nextInt(people.size())));
+            }
+            long startMinute = firstMinute + random.nextInt(DAYS) * 1_440L + 30L * random.nextInt(20); // 8h00 to 17h30
+            storedMeetings.add(new Meeting(i, "Meeting " + i, startMinute, 30 + 30 * random.nextInt(2),
+                    rooms.get(random.nextInt(rooms.size())), "Subject", participants));
+        }
+        Collections.sort(storedMeetings);
+        when(fakeApi.getMeetingRooms()).thenReturn(rooms);
+        when(fakeApi.loadMeetings(anyInt(), anyInt())).thenAnswer(invocation -> FakeApi.getPage(storedMeetings, invocation.getArgument(0), invocation.getArgument(1)));
+        MeetingRepository repository = new MeetingRepository(fakeApi);
+        assertEquals(count, repository.getMeetingsLiveData().getValue().size());
+
+        // Searches of 5 slots of an hour for 4 participants, within a week from a random day
+        int searches = 500;
+        List<List<String>> participants = new ArrayList<>();
+        long[] fromMinutes = new long[searches];
+        for (int i = 0; i < searches; i++) {
+            participants.add(Arrays.asList(people.get(random.nextInt(people.size())), people.get(random.nextInt(people.size())),
+                    people.get(random.nextInt(people.size())), people.get(random.nextInt(people.size()))));
+            fromMinutes[i] = firstMinute + random.nextInt(DAYS - 7) * 1_440L;
+        }
+
+        // Run the warmup iterations, then time each search of the measured iterations
+        for (int iteration = 0; iteration < 5; iteration++) {
+            for (int i = 0; i < searches; i++) {
+                repository.findFreeSlots(participants.get(i), 60, fromMinutes[i], fromMinutes[i] + 7 * 1_440, 5);
+            }
+        }
+        long[] nanos = new long[ITERATIONS * searches];
+        int found = 0;
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            for (int i = 0; i < searches; i++) {
+                long start = System.nanoTime();
+                List<FreeSlot> slots = repository.findFreeSlots(participants.get(i), 60, fromMinutes[i], fromMinutes[i] + 7 * 1_440, 5);
+                nanos[iteration * searches + i] = System.nanoTime() - start;
+                found += slots.size();
+            }
+        }
+        long meanNanos = mean(nanos);
+        long p99Nanos = percentile(nanos, 99);
+        String timings = String.format("Free slots over %d meetings: mean %.1f us, p50 %.1f us, p99 %.1f us per search",
+                count, meanNanos / 1000.0, percentile(nanos, 50) / 1000.0, p99Nanos / 1000.0);
+
+        // Check that every search found its slots within a few milliseconds
+        assertEquals(ITERATIONS * searches * 5, found);
+        assertTrue(timings, meanNanos < TimeUnit.MILLISECONDS.toNanos(2));
+        assertTrue(timings, p99Nanos < TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    /**
+     * Benchmarks search-as-you-type over 100k meetings: each query is typed one character at a time,
+     * from its third character on, with and without the date and room filters.
+     * It performs the following steps:
+     * 1. Loads 100k meetings whose titles and subjects mix 2000 project names with common words, with 2 participants out of 500.
+     * 2. Runs the warmup iterations, then times each search of the measured iterations.
+     * 3. Checks that the searches agree with a scan and answered in less than a millisecond on average.
+     */
+    @Test
+    public void benchmarkSearch100k() {
+        // Load 100k meetings whose titles and subjects mix project names with common words
+        int count = 100_000;
+        List<String> words = Arrays.asList("Revue", "Point", "Atelier", "Démo", "Budget", "Recrutement", "Rétrospective", "Formation");
+        Random random = new Random(7);
+        List<String> projects = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            projects.add("Projet " + Integer.toString(46_656 + random.nextInt(1_600_000), 36));
+        }
+        List<String> firstNames = Arrays.asList("theo", "may", "jack", "lina", "hugo", "emma", "louis", "chloe", "noah", "ines",
+                "adam", "jade", "leo", "lea", "gabriel", "alice", "arthur", "rose", "jules", "anna");
+        List<String> lastNames = Arrays.asList("martin", "bernard", "dubois", "thomas", "robert", "richard", "petit", "durand",
+                "leroy", "moreau", "simon", "laurent", "lefebvre", "michel", "garcia", "david", "bertrand", "roux", "vincent", "fournier",
+                "morel", "girard", "andre", "mercier", "dupont");
+        List<String> people = new ArrayList<>();
+        for (String firstName : firstNames) {
+            for (String lastName : lastNames) {
+                people.add(firstName + "." + lastName + "@example.com");
+            }
+        }
+        long firstMinute = TimeUnit.MILLISECONDS.toMinutes(createDate(0, 8).getTimeInMillis());
+        List<Meeting> storedMeetings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String project = projects.get(random.nextInt(projects.size()));
+            storedMeetings.add(new Meeting(i, words.get(random.nextInt(words.size())) + " " + project,
+                    firstMinute + random.nextInt(DAYS) * 1_440L + 30L * random.nextInt(20), 30,
+                    ROOMS.get(random.nextInt(ROOMS.size())), words.get(random.nextInt(words.size())) + " " + i,
+                    Arrays.asList(people.get(random.nextInt(people.size())), people.get(random.nextInt(people.size())))));
+        }
+        Collections.sort(storedMeetings);
+        when(fakeApi.loadMeetings(anyInt(), anyInt())).thenAnswer(invocation -> FakeApi.getPage(storedMeetings, invocation.getArgument(0), invocation.getArgument(1)));
+        MeetingRepository repository = new MeetingRepository(fakeApi);
+        List<Meeting> meetings = repository.getMeetingsLiveData().getValue();
+        assertEquals(count, meetings.size());
+
+        // Queries typed one character at a time: project codes and participant names, from their third character on
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String text = i % 2 == 0 ? projects.get(random.nextInt(projects.size())).substring(7)
+                    : people.get(random.nextInt(people.size())).replace("@example.com", "");
+            for (int length = 3; length <= text.length(); length++) {
+                queries.add(text.substring(0, length));
+            }
+        }
+        Calendar selectedDate = createDate(DAYS / 2, 12);
+
+        // Run the warmup iterations, then time each search of the measured iterations
+        for (int iteration = 0; iteration < 5; iteration++) {
+            for (String query : queries) {
+                repository.searchMeetings(query, false, false, null, null, false, null);
+                repository.searchMeetings(query, true, true, "Peach", selectedDate, false, null);
+            }
+        }
+        long[] nanos = new long[ITERATIONS * queries.size()];
+        long[] filteredNanos = new long[ITERATIONS * queries.size()];
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            for (int i = 0; i < queries.size(); i++) {
+                long start = System.nanoTime();
+                repository.searchMeetings(queries.get(i), false, false, null, null, false, null);
+                nanos[iteration * queries.size() + i] = System.nanoTime() - start;
+                start = System.nanoTime();
+                repository.searchMeetings(queries.get(i), true, true, "Peach", selectedDate, false, null);
+                filteredNanos[iteration * queries.size() + i] = System.nanoTime() - start;
+            }
+        }
+        long meanNanos = mean(nanos);
+        long filteredMeanNanos = mean(filteredNanos);
+        String timings = String.format("Search over %d meetings (%d queries): mean %.1f us, p99 %.1f us; with date and room filters mean %.1f us, p99 %.1f us",
+                count, queries.size(), meanNanos / 1000.0, percentile(nanos, 99) / 1000.0,
+                filteredMeanNanos / 1000.0, percentile(filteredNanos, 99) / 1000.0);
+
+        // Check that the searches agree with a scan, and answered in less than a millisecond on average
+        for (int i = 0; i < queries.size(); i += 25) {
+            String query = queries.get(i).toLowerCase(Locale.ROOT);
+            List<Meeting> expected = new ArrayList<>();
+            for (Meeting meeting : meetings) {
+                if ((meeting.getTitle() + "\n" + meeting.getSubject() + "\n" + meeting.getParticipants()).toLowerCase(Locale.ROOT).contains(query)) {
+                    expected.add(meeting);
+                }
+            }
+            assertEquals(expected, repository.searchMeetings(query));
+        }
+        assertTrue(timings, meanNanos < TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(timings, filteredMeanNanos < TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * Benchmarks the date filter over 100k meetings plus 500 recurring meetings of a year of occurrences.
+     * The series are stored once, and only the occurrences of the filtered day are built.
+     */
+    @Test
+    public void benchmarkRecurringDateFilter100k() {
+        // Load 100k single meetings and 500 daily or weekly series, about 90k occurrences
+        List<Meeting> storedMeetings = createMeetings(100_000);
+        Random random = new Random(7);
+        int occurrenceCount = 0;
+        for (int i = 0; i < 500; i++) {
+            boolean daily = i % 5 == 0;
+            Recurrence recurrence = Recurrence.times(daily ? Recurrence.Frequency.DAILY : Recurrence.Frequency.WEEKLY, daily ? 365 : 52);
+            Meeting series = new Meeting(1_000_000 + i, "Series " + i, TimeUnit.MILLISECONDS.toMinutes(createDate(daily ? 0 : random.nextInt(7), 7).getTimeInMillis()),
+                    30, ROOMS.get(i % ROOMS.size()), "Subject", PARTICIPANTS, recurrence);
+            storedMeetings.add(series);
+            occurrenceCount += series.getOccurrenceCount();
+        }
+        Collections.sort(storedMeetings);
+        when(fakeApi.loadMeetings(anyInt(), anyInt())).thenAnswer(invocation -> FakeApi.getPage(storedMeetings, invocation.getArgument(0), invocation.getArgument(1)));
+        MeetingRepository repository = new MeetingRepository(fakeApi);
+        assertEquals(storedMeetings.size(), repository.getMeetingsLiveData().getValue().size()); // One entry per series
+
+        // Run the warmup iterations, then time the filter of each day of the year, in Peach and in any room
+        for (int iteration = 0; iteration < 5; iteration++) {
+            for (int day = 0; day < DAYS; day++) {
+                repository.filterMeetings(true, false, null, createDate(day, 0));
+            }
+        }
+        long[] nanos = new long[ITERATIONS * DAYS];
+        long[] roomNanos = new long[ITERATIONS * DAYS];
+        int found = 0;
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            for (int day = 0; day < DAYS; day++) {
+                Calendar date = createDate(day, 0);
+                long start = System.nanoTime();
+                found += repository.filterMeetings(true, false, null, date).size();
+                nanos[iteration * DAYS + day] = System.nanoTime() - start;
+                start = System.nanoTime();
+                repository.filterMeetings(true, true, "Peach", date);
+                roomNanos[iteration * DAYS + day] = System.nanoTime() - start;
+            }
+        }
+        long meanNanos = mean(nanos);
+        long roomMeanNanos = mean(roomNanos);
+        String timings = String.format("Date filter over 100000 meetings and 500 series (%d occurrences): mean %.1f us, p99 %.1f us; "
+                        + "with a room filter mean %.1f us, p99 %.1f us",
+                occurrenceCount, meanNanos / 1000.0, percentile(nanos, 99) / 1000.0, roomMeanNanos / 1000.0, percentile(roomNanos, 99) / 1000.0);
+
+        // Check that the filters found every meeting and occurrence, within a millisecond
+        assertEquals(ITERATIONS * (100_000 + occurrenceCount), found);
+        assertTrue(timings, meanNanos < TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(timings, roomMeanNanos < TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * Benchmarks 100k meetings added one by one, as a bulk import or a sync would.
+     * Each mutation only copies a path of the persistent tree, so the import stays far from quadratic.
+     */
+    @Test
+    public void benchmarkSequentialInserts100k() {
+        List<Runnable> ioTasks = new ArrayList<>();
+        MeetingRepository repository = new MeetingRepository(fakeApi, ioTasks::add); // Saves queued, as on the I/O executor
+        ioTasks.remove(0).run(); // Load
+        List<Meeting> meetings = createMeetings(100_000);
+
+        long start = System.nanoTime();
+        for (Meeting meeting : meetings) {
+            repository.addMeeting(meeting);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        while (!ioTasks.isEmpty()) {
+            ioTasks.remove(0).run(); // Publish and save
+        }
+
+        assertEquals(meetings.size(), repository.getMeetingsLiveData().getValue().size());
+        assertTrue(String.format("100000 sequential inserts: %d ms", elapsedMillis), elapsedMillis < 5_000);
+    }
+
+    /**
+     * Compares the scanning date filter with the day index for a given number of meetings.
+     * It performs the following steps:
+     * 1. Loads the meetings into a repository through the mocked FakeApi.
+     * 2. Times both filters on the same day, keeping the best run of each.
+     * 3. Checks that both filters return the same meetings and that the index is faster.
+     *
+     * @param count Number of meetings to load.
+     */
+    private void benchmarkDateFilter(int count) {
+        // Load the meetings into a repository through the mocked FakeApi
+        List<Meeting> storedMeetings = createMeetings(count);
+        when(fakeApi.loadMeetings(anyInt(), anyInt())).thenAnswer(invocation -> FakeApi.getPage(storedMeetings, invocation.getArgument(0), invocation.getArgument(1)));
+        MeetingRepository repository = new MeetingRepository(fakeApi);
+        List<Meeting> meetings = repository.getMeetingsLiveData().getValue();
+        Calendar selectedDate = createDate(DAYS / 2, 12);
+
+        // Time both filters on the same day, keeping the best run of each
+        long bestScanNanos = Long.MAX_VALUE;
+        long bestIndexNanos = Long.MAX_VALUE;
+        List<Meeting> scanned = null;
+        List<Meeting> indexed = null;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            scanned = repository.filterMeetings(meetings, true, false, null, selectedDate);
+            bestScanNanos = Math.min(bestScanNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            indexed = repository.filterMeetings(true, false, null, selectedDate);
+            bestIndexNanos = Math.min(bestIndexNanos, System.nanoTime() - start);
+        }
+
+        // Check that both filters return the same meetings and that the index is faster
+        assertEquals(scanned, indexed);
+        assertEquals(count / DAYS, indexed.size(), 1);
+        assertTrue(String.format("Date filter over %d meetings: scan %d us, day index %d us", count, bestScanNanos / 1000, bestIndexNanos / 1000),
+                bestIndexNanos < bestScanNanos);
+    }
+
+    /**
+     * Compares a scan of the meetings with the room interval trees to find the conflicts of slots,
+     * for a given number of meetings.
+     * It performs the following steps:
+     * 1. Loads the meetings into a repository through the mocked FakeApi.
+     * 2. Times the scan, the availability check and the conflicts query over the same slots.
+     * 3. Checks that the scan and the conflicts query find the same meetings and that the trees are faster.
+     *
+     * @param count Number of meetings to load.
+     */
+    private void benchmarkConflicts(int count) {
+        // Load the meetings into a repository through the mocked FakeApi
+        List<Meeting> storedMeetings = createMeetings(count);
+        when(fakeApi.loadMeetings(anyInt(), anyInt())).thenAnswer(invocation -> FakeApi.getPage(storedMeetings, invocation.getArgument(0), invocation.getArgument(1)));
+        MeetingRepository repository = new MeetingRepository(fakeApi);
+        List<Meeting> meetings = repository.getMeetingsLiveData().getValue();
+
+        // Slots of 45 minutes, starting at 7h30 every day, in each room
+        int queries = DAYS * ROOMS.size();
+        long[] fromMinutes = new long[queries];
+        for (int i = 0; i < queries; i++) {
+            fromMinutes[i] = TimeUnit.MILLISECONDS.toMinutes(createDate(i / ROOMS.size(), 7).getTimeInMillis()) + 30;
+        }
+
+        // Time the scan, the availability check and the conflicts query over the same slots
+        long start = System.nanoTime();
+        int scanned = 0;
+        for (int i = 0; i < queries; i += 50) { // A sample only, the scan being linear
+            for (Meeting meeting : meetings) {
+                if (meeting.getLocation().equals(ROOMS.get(i % ROOMS.size())) && meeting.overlaps(fromMinutes[i], fromMinutes[i] + 45)) {
+                    scanned++;
+                }
+            }
+        }
+        long scanNanos = (System.nanoTime() - start) / ((queries + 49) / 50);
+        start = System.nanoTime();
+        int available = 0;
+        for (int i = 0; i < queries; i++) {
+            if (repository.isRoomAvailable(ROOMS.get(i % ROOMS.size()), fromMinutes[i], fromMinutes[i] + 45)) {
+                available++;
+            }
+        }
+        long availabilityNanos = (System.nanoTime() - start) / queries;
+        start = System.nanoTime();
+        int conflicts = 0;
+        int sampledConflicts = 0;
+        for (int i = 0; i < queries; i++) {
+            int size = repository.getConflicts(ROOMS.get(i % ROOMS.size()), fromMinutes[i], fromMinutes[i] + 45).size();
+            conflicts += size;
+            if (i % 50 == 0) {
+                sampledConflicts += size;
+            }
+        }
+        long conflictsNanos = (System.nanoTime() - start) / queries;
+        // Check that the scan and the conflicts query find the same meetings and that the trees are faster
+        assertEquals(scanned, sampledConflicts);
+        assertEquals(queries - available, countSlotsWithConflicts(repository, fromMinutes));
+        assertTrue(String.format("Conflicts over %d meetings: scan %d us, availability %.2f us, conflicts %.2f us per slot (%d conflicts)",
+                count, scanNanos / 1000, availabilityNanos / 1000.0, conflictsNanos / 1000.0, conflicts), conflictsNanos < scanNanos);
+    }
+
+    /**
+     * Computes the mean of timings.
+     *
+     * @param nanos Timings, in nanoseconds.
+     * @return The mean timing, in nanoseconds.
+     */
+    private static long mean(long[] nanos) {
+        long total = 0;
+        for (long value : nanos) {
+            total += value;
+        }
+        return total / nanos.length;
+    }
+
+    /**
+     * Computes a percentile of timings, sorting them.
+     *
+     * @param nanos      Timings, in nanoseconds, sorted by this method.
+     * @param percentile Percentile, from 0 to 99.
+     * @return The timing at that percentile, in nanoseconds.
+     */
+    private static long percentile(long[] nanos, int percentile) {
+        Arrays.sort(nanos);
+        return nanos[nanos.length * percentile / 100];
+    }
+
+    /**
+     * Counts the slots with at least one conflict, in the room of each slot.
+     *
+     * @param repository  Repository to query.
+     * @param fromMinutes Starts of the 45 minutes slots, in epoch minutes.
+     * @return The number of slots with a conflict.
+     */
+    private static int countSlotsWithConflicts(MeetingRepository repository, long[] fromMinutes) {
+        int slots = 0;
+        for (int i = 0; i < fromMinutes.length; i++) {
+            if (!repository.getConflicts(ROOMS.get(i % ROOMS.size()), fromMinutes[i], fromMinutes[i] + 45).isEmpty()) {
+                slots++;
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Creates meetings spread evenly over a year, sharing one Calendar per time slot.
+     *
+     * @param count Number of meetings to create.
+     * @return The list of meetings.
+     */
+    private static List<Meeting> createMeetings(int count) {
+        Calendar[] slots = new Calendar[DAYS * SLOTS_PER_DAY];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = createDate(i % DAYS, 8 + i / DAYS);
+        }
+        List<Meeting> meetings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            meetings.add(new Meeting("Meeting " + i, slots[i % slots.length], ROOMS.get(i % ROOMS.size()), "Subject", PARTICIPANTS));
+        }
+        return meetings;
+    }
+
+    /**
+     * Creates a date in 2024.
+     *
+     * @param dayOfYear Day of the year, starting from 0.
+     * @param hourOfDay The hour of the day (0-23).
+     * @return A Calendar instance representing the specified date and time.
+     */
+    private static Calendar createDate(int dayOfYear, int hourOfDay) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2024, Calendar.JANUARY, 1, hourOfDay, 0);
+        calendar.add(Calendar.DAY_OF_YEAR, dayOfYear);
+        return calendar;
+    }
+}
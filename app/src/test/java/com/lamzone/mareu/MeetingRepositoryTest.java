@@ -3,26 +3,58 @@ package com.lamzone.mareu;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.arch.core.executor.TaskExecutor;
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
 
 import com.lamzone.mareu.data_sources.FakeApi;
 import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
+import com.lamzone.mareu.model.Recurrence;
+import com.lamzone.mareu.model.StringDictionary;
+import com.lamzone.mareu.repository.FreeSlot;
+import com.lamzone.mareu.repository.MeetingPages;
 import com.lamzone.mareu.repository.MeetingRepository;
+import com.lamzone.mareu.repository.StorageError;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Unit tests for the MeetingRepository class.
@@ -114,7 +146,7 @@ public class MeetingRepositoryTest {
      * Tests the initial loading of meetings from the fake API.
      * It performs the following steps:
      * 1. Sets up initial meetings.
-     * 2. Mocks the getMeetings() method of FakeApi.
+     * 2. Mocks the loadMeetings() method of FakeApi.
      * 3. Checks if the initial meetings are loaded successfully.
      */
     @Test
@@ -124,8 +156,8 @@ public class MeetingRepositoryTest {
         initialMeetings.add(new Meeting("Meeting 1", Calendar.getInstance(), "Room A", "Subject 1", Arrays.asList("theo.johnson@example.com", "may.smith@example.com")));
         initialMeetings.add(new Meeting("Meeting 2", Calendar.getInstance(), "Room B", "Subject 2", Arrays.asList("theo.johnson@example.com", "may.smith@example.com")));
 
-        // Mock the getMeetings() method of FakeApi
-        when(fakeApi.getMeetings()).thenReturn(initialMeetings);
+        // Mock the loadMeetings() method of FakeApi
+        when(fakeApi.loadMeetings(anyInt(), anyInt())).thenAnswer(invocation -> FakeApi.getPage(initialMeetings, invocation.getArgument(0), invocation.getArgument(1)));
         repository = new MeetingRepository(fakeApi);
 
         // Check if the initial meetings are loaded successfully
@@ -135,6 +167,79 @@ public class MeetingRepositoryTest {
         assertTrue(meetings.containsAll(initialMeetings));
     }
 
+    /**
+     * Tests the changes of the server merged before the stored meetings are loaded.
+     * It performs the following steps:
+     * 1. Creates a repository whose loading is held, over three stored meetings.
+     * 2. Merges the deletion of a stored meeting and the addition of a copy of another one.
+     * 3. Loads the meetings and checks that the deleted meeting is skipped and the copy held once.
+     * 4. Checks that the deletion is saved, and that a deletion of an unknown meeting is not once loaded.
+     */
+    @Test
+    public void testRemoteChangesMergedWhileLoading() {
+        // Create a repository whose loading is held, over three stored meetings
+        long startMinute = minuteOf(createDate(20, 2, 2024, 10, 0));
+        Meeting deleted = new Meeting(5_000, "Meeting 1", startMinute, 30, "Peach", "Subject", Arrays.asList("theo.johnson@example.com"));
+        Meeting copied = new Meeting(5_001, "Meeting 2", startMinute + 60, 30, "Peach", "Subject", Arrays.asList("theo.johnson@example.com"));
+        Meeting kept = new Meeting(5_002, "Meeting 3", startMinute + 120, 30, "Peach", "Subject", Arrays.asList("theo.johnson@example.com"));
+        List<Meeting> storedMeetings = Arrays.asList(deleted, copied, kept);
+        when(fakeApi.loadMeetings(anyInt(), anyInt())).thenAnswer(invocation -> FakeApi.getPage(storedMeetings, invocation.getArgument(0), invocation.getArgument(1)));
+        List<Runnable> tasks = new ArrayList<>();
+        repository = new MeetingRepository(fakeApi, tasks::add);
+
+        // Merge the deletion of a stored meeting and the addition of a copy of another one
+        Meeting copy = new Meeting(5_001, "Meeting 2", startMinute + 60, 30, "Peach", "Subject", Arrays.asList("theo.johnson@example.com"));
+        repository.mergeRemoteChanges(Arrays.asList(
+                MeetingChange.deleted(new Meeting(5_000, "Meeting 1", startMinute, 30, "Peach", "Subject", Arrays.asList("theo.johnson@example.com"))),
+                MeetingChange.added(copy)));
+
+        // Load the meetings and check that the deleted meeting is skipped and the copy held once
+        runTasks(tasks);
+        assertEquals(Arrays.asList(copy, kept), repository.getMeetingsLiveData().getValue());
+
+        // Check that the deletion is saved, and that a deletion of an unknown meeting is not once loaded
+        ArgumentCaptor<List<MeetingChange>> captor = ArgumentCaptor.forClass(List.class);
+        verify(fakeApi).saveChanges(captor.capture());
+        List<MeetingChange> saved = captor.getValue();
+        assertEquals(2, saved.size());
+        assertEquals(MeetingChange.Type.DELETED, saved.get(0).getType());
+        assertEquals(5_000, saved.get(0).getMeeting().getId());
+        repository.mergeRemoteChanges(Collections.singletonList(
+                MeetingChange.deleted(new Meeting(5_003, "Meeting 4", startMinute, 30, "Peach", "Subject", Arrays.asList("theo.johnson@example.com")))));
+        runTasks(tasks);
+        verify(fakeApi).saveChanges(anyList());
+    }
+
+    /**
+     * Tests that changes that could not be saved are kept, reported, and saved with the next change.
+     * It performs the following steps:
+     * 1. Makes the first save fail, then adds a meeting.
+     * 2. Checks that the failure was reported and the meeting kept.
+     * 3. Adds another meeting and checks that both are saved, in order.
+     */
+    @Test
+    public void testSaveFailureKeepsChanges() {
+        Meeting first = new Meeting("Meeting 1", Calendar.getInstance(), "Room A", "Subject 1", Collections.singletonList("theo.johnson@example.com"));
+        Meeting second = new Meeting("Meeting 2", Calendar.getInstance(), "Room B", "Subject 2", Collections.singletonList("may.smith@example.com"));
+
+        // Make the first save fail, then add a meeting
+        doThrow(new IllegalStateException("Disk full")).doNothing().when(fakeApi).saveChanges(anyList());
+        repository.addMeeting(first);
+
+        // Check that the failure was reported and the meeting kept
+        assertEquals(StorageError.SAVE_FAILED, repository.getErrorLiveData().getValue());
+        assertTrue(repository.getMeetingsLiveData().getValue().contains(first));
+
+        // Add another meeting and check that both are saved, in order
+        repository.addMeeting(second);
+        ArgumentCaptor<List<MeetingChange>> captor = ArgumentCaptor.forClass(List.class);
+        verify(fakeApi, times(2)).saveChanges(captor.capture());
+        List<MeetingChange> saved = captor.getAllValues().get(1);
+        assertEquals(2, saved.size());
+        assertSame(first, saved.get(0).getMeeting());
+        assertSame(second, saved.get(1).getMeeting());
+    }
+
     /**
      * Tests the initial loading of meeting rooms from the fake API.
      * It performs the following steps:
@@ -157,4 +262,1132 @@ public class MeetingRepositoryTest {
         assertEquals(initialMeetingRooms.size(), meetingRooms.size());
         assertTrue(meetingRooms.containsAll(initialMeetingRooms));
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests the day index used by date queries.
+     * It performs the following steps:
+     * 1. Adds meetings on two different days.
+     * 2. Checks that each day only returns its own meetings.
+     * 3. Deletes a meeting and checks that its day no longer returns it.
+     */
+    @Test
+    public void testGetMeetingsForDay() {
+        // Add meetings on two different days
+        Meeting firstMeeting = new Meeting("Meeting 1", createDate(20, 2, 2024, 10, 0), "Peach", "Subject 1", Arrays.asList("theo.johnson@example.com", "may.smith@example.com"));
+        Meeting secondMeeting = new Meeting("Meeting 2", createDate(20, 2, 2024, 23, 59), "Mario", "Subject 2", Arrays.asList("theo.johnson@example.com", "jack.smith@example.com"));
+        Meeting thirdMeeting = new Meeting("Meeting 3", createDate(21, 2, 2024, 0, 0), "Luigi", "Subject 3", Arrays.asList("theo.johnson@example.com", "jack.smith@example.com"));
+        repository.addMeeting(firstMeeting);
+        repository.addMeeting(secondMeeting);
+        repository.addMeeting(thirdMeeting);
+
+        // Check that each day only returns its own meetings
+        List<Meeting> firstDay = repository.getMeetingsForDay(createDate(20, 2, 2024, 0, 0));
+        assertEquals(2, firstDay.size());
+        assertTrue(firstDay.containsAll(Arrays.asList(firstMeeting, secondMeeting)));
+        assertEquals(Arrays.asList(thirdMeeting), repository.getMeetingsForDay(createDate(21, 2, 2024, 12, 0)));
+
+        // Delete a meeting and check that its day no longer returns it
+        repository.deleteMeeting(firstMeeting);
+        assertEquals(Arrays.asList(secondMeeting), repository.getMeetingsForDay(createDate(20, 2, 2024, 0, 0)));
+    }
+
+    /**
+     * Tests date range queries and the indexed filter.
+     * It performs the following steps:
+     * 1. Adds meetings on three consecutive days.
+     * 2. Checks that a range query returns the meetings of the included days only.
+     * 3. Checks that the indexed filter matches the scanning filter.
+     */
+    @Test
+    public void testGetMeetingsBetweenAndFilter() {
+        // Add meetings on three consecutive days
+        Meeting firstMeeting = new Meeting("Meeting 1", createDate(20, 2, 2024, 10, 0), "Peach", "Subject 1", Arrays.asList("theo.johnson@example.com", "may.smith@example.com"));
+        Meeting secondMeeting = new Meeting("Meeting 2", createDate(21, 2, 2024, 10, 0), "Mario", "Subject 2", Arrays.asList("theo.johnson@example.com", "jack.smith@example.com"));
+        Meeting thirdMeeting = new Meeting("Meeting 3", createDate(22, 2, 2024, 10, 0), "Mario", "Subject 3", Arrays.asList("theo.johnson@example.com", "jack.smith@example.com"));
+        repository.addMeeting(firstMeeting);
+        repository.addMeeting(secondMeeting);
+        repository.addMeeting(thirdMeeting);
+
+        // Check that a range query returns the meetings of the included days only
+        assertEquals(Arrays.asList(secondMeeting, thirdMeeting), repository.getMeetingsBetween(createDate(21, 2, 2024, 18, 0), createDate(22, 2, 2024, 8, 0)));
+        assertTrue(repository.getMeetingsBetween(createDate(22, 2, 2024, 0, 0), createDate(21, 2, 2024, 0, 0)).isEmpty());
+
+        // Check that the indexed filter matches the scanning filter
+        Calendar selectedDate = createDate(21, 2, 2024, 0, 0);
+        List<Meeting> meetings = repository.getMeetingsLiveData().getValue();
+        assertEquals(repository.filterMeetings(meetings, true, false, null, selectedDate), repository.filterMeetings(true, false, null, selectedDate));
+        assertEquals(repository.filterMeetings(meetings, true, true, "Mario", selectedDate), repository.filterMeetings(true, true, "Mario", selectedDate));
+        assertTrue(repository.filterMeetings(true, true, "Peach", selectedDate).isEmpty());
+    }
+
+    /**
+     * Tests the date filters on the days around the epoch, whose epoch-days are negative before it.
+     * It performs the following steps:
+     * 1. Adds a meeting late on December 31, 1969 and another one early on January 1, 1970.
+     * 2. Checks that the scanning filter and the indexed filter return the meeting of each day only.
+     */
+    @Test
+    public void testFilterMeetingsBeforeEpoch() {
+        // Add a meeting late on December 31, 1969 and another one early on January 1, 1970
+        Meeting lastMeeting = new Meeting("Meeting 1", createDate(31, 12, 1969, 23, 0), "Peach", "Subject 1", Arrays.asList("theo.johnson@example.com"));
+        Meeting firstMeeting = new Meeting("Meeting 2", createDate(1, 1, 1970, 1, 0), "Peach", "Subject 2", Arrays.asList("theo.johnson@example.com"));
+        repository.addMeeting(lastMeeting);
+        repository.addMeeting(firstMeeting);
+
+        // Check that the scanning filter and the indexed filter return the meeting of each day only
+        List<Meeting> meetings = repository.getMeetingsLiveData().getValue();
+        Calendar lastDay = createDate(31, 12, 1969, 12, 0);
+        Calendar firstDay = createDate(1, 1, 1970, 12, 0);
+        assertEquals(Arrays.asList(lastMeeting), repository.filterMeetings(meetings, true, false, null, lastDay));
+        assertEquals(Arrays.asList(firstMeeting), repository.filterMeetings(meetings, true, false, null, firstDay));
+        assertEquals(Arrays.asList(lastMeeting), repository.filterMeetings(true, false, null, lastDay));
+        assertEquals(Arrays.asList(firstMeeting), repository.filterMeetings(true, false, null, firstDay));
+    }
+
+    /**
+     * Tests that the date filters follow a change of time zone, as the displayed times do.
+     * It performs the following steps:
+     * 1. Adds a meeting at 0h30 on February 21 in Paris, with a repository created in Paris.
+     * 2. Moves to New York, where the meeting takes place at 18h30 on February 20.
+     * 3. Checks that the meeting is displayed and filtered on February 20.
+     */
+    @Test
+    public void testFiltersFollowTimeZoneChange() {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            // Add a meeting at 0h30 on February 21 in Paris, with a repository created in Paris
+            TimeZone.setDefault(TimeZone.getTimeZone("Europe/Paris"));
+            repository = new MeetingRepository(fakeApi);
+            Meeting meeting = new Meeting("Meeting 1", createDate(21, 2, 2024, 0, 30), "Peach", "Subject 1", Arrays.asList("theo.johnson@example.com"));
+            repository.addMeeting(meeting);
+
+            // Move to New York, where the meeting takes place at 18h30 on February 20
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+
+            // Check that the meeting is displayed and filtered on February 20
+            assertEquals(20, meeting.getDateTime().get(Calendar.DAY_OF_MONTH));
+            List<Meeting> meetings = repository.getMeetingsLiveData().getValue();
+            Calendar selectedDate = createDate(20, 2, 2024, 12, 0);
+            assertEquals(Arrays.asList(meeting), repository.filterMeetings(true, false, null, selectedDate));
+            assertEquals(Arrays.asList(meeting), repository.filterMeetings(meetings, true, false, null, selectedDate));
+            assertTrue(repository.getMeetingsForDay(createDate(21, 2, 2024, 12, 0)).isEmpty());
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    /**
+     * Tests the room index used by location queries.
+     * It performs the following steps:
+     * 1. Adds meetings in two different rooms.
+     * 2. Checks that each room only returns its own meetings, alone and combined with a date.
+     * 3. Deletes a meeting and checks that its room no longer returns it.
+     */
+    @Test
+    public void testGetMeetingsForRoom() {
+        // Add meetings in two different rooms
+        Meeting firstMeeting = new Meeting("Meeting 1", createDate(20, 2, 2024, 10, 0), "Peach", "Subject 1", Arrays.asList("theo.johnson@example.com", "may.smith@example.com"));
+        Meeting secondMeeting = new Meeting("Meeting 2", createDate(21, 2, 2024, 10, 0), "Peach", "Subject 2", Arrays.asList("theo.johnson@example.com", "jack.smith@example.com"));
+        Meeting thirdMeeting = new Meeting("Meeting 3", createDate(21, 2, 2024, 11, 0), "Toad", "Subject 3", Arrays.asList("theo.johnson@example.com", "jack.smith@example.com"));
+        repository.addMeeting(firstMeeting);
+        repository.addMeeting(secondMeeting);
+        repository.addMeeting(thirdMeeting);
+
+        // Check that each room only returns its own meetings, alone and combined with a date
+        assertEquals(Arrays.asList(firstMeeting, secondMeeting), repository.getMeetingsForRoom("Peach"));
+        assertEquals(Arrays.asList(thirdMeeting), repository.filterMeetings(false, true, "Toad", null));
+        assertEquals(Arrays.asList(secondMeeting), repository.filterMeetings(true, true, "Peach", createDate(21, 2, 2024, 0, 0)));
+        assertTrue(repository.getMeetingsForRoom("Daisy").isEmpty());
+
+        // Delete a meeting and check that its room no longer returns it
+        repository.deleteMeeting(secondMeeting);
+        assertEquals(Arrays.asList(firstMeeting), repository.getMeetingsForRoom("Peach"));
+        assertTrue(repository.filterMeetings(true, true, "Peach", createDate(21, 2, 2024, 0, 0)).isEmpty());
+    }
+
+    /**
+     * Tests that the repository keeps its meetings sorted by date and time.
+     * It performs the following steps:
+     * 1. Adds meetings in reverse chronological order.
+     * 2. Checks that the published list is sorted and cannot be modified.
+     * 3. Deletes a meeting sharing its start time with another one and checks that only it is removed.
+     */
+    @Test
+    public void testMeetingsKeptSorted() {
+        // Add meetings in reverse chronological order
+        Meeting lateMeeting = new Meeting("Meeting 1", createDate(22, 2, 2024, 10, 0), "Peach", "Subject 1", Arrays.asList("theo.johnson@example.com", "may.smith@example.com"));
+        Meeting firstEarlyMeeting = new Meeting("Meeting 2", createDate(20, 2, 2024, 10, 0), "Mario", "Subject 2", Arrays.asList("theo.johnson@example.com", "jack.smith@example.com"));
+        Meeting secondEarlyMeeting = new Meeting("Meeting 3", createDate(20, 2, 2024, 10, 0), "Luigi", "Subject 3", Arrays.asList("theo.johnson@example.com", "jack.smith@example.com"));
+        repository.addMeeting(lateMeeting);
+        repository.addMeeting(firstEarlyMeeting);
+        repository.addMeeting(secondEarlyMeeting);
+
+        // Check that the published list is sorted and cannot be modified
+        List<Meeting> meetings = repository.getMeetingsLiveData().getValue();
+        assertEquals(Arrays.asList(firstEarlyMeeting, secondEarlyMeeting, lateMeeting), meetings);
+        try {
+            meetings.add(lateMeeting);
+            fail("The published list should be immutable");
+        } catch (UnsupportedOperationException expected) {
+            // Expected
+        }
+
+        // Delete a meeting sharing its start time with another one and check that only it is removed
+        repository.deleteMeeting(secondEarlyMeeting);
+        assertEquals(Arrays.asList(firstEarlyMeeting, lateMeeting), repository.getMeetingsLiveData().getValue());
+    }
+
+    /**
+     * Tests that published lists are immutable snapshots, unaffected by later mutations.
+     * It performs the following steps:
+     * 1. Adds a meeting and keeps the published list.
+     * 2. Adds and deletes other meetings.
+     * 3. Checks that the kept list still holds exactly the first meeting.
+     */
+    @Test
+    public void testPublishedSnapshotsAreUnaffectedByMutations() {
+        // Add a meeting and keep the published list
+        Meeting firstMeeting = new Meeting("Meeting 1", createDate(20, 2, 2024, 10, 0), "Peach", "Subject 1", Arrays.asList("theo.johnson@example.com", "may.smith@example.com"));
+        repository.addMeeting(firstMeeting);
+        List<Meeting> snapshot = repository.getMeetingsLiveData().getValue();
+
+        // Add and delete other meetings
+        Meeting secondMeeting = new Meeting("Meeting 2", createDate(19, 2, 2024, 10, 0), "Mario", "Subject 2", Arrays.asList("theo.johnson@example.com", "jack.smith@example.com"));
+        repository.addMeeting(secondMeeting);
+        repository.deleteMeeting(firstMeeting);
+
+        // Check that the kept list still holds exactly the first meeting
+        assertEquals(Arrays.asList(firstMeeting), snapshot);
+        assertEquals(Arrays.asList(secondMeeting), repository.getMeetingsLiveData().getValue());
+    }
+
+    /**
+     * Tests the pages of meetings published along with the list.
+     * It performs the following steps:
+     * 1. Adds 250 meetings, one every 10 minutes, in one batch.
+     * 2. Checks the pages found by position and by time, including the last partial page.
+     * 3. Deletes a meeting and checks that the kept pages are unaffected while the new ones skip it.
+     */
+    @Test
+    public void testMeetingPages() {
+        // Add 250 meetings, one every 10 minutes, in one batch
+        List<Meeting> meetingsToAdd = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            meetingsToAdd.add(new Meeting("Meeting " + i, 28_000_000L + 10 * i, "Peach", "Subject", Arrays.asList("theo.johnson@example.com", "may.smith@example.com")));
+        }
+        repository.addMeetings(meetingsToAdd);
+
+        // Check the pages found by position and by time, including the last partial page
+        MeetingPages pages = repository.getMeetingPagesLiveData().getValue();
+        assertNotNull(pages);
+        assertEquals(250, pages.size());
+        assertEquals(meetingsToAdd.subList(100, 200), pages.getPage(100, 100));
+        assertEquals(meetingsToAdd.subList(200, 250), pages.getPage(200, 100));
+        assertTrue(pages.getPage(250, 100).isEmpty());
+        assertEquals(124, pages.getPosition(28_000_000L + 1_235));
+        assertEquals(meetingsToAdd.subList(124, 134), pages.getPage(28_000_000L + 1_235, 10));
+        assertEquals(250, pages.getPosition(Long.MAX_VALUE));
+
+        // Delete a meeting and check that the kept pages are unaffected while the new ones skip it
+        repository.deleteMeeting(meetingsToAdd.get(100));
+        assertEquals(meetingsToAdd.get(100), pages.getPage(100, 1).get(0));
+        assertEquals(meetingsToAdd.get(101), repository.getMeetingPagesLiveData().getValue().getPage(100, 1).get(0));
+    }
+
+    /**
+     * Tests the position of the first meeting differing between two published snapshots, which a paged list rebinds from.
+     * It performs the following steps:
+     * 1. Adds 1000 meetings and keeps the published pages.
+     * 2. Adds a meeting among them and checks that the first difference is its position.
+     * 3. Deletes the last meeting and checks that the first difference is the end of the shorter snapshot.
+     * 4. Checks that pages compared with themselves have no difference before their end.
+     */
+    @Test
+    public void testPagesFirstDifference() {
+        // Add 1000 meetings and keep the published pages
+        List<Meeting> meetingsToAdd = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            meetingsToAdd.add(new Meeting("Meeting " + i, 28_000_000L + 10 * i, "Peach", "Subject", Collections.singletonList("theo.johnson@example.com")));
+        }
+        repository.addMeetings(meetingsToAdd);
+        MeetingPages pages = repository.getMeetingPagesLiveData().getValue();
+
+        // Add a meeting among them and check that the first difference is its position
+        repository.addMeeting(new Meeting("Inserted", 28_000_000L + 10 * 600 + 5, "Peach", "Subject", Collections.singletonList("theo.johnson@example.com")));
+        MeetingPages insertedPages = repository.getMeetingPagesLiveData().getValue();
+        assertEquals(601, insertedPages.getFirstDifference(pages));
+        assertEquals(601, pages.getFirstDifference(insertedPages));
+
+        // Delete the last meeting and check that the first difference is the end of the shorter snapshot
+        repository.deleteMeeting(meetingsToAdd.get(999));
+        assertEquals(1_000, repository.getMeetingPagesLiveData().getValue().getFirstDifference(insertedPages));
+
+        // Check that pages compared with themselves have no difference before their end
+        assertEquals(1_000, pages.getFirstDifference(pages));
+    }
+
+    /**
+     * Tests the booking of meetings in a room already booked around their time.
+     * It performs the following steps:
+     * 1. Books a meeting from 10h00 to 11h00 in a room.
+     * 2. Checks that an overlapping meeting in the same room is refused and reports the booked meeting.
+     * 3. Checks that meetings right after it, or in another room at the same time, are booked.
+     * 4. Deletes the booked meeting and checks that the overlapping meeting can then be booked.
+     */
+    @Test
+    public void testBookMeeting() {
+        // Book a meeting from 10h00 to 11h00 in a room
+        Meeting booked = new Meeting("Meeting 1", createDate(20, 2, 2024, 10, 0), 60, "Peach", "Subject 1", Arrays.asList("theo.johnson@example.com"));
+        assertTrue(repository.bookMeeting(booked).isEmpty());
+
+        // Check that an overlapping meeting in the same room is refused and reports the booked meeting
+        Meeting overlapping = new Meeting("Meeting 2", createDate(20, 2, 2024, 10, 45), 30, "Peach", "Subject 2", Arrays.asList("may.smith@example.com"));
+        assertEquals(Arrays.asList(booked), repository.bookMeeting(overlapping));
+        assertFalse(repository.getMeetingsLiveData().getValue().contains(overlapping));
+        assertFalse(repository.isRoomAvailable("Peach", overlapping.getStartMinute(), overlapping.getEndMinute()));
+
+        // Check that meetings right after it, or in another room at the same time, are booked
+        Meeting next = new Meeting("Meeting 3", createDate(20, 2, 2024, 11, 0), 30, "Peach", "Subject 3", Arrays.asList("may.smith@example.com"));
+        Meeting otherRoom = new Meeting("Meeting 4", createDate(20, 2, 2024, 10, 45), 30, "Mario", "Subject 4", Arrays.asList("may.smith@example.com"));
+        assertTrue(repository.bookMeeting(next).isEmpty());
+        assertTrue(repository.bookMeeting(otherRoom).isEmpty());
+
+        // Delete the booked meeting and check that the overlapping meeting can then be booked
+        repository.deleteMeeting(booked);
+        assertEquals(Arrays.asList(next), repository.getConflicts("Peach", overlapping.getStartMinute(), overlapping.getEndMinute()));
+        repository.deleteMeeting(next);
+        assertTrue(repository.bookMeeting(overlapping).isEmpty());
+    }
+
+    /**
+     * Tests the conflicts queries against a scan, with overlapping meetings of random durations.
+     */
+    @Test
+    public void testConflictsMatchScan() {
+        Random random = new Random(17);
+        List<Meeting> meetings = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            meetings.add(new Meeting(i, "Meeting " + i, 28_000_000L + random.nextInt(20_000), 1 + random.nextInt(240), "Toad", "Subject", Arrays.asList("theo.johnson@example.com")));
+        }
+        repository.addMeetings(meetings);
+
+        for (int i = 0; i < 500; i++) {
+            long fromMinute = 28_000_000L - 300 + random.nextInt(20_600);
+            long toMinute = fromMinute + 1 + random.nextInt(120);
+            List<Meeting> expected = new ArrayList<>();
+            for (Meeting meeting : repository.getMeetingsLiveData().getValue()) {
+                if (meeting.overlaps(fromMinute, toMinute)) {
+                    expected.add(meeting);
+                }
+            }
+            assertEquals(expected, repository.getConflicts("Toad", fromMinute, toMinute));
+            assertEquals(expected.isEmpty(), repository.isRoomAvailable("Toad", fromMinute, toMinute));
+        }
+    }
+
+    /**
+     * Tests the conflicts of recurring meetings against a scan of the expanded occurrences of the room.
+     */
+    @Test
+    public void testSeriesConflictsMatchScan() {
+        Random random = new Random(31);
+        List<Meeting> meetingsToAdd = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Calendar dateTime = createDate(1 + random.nextInt(28), 1 + random.nextInt(3), 2024, 8 + random.nextInt(10), 15 * random.nextInt(4));
+            Recurrence recurrence = i % 4 == 0 ? Recurrence.times(Recurrence.Frequency.DAILY, 1 + random.nextInt(10)) : null;
+            meetingsToAdd.add(new Meeting("Meeting " + i, dateTime, 15 + 15 * random.nextInt(8), i % 2 == 0 ? "Luigi" : "Peach", "Subject",
+                    Arrays.asList("a@example.com"), recurrence));
+        }
+        repository.addMeetings(meetingsToAdd);
+
+        // Expand the occurrences of the room
+        List<Meeting> expanded = new ArrayList<>();
+        for (Meeting meeting : repository.getMeetingsForRoom("Luigi")) {
+            Iterator<Meeting> occurrences = meeting.getOccurrences(Long.MIN_VALUE);
+            while (occurrences.hasNext()) {
+                expanded.add(occurrences.next());
+            }
+        }
+
+        for (int i = 0; i < 50; i++) {
+            Calendar dateTime = createDate(1 + random.nextInt(28), 1 + random.nextInt(3), 2024, 8 + random.nextInt(10), 0);
+            Meeting candidate = new Meeting("Candidate " + i, dateTime, 30, "Luigi", "Subject", Arrays.asList("b@example.com"),
+                    Recurrence.times(Recurrence.Frequency.WEEKLY, 1 + random.nextInt(8)));
+            List<Meeting> expected = new ArrayList<>();
+            for (Meeting meeting : expanded) {
+                for (int j = 0; j < candidate.getOccurrenceCount(); j++) {
+                    Meeting occurrence = candidate.getOccurrence(j);
+                    if (meeting.overlaps(occurrence.getStartMinute(), occurrence.getEndMinute())) {
+                        expected.add(meeting);
+                        break;
+                    }
+                }
+            }
+            Collections.sort(expected);
+            assertEquals(describe(expected), describe(repository.getConflicts(candidate)));
+        }
+    }
+
+    /**
+     * Tests the agenda of a participant as meetings are added and deleted.
+     * It performs the following steps:
+     * 1. Adds meetings with different participants, out of date order.
+     * 2. Checks the agenda of each participant, sorted by date and time.
+     * 3. Deletes a meeting and checks that it left the agendas of its participants only.
+     */
+    @Test
+    public void testGetMeetingsForParticipant() {
+        // Add meetings with different participants, out of date order
+        Meeting first = new Meeting("Meeting 1", createDate(21, 2, 2024, 10, 0), "Peach", "Subject 1", Arrays.asList("theo.johnson@example.com", "may.smith@example.com"));
+        Meeting second = new Meeting("Meeting 2", createDate(20, 2, 2024, 14, 0), "Mario", "Subject 2", Arrays.asList("may.smith@example.com"));
+        Meeting third = new Meeting("Meeting 3", createDate(22, 2, 2024, 9, 0), "Luigi", "Subject 3", Arrays.asList("theo.johnson@example.com", "jack.smith@example.com"));
+        repository.addMeeting(first);
+        repository.addMeeting(second);
+        repository.addMeeting(third);
+
+        // Check the agenda of each participant, sorted by date and time
+        assertEquals(Arrays.asList(first, third), repository.getMeetingsForParticipant("theo.johnson@example.com"));
+        assertEquals(Arrays.asList(second, first), repository.getMeetingsForParticipant("may.smith@example.com"));
+        assertTrue(repository.getMeetingsForParticipant("nobody@example.com").isEmpty());
+
+        // Delete a meeting and check that it left the agendas of its participants only
+        repository.deleteMeeting(first);
+        assertEquals(Arrays.asList(third), repository.getMeetingsForParticipant("theo.johnson@example.com"));
+        assertEquals(Arrays.asList(second), repository.getMeetingsForParticipant("may.smith@example.com"));
+        assertEquals(Arrays.asList(third), repository.getMeetingsForParticipant("jack.smith@example.com"));
+    }
+
+    /**
+     * Tests every combination of the indexed filters, including the participant, against the scanning filter.
+     */
+    @Test
+    public void testParticipantFilterMatchesScan() {
+        List<String> rooms = Arrays.asList("Peach", "Mario", "Luigi");
+        List<String> people = Arrays.asList("a@example.com", "b@example.com", "c@example.com", "d@example.com");
+        Random random = new Random(29);
+        List<Meeting> meetingsToAdd = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            meetingsToAdd.add(new Meeting("Meeting " + i, createDate(1 + random.nextInt(5), 3, 2024, 8 + random.nextInt(10), 0),
+                    rooms.get(random.nextInt(rooms.size())), "Subject",
+                    Arrays.asList(people.get(random.nextInt(people.size())), people.get(random.nextInt(people.size())))));
+        }
+        repository.addMeetings(meetingsToAdd);
+        repository.deleteMeetings(meetingsToAdd.subList(0, 100));
+        List<Meeting> meetings = repository.getMeetingsLiveData().getValue();
+
+        for (int filters = 0; filters < 8; filters++) {
+            boolean filterByDate = (filters & 1) != 0;
+            boolean filterByLocation = (filters & 2) != 0;
+            boolean filterByParticipant = (filters & 4) != 0;
+            for (String participant : Arrays.asList("a@example.com", "d@example.com", "nobody@example.com")) {
+                Calendar selectedDate = createDate(3, 3, 2024, 0, 0);
+                assertEquals(repository.filterMeetings(meetings, filterByDate, filterByLocation, "Mario", selectedDate, filterByParticipant, participant),
+                        repository.filterMeetings(filterByDate, filterByLocation, "Mario", selectedDate, filterByParticipant, participant));
+            }
+        }
+    }
+
+    /**
+     * Tests the search of meetings by title, subject and participant.
+     * It performs the following steps:
+     * 1. Adds meetings with distinct titles, subjects and participants.
+     * 2. Checks that searches ignore case and find the text anywhere in the title, the subject or a participant.
+     * 3. Checks that a search composes with the date and room filters.
+     * 4. Deletes a meeting and checks that it is not found anymore.
+     */
+    @Test
+    public void testSearchMeetings() {
+        // Add meetings with distinct titles, subjects and participants
+        Meeting review = new Meeting("Revue de code", createDate(20, 2, 2024, 10, 0), "Peach", "Application Android", Arrays.asList("theo.johnson@example.com"));
+        Meeting planning = new Meeting("Planification", createDate(21, 2, 2024, 10, 0), "Mario", "Revue du sprint", Arrays.asList("may.smith@example.com"));
+        Meeting lunch = new Meeting("Déjeuner", createDate(21, 2, 2024, 12, 0), "Peach", "Équipe", Arrays.asList("jack.smith@example.com", "may.smith@example.com"));
+        repository.addMeetings(Arrays.asList(review, planning, lunch));
+
+        // Check that searches ignore case and find the text anywhere
+        assertEquals(Arrays.asList(review, planning), repository.searchMeetings("REVUE"));
+        assertEquals(Arrays.asList(review), repository.searchMeetings("droid"));
+        assertEquals(Arrays.asList(planning, lunch), repository.searchMeetings("may.sm"));
+        assertEquals(Arrays.asList(lunch), repository.searchMeetings("éj"));
+        assertTrue(repository.searchMeetings("absent").isEmpty());
+
+        // Check that a search composes with the date and room filters
+        assertEquals(Arrays.asList(planning), repository.searchMeetings("revue", true, false, null, createDate(21, 2, 2024, 0, 0), false, null));
+        assertEquals(Arrays.asList(lunch), repository.searchMeetings("smith", false, true, "Peach", null, false, null));
+
+        // Delete a meeting and check that it is not found anymore
+        repository.deleteMeeting(review);
+        assertEquals(Arrays.asList(planning), repository.searchMeetings("revue"));
+    }
+
+    /**
+     * Tests the search of short texts and the texts of the deleted meetings.
+     * It performs the following steps:
+     * 1. Adds meetings, one of them without subject.
+     * 2. Checks that searches of one and two characters find the meetings holding them.
+     * 3. Deletes a meeting and checks that its title is not found nor kept in the dictionary anymore.
+     * 4. Adds a meeting with that title again and checks that it is found.
+     */
+    @Test
+    public void testSearchShortAndDeletedTexts() {
+        // Add meetings, one of them without subject
+        Meeting review = new Meeting("Revue Zulu", createDate(20, 2, 2024, 10, 0), "Peach", null, Arrays.asList("theo.johnson@example.com"));
+        Meeting planning = new Meeting("Planification", createDate(21, 2, 2024, 10, 0), "Mario", "Sprint", Arrays.asList("may.smith@example.com"));
+        repository.addMeetings(Arrays.asList(review, planning));
+
+        // Check that searches of one and two characters find the meetings holding them
+        assertEquals(Arrays.asList(review), repository.searchMeetings("z"));
+        assertEquals(Arrays.asList(review, planning), repository.searchMeetings("O"));
+        assertEquals(Arrays.asList(planning), repository.searchMeetings("ca"));
+        assertEquals(Arrays.asList(review, planning), repository.searchMeetings(""));
+        assertTrue(repository.searchMeetings("qx").isEmpty());
+
+        // Delete a meeting and check that its title is not found nor kept in the dictionary anymore
+        int titleId = review.getTitleId();
+        repository.deleteMeeting(review);
+        assertTrue(repository.searchMeetings("zu").isEmpty());
+        assertEquals(-1, StringDictionary.getTexts().find("Revue Zulu"));
+        assertNull(StringDictionary.getTexts().lookup(titleId));
+
+        // Add a meeting with that title again and check that it is found
+        Meeting newReview = new Meeting("Revue Zulu", createDate(22, 2, 2024, 10, 0), "Peach", "Code", Arrays.asList("theo.johnson@example.com"));
+        repository.addMeeting(newReview);
+        assertEquals(Arrays.asList(newReview), repository.searchMeetings("zulu"));
+    }
+
+    /**
+     * Tests the ids of the titles and subjects held by the meetings.
+     * It performs the following steps:
+     * 1. Creates two meetings sharing their subject, one of them recurring.
+     * 2. Checks that their ids are the ones of their texts in the dictionary, shared by the occurrences.
+     */
+    @Test
+    public void testMeetingTextIds() {
+        // Create two meetings sharing their subject, one of them recurring
+        Meeting review = new Meeting("Revue de code", createDate(20, 2, 2024, 10, 0), 60, "Peach", "Sprint 12",
+                Arrays.asList("jack.smith@example.com"), Recurrence.times(Recurrence.Frequency.WEEKLY, 10));
+        Meeting planning = new Meeting("Planning", createDate(21, 2, 2024, 10, 0), "Mario", "Sprint 12", Arrays.asList("may.smith@example.com"));
+
+        // Check their ids against the dictionary
+        StringDictionary texts = StringDictionary.getTexts();
+        assertEquals(texts.find("Revue de code"), review.getTitleId());
+        assertEquals(texts.find("Planning"), planning.getTitleId());
+        assertEquals(texts.find("Sprint 12"), review.getSubjectId());
+        assertEquals(review.getSubjectId(), planning.getSubjectId());
+        Meeting occurrence = review.getOccurrences(minuteOf(createDate(1, 3, 2024, 0, 0))).next();
+        assertEquals(review.getTitleId(), occurrence.getTitleId());
+        assertEquals(review.getSubjectId(), occurrence.getSubjectId());
+    }
+
+    /**
+     * Tests the identities of the occurrences of recurring meetings.
+     * It performs the following steps:
+     * 1. Creates two daily meetings with consecutive ids.
+     * 2. Checks that the first occurrence of each one is identified by its id.
+     * 3. Checks that all their occurrences have distinct identities, kept when they are built again.
+     */
+    @Test
+    public void testOccurrenceIds() {
+        // Create two daily meetings with consecutive ids
+        Meeting first = new Meeting(1_000, "Daily", minuteOf(createDate(20, 2, 2024, 9, 0)), 15, "Peach", "Subject",
+                Arrays.asList("jack.smith@example.com"), Recurrence.times(Recurrence.Frequency.DAILY, 100));
+        Meeting second = new Meeting(1_001, "Daily", minuteOf(createDate(20, 2, 2024, 9, 30)), 15, "Peach", "Subject",
+                Arrays.asList("jack.smith@example.com"), Recurrence.times(Recurrence.Frequency.DAILY, 100));
+
+        // Check that the first occurrence of each one is identified by its id
+        assertEquals(1_000, first.getOccurrenceId());
+        assertEquals(1_001, second.getOccurrence(0).getOccurrenceId());
+
+        // Check that all their occurrences have distinct identities, kept when they are built again
+        Set<Long> occurrenceIds = new HashSet<>();
+        for (Meeting series : Arrays.asList(first, second)) {
+            for (int i = 0; i < series.getOccurrenceCount(); i++) {
+                Meeting occurrence = series.getOccurrence(i);
+                assertEquals(i, occurrence.getOccurrenceIndex());
+                assertTrue(occurrence.isSameOccurrence(series.getOccurrence(i)));
+                assertEquals(occurrence.getOccurrenceId(), series.getOccurrence(i).getOccurrenceId());
+                occurrenceIds.add(occurrence.getOccurrenceId());
+            }
+        }
+        assertEquals(200, occurrenceIds.size());
+        assertFalse(first.getOccurrence(1).isSameOccurrence(first.getOccurrence(2)));
+        assertFalse(first.getOccurrence(1).isSameOccurrence(second.getOccurrence(1)));
+    }
+
+    /**
+     * Tests that the searches read the published meetings, indexed on the I/O executor.
+     * It performs the following steps:
+     * 1. Creates a repository whose I/O tasks are held, then loads its meetings.
+     * 2. Adds a meeting and checks that it is neither published nor found before the I/O tasks run.
+     * 3. Runs the I/O tasks and checks that the meeting is both published and found.
+     */
+    @Test
+    public void testSearchFollowsPublishedMeetings() {
+        // Create a repository whose I/O tasks are held, then load its meetings
+        List<Runnable> tasks = new ArrayList<>();
+        repository = new MeetingRepository(fakeApi, tasks::add);
+        runTasks(tasks);
+
+        // Add a meeting, not published nor found yet
+        Meeting meeting = new Meeting("Rétrospective", createDate(20, 2, 2024, 14, 0), "Peach", "Sprint 12", Arrays.asList("jack.smith@example.com"));
+        repository.addMeeting(meeting);
+        assertEquals(Collections.emptyList(), repository.getMeetingsLiveData().getValue());
+        assertEquals(Collections.emptyList(), repository.searchMeetings("rétro"));
+
+        // Run the I/O tasks, which publish and index the meeting
+        runTasks(tasks);
+        assertEquals(Arrays.asList(meeting), repository.getMeetingsLiveData().getValue());
+        assertEquals(Arrays.asList(meeting), repository.searchMeetings("rétro"));
+    }
+
+    /**
+     * Tests searches of random texts, with and without filters, against a scan.
+     */
+    @Test
+    public void testSearchMatchesScan() {
+        List<String> words = Arrays.asList("Revue", "Sprint", "Budget", "Client", "Démo", "Point", "Atelier");
+        Random random = new Random(31);
+        List<Meeting> meetingsToAdd = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            meetingsToAdd.add(new Meeting(words.get(random.nextInt(words.size())) + " " + i, createDate(1 + random.nextInt(5), 3, 2024, 8 + random.nextInt(10), 0),
+                    random.nextBoolean() ? "Peach" : "Mario", words.get(random.nextInt(words.size())),
+                    Arrays.asList("person" + random.nextInt(50) + "@example.com")));
+        }
+        repository.addMeetings(meetingsToAdd);
+        repository.deleteMeetings(meetingsToAdd.subList(0, 200));
+        List<Meeting> meetings = repository.getMeetingsLiveData().getValue();
+
+        for (String query : Arrays.asList("e", "vu", "REV", "sprint", "1", "42", "person4", "on1@", "mo", "xyz")) {
+            for (int filters = 0; filters < 4; filters++) {
+                boolean filterByDate = (filters & 1) != 0;
+                boolean filterByLocation = (filters & 2) != 0;
+                Calendar selectedDate = createDate(3, 3, 2024, 0, 0);
+                List<Meeting> expected = new ArrayList<>();
+                for (Meeting meeting : repository.filterMeetings(meetings, filterByDate, filterByLocation, "Mario", selectedDate)) {
+                    String text = (meeting.getTitle() + "\n" + meeting.getSubject() + "\n" + meeting.getParticipants()).toLowerCase(Locale.ROOT);
+                    if (text.contains(query.toLowerCase(Locale.ROOT))) {
+                        expected.add(meeting);
+                    }
+                }
+                assertEquals(query + " " + filters, expected,
+                        repository.searchMeetings(query, filterByDate, filterByLocation, "Mario", selectedDate, false, null));
+            }
+        }
+    }
+
+    /**
+     * Tests the search of free slots across rooms and participants.
+     * It performs the following steps:
+     * 1. Loads two meeting rooms.
+     * 2. Books a room from 9h00 to 10h00, and the participants in meetings from 9h30 to 10h30 and from 10h45 to 11h15.
+     * 3. Searches slots of 30 minutes between 9h00 and 12h00 and checks the earliest ones, sorted by time then by room.
+     * 4. Checks that a participant without meetings does not restrict the slots.
+     */
+    @Test
+    public void testFindFreeSlots() {
+        // Load two meeting rooms
+        when(fakeApi.getMeetingRooms()).thenReturn(Arrays.asList("Peach", "Mario"));
+        repository = new MeetingRepository(fakeApi);
+
+        // Book a room, and the participants in meetings of other rooms
+        repository.addMeetings(Arrays.asList(
+                new Meeting("Room busy", createDate(20, 2, 2024, 9, 0), 60, "Peach", "Subject", Arrays.asList("jack.smith@example.com")),
+                new Meeting("Theo busy", createDate(20, 2, 2024, 9, 30), 60, "Mario", "Subject", Arrays.asList("theo.johnson@example.com")),
+                new Meeting("May busy", createDate(20, 2, 2024, 10, 45), 30, "Luigi", "Subject", Arrays.asList("may.smith@example.com"))));
+
+        // Search slots of 30 minutes between 9h00 and 12h00
+        long nine = minuteOf(createDate(20, 2, 2024, 9, 0));
+        List<String> participants = Arrays.asList("theo.johnson@example.com", "may.smith@example.com");
+        List<FreeSlot> slots = repository.findFreeSlots(participants, 30, nine, nine + 180, 10);
+        assertEquals(Arrays.asList(
+                new FreeSlot("Mario", nine, nine + 30),
+                new FreeSlot("Peach", nine + 135, nine + 180),
+                new FreeSlot("Mario", nine + 135, nine + 180)), slots);
+        assertEquals(slots.subList(0, 2), repository.findFreeSlots(participants, 30, nine, nine + 180, 2));
+
+        // Check that a participant without meetings does not restrict the slots
+        List<String> withNewcomer = Arrays.asList("theo.johnson@example.com", "may.smith@example.com", "newcomer@example.com");
+        assertEquals(slots, repository.findFreeSlots(withNewcomer, 30, nine, nine + 180, 10));
+    }
+
+    /**
+     * Tests that the free slots use the meeting rooms as soon as they are loaded, before their LiveData is updated.
+     * It performs the following steps:
+     * 1. Holds the values posted to the main thread.
+     * 2. Loads two meeting rooms and checks that their LiveData is not updated yet.
+     * 3. Searches slots of 30 minutes between 9h00 and 10h00 and checks that both rooms are free.
+     */
+    @Test
+    public void testFreeSlotsBeforeRoomsPosted() {
+        // Hold the values posted to the main thread
+        List<Runnable> posted = new ArrayList<>();
+        ArchTaskExecutor.getInstance().setDelegate(new TaskExecutor() {
+            @Override
+            public void executeOnDiskIO(Runnable runnable) {
+                runnable.run();
+            }
+
+            @Override
+            public void postToMainThread(Runnable runnable) {
+                posted.add(runnable);
+            }
+
+            @Override
+            public boolean isMainThread() {
+                return false;
+            }
+        });
+
+        // Load two meeting rooms, whose LiveData is not updated yet
+        when(fakeApi.getMeetingRooms()).thenReturn(Arrays.asList("Peach", "Mario"));
+        repository = new MeetingRepository(fakeApi);
+        assertNull(repository.getMeetingRoomsLiveData().getValue());
+
+        // Search slots of 30 minutes between 9h00 and 10h00
+        long nine = minuteOf(createDate(20, 2, 2024, 9, 0));
+        assertEquals(Arrays.asList(
+                new FreeSlot("Peach", nine, nine + 60),
+                new FreeSlot("Mario", nine, nine + 60)),
+                repository.findFreeSlots(Arrays.asList("theo.johnson@example.com"), 30, nine, nine + 60, 10));
+        assertFalse(posted.isEmpty());
+    }
+
+    /**
+     * Tests the free slots against a minute by minute scan, with overlapping meetings of random durations and participants.
+     */
+    @Test
+    public void testFreeSlotsMatchScan() {
+        List<String> rooms = Arrays.asList("Peach", "Mario", "Luigi");
+        List<String> people = Arrays.asList("a@example.com", "b@example.com", "c@example.com", "d@example.com", "e@example.com", "f@example.com");
+        when(fakeApi.getMeetingRooms()).thenReturn(rooms);
+        repository = new MeetingRepository(fakeApi);
+        Random random = new Random(23);
+        List<Meeting> meetings = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            List<String> participants = new ArrayList<>();
+            for (int j = 1 + random.nextInt(3); j > 0; j--) {
+                participants.add(people.get(random.nextInt(people.size())));
+            }
+            meetings.add(new Meeting(i, "Meeting " + i, 28_000_000L + random.nextInt(4_000), 15 + random.nextInt(180),
+                    rooms.get(random.nextInt(rooms.size())), "Subject", participants));
+        }
+        repository.addMeetings(meetings);
+
+        for (int i = 0; i < 50; i++) {
+            List<String> participants = people.subList(random.nextInt(3), 3 + random.nextInt(4));
+            int durationMinutes = 10 + random.nextInt(60);
+            long fromMinute = 28_000_000L - 200 + random.nextInt(4_000);
+            long toMinute = fromMinute + random.nextInt(1_000);
+            int maxSlots = 1 + random.nextInt(8);
+
+            // Scan each minute of the range in each room
+            List<FreeSlot> expected = new ArrayList<>();
+            for (String room : rooms) {
+                long runStart = fromMinute;
+                for (long minute = fromMinute; minute <= toMinute; minute++) {
+                    if (minute == toMinute || isBusy(meetings, room, participants, minute)) {
+                        if (minute - runStart >= durationMinutes) {
+                            expected.add(new FreeSlot(room, runStart, minute));
+                        }
+                        runStart = minute + 1;
+                    }
+                }
+            }
+            expected.sort((slot1, slot2) -> slot1.getStartMinute() != slot2.getStartMinute()
+                    ? Long.compare(slot1.getStartMinute(), slot2.getStartMinute())
+                    : Integer.compare(rooms.indexOf(slot1.getRoom()), rooms.indexOf(slot2.getRoom())));
+
+            assertEquals(expected.subList(0, Math.min(maxSlots, expected.size())),
+                    repository.findFreeSlots(participants, durationMinutes, fromMinute, toMinute, maxSlots));
+        }
+    }
+
+    /**
+     * Tests a recurring meeting, stored once and expanded by the queries on a time range.
+     * It performs the following steps:
+     * 1. Adds a weekly meeting of 10 occurrences.
+     * 2. Checks that the list of meetings holds it once.
+     * 3. Checks that the date filters find its occurrences, and nothing after the last one.
+     * 4. Checks that an occurrence makes its room unavailable and refuses an overlapping booking.
+     * 5. Deletes an occurrence and checks that the whole series is deleted.
+     */
+    @Test
+    public void testRecurringMeeting() {
+        // Add a weekly meeting of 10 occurrences
+        Meeting standUp = new Meeting("Stand-up", createDate(4, 3, 2024, 9, 30), 15, "Peach", "Point d'équipe",
+                Arrays.asList("theo.johnson@example.com", "may.smith@example.com"), Recurrence.times(Recurrence.Frequency.WEEKLY, 10));
+        assertTrue(repository.bookMeeting(standUp).isEmpty());
+
+        // Check that the list of meetings holds it once
+        assertEquals(Arrays.asList(standUp), repository.getMeetingsLiveData().getValue());
+        assertEquals(10, standUp.getOccurrenceCount());
+
+        // Check that the date filters find its occurrences, and nothing after the last one
+        List<Meeting> thirdWeek = repository.filterMeetings(true, true, "Peach", createDate(18, 3, 2024, 0, 0));
+        assertEquals(1, thirdWeek.size());
+        assertEquals(minuteOf(createDate(18, 3, 2024, 9, 30)), thirdWeek.get(0).getStartMinute());
+        assertEquals(standUp, thirdWeek.get(0).getSeries());
+        assertEquals(describe(thirdWeek), describe(repository.filterMeetings(true, false, null, createDate(18, 3, 2024, 0, 0), true, "may.smith@example.com")));
+        assertTrue(repository.filterMeetings(true, true, "Mario", createDate(18, 3, 2024, 0, 0)).isEmpty());
+        assertTrue(repository.getMeetingsForDay(createDate(19, 3, 2024, 0, 0)).isEmpty());
+        assertEquals(minuteOf(createDate(6, 5, 2024, 9, 30)), repository.getMeetingsForDay(createDate(6, 5, 2024, 0, 0)).get(0).getStartMinute());
+        assertTrue(repository.getMeetingsForDay(createDate(13, 5, 2024, 0, 0)).isEmpty());
+        assertEquals(10, repository.getMeetingsBetween(createDate(1, 3, 2024, 0, 0), createDate(31, 5, 2024, 0, 0)).size());
+        assertEquals(describe(thirdWeek), describe(repository.searchMeetings("stand", true, false, null, createDate(18, 3, 2024, 0, 0), false, null)));
+
+        // Check that an occurrence makes its room unavailable and refuses an overlapping booking
+        long fifthWeek = minuteOf(createDate(1, 4, 2024, 9, 0));
+        assertFalse(repository.isRoomAvailable("Peach", fifthWeek, fifthWeek + 45));
+        assertTrue(repository.isRoomAvailable("Peach", fifthWeek, fifthWeek + 30));
+        Meeting overlapping = new Meeting("Meeting 1", createDate(1, 4, 2024, 9, 0), 45, "Peach", "Subject 1", Arrays.asList("jack.smith@example.com"));
+        List<Meeting> conflicts = repository.bookMeeting(overlapping);
+        assertEquals(1, conflicts.size());
+        assertEquals(fifthWeek + 30, conflicts.get(0).getStartMinute());
+
+        // A daily series crossing the weekly one is refused too, with each of the conflicting occurrences
+        Meeting daily = new Meeting("Meeting 2", createDate(25, 3, 2024, 9, 0), 60, "Peach", "Subject 2",
+                Arrays.asList("jack.smith@example.com"), Recurrence.times(Recurrence.Frequency.DAILY, 14));
+        assertEquals(2, repository.bookMeeting(daily).size());
+
+        // Delete an occurrence and check that the whole series is deleted
+        repository.deleteMeeting(thirdWeek.get(0));
+        assertTrue(repository.getMeetingsLiveData().getValue().isEmpty());
+        assertTrue(repository.getMeetingsForDay(createDate(25, 3, 2024, 0, 0)).isEmpty());
+        assertTrue(repository.bookMeeting(overlapping).isEmpty());
+    }
+
+    /**
+     * Tests the queries on recurring meetings against the same queries on all their occurrences, expanded,
+     * before and after deleting some of the series.
+     */
+    @Test
+    public void testRecurringMeetingsMatchExpansion() {
+        List<String> rooms = Arrays.asList("Peach", "Mario", "Luigi");
+        List<String> people = Arrays.asList("a@example.com", "b@example.com", "c@example.com");
+        Recurrence.Frequency[] frequencies = Recurrence.Frequency.values();
+        Random random = new Random(43);
+        List<Meeting> meetingsToAdd = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Calendar dateTime = createDate(1 + random.nextInt(28), 1 + random.nextInt(3), 2024, 8 + random.nextInt(10), 15 * random.nextInt(4));
+            Recurrence recurrence = null;
+            if (i % 10 == 0) {
+                Recurrence.Frequency frequency = frequencies[random.nextInt(frequencies.length)];
+                recurrence = random.nextBoolean() ? Recurrence.times(frequency, 1 + random.nextInt(20))
+                        : Recurrence.until(frequency, minuteOf(dateTime) + TimeUnit.DAYS.toMinutes(random.nextInt(120)));
+            }
+            meetingsToAdd.add(new Meeting("Meeting " + i, dateTime, 15 + 15 * random.nextInt(8), rooms.get(random.nextInt(rooms.size())), "Subject",
+                    Arrays.asList(people.get(random.nextInt(people.size()))), recurrence));
+        }
+        repository.addMeetings(meetingsToAdd);
+
+        // Check the queries, then again once half of the series are deleted
+        for (int round = 0; round < 2; round++) {
+            if (round == 1) {
+                List<Meeting> deletedSeries = new ArrayList<>();
+                for (int i = 0; i < meetingsToAdd.size(); i += 20) {
+                    deletedSeries.add(meetingsToAdd.get(i));
+                }
+                repository.deleteMeetings(deletedSeries);
+            }
+            checkRecurringMeetingsMatchExpansion(random);
+        }
+    }
+
+    // Checks the queries of a day every three days against the expanded occurrences of the repository
+    private void checkRecurringMeetingsMatchExpansion(Random random) {
+        // Expand every occurrence
+        List<Meeting> expanded = new ArrayList<>();
+        for (Meeting meeting : repository.getMeetingsLiveData().getValue()) {
+            Iterator<Meeting> occurrences = meeting.getOccurrences(Long.MIN_VALUE);
+            while (occurrences.hasNext()) {
+                expanded.add(occurrences.next());
+            }
+        }
+        Collections.sort(expanded);
+
+        for (int day = 0; day < 200; day += 3) {
+            Calendar selectedDate = createDate(1, 1, 2024, 0, 0);
+            selectedDate.add(Calendar.DAY_OF_MONTH, day);
+            long dayStart = minuteOf(selectedDate);
+            Calendar nextDate = (Calendar) selectedDate.clone();
+            nextDate.add(Calendar.DAY_OF_MONTH, 1);
+            long dayEnd = minuteOf(nextDate);
+
+            // Date filters, alone and with the room and participant filters
+            List<Meeting> expected = new ArrayList<>();
+            List<Meeting> expectedWithFilters = new ArrayList<>();
+            List<Meeting> expectedParticipant = new ArrayList<>();
+            for (Meeting meeting : expanded) {
+                if (meeting.getStartMinute() >= dayStart && meeting.getStartMinute() < dayEnd) {
+                    expected.add(meeting);
+                    if (meeting.getParticipants().contains("b@example.com")) {
+                        expectedParticipant.add(meeting);
+                        if (meeting.getLocation().equals("Mario")) {
+                            expectedWithFilters.add(meeting);
+                        }
+                    }
+                }
+            }
+            assertEquals(describe(expected), describe(repository.getMeetingsForDay(selectedDate)));
+            assertEquals(describe(expected), describe(repository.filterMeetings(true, false, null, selectedDate)));
+            assertEquals(describe(expectedWithFilters), describe(repository.filterMeetings(true, true, "Mario", selectedDate, true, "b@example.com")));
+            assertEquals(describe(expectedWithFilters), describe(repository.filterMeetings(repository.getMeetingsLiveData().getValue(),
+                    true, true, "Mario", selectedDate, true, "b@example.com")));
+            assertEquals(describe(expectedParticipant), describe(repository.filterMeetings(true, false, null, selectedDate, true, "b@example.com")));
+            assertEquals(describe(expectedParticipant), describe(repository.searchMeetings("b@ex", true, false, null, selectedDate, false, null)));
+
+            // Conflicts of a slot in the middle of the day
+            long fromMinute = dayStart + 9 * 60 + random.nextInt(8 * 60);
+            long toMinute = fromMinute + 1 + random.nextInt(120);
+            List<Meeting> expectedConflicts = new ArrayList<>();
+            for (Meeting meeting : expanded) {
+                if (meeting.getLocation().equals("Luigi") && meeting.overlaps(fromMinute, toMinute)) {
+                    expectedConflicts.add(meeting);
+                }
+            }
+            assertEquals(describe(expectedConflicts), describe(repository.getConflicts("Luigi", fromMinute, toMinute)));
+            assertEquals(expectedConflicts.isEmpty(), repository.isRoomAvailable("Luigi", fromMinute, toMinute));
+
+            // Free slots of a participant during the day
+            List<FreeSlot> slots = repository.findFreeSlots(Arrays.asList("a@example.com"), 30, dayStart, dayEnd, 100);
+            for (FreeSlot slot : slots) {
+                for (long minute = slot.getStartMinute(); minute < slot.getEndMinute(); minute++) {
+                    assertFalse(isBusy(expanded, slot.getRoom(), Arrays.asList("a@example.com"), minute));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that batch mutations publish a single new list of meetings.
+     * It performs the following steps:
+     * 1. Observes the list of meetings.
+     * 2. Adds 10k meetings in one batch and checks that a single list holding all of them is emitted.
+     * 3. Deletes half of them in one batch and checks that a single list is emitted.
+     * 4. Runs a transaction mixing additions and deletions and checks that a single list is emitted.
+     * 5. Runs a transaction changing nothing and checks that nothing is emitted.
+     */
+    @Test
+    public void testBatchMutationsEmitOnce() {
+        // Observe the list of meetings
+        final int[] emissions = {0};
+        repository.getMeetingsLiveData().observeForever(meetings -> emissions[0]++);
+        emissions[0] = 0;
+
+        // Add 10k meetings in one batch
+        List<Meeting> meetingsToAdd = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            meetingsToAdd.add(new Meeting("Meeting " + i, createDate(1 + i % 28, 3, 2024, 8 + i % 10, 0), "Peach", "Subject", Arrays.asList("theo.johnson@example.com", "may.smith@example.com")));
+        }
+        repository.addMeetings(meetingsToAdd);
+        assertEquals(1, emissions[0]);
+        assertEquals(10_000, repository.getMeetingsLiveData().getValue().size());
+
+        // Delete half of them in one batch
+        repository.deleteMeetings(meetingsToAdd.subList(0, 5_000));
+        assertEquals(2, emissions[0]);
+        assertEquals(5_000, repository.getMeetingsLiveData().getValue().size());
+
+        // Run a transaction mixing additions and deletions
+        Meeting newMeeting = new Meeting("New meeting", createDate(1, 4, 2024, 9, 0), "Mario", "Subject", Arrays.asList("theo.johnson@example.com", "jack.smith@example.com"));
+        repository.update(editor -> editor.addMeeting(newMeeting).deleteMeeting(meetingsToAdd.get(9_999)));
+        assertEquals(3, emissions[0]);
+        List<Meeting> meetings = repository.getMeetingsLiveData().getValue();
+        assertEquals(5_000, meetings.size());
+        assertTrue(meetings.contains(newMeeting));
+        assertFalse(meetings.contains(meetingsToAdd.get(9_999)));
+
+        // Run a transaction changing nothing
+        repository.update(editor -> editor.deleteMeeting(meetingsToAdd.get(0)));
+        assertEquals(3, emissions[0]);
+    }
+
+    /**
+     * Tests that concurrent writers lose no update, in the published list nor in the saved changes.
+     * It performs the following steps:
+     * 1. Starts 8 threads, each one adding 2,000 meetings and deleting every other one, one change at a time.
+     * 2. Checks that the published list holds exactly the meetings kept by every thread.
+     * 3. Replays the saved changes and checks that they lead to the same meetings.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConcurrentWritersLoseNoUpdate() throws Exception {
+        ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+        MeetingRepository concurrentRepository = new MeetingRepository(fakeApi, ioExecutor);
+
+        // Start 8 threads, each one adding 2,000 meetings and deleting every other one, one change at a time
+        int threads = 8;
+        int meetingsPerThread = 2_000;
+        List<Meeting> kept = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService writers = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            results.add(writers.submit(() -> {
+                start.await();
+                Meeting previous = null;
+                for (int i = 0; i < meetingsPerThread; i++) {
+                    Meeting meeting = new Meeting("Meeting " + thread + "-" + i, createDate(1 + i % 28, 3, 2024, 8 + thread, i % 60), "Peach", "Subject", Arrays.asList("theo.johnson@example.com"));
+                    concurrentRepository.addMeeting(meeting);
+                    if (i % 2 == 1) {
+                        concurrentRepository.deleteMeeting(previous);
+                        kept.add(meeting);
+                    }
+                    previous = meeting;
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(1, TimeUnit.MINUTES);
+        }
+        writers.shutdown();
+        ioExecutor.shutdown();
+        assertTrue(ioExecutor.awaitTermination(1, TimeUnit.MINUTES));
+
+        // Check that the published list holds exactly the meetings kept by every thread
+        List<Meeting> meetings = concurrentRepository.getMeetingsLiveData().getValue();
+        assertEquals(threads * meetingsPerThread / 2, meetings.size());
+        Set<Meeting> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+        expected.addAll(kept);
+        Set<Meeting> published = Collections.newSetFromMap(new IdentityHashMap<>());
+        published.addAll(meetings);
+        assertEquals(expected, published);
+
+        // Replay the saved changes and check that they lead to the same meetings
+        ArgumentCaptor<List<MeetingChange>> captor = ArgumentCaptor.forClass(List.class);
+        verify(fakeApi, atLeastOnce()).saveChanges(captor.capture());
+        Set<Meeting> saved = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<MeetingChange> changes : captor.getAllValues()) {
+            for (MeetingChange change : changes) {
+                if (change.getType() == MeetingChange.Type.ADDED) {
+                    assertTrue(saved.add(change.getMeeting()));
+                } else {
+                    assertTrue(saved.remove(change.getMeeting()));
+                }
+            }
+        }
+        assertEquals(expected, saved);
+    }
+
+    /**
+     * Tests that concurrent bookings of the same slots never book a room twice.
+     * It performs the following steps:
+     * 1. Starts 8 threads, each one trying to book the same 100 slots of a room, in its own order.
+     * 2. Checks that each slot was booked by exactly one thread, and that the booked meetings do not overlap.
+     */
+    @Test
+    public void testConcurrentBookingsNeverOverlap() throws Exception {
+        // Start 8 threads, each one trying to book the same 100 slots of a room, in its own order
+        int threads = 8;
+        int slots = 100;
+        AtomicInteger booked = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService writers = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            results.add(writers.submit(() -> {
+                List<Integer> order = new ArrayList<>();
+                for (int slot = 0; slot < slots; slot++) {
+                    order.add(slot);
+                }
+                Collections.shuffle(order, new Random(thread));
+                start.await();
+                for (int slot : order) {
+                    // Each thread books the slot with a different length, so that it also overlaps the next slots
+                    Meeting meeting = new Meeting("Meeting " + thread + "-" + slot, createDate(1 + slot / 10, 3, 2024, 8 + slot % 10, 0), 60 + thread % 2 * 30, "Peach", "Subject", Arrays.asList("theo.johnson@example.com"));
+                    if (repository.bookMeeting(meeting).isEmpty()) {
+                        booked.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(1, TimeUnit.MINUTES);
+        }
+        writers.shutdown();
+
+        // Check that each booking was published and that the booked meetings do not overlap
+        List<Meeting> meetings = repository.getMeetingsLiveData().getValue();
+        assertEquals(booked.get(), meetings.size());
+        assertTrue(booked.get() >= slots / 2);
+        for (int i = 1; i < meetings.size(); i++) {
+            assertTrue(meetings.get(i - 1).getEndMinute() <= meetings.get(i).getStartMinute());
+        }
+    }
+
+    /**
+     * Checks whether a room or one of the participants is in a meeting during a minute.
+     *
+     * @param meetings     Meetings to scan.
+     * @param room         Name of the room.
+     * @param participants Email addresses of the participants.
+     * @param minute       Minute to check, in epoch minutes.
+     * @return true if a meeting in the room or with a participant overlaps the minute, false otherwise.
+     */
+    private static boolean isBusy(List<Meeting> meetings, String room, List<String> participants, long minute) {
+        for (Meeting meeting : meetings) {
+            if (meeting.overlaps(minute, minute + 1)
+                    && (meeting.getLocation().equals(room) || !Collections.disjoint(meeting.getParticipants(), participants))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Describes meetings by their id and start time, since occurrences are built on each query.
+     *
+     * @param meetings Meetings to describe.
+     * @return The id and the start time of each meeting, in order.
+     */
+    private static List<String> describe(List<Meeting> meetings) {
+        List<String> descriptions = new ArrayList<>();
+        for (Meeting meeting : meetings) {
+            descriptions.add(meeting.getId() + "@" + meeting.getStartMinute());
+        }
+        return descriptions;
+    }
+
+    /**
+     * Runs the held tasks of an executor, including the ones they queue.
+     *
+     * @param tasks Tasks held by the executor, in order.
+     */
+    private static void runTasks(List<Runnable> tasks) {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    /**
+     * Converts a date to epoch minutes.
+     *
+     * @param date Date to convert.
+     * @return The date, in epoch minutes.
+     */
+    private static long minuteOf(Calendar date) {
+        return TimeUnit.MILLISECONDS.toMinutes(date.getTimeInMillis());
+    }
+
+    /**
+     * Utility method to create a Calendar instance with specific date and time.
+     *
+     * @param dayOfMonth The day of the month.
+     * @param month      The month (1-12).
+     * @param year       The year.
+     * @param hourOfDay  The hour of the day (0-23).
+     * @param minute     The minutes (0-59).
+     * @return A Calendar instance representing the specified date and time.
+     */
+    private static Calendar createDate(int dayOfMonth, int month, int year, int hourOfDay, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, dayOfMonth, hourOfDay, minute);
+        return calendar;
+    }
+}
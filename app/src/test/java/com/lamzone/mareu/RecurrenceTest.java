@@ -0,0 +1,106 @@
+package com.lamzone.mareu;
+
+import static org.junit.Assert.assertEquals;
+
+import com.lamzone.mareu.model.Recurrence;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the Recurrence class.
+ */
+public class RecurrenceTest {
+
+    private static final TimeZone PARIS = TimeZone.getTimeZone("Europe/Paris");
+
+    /**
+     * Tests that the occurrences keep their local time across a daylight saving change.
+     */
+    @Test
+    public void testOccurrencesKeepLocalTime() {
+        Recurrence recurrence = new Recurrence(Recurrence.Frequency.WEEKLY, 4, Long.MAX_VALUE, PARIS);
+        long firstStartMinute = minuteOf(2024, Calendar.MARCH, 25, 9, 0); // The clocks change on the 31st
+
+        Calendar occurrence = Calendar.getInstance(PARIS);
+        for (int i = 0; i < 4; i++) {
+            occurrence.setTimeInMillis(TimeUnit.MINUTES.toMillis(recurrence.getOccurrenceStart(firstStartMinute, i)));
+            assertEquals(25 + 7 * i, occurrence.get(Calendar.DAY_OF_YEAR) - 60); // 2024 is a leap year
+            assertEquals(9, occurrence.get(Calendar.HOUR_OF_DAY));
+        }
+    }
+
+    /**
+     * Tests that a monthly meeting on the 31st takes place on the last day of shorter months.
+     */
+    @Test
+    public void testMonthlyOnLastDay() {
+        Recurrence recurrence = new Recurrence(Recurrence.Frequency.MONTHLY, 0, minuteOf(2024, Calendar.JULY, 1, 0, 0), PARIS);
+        long firstStartMinute = minuteOf(2024, Calendar.JANUARY, 31, 14, 0);
+
+        assertEquals(6, recurrence.getOccurrenceCount(firstStartMinute));
+        int[] days = {31, 29, 31, 30, 31, 30};
+        Calendar occurrence = Calendar.getInstance(PARIS);
+        for (int i = 0; i < days.length; i++) {
+            occurrence.setTimeInMillis(TimeUnit.MINUTES.toMillis(recurrence.getOccurrenceStart(firstStartMinute, i)));
+            assertEquals(Calendar.JANUARY + i, occurrence.get(Calendar.MONTH));
+            assertEquals(days[i], occurrence.get(Calendar.DAY_OF_MONTH));
+            assertEquals(14, occurrence.get(Calendar.HOUR_OF_DAY));
+        }
+    }
+
+    /**
+     * Tests the direct search of the first occurrence after a time against a walk through the occurrences.
+     */
+    @Test
+    public void testIndexAtOrAfterMatchesWalk() {
+        Random random = new Random(3);
+        for (Recurrence.Frequency frequency : Recurrence.Frequency.values()) {
+            Recurrence recurrence = new Recurrence(frequency, 400, Long.MAX_VALUE, PARIS);
+            long firstStartMinute = minuteOf(2023, Calendar.JANUARY, 1 + random.nextInt(31), random.nextInt(24), 0);
+            for (int i = 0; i < 1_000; i++) {
+                long minute = firstStartMinute - 1_000 + (long) random.nextInt(400 * 24 * 60) * (frequency == Recurrence.Frequency.DAILY ? 1 : 30);
+                int expected = 0;
+                while (expected < 400 && recurrence.getOccurrenceStart(firstStartMinute, expected) < minute) {
+                    expected++;
+                }
+                assertEquals(expected, recurrence.indexAtOrAfter(firstStartMinute, minute, 400));
+            }
+        }
+    }
+
+    /**
+     * Tests that a rule is read back from its text.
+     */
+    @Test
+    public void testRuleRoundTrip() {
+        Recurrence byCount = new Recurrence(Recurrence.Frequency.DAILY, 12, Long.MAX_VALUE, PARIS);
+        Recurrence byDate = new Recurrence(Recurrence.Frequency.MONTHLY, 0, 28_500_000L, TimeZone.getTimeZone("UTC"));
+
+        assertEquals("FREQ=DAILY;COUNT=12;TZID=Europe/Paris", byCount.toRule());
+        assertEquals(byCount, Recurrence.parse(byCount.toRule()));
+        assertEquals(byDate, Recurrence.parse(byDate.toRule()));
+        assertEquals(28_500_000L, Recurrence.parse(byDate.toRule()).getUntilMinute());
+    }
+
+    /**
+     * Converts a local date and time in Paris to epoch minutes.
+     *
+     * @param year       The year.
+     * @param month      The month, as a Calendar constant.
+     * @param dayOfMonth The day of the month.
+     * @param hourOfDay  The hour of the day (0-23).
+     * @param minute     The minutes (0-59).
+     * @return The date and time, in epoch minutes.
+     */
+    private static long minuteOf(int year, int month, int dayOfMonth, int hourOfDay, int minute) {
+        Calendar calendar = Calendar.getInstance(PARIS);
+        calendar.clear();
+        calendar.set(year, month, dayOfMonth, hourOfDay, minute);
+        return TimeUnit.MILLISECONDS.toMinutes(calendar.getTimeInMillis());
+    }
+}
@@ -0,0 +1,173 @@
+package com.lamzone.mareu.di;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.lamzone.mareu.Benchmark;
+import com.lamzone.mareu.data_sources.FakeApi;
+import com.lamzone.mareu.data_sources.MeetingFileStore;
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.repository.MeetingRepository;
+import com.lamzone.mareu.repository.StorageError;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for the Injector class, and benchmark of the application startup, run with the benchmarks.
+ */
+public class InjectorTest {
+
+    private static final List<String> ROOMS = Arrays.asList("Peach", "Mario", "Luigi", "Toad", "Daisy");
+    private static final long START_MINUTE = 28_000_000L; // March 2023
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Tests that the data source is created once, on the I/O executor rather than on the thread creating the repository.
+     * It performs the following steps:
+     * 1. Creates a repository on a lazy data source recording the thread creating it.
+     * 2. Waits for the meetings to be loaded.
+     * 3. Checks that the data source was created once, on another thread, and that the meetings were loaded from it.
+     */
+    @Test
+    public void testDataSourceCreatedOnIoExecutor() throws InterruptedException {
+        // Create a repository on a lazy data source recording the thread creating it
+        AtomicInteger creations = new AtomicInteger();
+        Thread[] creatingThread = new Thread[1];
+        ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+        MeetingRepository repository = new MeetingRepository(new LazyMeetingDataSource(() -> {
+            creations.incrementAndGet();
+            creatingThread[0] = Thread.currentThread();
+            return new FakeApi();
+        }), ioExecutor);
+
+        // Wait for the meetings to be loaded
+        CountDownLatch loaded = new CountDownLatch(1);
+        repository.getLoadingLiveData().observeForever(loading -> {
+            if (!loading) {
+                loaded.countDown();
+            }
+        });
+        assertTrue(loaded.await(30, TimeUnit.SECONDS));
+        ioExecutor.shutdown();
+
+        // Check that the data source was created once, on another thread, and that the meetings were loaded from it
+        assertEquals(1, creations.get());
+        assertNotSame(Thread.currentThread(), creatingThread[0]);
+        assertEquals(new FakeApi().getMeetingRooms(), repository.getMeetingRoomsLiveData().getValue());
+        assertEquals(new FakeApi().loadMeetings(0, Integer.MAX_VALUE).size(), repository.getMeetingsLiveData().getValue().size());
+    }
+
+    /**
+     * Tests that a data source failing to be created is reported as a storage error, without losing the changes.
+     * It performs the following steps:
+     * 1. Creates a repository on a lazy data source whose creation fails.
+     * 2. Waits for the end of the loading and checks that the failure was reported.
+     * 3. Adds a meeting and checks that it is kept although it could not be saved.
+     */
+    @Test
+    public void testDataSourceFailureReported() throws InterruptedException {
+        // Create a repository on a lazy data source whose creation fails
+        ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+        MeetingRepository repository = new MeetingRepository(new LazyMeetingDataSource(() -> {
+            throw new IOException("Files directory not available");
+        }), ioExecutor);
+
+        // Wait for the end of the loading and check that the failure was reported
+        CountDownLatch loaded = new CountDownLatch(1);
+        repository.getLoadingLiveData().observeForever(loading -> {
+            if (!loading) {
+                loaded.countDown();
+            }
+        });
+        assertTrue(loaded.await(30, TimeUnit.SECONDS));
+        assertSame(StorageError.LOAD_FAILED, repository.getErrorLiveData().getValue());
+        assertTrue(repository.getMeetingsLiveData().getValue().isEmpty());
+
+        // Add a meeting, kept although it could not be saved
+        Meeting meeting = new Meeting("Meeting", START_MINUTE, "Peach", "Subject", Arrays.asList("theo.johnson@example.com"));
+        repository.addMeeting(meeting);
+        ioExecutor.shutdown();
+        assertTrue(ioExecutor.awaitTermination(30, TimeUnit.SECONDS));
+        assertSame(StorageError.SAVE_FAILED, repository.getErrorLiveData().getValue());
+        assertEquals(Arrays.asList(meeting), repository.getMeetingsLiveData().getValue());
+    }
+
+    /**
+     * Benchmarks the startup of the application with 100k stored meetings.
+     * It performs the following steps:
+     * 1. Stores 100k meetings in the files directory.
+     * 2. Creates the Injector and gets its repository, as the application and the first ViewModel do.
+     * 3. Times the creation and the end of the loading, reported by the loading state.
+     */
+    @Test
+    @Category(Benchmark.class)
+    public void benchmarkStartup100k() throws InterruptedException {
+        // Store 100k meetings in the files directory
+        int count = 100_000;
+        File filesDir = temporaryFolder.getRoot();
+        new MeetingFileStore(new File(filesDir, "meetings.bin"), new FakeApi()).saveMeetings(createMeetings(count));
+
+        // Create the Injector and get its repository, as the application and the first ViewModel do
+        long start = System.nanoTime();
+        MeetingRepository repository = new Injector(filesDir, null).provideMeetingRepository();
+        List<Meeting> firstMeetings = repository.getMeetingsLiveData().getValue();
+        long startupNanos = System.nanoTime() - start;
+
+        // Time the creation and the end of the loading, reported by the loading state
+        CountDownLatch loaded = new CountDownLatch(1);
+        repository.getLoadingLiveData().observeForever(loading -> {
+            if (!loading) {
+                loaded.countDown();
+            }
+        });
+        assertTrue(loaded.await(30, TimeUnit.SECONDS));
+        long loadNanos = System.nanoTime() - start;
+        String timings = String.format("Startup with %d stored meetings: injector and repository %d us, meetings loaded %d ms",
+                count, startupNanos / 1_000, loadNanos / 1_000_000);
+
+        assertNotNull(firstMeetings);
+        assertEquals(count, repository.getMeetingsLiveData().getValue().size());
+        assertEquals(new FakeApi().getMeetingRooms(), repository.getMeetingRoomsLiveData().getValue());
+        assertTrue(timings, startupNanos < TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(timings, startupNanos < loadNanos);
+    }
+
+    /**
+     * Creates meetings 15 minutes apart, cycling through the rooms.
+     *
+     * @param count Number of meetings.
+     * @return The meetings, sorted by date and time.
+     */
+    private static List<Meeting> createMeetings(int count) {
+        List<Meeting> meetings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            meetings.add(new Meeting("Meeting " + i, START_MINUTE + 15L * i, ROOMS.get(i % ROOMS.size()), "Subject " + i,
+                    Arrays.asList("theo.johnson@example.com", "may.smith@example.com")));
+        }
+        return meetings;
+    }
+}
@@ -0,0 +1,160 @@
+package com.lamzone.mareu.sync;
+
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process stand-in for the sync server, serving the API of {@link HttpMeetingApi} on a local port.
+ * Its change log is numbered from 1, the token of a change being its number.
+ */
+class FakeMeetingServer {
+
+    static {
+        // Send each response at once: otherwise the end of a small body waits for the delayed acknowledgement
+        // of its start, adding 40 ms to each fetched page
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer mServer;
+    private final List<MeetingChange> mLog = new ArrayList<>(); // Changes applied, in order
+    private final Map<Long, Meeting> mMeetings = new HashMap<>(); // Meetings held, by id
+    private int mFailingRequests; // Number of next requests answered with an error
+    private long mServedChanges; // Number of changes sent by the fetches
+    private long mServedBytes; // Size of the fetch responses
+
+    /**
+     * Starts the server on a free local port.
+     *
+     * @throws IOException If the server could not be started.
+     */
+    FakeMeetingServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.createContext("/meetings/changes", this::handle);
+        mServer.start();
+    }
+
+    /**
+     * Gets the base URL of the meetings API.
+     *
+     * @return The URL to give to {@link HttpMeetingApi}.
+     */
+    String getBaseUrl() {
+        return "http://" + mServer.getAddress().getHostString() + ":" + mServer.getAddress().getPort() + "/meetings";
+    }
+
+    /**
+     * Stops the server.
+     */
+    void stop() {
+        mServer.stop(0);
+    }
+
+    /**
+     * Applies changes as if they were pushed by another device.
+     *
+     * @param changes Changes to apply, in order.
+     */
+    synchronized void apply(List<MeetingChange> changes) {
+        for (MeetingChange change : changes) {
+            Meeting meeting = change.getMeeting();
+            if (change.getType() == MeetingChange.Type.ADDED ? mMeetings.put(meeting.getId(), meeting) == null : mMeetings.remove(meeting.getId()) != null) {
+                mLog.add(change);
+            }
+        }
+    }
+
+    /**
+     * Answers the next requests with an error.
+     *
+     * @param count Number of requests to fail.
+     */
+    synchronized void failNextRequests(int count) {
+        mFailingRequests = count;
+    }
+
+    /**
+     * Gets the meetings held by the server.
+     *
+     * @return The meetings, by id.
+     */
+    synchronized Map<Long, Meeting> getMeetings() {
+        return new HashMap<>(mMeetings);
+    }
+
+    /**
+     * Gets the number of changes sent by the fetches so far.
+     *
+     * @return The number of changes served.
+     */
+    synchronized long getServedChanges() {
+        return mServedChanges;
+    }
+
+    /**
+     * Gets the size of the fetch responses so far.
+     *
+     * @return The number of bytes served.
+     */
+    synchronized long getServedBytes() {
+        return mServedBytes;
+    }
+
+    // Serve a fetch or a push
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] response;
+            synchronized (this) {
+                if (mFailingRequests > 0) {
+                    mFailingRequests--;
+                    exchange.sendResponseHeaders(503, -1);
+                    return;
+                }
+                if ("POST".equals(exchange.getRequestMethod())) {
+                    apply(HttpMeetingApi.readChanges(exchange.getRequestBody()));
+                    exchange.sendResponseHeaders(204, -1);
+                    return;
+                }
+                Map<String, Long> query = parseQuery(exchange.getRequestURI().getQuery());
+                int since = (int) Math.min(query.get("since"), mLog.size());
+                int end = (int) Math.min(mLog.size(), since + query.get("limit"));
+                MeetingDelta delta = new MeetingDelta(end, end < mLog.size(), mLog.subList(since, end));
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream output = new DataOutputStream(bytes);
+                HttpMeetingApi.writeDelta(output, delta);
+                output.flush();
+                response = bytes.toByteArray();
+                mServedChanges += end - since;
+                mServedBytes += response.length;
+            }
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Parse the numeric parameters of a query
+    private static Map<String, Long> parseQuery(String query) {
+        Map<String, Long> parameters = new HashMap<>();
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            parameters.put(parameter.substring(0, separator), Long.parseLong(parameter.substring(separator + 1)));
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,429 @@
+package com.lamzone.mareu.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.lamzone.mareu.Benchmark;
+import com.lamzone.mareu.data_sources.MeetingDataSource;
+import com.lamzone.mareu.data_sources.MeetingFileStore;
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
+import com.lamzone.mareu.repository.MeetingRepository;
+import com.lamzone.mareu.repository.StorageError;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the MeetingSyncEngine class, against an in-process server, and benchmark of a delta sync.
+ */
+public class MeetingSyncEngineTest {
+
+    private static final List<String> ROOMS = Arrays.asList("Peach", "Mario", "Luigi", "Toad", "Daisy");
+    private static final long START_MINUTE = 28_000_000L; // March 2023
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private FakeMeetingServer server;
+    private File syncFile;
+    private MeetingDataSource localSource;
+
+    /**
+     * Starts the server, with a device storing nothing yet.
+     *
+     * @throws IOException If the server could not be started.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new FakeMeetingServer();
+        syncFile = new File(temporaryFolder.getRoot(), "sync.bin");
+        localSource = mock(MeetingDataSource.class); // No stored meetings nor rooms
+    }
+
+    /**
+     * Stops the server.
+     */
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    /**
+     * Tests that a sync pushes the local changes and merges the changes of the other devices.
+     * It performs the following steps:
+     * 1. Syncs a device with a server holding 3 meetings.
+     * 2. Adds a meeting and deletes a server meeting on the device, then syncs.
+     * 3. Adds a meeting on the server, as another device, then syncs.
+     * 4. Checks that the server and the device hold the same meetings, and that nothing is left to push.
+     */
+    @Test
+    public void testSyncPushesAndMergesChanges() {
+        // Sync a device with a server holding 3 meetings
+        List<Meeting> serverMeetings = createMeetings(0, 3);
+        server.apply(added(serverMeetings));
+        SyncStore syncStore = new SyncStore(syncFile, localSource);
+        MeetingRepository repository = new MeetingRepository(syncStore);
+        MeetingSyncEngine engine = createEngine(repository, syncStore, mock(ScheduledExecutorService.class));
+        assertTrue(engine.sync());
+        assertEquals(3, repository.getMeetingsLiveData().getValue().size());
+
+        // Add a meeting and delete a server meeting on the device, then sync
+        Meeting localMeeting = createMeetings(3, 1).get(0);
+        repository.addMeeting(localMeeting);
+        repository.deleteMeeting(repository.getMeetingsLiveData().getValue().get(0));
+        assertEquals(2, syncStore.getPendingChanges().size());
+        assertTrue(engine.sync());
+        assertTrue(server.getMeetings().containsKey(localMeeting.getId()));
+        assertFalse(server.getMeetings().containsKey(serverMeetings.get(0).getId()));
+
+        // Add a meeting on the server, as another device, then sync
+        Meeting otherMeeting = createMeetings(4, 1).get(0);
+        server.apply(added(Arrays.asList(otherMeeting)));
+        assertTrue(engine.sync());
+
+        // Check that the server and the device hold the same meetings, and that nothing is left to push
+        List<Long> deviceIds = new ArrayList<>();
+        for (Meeting meeting : repository.getMeetingsLiveData().getValue()) {
+            deviceIds.add(meeting.getId());
+        }
+        assertEquals(4, deviceIds.size());
+        assertTrue(server.getMeetings().keySet().containsAll(deviceIds));
+        assertEquals(4, server.getMeetings().size());
+        assertTrue(syncStore.getPendingChanges().isEmpty());
+    }
+
+    /**
+     * Tests that the local changes stay queued across a restart until the server accepts them.
+     * It performs the following steps:
+     * 1. Adds a meeting on a device whose server fails, and checks that the sync fails and keeps the change queued.
+     * 2. Restarts the device from its files.
+     * 3. Syncs again and checks that the server got the meeting and that the queue is empty.
+     */
+    @Test
+    public void testFailedPushStaysQueuedAcrossRestart() {
+        // Add a meeting on a device whose server fails, and check that the sync fails and keeps the change queued
+        SyncStore syncStore = new SyncStore(syncFile, localSource);
+        MeetingRepository repository = new MeetingRepository(syncStore);
+        MeetingSyncEngine engine = createEngine(repository, syncStore, mock(ScheduledExecutorService.class));
+        Meeting meeting = createMeetings(0, 1).get(0);
+        repository.addMeeting(meeting);
+        server.failNextRequests(1);
+        assertFalse(engine.sync());
+        assertEquals(1, syncStore.getPendingChanges().size());
+
+        // Restart the device from its files
+        SyncStore restartedStore = new SyncStore(syncFile, localSource);
+        MeetingRepository restartedRepository = new MeetingRepository(restartedStore);
+        MeetingSyncEngine restartedEngine = createEngine(restartedRepository, restartedStore, mock(ScheduledExecutorService.class));
+        assertEquals(1, restartedStore.getPendingChanges().size());
+
+        // Sync again and check that the server got the meeting and that the queue is empty
+        assertTrue(restartedEngine.sync());
+        assertTrue(server.getMeetings().containsKey(meeting.getId()));
+        assertTrue(restartedStore.getPendingChanges().isEmpty());
+    }
+
+    /**
+     * Tests that a local change is pushed in the background, retrying while the server fails.
+     * It performs the following steps:
+     * 1. Makes the next 2 requests fail, then adds a meeting on a device syncing in the background.
+     * 2. Checks that the server gets the meeting after the retries.
+     */
+    @Test
+    public void testBackgroundSyncRetries() throws InterruptedException {
+        // Make the next 2 requests fail, then add a meeting on a device syncing in the background
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        SyncStore syncStore = new SyncStore(syncFile, localSource);
+        MeetingRepository repository = new MeetingRepository(syncStore);
+        createEngine(repository, syncStore, scheduler);
+        server.failNextRequests(2);
+        Meeting meeting = createMeetings(0, 1).get(0);
+        repository.addMeeting(meeting);
+
+        // Check that the server gets the meeting after the retries
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while ((!server.getMeetings().containsKey(meeting.getId()) || !syncStore.getPendingChanges().isEmpty())
+                && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        scheduler.shutdownNow();
+        assertTrue(server.getMeetings().containsKey(meeting.getId()));
+        assertTrue(syncStore.getPendingChanges().isEmpty());
+    }
+
+    /**
+     * Tests that the server copy of a meeting added on the device does not add it back once deleted on the device.
+     * It performs the following steps:
+     * 1. Adds a meeting on a device whose server API deletes it on the device while the changes are fetched.
+     * 2. Syncs and checks that the meeting stays deleted on the device, its deletion being queued.
+     * 3. Syncs again and checks that the meeting is deleted on the server too.
+     */
+    @Test
+    public void testEchoOfDeletedMeetingSkipped() {
+        // Add a meeting on a device whose server API deletes it on the device while the changes are fetched
+        SyncStore syncStore = new SyncStore(syncFile, localSource);
+        MeetingRepository repository = new MeetingRepository(syncStore);
+        Meeting meeting = createMeetings(0, 1).get(0);
+        repository.addMeeting(meeting);
+        MeetingApi api = new HttpMeetingApi(server.getBaseUrl());
+        MeetingApi deletingApi = new MeetingApi() {
+            @Override
+            public MeetingDelta fetchChanges(long sinceToken, int limit) throws IOException {
+                List<Meeting> meetings = repository.getMeetingsLiveData().getValue();
+                if (!meetings.isEmpty()) {
+                    repository.deleteMeeting(meetings.get(0));
+                }
+                return api.fetchChanges(sinceToken, limit);
+            }
+
+            @Override
+            public void pushChanges(List<MeetingChange> changes) throws IOException {
+                api.pushChanges(changes);
+            }
+        };
+        MeetingSyncEngine engine = new MeetingSyncEngine(repository, syncStore, deletingApi, mock(ScheduledExecutorService.class));
+
+        // Sync and check that the meeting stays deleted on the device, its deletion being queued
+        assertTrue(engine.sync());
+        assertTrue(server.getMeetings().containsKey(meeting.getId()));
+        assertTrue(repository.getMeetingsLiveData().getValue().isEmpty());
+        assertEquals(1, syncStore.getPendingChanges().size());
+        assertEquals(MeetingChange.Type.DELETED, syncStore.getPendingChanges().get(0).getType());
+
+        // Sync again and check that the meeting is deleted on the server too
+        assertTrue(engine.sync());
+        assertTrue(server.getMeetings().isEmpty());
+        assertTrue(repository.getMeetingsLiveData().getValue().isEmpty());
+        assertTrue(syncStore.getPendingChanges().isEmpty());
+    }
+
+    /**
+     * Tests that an unexpected failure of a sync is reported as a failed sync, to be retried.
+     * It performs the following steps:
+     * 1. Adds a meeting on a device whose server API throws an unexpected exception on its first request.
+     * 2. Checks that the sync fails and keeps the change queued.
+     * 3. Syncs again and checks that the server got the meeting.
+     */
+    @Test
+    public void testUnexpectedFailureRetried() {
+        // Add a meeting on a device whose server API throws an unexpected exception on its first request
+        SyncStore syncStore = new SyncStore(syncFile, localSource);
+        MeetingRepository repository = new MeetingRepository(syncStore);
+        Meeting meeting = createMeetings(0, 1).get(0);
+        repository.addMeeting(meeting);
+        MeetingApi api = new HttpMeetingApi(server.getBaseUrl());
+        MeetingApi failingApi = new MeetingApi() {
+            private boolean mFailed;
+
+            @Override
+            public MeetingDelta fetchChanges(long sinceToken, int limit) throws IOException {
+                return api.fetchChanges(sinceToken, limit);
+            }
+
+            @Override
+            public void pushChanges(List<MeetingChange> changes) throws IOException {
+                if (!mFailed) {
+                    mFailed = true;
+                    throw new IllegalStateException("Malformed response");
+                }
+                api.pushChanges(changes);
+            }
+        };
+        MeetingSyncEngine engine = new MeetingSyncEngine(repository, syncStore, failingApi, mock(ScheduledExecutorService.class));
+
+        // Check that the sync fails and keeps the change queued
+        assertFalse(engine.sync());
+        assertEquals(1, syncStore.getPendingChanges().size());
+
+        // Sync again and check that the server got the meeting
+        assertTrue(engine.sync());
+        assertTrue(server.getMeetings().containsKey(meeting.getId()));
+        assertTrue(syncStore.getPendingChanges().isEmpty());
+    }
+
+    /**
+     * Tests that the sync token is only stored once the merged changes are saved, so that they are fetched again if lost.
+     * It performs the following steps:
+     * 1. Syncs a device with a server holding 3 meetings, while the device fails to save meetings.
+     * 2. Checks that the meetings are shown but that the token is not stored.
+     * 3. Adds a meeting once saving works again, and checks that the token is stored with the merged meetings.
+     */
+    @Test
+    public void testTokenStoredOnceMergedChangesSaved() {
+        // Sync a device with a server holding 3 meetings, while the device fails to save meetings
+        server.apply(added(createMeetings(0, 3)));
+        boolean[] failing = {true};
+        MeetingDataSource failingSource = new MeetingDataSource() {
+            @Override
+            public List<String> getMeetingRooms() {
+                return ROOMS;
+            }
+
+            @Override
+            public List<Meeting> loadMeetings(int offset, int count) {
+                return new ArrayList<>();
+            }
+
+            @Override
+            public void saveChanges(List<MeetingChange> changes) {
+                if (failing[0]) {
+                    throw new IllegalStateException("Disk full");
+                }
+            }
+        };
+        SyncStore syncStore = new SyncStore(syncFile, failingSource);
+        MeetingRepository repository = new MeetingRepository(syncStore);
+        MeetingSyncEngine engine = createEngine(repository, syncStore, mock(ScheduledExecutorService.class));
+        assertTrue(engine.sync());
+
+        // Check that the meetings are shown but that the token is not stored
+        assertEquals(3, repository.getMeetingsLiveData().getValue().size());
+        assertEquals(StorageError.SAVE_FAILED, repository.getErrorLiveData().getValue());
+        assertEquals(0, syncStore.getToken());
+        assertEquals(0, new SyncStore(syncFile, failingSource).getToken());
+
+        // Add a meeting once saving works again, and check that the token is stored with the merged meetings
+        failing[0] = false;
+        repository.addMeeting(createMeetings(3, 1).get(0));
+        assertEquals(3, syncStore.getToken());
+        assertEquals(3, new SyncStore(syncFile, failingSource).getToken());
+    }
+
+    /**
+     * Tests that a failure to store the sync token is reported as a storage failure instead of being thrown.
+     * It performs the following steps:
+     * 1. Syncs a device whose sync store fails to store the token.
+     * 2. Checks that the sync succeeded and that the failure is reported.
+     */
+    @Test
+    public void testTokenFailureReported() {
+        // Sync a device whose sync store fails to store the token
+        server.apply(added(createMeetings(0, 3)));
+        SyncStore syncStore = new SyncStore(syncFile, localSource) {
+            @Override
+            public synchronized void setToken(long token) {
+                throw new IllegalStateException("Disk full");
+            }
+        };
+        MeetingRepository repository = new MeetingRepository(syncStore);
+        MeetingSyncEngine engine = createEngine(repository, syncStore, mock(ScheduledExecutorService.class));
+
+        // Check that the sync succeeded and that the failure is reported
+        assertTrue(engine.sync());
+        assertEquals(3, repository.getMeetingsLiveData().getValue().size());
+        assertEquals(StorageError.SAVE_FAILED, repository.getErrorLiveData().getValue());
+    }
+
+    /**
+     * Benchmarks the sync of 100k meetings, then of a few changes, and checks that only the changes are downloaded.
+     * It performs the following steps:
+     * 1. Syncs a device storing its meetings in a file with a server holding 100k meetings.
+     * 2. Makes 10 changes on the server and syncs again, checking that only them are fetched.
+     * 3. Restarts the device from its files and syncs, checking that nothing is fetched.
+     */
+    @Test
+    @Category(Benchmark.class)
+    public void benchmarkDeltaSync100k() throws IOException {
+        // Sync a device storing its meetings in a file with a server holding 100k meetings
+        int count = 100_000;
+        List<Meeting> serverMeetings = createMeetings(0, count);
+        server.apply(added(serverMeetings));
+        File meetingsFile = new File(temporaryFolder.getRoot(), "meetings.bin");
+        SyncStore syncStore = new SyncStore(syncFile, new MeetingFileStore(meetingsFile, localSource));
+        MeetingRepository repository = new MeetingRepository(syncStore);
+        MeetingSyncEngine engine = createEngine(repository, syncStore, mock(ScheduledExecutorService.class));
+        long start = System.nanoTime();
+        assertTrue(engine.sync());
+        long fullSyncNanos = System.nanoTime() - start;
+        long fullSyncBytes = server.getServedBytes();
+        assertEquals(count, repository.getMeetingsLiveData().getValue().size());
+        assertEquals(count, server.getServedChanges());
+
+        // Make 10 changes on the server and sync again, checking that only them are fetched
+        List<MeetingChange> changes = new ArrayList<>(added(createMeetings(count, 5)));
+        for (int i = 0; i < 5; i++) {
+            changes.add(MeetingChange.deleted(serverMeetings.get(i * 1_000)));
+        }
+        server.apply(changes);
+        start = System.nanoTime();
+        assertTrue(engine.sync());
+        long deltaSyncNanos = System.nanoTime() - start;
+        long deltaSyncBytes = server.getServedBytes() - fullSyncBytes;
+        assertEquals(count, repository.getMeetingsLiveData().getValue().size());
+        assertEquals(count + 10, server.getServedChanges());
+
+        // Restart the device from its files and sync, checking that nothing is fetched
+        SyncStore restartedStore = new SyncStore(syncFile, new MeetingFileStore(meetingsFile, localSource));
+        MeetingRepository restartedRepository = new MeetingRepository(restartedStore);
+        assertEquals(count, restartedRepository.getMeetingsLiveData().getValue().size());
+        assertTrue(createEngine(restartedRepository, restartedStore, mock(ScheduledExecutorService.class)).sync());
+        assertEquals(count + 10, server.getServedChanges());
+        String timings = String.format("Sync of %d meetings: %d ms, %d KB; then 10 changes: %.1f ms, %d bytes",
+                count, fullSyncNanos / 1_000_000, fullSyncBytes / 1_024, deltaSyncNanos / 1e6, deltaSyncBytes);
+        assertTrue(timings, deltaSyncBytes < fullSyncBytes / 1_000);
+        assertTrue(timings, deltaSyncNanos < fullSyncNanos);
+    }
+
+    /**
+     * Creates an engine syncing a repository with the server.
+     *
+     * @param repository Repository saving its meetings through the sync store.
+     * @param syncStore  State of the sync.
+     * @param scheduler  Executor running the background syncs.
+     * @return The engine.
+     */
+    private MeetingSyncEngine createEngine(MeetingRepository repository, SyncStore syncStore, ScheduledExecutorService scheduler) {
+        return new MeetingSyncEngine(repository, syncStore, new HttpMeetingApi(server.getBaseUrl()), scheduler);
+    }
+
+    /**
+     * Creates meetings spread over the rooms, one every 15 minutes, with ids following their positions.
+     *
+     * @param first Position of the first meeting.
+     * @param count Number of meetings to create.
+     * @return The meetings, sorted by date and time.
+     */
+    private static List<Meeting> createMeetings(int first, int count) {
+        List<Meeting> meetings = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            meetings.add(new Meeting(1 + i, "Meeting " + i, START_MINUTE + 15L * i, 30, ROOMS.get(i % ROOMS.size()), "Subject " + i,
+                    Arrays.asList("theo.johnson@example.com", "may.smith@example.com")));
+        }
+        return meetings;
+    }
+
+    /**
+     * Creates the additions of meetings.
+     *
+     * @param meetings Meetings added.
+     * @return The changes adding them, in order.
+     */
+    private static List<MeetingChange> added(List<Meeting> meetings) {
+        List<MeetingChange> changes = new ArrayList<>(meetings.size());
+        for (Meeting meeting : meetings) {
+            changes.add(MeetingChange.added(meeting));
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,350 @@
+package com.lamzone.mareu.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.lamzone.mareu.data_sources.MeetingDataSource;
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
+import com.lamzone.mareu.model.Recurrence;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for the SyncStore class and its log.
+ */
+public class SyncStoreTest {
+
+    private static final List<String> ROOMS = Arrays.asList("Peach", "Mario", "Luigi", "Toad", "Daisy");
+    private static final long START_MINUTE = 28_000_000L; // March 2023
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+    private MeetingDataSource localSource;
+
+    /**
+     * Sets up the sync state file location, without creating it.
+     */
+    @Before
+    public void setUp() {
+        file = new File(temporaryFolder.getRoot(), "sync.bin");
+        localSource = mock(MeetingDataSource.class); // No stored meetings nor rooms
+    }
+
+    /**
+     * Tests that queuing changes appends them to the file instead of rewriting the queue.
+     * It performs the following steps:
+     * 1. Queues 1000 changes.
+     * 2. Queues 1 more change and checks that the file only grew by about the size of that change.
+     * 3. Reopens the file and checks that the queue and the token are read back.
+     */
+    @Test
+    public void testChangesAppended() {
+        // Queue 1000 changes
+        SyncStore store = new SyncStore(file, localSource);
+        List<MeetingChange> changes = added(createMeetings(0, 1_000));
+        store.saveChanges(changes);
+        store.setToken(42);
+        long queueSize = file.length();
+
+        // Queue 1 more change and check that the file only grew by about the size of that change
+        List<MeetingChange> change = added(createMeetings(1_000, 1));
+        store.saveChanges(change);
+        assertTrue(file.length() > queueSize);
+        assertTrue(file.length() - queueSize < queueSize / 100);
+
+        // Reopen the file and check that the queue and the token are read back
+        SyncStore reopenedStore = new SyncStore(file, localSource);
+        assertEquals(42, reopenedStore.getToken());
+        assertEquals(ids(concat(changes, change)), ids(reopenedStore.getPendingChanges()));
+    }
+
+    /**
+     * Tests that a change cut by a crash is dropped, and that the next changes are appended after the valid ones.
+     * It performs the following steps:
+     * 1. Queues 2 batches of changes, then cuts the last byte of the file as a crash would.
+     * 2. Reopens the file and checks that only the first batch is queued.
+     * 3. Queues a third batch, reopens the file and checks that the first and third batches are queued.
+     */
+    @Test
+    public void testCutRecordDropped() throws IOException {
+        // Queue 2 batches of changes, then cut the last byte of the file as a crash would
+        SyncStore store = new SyncStore(file, localSource);
+        List<MeetingChange> firstChanges = added(createMeetings(0, 10));
+        store.saveChanges(firstChanges);
+        store.saveChanges(added(createMeetings(10, 10)));
+        try (RandomAccessFile cutFile = new RandomAccessFile(file, "rw")) {
+            cutFile.setLength(cutFile.length() - 1);
+        }
+
+        // Reopen the file and check that only the first batch is queued
+        SyncStore reopenedStore = new SyncStore(file, localSource);
+        assertEquals(ids(firstChanges), ids(reopenedStore.getPendingChanges()));
+
+        // Queue a third batch, reopen the file and check that the first and third batches are queued
+        List<MeetingChange> thirdChanges = added(createMeetings(20, 10));
+        reopenedStore.saveChanges(thirdChanges);
+        assertEquals(ids(concat(firstChanges, thirdChanges)), ids(new SyncStore(file, localSource).getPendingChanges()));
+    }
+
+    /**
+     * Tests that changes whose write fails on an interrupt are still saved locally, and written to the file later.
+     * It performs the following steps:
+     * 1. Queues 10 changes, then queues 10 more on an interrupted thread, whose write fails.
+     * 2. Checks that the second changes were saved locally all the same.
+     * 3. Checks that all the changes are queued, and written to the file.
+     */
+    @Test
+    public void testInterruptedWriteKeepsChanges() {
+        // Queue 10 changes, then queue 10 more on an interrupted thread, whose write fails
+        SyncStore store = new SyncStore(file, localSource);
+        List<MeetingChange> firstChanges = added(createMeetings(0, 10));
+        store.saveChanges(firstChanges);
+        List<MeetingChange> secondChanges = added(createMeetings(10, 10));
+        Thread.currentThread().interrupt(); // Closes the file channel on its next use
+        store.saveChanges(secondChanges);
+        assertTrue(Thread.interrupted());
+
+        // Check that the second changes were saved locally all the same
+        verify(localSource).saveChanges(secondChanges);
+
+        // Check that all the changes are queued, and written to the file
+        assertEquals(ids(concat(firstChanges, secondChanges)), ids(store.getPendingChanges()));
+        assertEquals(ids(concat(firstChanges, secondChanges)), ids(new SyncStore(file, localSource).getPendingChanges()));
+    }
+
+    /**
+     * Tests that a file that cannot be read is moved aside, the sync starting over with an empty queue.
+     * It performs the following steps:
+     * 1. Writes a file that is not a sync state file.
+     * 2. Checks that the store starts with no token nor queued change, and that the file was moved aside.
+     * 3. Queues changes and checks that they are read back after a reopen.
+     */
+    @Test
+    public void testUnreadableFileMovedAside() throws IOException {
+        // Write a file that is not a sync state file
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+            output.writeUTF("Not a sync state file");
+        }
+
+        // Check that the store starts with no token nor queued change, and that the file was moved aside
+        SyncStore store = new SyncStore(file, localSource);
+        assertEquals(0, store.getToken());
+        assertTrue(store.getPendingChanges().isEmpty());
+        assertTrue(new File(file.getPath() + ".corrupt").exists());
+
+        // Queue changes and check that they are read back after a reopen
+        List<MeetingChange> changes = added(createMeetings(0, 10));
+        store.saveChanges(changes);
+        assertEquals(ids(changes), ids(new SyncStore(file, localSource).getPendingChanges()));
+    }
+
+    /**
+     * Tests that the file is rewritten once most of it is made of acknowledged changes.
+     * It performs the following steps:
+     * 1. Queues 3000 changes in 3 batches.
+     * 2. Acknowledges the first 1500 changes and checks that the queue starts after them across a reopen.
+     * 3. Acknowledges the next 1400 changes and checks that the file shrank to less than the first batch.
+     * 4. Reopens the file and checks that the last 100 changes and the token are queued.
+     */
+    @Test
+    public void testCompactedAfterAcknowledged() {
+        // Queue 3000 changes in 3 batches
+        SyncStore store = new SyncStore(file, localSource);
+        List<MeetingChange> changes = added(createMeetings(0, 3_000));
+        store.setToken(7);
+        store.saveChanges(changes.subList(0, 1_000));
+        long batchSize = file.length();
+        store.saveChanges(changes.subList(1_000, 2_000));
+        store.saveChanges(changes.subList(2_000, 3_000));
+
+        // Acknowledge the first 1500 changes and check that the queue starts after them across a reopen
+        store.removePendingChanges(1_500);
+        assertEquals(ids(changes.subList(1_500, 3_000)), ids(store.getPendingChanges()));
+        assertEquals(ids(changes.subList(1_500, 3_000)), ids(new SyncStore(file, localSource).getPendingChanges()));
+
+        // Acknowledge the next 1400 changes and check that the file shrank to less than the first batch
+        store.removePendingChanges(1_400);
+        assertTrue(file.length() < batchSize);
+
+        // Reopen the file and check that the last 100 changes and the token are queued
+        SyncStore reopenedStore = new SyncStore(file, localSource);
+        assertEquals(7, reopenedStore.getToken());
+        assertEquals(ids(changes.subList(2_900, 3_000)), ids(reopenedStore.getPendingChanges()));
+    }
+
+    /**
+     * Tests that a file of the previous version, holding the token and the whole queue, is read then rewritten.
+     * It performs the following steps:
+     * 1. Writes a file of the previous version with a token and 10 changes.
+     * 2. Opens it and checks that the token and the changes are read.
+     * 3. Checks that the file was rewritten with the current version, and reopens it.
+     */
+    @Test
+    public void testPreviousVersionMigrated() throws IOException {
+        // Write a file of the previous version with a token and 10 changes
+        List<MeetingChange> changes = added(createMeetings(0, 10));
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+            output.writeInt(0x53594e43); // "SYNC"
+            output.writeInt(2);
+            output.writeLong(42);
+            HttpMeetingApi.writeChanges(output, changes);
+        }
+
+        // Open it and check that the token and the changes are read
+        SyncStore store = new SyncStore(file, localSource);
+        assertEquals(42, store.getToken());
+        assertEquals(ids(changes), ids(store.getPendingChanges()));
+
+        // Check that the file was rewritten with the current version, and reopen it
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            assertEquals(0x53594e43, input.readInt());
+            assertEquals(3, input.readInt());
+        }
+        store.removePendingChanges(5);
+        SyncStore reopenedStore = new SyncStore(file, localSource);
+        assertEquals(42, reopenedStore.getToken());
+        assertEquals(ids(changes.subList(5, 10)), ids(reopenedStore.getPendingChanges()));
+    }
+
+    /**
+     * Tests that a file of the first version, whose meeting strings were written by writeUTF, is read then rewritten.
+     * It performs the following steps:
+     * 1. Writes a file of the first version with a token, the addition of a weekly meeting and the deletion of a meeting.
+     * 2. Opens it and checks that the token and the changes are read, with the recurrence of the meeting.
+     * 3. Checks that the file was rewritten with the current version, and reopens it.
+     */
+    @Test
+    public void testFirstVersionMigrated() throws IOException {
+        // Write a file of the first version with a token, the addition of a weekly meeting and the deletion of a meeting
+        List<Meeting> meetings = createMeetings(0, 2);
+        Meeting weeklyMeeting = new Meeting(1, "Weekly", START_MINUTE, 30, "Peach", "Subject", Arrays.asList("theo.johnson@example.com"),
+                Recurrence.times(Recurrence.Frequency.WEEKLY, 10));
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+            output.writeInt(0x53594e43); // "SYNC"
+            output.writeInt(1);
+            output.writeLong(42);
+            output.writeInt(2);
+            output.writeByte(1); // Added
+            writeUtfMeeting(output, weeklyMeeting);
+            output.writeByte(2); // Deleted
+            writeUtfMeeting(output, meetings.get(1));
+        }
+
+        // Open it and check that the token and the changes are read, with the recurrence of the meeting
+        SyncStore store = new SyncStore(file, localSource);
+        assertEquals(42, store.getToken());
+        List<MeetingChange> changes = Arrays.asList(MeetingChange.added(weeklyMeeting), MeetingChange.deleted(meetings.get(1)));
+        assertEquals(ids(changes), ids(store.getPendingChanges()));
+        Meeting readMeeting = store.getPendingChanges().get(0).getMeeting();
+        assertEquals(weeklyMeeting.getRecurrence().toRule(), readMeeting.getRecurrence().toRule());
+        assertEquals(weeklyMeeting.getTitle(), readMeeting.getTitle());
+        assertEquals(weeklyMeeting.getParticipants(), readMeeting.getParticipants());
+
+        // Check that the file was rewritten with the current version, and reopen it
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            assertEquals(0x53594e43, input.readInt());
+            assertEquals(3, input.readInt());
+        }
+        SyncStore reopenedStore = new SyncStore(file, localSource);
+        assertEquals(42, reopenedStore.getToken());
+        assertEquals(ids(changes), ids(reopenedStore.getPendingChanges()));
+    }
+
+    /**
+     * Writes a meeting record of the first version of the file, whose strings were written by writeUTF.
+     *
+     * @param output  Stream to write to.
+     * @param meeting Meeting to write.
+     * @throws IOException If the meeting could not be written.
+     */
+    private static void writeUtfMeeting(DataOutputStream output, Meeting meeting) throws IOException {
+        output.writeLong(meeting.getId());
+        output.writeUTF(meeting.getTitle());
+        output.writeLong(meeting.getStartMinute());
+        output.writeInt(meeting.getDurationMinutes());
+        output.writeUTF(meeting.getLocation());
+        output.writeUTF(meeting.getSubject());
+        List<String> participants = meeting.getParticipants();
+        output.writeInt(participants.size());
+        for (String participant : participants) {
+            output.writeUTF(participant);
+        }
+        output.writeUTF(meeting.isRecurring() ? meeting.getRecurrence().toRule() : "");
+    }
+
+    /**
+     * Gets the ids and types of changes, to compare them.
+     *
+     * @param changes Changes to describe.
+     * @return One entry per change, in order.
+     */
+    private static List<String> ids(List<MeetingChange> changes) {
+        List<String> ids = new ArrayList<>(changes.size());
+        for (MeetingChange change : changes) {
+            ids.add(change.getType() + " " + change.getMeeting().getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Concatenates two lists of changes.
+     *
+     * @param first  First changes.
+     * @param second Changes following them.
+     * @return A new list of all the changes.
+     */
+    private static List<MeetingChange> concat(List<MeetingChange> first, List<MeetingChange> second) {
+        List<MeetingChange> changes = new ArrayList<>(first);
+        changes.addAll(second);
+        return changes;
+    }
+
+    /**
+     * Creates meetings spread over the rooms, one every 15 minutes, with ids following their positions.
+     *
+     * @param first Position of the first meeting.
+     * @param count Number of meetings to create.
+     * @return The meetings, sorted by date and time.
+     */
+    private static List<Meeting> createMeetings(int first, int count) {
+        List<Meeting> meetings = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            meetings.add(new Meeting(1 + i, "Meeting " + i, START_MINUTE + 15L * i, 30, ROOMS.get(i % ROOMS.size()), "Subject " + i,
+                    Arrays.asList("theo.johnson@example.com", "may.smith@example.com")));
+        }
+        return meetings;
+    }
+
+    /**
+     * Creates the additions of meetings.
+     *
+     * @param meetings Meetings added.
+     * @return The changes adding them, in order.
+     */
+    private static List<MeetingChange> added(List<Meeting> meetings) {
+        List<MeetingChange> changes = new ArrayList<>(meetings.size());
+        for (Meeting meeting : meetings) {
+            changes.add(MeetingChange.added(meeting));
+        }
+        return changes;
+    }
+}
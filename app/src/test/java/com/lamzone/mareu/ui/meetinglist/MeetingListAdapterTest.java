@@ -0,0 +1,229 @@
+package com.lamzone.mareu.ui.meetinglist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Looper;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.lamzone.mareu.R;
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.Recurrence;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Robolectric tests for the MeetingListAdapter, counting the rows rebound by each mutation.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MeetingListAdapterTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private CountingAdapter mAdapter;
+    private RecyclerView mRecyclerView;
+    private List<Meeting> mMeetings;
+
+    /**
+     * Sets up a laid out RecyclerView displaying five meetings.
+     */
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        mAdapter = new CountingAdapter();
+        mRecyclerView = new RecyclerView(context);
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(context));
+        mRecyclerView.setAdapter(mAdapter);
+
+        mMeetings = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            mMeetings.add(createMeeting("Meeting " + i, i));
+        }
+        submitAndLayout(mMeetings);
+        assertEquals(5, mAdapter.mBindCount);
+    }
+
+    /**
+     * Tests that adding a meeting only binds the new row.
+     */
+    @Test
+    public void testAddMeetingBindsOneRow() {
+        mAdapter.mBindCount = 0;
+        mMeetings.add(createMeeting("New meeting", 2));
+        submitAndLayout(mMeetings);
+
+        assertEquals(1, mAdapter.mBindCount);
+        assertEquals(6, mRecyclerView.getChildCount());
+    }
+
+    /**
+     * Tests that deleting a meeting does not rebind the remaining rows.
+     */
+    @Test
+    public void testDeleteMeetingBindsNoRow() {
+        mAdapter.mBindCount = 0;
+        mMeetings.remove(2);
+        submitAndLayout(mMeetings);
+
+        assertEquals(0, mAdapter.mBindCount);
+        assertEquals(4, mRecyclerView.getChildCount());
+    }
+
+    /**
+     * Tests that submitting the same meetings again, as a filter reset does, binds nothing.
+     */
+    @Test
+    public void testUnchangedListBindsNoRow() {
+        mAdapter.mBindCount = 0;
+        submitAndLayout(new ArrayList<>(mMeetings));
+
+        assertEquals(0, mAdapter.mBindCount);
+    }
+
+    /**
+     * Tests that the occurrences of a series are distinct rows, kept when they are built again.
+     * It performs the following steps:
+     * 1. Displays the first three occurrences of a daily meeting.
+     * 2. Checks that their rows have distinct stable ids.
+     * 3. Displays the same occurrences built again and checks that no row is rebound.
+     */
+    @Test
+    public void testOccurrencesAreDistinctRows() {
+        // Display the first three occurrences of a daily meeting
+        Calendar dateTime = Calendar.getInstance();
+        dateTime.add(Calendar.DAY_OF_MONTH, 2);
+        Meeting series = new Meeting("Daily", dateTime, 15, "Mario", "Subject", Arrays.asList("theo.johnson@example.com"),
+                Recurrence.times(Recurrence.Frequency.DAILY, 10));
+        List<Meeting> occurrences = Arrays.asList(series.getOccurrence(0), series.getOccurrence(1), series.getOccurrence(2));
+        submitAndLayout(occurrences);
+
+        // Check that their rows have distinct stable ids
+        assertEquals(3, mRecyclerView.getChildCount());
+        Set<Long> itemIds = new HashSet<>();
+        for (int position = 0; position < 3; position++) {
+            itemIds.add(mAdapter.getItemId(position));
+        }
+        assertEquals(3, itemIds.size());
+
+        // Display the same occurrences built again
+        mAdapter.mBindCount = 0;
+        submitAndLayout(Arrays.asList(series.getOccurrence(0), series.getOccurrence(1), series.getOccurrence(2)));
+        assertEquals(0, mAdapter.mBindCount);
+    }
+
+    /**
+     * Tests that binding rows over and over, as fast scrolling does, displays the models precomputed
+     * for the list, and only recomputes them once a minute boundary passes.
+     * It performs the following steps:
+     * 1. Prepares the row models of 100 meetings.
+     * 2. Binds each row ten times within the same minute.
+     * 3. Checks that each bind displayed the precomputed model.
+     * 4. Binds the rows past the next minute boundary and checks that only their status was recomputed.
+     */
+    @Test
+    public void testBindsReusePreparedRowModels() {
+        MeetingListAdapter.MeetingViewHolder holder = mAdapter.onCreateViewHolder(mRecyclerView, 0);
+        TextView titleTextView = holder.itemView.findViewById(R.id.textTitle);
+        MeetingRowModelCache rowModels = new MeetingRowModelCache(Locale.getDefault());
+        List<Meeting> meetings = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            meetings.add(createMeeting("Meeting " + i, i % 10));
+        }
+
+        // Prepare the row models of 100 meetings
+        long nowMillis = System.currentTimeMillis();
+        rowModels.prepare(meetings, nowMillis);
+        List<MeetingRowModel> prepared = new ArrayList<>();
+        for (Meeting meeting : meetings) {
+            prepared.add(rowModels.get(meeting, nowMillis));
+        }
+
+        // Bind each row ten times within the same minute, checking that it displayed the precomputed model
+        for (int i = 0; i < 1_000; i++) {
+            MeetingRowModel model = rowModels.get(meetings.get(i % meetings.size()), nowMillis);
+            holder.bind(model);
+            assertSame(prepared.get(i % meetings.size()), model);
+            assertEquals(model.title, titleTextView.getText().toString());
+        }
+
+        // Bind the rows past the next minute boundary and check that only their status was recomputed
+        for (int i = 0; i < meetings.size(); i++) {
+            MeetingRowModel model = rowModels.get(meetings.get(i), nowMillis + 60_000);
+            holder.bind(model);
+            assertNotSame(prepared.get(i), model);
+            assertSame(prepared.get(i).participants, model.participants);
+        }
+    }
+
+    /**
+     * Submits a sorted copy of meetings to the adapter, as the repository would publish it,
+     * waits for the background diff to be dispatched and lays out the list.
+     *
+     * @param meetings Meetings to display.
+     */
+    private void submitAndLayout(List<Meeting> meetings) {
+        List<Meeting> expected = new ArrayList<>(meetings);
+        Collections.sort(expected);
+        mAdapter.setMeetings(expected);
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!mAdapter.getCurrentList().equals(expected)) {
+            assertTrue("Diff was not dispatched", System.currentTimeMillis() < deadline);
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.yield();
+        }
+
+        mRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        mRecyclerView.layout(0, 0, 1080, 1920);
+    }
+
+    /**
+     * Creates a meeting starting tomorrow.
+     *
+     * @param title     Title of the meeting.
+     * @param hourOfDay Start hour of the meeting.
+     * @return The meeting.
+     */
+    private static Meeting createMeeting(String title, int hourOfDay) {
+        Calendar dateTime = Calendar.getInstance();
+        dateTime.add(Calendar.DAY_OF_MONTH, 1);
+        dateTime.set(Calendar.HOUR_OF_DAY, 8 + hourOfDay);
+        return new Meeting(title, dateTime, "Peach", "Subject", Arrays.asList("theo.johnson@example.com", "may.smith@example.com"));
+    }
+
+    /**
+     * MeetingListAdapter counting its bind calls.
+     */
+    private static class CountingAdapter extends MeetingListAdapter {
+        int mBindCount;
+
+        @Override
+        public void onBindViewHolder(@NonNull MeetingViewHolder holder, int position) {
+            mBindCount++;
+            super.onBindViewHolder(holder, position);
+        }
+    }
+}
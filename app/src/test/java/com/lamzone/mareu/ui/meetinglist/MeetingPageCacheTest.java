@@ -0,0 +1,202 @@
+package com.lamzone.mareu.ui.meetinglist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.lamzone.mareu.Benchmark;
+import com.lamzone.mareu.data_sources.FakeApi;
+import com.lamzone.mareu.data_sources.MeetingDataSource;
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.MeetingChange;
+import com.lamzone.mareu.repository.MeetingPages;
+import com.lamzone.mareu.repository.MeetingRepository;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Unit tests for the MeetingPageCache class, and benchmark of scrolling through a one-year calendar with it.
+ */
+public class MeetingPageCacheTest {
+
+    private static final long START_MINUTE = 28_000_000L; // March 2023
+    private static final int PAGE_SIZE = 100;
+    private static final int PAGE_RADIUS = 2;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private final List<int[]> mLoadedRanges = new ArrayList<>();
+
+    /**
+     * Tests that the rows are loaded with their page and the neighbouring ones.
+     * It performs the following steps:
+     * 1. Requests a row while the loads are queued, and checks that it is not loaded yet.
+     * 2. Runs the loads and checks that its page and the neighbouring ones were loaded.
+     * 3. Checks the content of the row.
+     */
+    @Test
+    public void testRowsLoadedAroundDisplayedRow() {
+        // Request a row while the loads are queued
+        MeetingRepository repository = createRepository(1_000);
+        List<Runnable> loads = new ArrayList<>();
+        MeetingPageCache cache = new MeetingPageCache(PAGE_SIZE, PAGE_RADIUS, Locale.FRANCE, loads::add, Runnable::run,
+                (positionStart, itemCount) -> mLoadedRanges.add(new int[]{positionStart, itemCount}));
+        cache.setMeetingPages(repository.getMeetingPagesLiveData().getValue(), START_MINUTE);
+        assertNull(cache.get(450));
+
+        // Run the loads
+        runAll(loads);
+        assertEquals(3, mLoadedRanges.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(300 + 100 * i, mLoadedRanges.get(i)[0]);
+            assertEquals(100, mLoadedRanges.get(i)[1]);
+        }
+
+        // Check the content of the row
+        MeetingRowModel model = cache.get(450);
+        assertNotNull(model);
+        assertEquals("Meeting 450", model.meeting.getTitle());
+    }
+
+    /**
+     * Tests that new meetings are displayed once their page is reloaded, the previous rows being kept until then.
+     */
+    @Test
+    public void testPagesReloadedWithNewMeetings() {
+        MeetingRepository repository = createRepository(1_000);
+        List<Runnable> loads = new ArrayList<>();
+        MeetingPageCache cache = new MeetingPageCache(PAGE_SIZE, PAGE_RADIUS, Locale.FRANCE, loads::add, Runnable::run,
+                (positionStart, itemCount) -> mLoadedRanges.add(new int[]{positionStart, itemCount}));
+        cache.setMeetingPages(repository.getMeetingPagesLiveData().getValue(), START_MINUTE);
+        cache.get(0);
+        runAll(loads);
+
+        repository.deleteMeeting(cache.get(0).meeting);
+        cache.setMeetingPages(repository.getMeetingPagesLiveData().getValue(), START_MINUTE);
+        assertEquals(999, cache.size());
+        assertEquals("Meeting 0", cache.get(0).meeting.getTitle());
+        runAll(loads);
+        assertEquals("Meeting 1", cache.get(0).meeting.getTitle());
+    }
+
+    /**
+     * Tests that the statuses are recomputed on a minute change, reusing the text of the rows.
+     */
+    @Test
+    public void testMinuteChangeReusesText() {
+        MeetingRepository repository = createRepository(1_000);
+        MeetingPageCache cache = new MeetingPageCache(PAGE_SIZE, PAGE_RADIUS, Locale.FRANCE, Runnable::run, Runnable::run,
+                (positionStart, itemCount) -> mLoadedRanges.add(new int[]{positionStart, itemCount}));
+        cache.setMeetingPages(repository.getMeetingPagesLiveData().getValue(), START_MINUTE);
+        MeetingRowModel before = cache.get(4); // Starts at START_MINUTE + 60
+
+        cache.setNowMinute(START_MINUTE + 30);
+
+        MeetingRowModel after = cache.get(4);
+        assertEquals(MeetingRowFormatter.STATUS_WITHIN_HOUR, before.status);
+        assertEquals(MeetingRowFormatter.STATUS_SOON, after.status);
+        assertSame(before.title, after.title);
+        assertSame(before.participants, after.participants);
+    }
+
+    /**
+     * Tests that the pages scrolled away from before their load started are not loaded.
+     */
+    @Test
+    public void testScrolledAwayPagesSkipped() {
+        MeetingRepository repository = createRepository(100_000);
+        List<Runnable> loads = new ArrayList<>();
+        MeetingPageCache cache = new MeetingPageCache(PAGE_SIZE, PAGE_RADIUS, Locale.FRANCE, loads::add, Runnable::run,
+                (positionStart, itemCount) -> mLoadedRanges.add(new int[]{positionStart, itemCount}));
+        cache.setMeetingPages(repository.getMeetingPagesLiveData().getValue(), START_MINUTE);
+
+        // Fling through the list before any load runs
+        for (int position = 0; position < 100_000; position += 1_000) {
+            cache.get(position);
+        }
+        runAll(loads);
+
+        assertEquals(3, mLoadedRanges.size()); // The last displayed page and its neighbours
+        assertTrue(cache.getPageCount() <= 2 * PAGE_RADIUS + 1);
+    }
+
+    /**
+     * Benchmarks scrolling through a one-year calendar of 300k meetings, row by row,
+     * checking that the number of pages in memory stays bounded.
+     */
+    @Test
+    @Category(Benchmark.class)
+    public void benchmarkScrollOneYear() {
+        int count = 300_000; // About 820 meetings a day
+        MeetingRepository repository = createRepository(count);
+        MeetingPages pages = repository.getMeetingPagesLiveData().getValue();
+        MeetingPageCache cache = new MeetingPageCache(PAGE_SIZE, PAGE_RADIUS, Locale.FRANCE, Runnable::run, Runnable::run,
+                (positionStart, itemCount) -> { });
+        cache.setMeetingPages(pages, START_MINUTE);
+
+        int maxPageCount = 0;
+        long start = System.nanoTime();
+        for (int position = 0; position < count; position++) {
+            assertNotNull(cache.get(position));
+            maxPageCount = Math.max(maxPageCount, cache.getPageCount());
+        }
+        long scrollNanos = System.nanoTime() - start;
+        String timings = String.format("Scrolled through %d meetings in %d ms, %.2f us per row, at most %d pages (%d rows) in memory",
+                count, scrollNanos / 1_000_000, scrollNanos / 1_000.0 / count, maxPageCount, maxPageCount * PAGE_SIZE);
+
+        assertTrue(timings, maxPageCount <= 2 * PAGE_RADIUS + 1);
+    }
+
+    /**
+     * Creates a repository holding meetings one every 15 minutes.
+     *
+     * @param count Number of meetings.
+     * @return The repository, its meetings loaded.
+     */
+    private static MeetingRepository createRepository(int count) {
+        List<Meeting> meetings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            meetings.add(new Meeting("Meeting " + i, START_MINUTE + 15L * i, "Peach", "Subject " + i,
+                    Arrays.asList("theo.johnson@example.com", "may.smith@example.com")));
+        }
+        return new MeetingRepository(new MeetingDataSource() {
+            @Override
+            public List<String> getMeetingRooms() {
+                return Arrays.asList("Peach", "Mario", "Luigi", "Toad", "Daisy");
+            }
+
+            @Override
+            public List<Meeting> loadMeetings(int offset, int count) {
+                return FakeApi.getPage(meetings, offset, count);
+            }
+
+            @Override
+            public void saveChanges(List<MeetingChange> changes) {
+                // Kept in memory only
+            }
+        });
+    }
+
+    /**
+     * Runs the queued loads, including the ones they queue.
+     *
+     * @param loads Queued loads.
+     */
+    private static void runAll(List<Runnable> loads) {
+        while (!loads.isEmpty()) {
+            loads.remove(0).run();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.lamzone.mareu.ui.meetinglist;
+
+import static org.junit.Assert.assertEquals;
+
+import com.lamzone.mareu.model.Meeting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Unit tests for the MeetingRowFormatter class.
+ */
+public class MeetingRowFormatterTest {
+
+    private MeetingRowFormatter formatter;
+    private Calendar now;
+
+    /**
+     * Sets up a formatter whose "now" snapshot is today at 10:00.
+     */
+    @Before
+    public void setUp() {
+        now = Calendar.getInstance();
+        now.set(Calendar.HOUR_OF_DAY, 10);
+        now.set(Calendar.MINUTE, 0);
+        now.set(Calendar.SECOND, 0);
+        now.set(Calendar.MILLISECOND, 0);
+        formatter = new MeetingRowFormatter(Locale.FRANCE);
+        formatter.setNow(now.getTimeInMillis());
+    }
+
+    /**
+     * Tests the title line, with and without the date.
+     */
+    @Test
+    public void testFormatTitle() {
+        assertEquals("Meeting - 10h20 - Peach", formatter.formatTitle(createMeeting(0, 20)));
+
+        Calendar tomorrow = (Calendar) now.clone();
+        tomorrow.add(Calendar.DAY_OF_MONTH, 1);
+        String expectedDate = String.format(Locale.FRANCE, "%02d-%02d-%04d", tomorrow.get(Calendar.DAY_OF_MONTH), tomorrow.get(Calendar.MONTH) + 1, tomorrow.get(Calendar.YEAR));
+        assertEquals("Meeting - 10h00 " + expectedDate + " - Peach", formatter.formatTitle(createMeeting(1, 0)));
+    }
+
+    /**
+     * Tests the participants lines.
+     */
+    @Test
+    public void testFormatParticipants() {
+        assertEquals("theo.johnson@example.com\nmay.smith@example.com\n", formatter.formatParticipants(createMeeting(0, 0)));
+    }
+
+    /**
+     * Tests the status thresholds relative to the "now" snapshot.
+     */
+    @Test
+    public void testGetStatus() {
+        assertEquals(MeetingRowFormatter.STATUS_SOON, formatter.getStatus(createMeeting(0, -10)));
+        assertEquals(MeetingRowFormatter.STATUS_SOON, formatter.getStatus(createMeeting(0, 30)));
+        assertEquals(MeetingRowFormatter.STATUS_WITHIN_HOUR, formatter.getStatus(createMeeting(0, 60)));
+        assertEquals(MeetingRowFormatter.STATUS_TODAY, formatter.getStatus(createMeeting(0, 61)));
+        assertEquals(MeetingRowFormatter.STATUS_LATER, formatter.getStatus(createMeeting(1, 0)));
+    }
+
+    /**
+     * Creates a meeting shifted from the "now" snapshot.
+     *
+     * @param days    Number of days to add.
+     * @param minutes Number of minutes to add.
+     * @return The meeting.
+     */
+    private Meeting createMeeting(int days, int minutes) {
+        Calendar dateTime = (Calendar) now.clone();
+        dateTime.add(Calendar.DAY_OF_MONTH, days);
+        dateTime.add(Calendar.MINUTE, minutes);
+        return new Meeting("Meeting", dateTime, "Peach", "Subject", Arrays.asList("theo.johnson@example.com", "may.smith@example.com"));
+    }
+}
@@ -0,0 +1,155 @@
+package com.lamzone.mareu.ui.meetinglist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.lamzone.mareu.model.Meeting;
+import com.lamzone.mareu.model.Recurrence;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Locale;
+
+/**
+ * Unit tests for the MeetingRowModelCache class.
+ */
+public class MeetingRowModelCacheTest {
+
+    private MeetingRowModelCache cache;
+    private long nowMillis;
+    private Meeting meeting;
+
+    /**
+     * Sets up an empty cache and a meeting starting in two hours.
+     */
+    @Before
+    public void setUp() {
+        cache = new MeetingRowModelCache(Locale.FRANCE);
+        nowMillis = System.currentTimeMillis();
+        meeting = createMeeting("Meeting", 120);
+    }
+
+    /**
+     * Tests that a model is reused within the same minute.
+     */
+    @Test
+    public void testModelReusedWithinMinute() {
+        MeetingRowModel model = cache.get(meeting, nowMillis);
+
+        assertSame(model, cache.get(meeting, nowMillis));
+        assertSame(meeting, model.meeting);
+    }
+
+    /**
+     * Tests that a model is recomputed once a minute boundary passes, reusing its participants.
+     */
+    @Test
+    public void testModelInvalidatedOnMinuteBoundary() {
+        MeetingRowModel model = cache.get(meeting, nowMillis);
+        MeetingRowModel nextModel = cache.get(meeting, nowMillis + 60_000);
+
+        assertNotSame(model, nextModel);
+        assertSame(model.participants, nextModel.participants);
+    }
+
+    /**
+     * Tests that the models prepared for a list are bound as is, and that the models of the
+     * meetings no longer displayed are dropped.
+     * It performs the following steps:
+     * 1. Prepares the models of two meetings.
+     * 2. Prepares a list keeping only the second meeting.
+     * 3. Checks that its model was kept and the other one dropped.
+     */
+    @Test
+    public void testPrepareKeepsDisplayedModelsOnly() {
+        Meeting other = createMeeting("Other", 180);
+
+        // Prepare the models of two meetings
+        cache.prepare(Arrays.asList(meeting, other), nowMillis);
+        MeetingRowModel model = cache.get(other, nowMillis);
+        assertEquals(2, cache.size());
+
+        // Prepare a list keeping only the second meeting
+        cache.prepare(Collections.singletonList(other), nowMillis);
+
+        // Check that its model was kept and the other one dropped
+        assertSame(model, cache.get(other, nowMillis));
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Tests that a meeting missing from the prepared list is formatted inline, as the UI thread
+     * binding it ahead of the background preparation would do, and that the next preparation reuses it.
+     * It performs the following steps:
+     * 1. Prepares the models of a list without the meeting.
+     * 2. Gets the model of the meeting and checks that it was formatted and cached.
+     * 3. Prepares a list holding the meeting and checks that its model was reused.
+     */
+    @Test
+    public void testGetFormatsMissingModelInline() {
+        Meeting other = createMeeting("Other", 180);
+
+        // Prepare the models of a list without the meeting
+        cache.prepare(Collections.singletonList(other), nowMillis);
+
+        // Get the model of the meeting and check that it was formatted and cached
+        MeetingRowModel model = cache.get(meeting, nowMillis);
+        assertSame(meeting, model.meeting);
+        assertEquals(2, cache.size());
+
+        // Prepare a list holding the meeting and check that its model was reused
+        cache.prepare(Arrays.asList(meeting, other), nowMillis);
+        assertSame(model, cache.get(meeting, nowMillis));
+    }
+
+    /**
+     * Tests that the occurrences of a series have their own models, reused when the occurrences are built again.
+     * It performs the following steps:
+     * 1. Prepares the models of two occurrences of a daily meeting.
+     * 2. Checks that each occurrence has its own model.
+     * 3. Checks that the models are reused for the same occurrences built again.
+     */
+    @Test
+    public void testOccurrencesHaveOwnModels() {
+        Calendar dateTime = Calendar.getInstance();
+        dateTime.setTimeInMillis(nowMillis);
+        dateTime.add(Calendar.MINUTE, 120);
+        Meeting series = new Meeting("Daily", dateTime, 15, "Peach", "Subject", Arrays.asList("theo.johnson@example.com"),
+                Recurrence.times(Recurrence.Frequency.DAILY, 10));
+
+        // Prepare the models of two occurrences of a daily meeting
+        cache.prepare(Arrays.asList(series.getOccurrence(1), series.getOccurrence(2)), nowMillis);
+
+        // Check that each occurrence has its own model
+        assertEquals(2, cache.size());
+        MeetingRowModel first = cache.get(series.getOccurrence(1), nowMillis);
+        MeetingRowModel second = cache.get(series.getOccurrence(2), nowMillis);
+        assertNotSame(first, second);
+        assertEquals(series.getOccurrence(1).getStartMinute(), first.meeting.getStartMinute());
+        assertEquals(series.getOccurrence(2).getStartMinute(), second.meeting.getStartMinute());
+
+        // Check that the models are reused for the same occurrences built again
+        assertSame(first, cache.get(series.getOccurrence(1), nowMillis));
+        assertSame(second, cache.get(series.getOccurrence(2), nowMillis));
+        assertEquals(2, cache.size());
+    }
+
+    /**
+     * Creates a meeting starting some minutes after the "now" snapshot.
+     *
+     * @param title   Title of the meeting.
+     * @param minutes Number of minutes to add.
+     * @return The meeting.
+     */
+    private Meeting createMeeting(String title, int minutes) {
+        Calendar dateTime = Calendar.getInstance();
+        dateTime.setTimeInMillis(nowMillis);
+        dateTime.add(Calendar.MINUTE, minutes);
+        return new Meeting(title, dateTime, "Peach", "Subject", Arrays.asList("theo.johnson@example.com", "may.smith@example.com"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.lamzone.mareu.ui.meetinglist;
+
+import static org.junit.Assert.assertEquals;
+
+import com.lamzone.mareu.model.Meeting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the MeetingStatusScheduler class.
+ */
+public class MeetingStatusSchedulerTest {
+
+    private MeetingStatusScheduler scheduler;
+    private List<String> changes;
+
+    /**
+     * Sets up a scheduler recording the dispatched changes.
+     */
+    @Before
+    public void setUp() {
+        scheduler = new MeetingStatusScheduler(TimeZone.getDefault());
+        changes = new ArrayList<>();
+    }
+
+    /**
+     * Tests that the next change is the earliest threshold crossing of the list.
+     */
+    @Test
+    public void testGetNextChangeMinute() {
+        List<Meeting> meetings = Arrays.asList(
+                createMeeting(1, 10, 45),
+                createMeeting(1, 11, 30),
+                createMeeting(2, 9, 0));
+
+        // 10:15 (10:45 within 30 minutes), before 10:30 (11:30 within the hour)
+        assertEquals(minute(1, 10, 15), scheduler.getNextChangeMinute(meetings, minute(1, 10, 0)));
+        assertEquals(minute(1, 10, 30), scheduler.getNextChangeMinute(meetings, minute(1, 10, 15)));
+        // No more crossing today: midnight
+        assertEquals(minute(2, 0, 0), scheduler.getNextChangeMinute(meetings, minute(1, 11, 0)));
+        assertEquals(minute(2, 0, 0), scheduler.getNextChangeMinute(Collections.emptyList(), minute(1, 11, 0)));
+    }
+
+    /**
+     * Tests that only the rows crossing a threshold are dispatched, with a status payload.
+     */
+    @Test
+    public void testDispatchThresholdCrossings() {
+        List<Meeting> meetings = Arrays.asList(
+                createMeeting(1, 10, 45),
+                createMeeting(1, 11, 30),
+                createMeeting(1, 15, 0),
+                createMeeting(2, 9, 0));
+
+        scheduler.dispatchChanges(meetings, minute(1, 10, 0), minute(1, 10, 16), this::record);
+        assertEquals(Collections.singletonList("0+1 status"), changes);
+
+        changes.clear();
+        scheduler.dispatchChanges(meetings, minute(1, 10, 16), minute(1, 10, 30), this::record);
+        assertEquals(Collections.singletonList("1+1 status"), changes);
+
+        changes.clear();
+        scheduler.dispatchChanges(meetings, minute(1, 10, 30), minute(1, 10, 59), this::record);
+        assertEquals(Collections.emptyList(), changes);
+    }
+
+    /**
+     * Tests the changes dispatched at midnight.
+     * It performs the following steps:
+     * 1. Moves a list of meetings on three days past midnight.
+     * 2. Checks that the meetings of the new day change status.
+     * 3. Checks that the title lines of the meetings of both days change.
+     */
+    @Test
+    public void testDispatchDayChange() {
+        List<Meeting> meetings = Arrays.asList(
+                createMeeting(1, 9, 0),
+                createMeeting(2, 9, 0),
+                createMeeting(3, 9, 0));
+
+        // Move a list of meetings on three days past midnight
+        scheduler.dispatchChanges(meetings, minute(1, 23, 50), minute(2, 0, 5), this::record);
+
+        // Check that the meetings of the new day change status, and the title lines of both days
+        assertEquals(Arrays.asList("1+1 status", "0+1 full", "1+1 full"), changes);
+    }
+
+    // Record a dispatched range of changed rows
+    private void record(int positionStart, int itemCount, boolean statusOnly) {
+        changes.add(positionStart + "+" + itemCount + (statusOnly ? " status" : " full"));
+    }
+
+    /**
+     * Gets an epoch minute of the test days, in the default time zone.
+     *
+     * @param day       Day, from 1 to 3 (days of January 2030).
+     * @param hourOfDay Hour of the day.
+     * @param minute    Minute of the hour.
+     * @return The epoch minute.
+     */
+    private static long minute(int day, int hourOfDay, int minute) {
+        return TimeUnit.MILLISECONDS.toMinutes(createDate(day, hourOfDay, minute).getTimeInMillis());
+    }
+
+    /**
+     * Creates a meeting on the test days.
+     *
+     * @param day       Day, from 1 to 3 (days of January 2030).
+     * @param hourOfDay Start hour of the meeting.
+     * @param minute    Start minute of the meeting.
+     * @return The meeting.
+     */
+    private static Meeting createMeeting(int day, int hourOfDay, int minute) {
+        return new Meeting("Meeting", createDate(day, hourOfDay, minute), "Peach", "Subject", Collections.singletonList("theo.johnson@example.com"));
+    }
+
+    // Create a date of January 2030, in the default time zone
+    private static Calendar createDate(int day, int hourOfDay, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2030, Calendar.JANUARY, day, hourOfDay, minute);
+        return calendar;
+    }
+}